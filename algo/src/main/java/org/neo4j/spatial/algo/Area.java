@@ -2,6 +2,7 @@ package org.neo4j.spatial.algo;
 
 import org.neo4j.spatial.core.MultiPolygon;
 import org.neo4j.spatial.core.Polygon;
+import org.neo4j.spatial.core.PolygonRings;
 
 public abstract class Area {
     /**
@@ -9,20 +10,12 @@ public abstract class Area {
      * @return The area of the polygon
      */
     public double area(MultiPolygon polygon) {
+        PolygonRings rings = polygon.rings();
         double area = 0;
 
-        for (MultiPolygon.MultiPolygonNode child : polygon.getChildren()) {
-            area += area(child);
-        }
-
-        return area;
-    }
-
-    private double area(MultiPolygon.MultiPolygonNode node) {
-        double area = area(node.getPolygon());
-
-        for (MultiPolygon.MultiPolygonNode child : node.getChildren()) {
-            area -= area(child);
+        for (int i = 0; i < rings.size(); i++) {
+            double ringArea = area(rings.getRing(i));
+            area += rings.isShell(i) ? ringArea : -ringArea;
         }
 
         return area;
@@ -0,0 +1,251 @@
+package org.neo4j.spatial.algo;
+
+import java.util.Arrays;
+
+/**
+ * The closest pair of elements of two sets, found by a best-first descent over a tree of bounds of each set.
+ * <p>
+ * The elements of each set are split in halves until at most {@link #LEAF_SIZE} consecutive elements remain, and every
+ * range of the split is bounded once. The search keeps a heap of pairs of ranges ordered by the lower bound of their
+ * distance, replaces the closest pair of ranges by the pairs of halves of the larger range, and compares the elements of
+ * two leaves directly. Pairs whose lower bound is no less than the closest distance found so far are never pushed, and
+ * the search ends as soon as the closest pair of ranges cannot improve on that distance. Memory is linear in the size of
+ * the sets for the trees, and the heap only holds pairs of ranges that could still contain a closer pair.
+ */
+public final class ClosestPair {
+    /**
+     * The maximum number of consecutive elements bounded together at the leaves of a tree
+     */
+    public static final int LEAF_SIZE = 8;
+
+    private final double distance;
+    private final int first;
+    private final int second;
+
+    private ClosestPair(double distance, int first, int second) {
+        this.distance = distance;
+        this.first = first;
+        this.second = second;
+    }
+
+    /**
+     * @return The distance of the closest pair, or the cutoff of the search if no pair is closer than it
+     */
+    public double getDistance() {
+        return distance;
+    }
+
+    /**
+     * @return The index of the element of the closest pair in the first set, or -1 if no pair is closer than the cutoff
+     */
+    public int getFirst() {
+        return first;
+    }
+
+    /**
+     * @return The index of the element of the closest pair in the second set, or -1 if no pair is closer than the cutoff
+     */
+    public int getSecond() {
+        return second;
+    }
+
+    public boolean isFound() {
+        return first >= 0;
+    }
+
+    @FunctionalInterface
+    public interface RangeBound {
+        /**
+         * @return A bound of the elements from the first index up to the second
+         */
+        double[] bound(int from, int to);
+    }
+
+    @FunctionalInterface
+    public interface LowerBound {
+        /**
+         * @return A lower bound of the distance between any element within the one bound and any element within the other
+         */
+        double lowerBound(double[] a, double[] b);
+    }
+
+    @FunctionalInterface
+    public interface PairDistance {
+        /**
+         * @return The distance between an element of the first set and an element of the second set
+         */
+        double distance(int a, int b);
+    }
+
+    /**
+     * @param a the tree of the first set
+     * @param b the tree of the second set
+     * @param lowerBound the lower bound between the bounds of the trees
+     * @param distance the distance between the elements
+     * @param cutoff the distance from which pairs are of no interest
+     * @return The closest pair of elements if its distance is less than the cutoff
+     */
+    public static ClosestPair search(Tree a, Tree b, LowerBound lowerBound, PairDistance distance, double cutoff) {
+        double best = cutoff;
+        int bestA = -1;
+        int bestB = -1;
+        if (a.size == 0 || b.size == 0) {
+            return new ClosestPair(best, bestA, bestB);
+        }
+
+        Heap heap = new Heap();
+        heap.pushIfBelow(0, 0, lowerBound.lowerBound(a.bounds[0], b.bounds[0]), best);
+        while (heap.size > 0 && heap.keys[0] < best) {
+            int i = heap.firsts[0];
+            int j = heap.seconds[0];
+            heap.pop();
+
+            if (a.isLeaf(i) && b.isLeaf(j)) {
+                for (int s = a.from[i]; s < a.to[i]; s++) {
+                    for (int t = b.from[j]; t < b.to[j]; t++) {
+                        double current = distance.distance(s, t);
+                        if (current < best) {
+                            best = current;
+                            bestA = s;
+                            bestB = t;
+                            if (best == 0) {
+                                return new ClosestPair(best, bestA, bestB);
+                            }
+                        }
+                    }
+                }
+            } else if (b.isLeaf(j) || (!a.isLeaf(i) && a.to[i] - a.from[i] >= b.to[j] - b.from[j])) {
+                heap.pushIfBelow(a.left[i], j, lowerBound.lowerBound(a.bounds[a.left[i]], b.bounds[j]), best);
+                heap.pushIfBelow(a.right[i], j, lowerBound.lowerBound(a.bounds[a.right[i]], b.bounds[j]), best);
+            } else {
+                heap.pushIfBelow(i, b.left[j], lowerBound.lowerBound(a.bounds[i], b.bounds[b.left[j]]), best);
+                heap.pushIfBelow(i, b.right[j], lowerBound.lowerBound(a.bounds[i], b.bounds[b.right[j]]), best);
+            }
+        }
+        return new ClosestPair(best, bestA, bestB);
+    }
+
+    /**
+     * The bounds of the ranges of a set of elements, split in halves down to the leaves
+     */
+    public static final class Tree {
+        private final int size;
+        private final int[] from;
+        private final int[] to;
+        private final int[] left;
+        private final int[] right;
+        private final double[][] bounds;
+        private int nodes;
+
+        private Tree(int size) {
+            int capacity = count(size);
+            this.size = size;
+            this.from = new int[capacity];
+            this.to = new int[capacity];
+            this.left = new int[capacity];
+            this.right = new int[capacity];
+            this.bounds = new double[capacity][];
+        }
+
+        /**
+         * @param size the number of elements
+         * @param bound the bound of a range of elements
+         */
+        public static Tree build(int size, RangeBound bound) {
+            Tree tree = new Tree(size);
+            if (size > 0) {
+                tree.add(0, size, bound);
+            }
+            return tree;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        private static int count(int size) {
+            if (size <= LEAF_SIZE) {
+                return 1;
+            }
+            return 1 + count(size / 2) + count(size - size / 2);
+        }
+
+        private int add(int start, int end, RangeBound bound) {
+            int node = nodes++;
+            from[node] = start;
+            to[node] = end;
+            bounds[node] = bound.bound(start, end);
+            if (end - start <= LEAF_SIZE) {
+                left[node] = -1;
+                right[node] = -1;
+            } else {
+                int middle = start + (end - start) / 2;
+                left[node] = add(start, middle, bound);
+                right[node] = add(middle, end, bound);
+            }
+            return node;
+        }
+
+        private boolean isLeaf(int node) {
+            return left[node] < 0;
+        }
+    }
+
+    /**
+     * A binary min-heap of pairs of nodes keyed by their lower bound, in primitive arrays
+     */
+    private static final class Heap {
+        private int[] firsts = new int[16];
+        private int[] seconds = new int[16];
+        private double[] keys = new double[16];
+        private int size;
+
+        private void pushIfBelow(int first, int second, double key, double limit) {
+            if (key >= limit) {
+                return;
+            }
+            if (size == keys.length) {
+                firsts = Arrays.copyOf(firsts, 2 * size);
+                seconds = Arrays.copyOf(seconds, 2 * size);
+                keys = Arrays.copyOf(keys, 2 * size);
+            }
+            int position = size++;
+            while (position > 0 && keys[(position - 1) / 2] > key) {
+                int parent = (position - 1) / 2;
+                move(parent, position);
+                position = parent;
+            }
+            firsts[position] = first;
+            seconds[position] = second;
+            keys[position] = key;
+        }
+
+        private void pop() {
+            size--;
+            int first = firsts[size];
+            int second = seconds[size];
+            double key = keys[size];
+            int position = 0;
+            while (2 * position + 1 < size) {
+                int child = 2 * position + 1;
+                if (child + 1 < size && keys[child + 1] < keys[child]) {
+                    child++;
+                }
+                if (key <= keys[child]) {
+                    break;
+                }
+                move(child, position);
+                position = child;
+            }
+            firsts[position] = first;
+            seconds[position] = second;
+            keys[position] = key;
+        }
+
+        private void move(int from, int to) {
+            firsts[to] = firsts[from];
+            seconds[to] = seconds[from];
+            keys[to] = keys[from];
+        }
+    }
+}
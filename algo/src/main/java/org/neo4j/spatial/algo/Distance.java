@@ -6,7 +6,10 @@ import org.neo4j.spatial.core.Point;
 import org.neo4j.spatial.core.Polygon;
 import org.neo4j.spatial.core.Polyline;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
 
@@ -129,31 +132,265 @@ public abstract class Distance {
      */
     public abstract double distance(double[] p1, double[] p2);
 
-    protected double getMinDistance(LineSegment[] aLS, LineSegment[] bLS) {
-        double minDistance = Double.MAX_VALUE;
+    /**
+     * @param a
+     * @param b
+     * @param threshold
+     * @return True iff the minimum distance between two polygons is at most the threshold, which is also the case if one polygon is (partially) contained by the other
+     */
+    public boolean isWithinDistance(Polygon a, Polygon b, double threshold) {
+        if (!mayBeWithinDistance(vertices(a), vertices(b), threshold)) {
+            return false;
+        }
+        return containsAny(a, shellStarts(b)) || containsAny(b, shellStarts(a)) || isWithinDistance(a.toLineSegments(), b.toLineSegments(), threshold);
+    }
 
-        for (LineSegment aLineSegment : aLS) {
-            for (LineSegment bLineSegment : bLS) {
-                double current = distance(aLineSegment, bLineSegment);
-                if (current < minDistance) {
-                    minDistance = current;
-                }
+    /**
+     * @param polygon
+     * @param multiPolyline
+     * @param threshold
+     * @return True iff the minimum distance between a polygon and multi polyline is at most the threshold
+     */
+    public boolean isWithinDistance(Polygon polygon, MultiPolyline multiPolyline, double threshold) {
+        if (multiPolyline.getChildren().length == 0 || !mayBeWithinDistance(vertices(polygon), vertices(multiPolyline), threshold)) {
+            return false;
+        }
+        return containsAny(polygon, multiPolyline.getChildren()[0].getPoints()[0]) || isWithinDistance(polygon.toLineSegments(), multiPolyline.toLineSegments(), threshold);
+    }
+
+    /**
+     * @param polygon
+     * @param polyline
+     * @param threshold
+     * @return True iff the minimum distance between a polygon and polyline is at most the threshold
+     */
+    public boolean isWithinDistance(Polygon polygon, Polyline polyline, double threshold) {
+        if (!mayBeWithinDistance(vertices(polygon), polyline.getPoints(), threshold)) {
+            return false;
+        }
+        return containsAny(polygon, polyline.getPoints()[0]) || isWithinDistance(polygon.toLineSegments(), polyline.toLineSegments(), threshold);
+    }
+
+    /**
+     * @param polygon
+     * @param lineSegment
+     * @param threshold
+     * @return True iff the minimum distance between a polygon and line segment is at most the threshold
+     */
+    public boolean isWithinDistance(Polygon polygon, LineSegment lineSegment, double threshold) {
+        if (!mayBeWithinDistance(vertices(polygon), lineSegment.getPoints(), threshold)) {
+            return false;
+        }
+        return containsAny(polygon, lineSegment.getPoints()[0]) || isWithinDistance(polygon.toLineSegments(), new LineSegment[]{lineSegment}, threshold);
+    }
+
+    /**
+     * @param polygon
+     * @param point
+     * @param threshold
+     * @return True iff the minimum distance between a polygon and point is at most the threshold
+     */
+    public boolean isWithinDistance(Polygon polygon, Point point, double threshold) {
+        if (!mayBeWithinDistance(vertices(polygon), new Point[]{point}, threshold)) {
+            return false;
+        }
+        if (containsAny(polygon, point)) {
+            return true;
+        }
+        for (LineSegment lineSegment : polygon.toLineSegments()) {
+            if (distance(lineSegment, point) <= threshold) {
+                return true;
             }
         }
-        return minDistance;
+        return false;
     }
 
-    protected DistanceResult getMinDistanceAndEndpoints(LineSegment[] aLS, LineSegment[] bLS) {
-        DistanceResult minDistance = DistanceResult.NO_RESULT;
+    /**
+     * @param a
+     * @param b
+     * @param threshold
+     * @return True iff the minimum distance between two polylines is at most the threshold
+     */
+    public boolean isWithinDistance(Polyline a, Polyline b, double threshold) {
+        return mayBeWithinDistance(a.getPoints(), b.getPoints(), threshold) && isWithinDistance(a.toLineSegments(), b.toLineSegments(), threshold);
+    }
 
-        for (LineSegment aLineSegment : aLS) {
-            for (LineSegment bLineSegment : bLS) {
-                minDistance = minDistance.min(distanceAndEndpoints(aLineSegment, bLineSegment));
+    /**
+     * @param a
+     * @param b
+     * @param threshold
+     * @return True iff the minimum distance between two multipolylines is at most the threshold
+     */
+    public boolean isWithinDistance(MultiPolyline a, MultiPolyline b, double threshold) {
+        return mayBeWithinDistance(vertices(a), vertices(b), threshold) && isWithinDistance(a.toLineSegments(), b.toLineSegments(), threshold);
+    }
+
+    /**
+     * @param a
+     * @param b
+     * @param threshold
+     * @return True iff the minimum distance between a multipolyline and a polyline is at most the threshold
+     */
+    public boolean isWithinDistance(MultiPolyline a, Polyline b, double threshold) {
+        return mayBeWithinDistance(vertices(a), b.getPoints(), threshold) && isWithinDistance(a.toLineSegments(), b.toLineSegments(), threshold);
+    }
+
+    /**
+     * @param a
+     * @param b
+     * @param threshold
+     * @return True iff the minimum distance between a multipolyline and a line segment is at most the threshold
+     */
+    public boolean isWithinDistance(MultiPolyline a, LineSegment b, double threshold) {
+        return mayBeWithinDistance(vertices(a), b.getPoints(), threshold) && isWithinDistance(a.toLineSegments(), new LineSegment[]{b}, threshold);
+    }
+
+    /**
+     * @param polyline
+     * @param lineSegment
+     * @param threshold
+     * @return True iff the minimum distance between a polyline and line segment is at most the threshold
+     */
+    public boolean isWithinDistance(Polyline polyline, LineSegment lineSegment, double threshold) {
+        return mayBeWithinDistance(polyline.getPoints(), lineSegment.getPoints(), threshold) && isWithinDistance(polyline.toLineSegments(), new LineSegment[]{lineSegment}, threshold);
+    }
+
+    /**
+     * @param polyline
+     * @param point
+     * @param threshold
+     * @return True iff the minimum distance between a polyline and point is at most the threshold
+     */
+    public boolean isWithinDistance(Polyline polyline, Point point, double threshold) {
+        if (!mayBeWithinDistance(polyline.getPoints(), new Point[]{point}, threshold)) {
+            return false;
+        }
+        for (LineSegment lineSegment : polyline.toLineSegments()) {
+            if (distance(lineSegment, point) <= threshold) {
+                return true;
             }
         }
-        return minDistance;
+        return false;
+    }
+
+    /**
+     * @param lineSegment
+     * @param point
+     * @param threshold
+     * @return True iff the minimum distance between a line segment and a point is at most the threshold
+     */
+    public boolean isWithinDistance(LineSegment lineSegment, Point point, double threshold) {
+        return mayBeWithinDistance(lineSegment.getPoints(), new Point[]{point}, threshold) && distance(lineSegment, point) <= threshold;
+    }
+
+    /**
+     * @param a
+     * @param b
+     * @param threshold
+     * @return True iff the minimum distance between two line segments is at most the threshold
+     */
+    public boolean isWithinDistance(LineSegment a, LineSegment b, double threshold) {
+        return mayBeWithinDistance(a.getPoints(), b.getPoints(), threshold) && distance(a, b) <= threshold;
+    }
+
+    /**
+     * @param p1
+     * @param p2
+     * @param threshold
+     * @return True iff the distance between two points is at most the threshold
+     */
+    public boolean isWithinDistance(Point p1, Point p2, double threshold) {
+        return distance(p1, p2) <= threshold;
+    }
+
+    /**
+     * A cheap test on the vertices of two geometries, used to reject pairs before looking at their segments
+     *
+     * @param a the vertices of the first geometry
+     * @param b the vertices of the second geometry
+     * @param threshold
+     * @return False if the geometries spanned by the vertices, including the interiors of polygons, are certainly further apart than the threshold
+     */
+    protected abstract boolean mayBeWithinDistance(Point[] a, Point[] b, double threshold);
+
+    /**
+     * @return True iff a pair of line segments is found whose distance is at most the threshold, ranges of segments
+     * whose bounds are further apart are skipped
+     */
+    protected boolean isWithinDistance(LineSegment[] aLS, LineSegment[] bLS, double threshold) {
+        return closestPair(aLS, bLS, Math.nextUp(threshold)).isFound();
+    }
+
+    private static boolean containsAny(Polygon polygon, Point... points) {
+        for (Point point : points) {
+            if (WithinCalculator.within(polygon, point)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Point[] shellStarts(Polygon polygon) {
+        Polygon.SimplePolygon[] shells = polygon.getShells();
+        Point[] starts = new Point[shells.length];
+        for (int i = 0; i < shells.length; i++) {
+            starts[i] = shells[i].getPoints()[0];
+        }
+        return starts;
+    }
+
+    /**
+     * @return The points of the shells, which bound the holes as well
+     */
+    private static Point[] vertices(Polygon polygon) {
+        List<Point> vertices = new ArrayList<>();
+        for (Polygon.SimplePolygon shell : polygon.getShells()) {
+            Collections.addAll(vertices, shell.getPoints());
+        }
+        return vertices.toArray(new Point[0]);
+    }
+
+    private static Point[] vertices(MultiPolyline multiPolyline) {
+        List<Point> vertices = new ArrayList<>();
+        for (Polyline polyline : multiPolyline.getChildren()) {
+            Collections.addAll(vertices, polyline.getPoints());
+        }
+        return vertices.toArray(new Point[0]);
+    }
+
+    protected double getMinDistance(LineSegment[] aLS, LineSegment[] bLS) {
+        ClosestPair pair = closestPair(aLS, bLS, Double.POSITIVE_INFINITY);
+        return pair.isFound() ? pair.getDistance() : Double.MAX_VALUE;
+    }
+
+    protected DistanceResult getMinDistanceAndEndpoints(LineSegment[] aLS, LineSegment[] bLS) {
+        ClosestPair pair = closestPair(aLS, bLS, Double.POSITIVE_INFINITY);
+        if (!pair.isFound()) {
+            return DistanceResult.NO_RESULT;
+        }
+        return distanceAndEndpoints(aLS[pair.getFirst()], bLS[pair.getSecond()]);
     }
 
+    /**
+     * Find the closest pair of line segments closer than the cutoff by a best-first descent over the bounds of ranges of
+     * consecutive segments
+     */
+    private ClosestPair closestPair(LineSegment[] aLS, LineSegment[] bLS, double cutoff) {
+        ClosestPair.Tree aTree = ClosestPair.Tree.build(aLS.length, (from, to) -> bound(aLS, from, to));
+        ClosestPair.Tree bTree = ClosestPair.Tree.build(bLS.length, (from, to) -> bound(bLS, from, to));
+        return ClosestPair.search(aTree, bTree, this::lowerBound, (s, t) -> distance(aLS[s], bLS[t]), cutoff);
+    }
+
+    /**
+     * @return A bound of the line segments from the first index up to the second, in a form understood by {@link #lowerBound(double[], double[])}
+     */
+    protected abstract double[] bound(LineSegment[] lineSegments, int from, int to);
+
+    /**
+     * @return A lower bound of the distance between any two points within the bounds
+     */
+    protected abstract double lowerBound(double[] a, double[] b);
+
     protected abstract DistanceResult distanceAndEndpoints(LineSegment a, LineSegment b);
 
     public static class DistanceResult {
@@ -172,6 +409,18 @@ public abstract class Distance {
             this.end = end;
         }
 
+        public double getDistance() {
+            return distance;
+        }
+
+        public Point getStart() {
+            return start;
+        }
+
+        public Point getEnd() {
+            return end;
+        }
+
         public DistanceResult withMessage(String message) {
             this.message = message;
             return this;
@@ -212,13 +461,9 @@ public abstract class Distance {
             result.put("distance", distance);
             if (start != null) {
                 result.put("start", pointMapper.apply(start));
-            } else {
-                System.out.println("No start point was found for distance " + distance);
             }
             if (end != null) {
                 result.put("end", pointMapper.apply(end));
-            } else {
-                System.out.println("No end point was found for distance " + distance);
             }
             if (message != null) {
                 result.put("message", message);
@@ -12,8 +12,9 @@ public class IntersectCalculator {
     private static CartesianIntersect cartesianNaive;
     private static WGS84Intersect wgs84Naive;
 
-    private static CartesianIntersect cartesianSweep;
-    private static WGS84Intersect wgs84Sweep;
+    //The sweep line calculators keep the state of a sweep in their fields, so every thread sweeps with its own
+    private static final ThreadLocal<CartesianIntersect> cartesianSweep = ThreadLocal.withInitial(CartesianMCSweepLineIntersect::new);
+    private static final ThreadLocal<WGS84Intersect> wgs84Sweep = ThreadLocal.withInitial(WGS84MCSweepLineIntersect::new);
 
     private static Intersect getCartesianNaive() {
         if (cartesianNaive == null) {
@@ -30,17 +31,11 @@ public class IntersectCalculator {
     }
 
     private static Intersect getCartesianSweep() {
-        if (cartesianSweep == null) {
-            cartesianSweep = new CartesianMCSweepLineIntersect();
-        }
-        return cartesianSweep;
+        return cartesianSweep.get();
     }
 
     private static Intersect getWGS84Sweep() {
-        if (wgs84Sweep == null) {
-            wgs84Sweep = new WGS84MCSweepLineIntersect();
-        }
-        return wgs84Sweep;
+        return wgs84Sweep.get();
     }
 
     public static Intersect getCalculator(CRS crs) {
@@ -21,16 +21,16 @@ public abstract class LinearReference {
         List<Point> points = new ArrayList<>();
         Distance calculator = DistanceCalculator.getCalculator(getCRS());
 
-        polygon.startTraversal(start, direction);
-        Point previous = polygon.getNextPoint();
+        TraversalCursor cursor = polygon.openCursor(start, direction);
+        Point previous = cursor.next();
         points.add(previous);
         while (d > 0) {
-            if (polygon.fullyTraversed()) {
-                polygon.startTraversal(start, direction);
-                polygon.getNextPoint();//Skip start/end point
+            if (!cursor.hasNext()) {
+                cursor = polygon.openCursor(start, direction);
+                cursor.next();//Skip start/end point
             }
 
-            Point current = polygon.getNextPoint();
+            Point current = cursor.next();
             double length = calculator.distance(previous, current);
 
             if (length < d) {
@@ -64,11 +64,11 @@ public abstract class LinearReference {
         List<Point> points = new ArrayList<>();
         Distance calculator = DistanceCalculator.getCalculator(start);
 
-        polyline.startTraversal(start, direction);
-        Point previous = polyline.getNextPoint();
+        TraversalCursor cursor = polyline.openCursor(start, direction);
+        Point previous = cursor.next();
         points.add(previous);
-        while (d > 0 && !polyline.fullyTraversed()) {
-            Point current = polyline.getNextPoint();
+        while (d > 0 && cursor.hasNext()) {
+            Point current = cursor.next();
             double length = calculator.distance(previous, current);
 
             if (length < d) {
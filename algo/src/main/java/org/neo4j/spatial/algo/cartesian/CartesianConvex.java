@@ -0,0 +1,254 @@
+package org.neo4j.spatial.algo.cartesian;
+
+import org.neo4j.spatial.core.Point;
+import org.neo4j.spatial.core.Polygon;
+
+import java.util.Arrays;
+
+/**
+ * Distance and intersection of convex shapes with the Gilbert-Johnson-Keerthi algorithm.
+ * <p>
+ * The shapes are given by their vertices and stand for the convex hull of those vertices. The distance between two
+ * shapes is the distance of the origin to their Minkowski difference, which is approached by a simplex of at most three
+ * differences of vertices. Every step replaces the simplex by the smallest part of it closest to the origin, extended by
+ * the difference furthest in the direction of the origin. Each step is linear in the number of vertices, and the number
+ * of steps is small and independent of the size of the shapes in practice.
+ */
+public final class CartesianConvex {
+    private static final double RELATIVE_TOLERANCE = 1e-12;
+
+    private CartesianConvex() {
+    }
+
+    /**
+     * @return The single convex shell of the polygon, or null if the polygon has holes, several shells or a concave shell
+     */
+    public static Polygon.SimplePolygon convexShell(Polygon polygon) {
+        if (polygon.getHoles().length > 0 || polygon.getShells().length != 1) {
+            return null;
+        }
+        Polygon.SimplePolygon shell = polygon.getShells()[0];
+        return shell.isConvex() ? shell : null;
+    }
+
+    /**
+     * @return The minimum distance between the convex hulls of the points, 0 if they intersect
+     */
+    public static double distance(Point[] a, Point[] b) {
+        return distance(pack(a), pack(b), null);
+    }
+
+    /**
+     * @return True iff the convex hulls of the points intersect or touch
+     */
+    public static boolean intersects(Point[] a, Point[] b) {
+        return distance(a, b) == 0;
+    }
+
+    /**
+     * @param a the x and y coordinates of the vertices of the first shape
+     * @param b the x and y coordinates of the vertices of the second shape
+     * @param closest receives the closest point of the first shape followed by the closest point of the second, unless
+     * the shapes intersect or the array is null
+     * @return The minimum distance between the shapes, 0 if they intersect, computed exactly from the closest features
+     * found rather than from the converging simplex
+     */
+    static double distance(double[] a, double[] b, double[] closest) {
+        int aCount = a.length / 2;
+        int bCount = b.length / 2;
+        int[] aIndices = new int[3];
+        int[] bIndices = new int[3];
+        double[] lambdas = new double[]{1, 0, 0};
+        int size = 1;
+        double vx = a[0] - b[0];
+        double vy = a[1] - b[1];
+
+        for (int iteration = 0; iteration < 2 * (aCount + bCount) + 16; iteration++) {
+            double vv = vx * vx + vy * vy;
+            if (vv == 0) {
+                return 0;
+            }
+            //The vertices furthest in the direction from the current point towards the origin
+            int i = support(a, -vx, -vy);
+            int j = support(b, vx, vy);
+            double wx = a[2 * i] - b[2 * j];
+            double wy = a[2 * i + 1] - b[2 * j + 1];
+            if (vv - (vx * wx + vy * wy) <= RELATIVE_TOLERANCE * vv || contains(aIndices, bIndices, size, i, j)) {
+                break;
+            }
+
+            aIndices[size] = i;
+            bIndices[size] = j;
+            size++;
+            size = reduce(a, b, aIndices, bIndices, lambdas, size);
+            if (size == 3) {
+                return 0;
+            }
+            vx = 0;
+            vy = 0;
+            for (int k = 0; k < size; k++) {
+                vx += lambdas[k] * (a[2 * aIndices[k]] - b[2 * bIndices[k]]);
+                vy += lambdas[k] * (a[2 * aIndices[k] + 1] - b[2 * bIndices[k] + 1]);
+            }
+        }
+
+        //The simplex spans a vertex or an edge of each shape, whose closest points are exact unlike the barycentric sum.
+        //The edges of the ring at those vertices are compared too, so the distance of a closest vertex is the one the
+        //segments of the ring reach exactly, whichever edge led to it
+        int[] aEdges = edges(a, aIndices[0], aIndices[size - 1]);
+        int[] bEdges = edges(b, bIndices[0], bIndices[size - 1]);
+        double[] candidate = new double[4];
+        double best = Double.POSITIVE_INFINITY;
+        for (int s = 0; s < aEdges.length; s += 2) {
+            int i1 = aEdges[s], i2 = aEdges[s + 1];
+            for (int t = 0; t < bEdges.length; t += 2) {
+                int j1 = bEdges[t], j2 = bEdges[t + 1];
+                double distance = CartesianDistance.closestPoints(a[2 * i1], a[2 * i1 + 1], a[2 * i2], a[2 * i2 + 1], b[2 * j1], b[2 * j1 + 1], b[2 * j2], b[2 * j2 + 1], candidate);
+                if (distance < best) {
+                    best = distance;
+                    if (closest != null) {
+                        System.arraycopy(candidate, 0, closest, 0, 4);
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return The pairs of vertices of the edges of the ring at the two vertices, in the order of the ring, and of the
+     * two vertices themselves if they are not on one edge
+     */
+    private static int[] edges(double[] points, int first, int second) {
+        int[] edges = new int[]{previous(points, first), first, first, next(points, first),
+                previous(points, second), second, second, next(points, second), first, second};
+        boolean adjacent = first == second || next(points, first) == second || next(points, second) == first;
+        return adjacent ? Arrays.copyOf(edges, 8) : edges;
+    }
+
+    static double[] pack(Point[] points) {
+        double[] packed = new double[2 * points.length];
+        for (int i = 0; i < points.length; i++) {
+            double[] coordinate = points[i].getCoordinate();
+            packed[2 * i] = coordinate[0];
+            packed[2 * i + 1] = coordinate[1];
+        }
+        return packed;
+    }
+
+    /**
+     * @return The index of the vertex following the vertex in the ring, skipping a last vertex closing the ring
+     */
+    private static int next(double[] points, int vertex) {
+        return vertex == last(points) ? 0 : vertex + 1;
+    }
+
+    /**
+     * @return The index of the vertex preceding the vertex in the ring, skipping a last vertex closing the ring
+     */
+    private static int previous(double[] points, int vertex) {
+        return vertex == 0 ? last(points) : vertex - 1;
+    }
+
+    /**
+     * @return The index of the last vertex of the ring, which is the one before the closing vertex if there is one
+     */
+    private static int last(double[] points) {
+        int last = points.length / 2 - 1;
+        if (last > 0 && points[2 * last] == points[0] && points[2 * last + 1] == points[1]) {
+            return last - 1;
+        }
+        return last;
+    }
+
+    private static int support(double[] points, double dx, double dy) {
+        int best = 0;
+        double bestDot = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < points.length / 2; i++) {
+            double dot = points[2 * i] * dx + points[2 * i + 1] * dy;
+            if (dot > bestDot) {
+                best = i;
+                bestDot = dot;
+            }
+        }
+        return best;
+    }
+
+    private static boolean contains(int[] aIndices, int[] bIndices, int size, int i, int j) {
+        for (int k = 0; k < size; k++) {
+            if (aIndices[k] == i && bIndices[k] == j) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reduce the simplex to the smallest part containing its point closest to the origin, with the barycentric
+     * coordinates of that point in the lambdas
+     *
+     * @return The new size of the simplex, which is 3 only if the simplex contains the origin
+     */
+    private static int reduce(double[] a, double[] b, int[] aIndices, int[] bIndices, double[] lambdas, int size) {
+        double[] x = new double[size];
+        double[] y = new double[size];
+        for (int k = 0; k < size; k++) {
+            x[k] = a[2 * aIndices[k]] - b[2 * bIndices[k]];
+            y[k] = a[2 * aIndices[k] + 1] - b[2 * bIndices[k] + 1];
+        }
+
+        if (size == 3) {
+            double area = cross(x[0], y[0], x[1], y[1], x[2], y[2]);
+            double area0 = cross(0, 0, x[1], y[1], x[2], y[2]);
+            double area1 = cross(x[0], y[0], 0, 0, x[2], y[2]);
+            double area2 = cross(x[0], y[0], x[1], y[1], 0, 0);
+            if (area != 0 && area0 * area >= 0 && area1 * area >= 0 && area2 * area >= 0) {
+                return 3;
+            }
+        }
+
+        //The closest point is on one of the edges, or the single vertex
+        int bestFirst = 0;
+        int bestSecond = -1;
+        double bestT = 0;
+        double bestDistance = x[0] * x[0] + y[0] * y[0];
+        for (int first = 0; first < size; first++) {
+            for (int second = first + 1; second < size; second++) {
+                double ex = x[second] - x[first];
+                double ey = y[second] - y[first];
+                double lengthSquared = ex * ex + ey * ey;
+                double t = lengthSquared == 0 ? 0 : Math.max(0, Math.min(1, -(x[first] * ex + y[first] * ey) / lengthSquared));
+                double px = x[first] + t * ex;
+                double py = y[first] + t * ey;
+                double distance = px * px + py * py;
+                if (distance < bestDistance) {
+                    bestFirst = first;
+                    bestSecond = second;
+                    bestT = t;
+                    bestDistance = distance;
+                }
+            }
+        }
+
+        if (bestSecond < 0 || bestT == 0 || bestT == 1) {
+            int vertex = bestSecond >= 0 && bestT == 1 ? bestSecond : bestFirst;
+            aIndices[0] = aIndices[vertex];
+            bIndices[0] = bIndices[vertex];
+            lambdas[0] = 1;
+            return 1;
+        }
+        int aFirst = aIndices[bestFirst], bFirst = bIndices[bestFirst];
+        int aSecond = aIndices[bestSecond], bSecond = bIndices[bestSecond];
+        aIndices[0] = aFirst;
+        bIndices[0] = bFirst;
+        aIndices[1] = aSecond;
+        bIndices[1] = bSecond;
+        lambdas[0] = 1 - bestT;
+        lambdas[1] = bestT;
+        return 2;
+    }
+
+    private static double cross(double x0, double y0, double x1, double y1, double x2, double y2) {
+        return (x1 - x0) * (y2 - y0) - (y1 - y0) * (x2 - x0);
+    }
+}
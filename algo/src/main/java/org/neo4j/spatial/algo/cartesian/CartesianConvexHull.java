@@ -1,39 +1,53 @@
 package org.neo4j.spatial.algo.cartesian;
 
-import org.neo4j.spatial.algo.AlgoUtil;
-import org.neo4j.spatial.algo.Distance;
-import org.neo4j.spatial.algo.DistanceCalculator;
-import org.neo4j.spatial.core.CRS;
 import org.neo4j.spatial.core.MultiPolygon;
 import org.neo4j.spatial.core.Point;
 import org.neo4j.spatial.core.Polygon;
 
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
-import java.util.Stack;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
-import java.util.stream.Stream;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
+/**
+ * Convex hulls with Andrew's monotone chain algorithm on packed coordinates.
+ * <p>
+ * Before sorting, the points strictly inside the quadrilateral of the extreme points in x and y are discarded, as
+ * proposed by Akl and Toussaint, which leaves only a small fraction of the points for most inputs. The remaining points
+ * are sorted by x and y, and the lower and upper chain of the hull are built in one pass each. For very large inputs the
+ * points can be split into ranges whose hulls are computed in parallel, the hull of the union of those hulls being the
+ * hull of all points.
+ * <p>
+ * The hulls are counterclockwise without collinear points, starting at the point with the lowest y-value (and lowest
+ * x-value of the points with the same y-value).
+ */
 public class CartesianConvexHull {
+    private static final int PARALLEL_THRESHOLD = 1 << 16;
+    private static final int INSERTION_SORT_THRESHOLD = 32;
+
     /**
-     * Computes the convex hull of a multipolygon using Graham's scan
+     * Computes the convex hull of the shells of a multipolygon
      *
      * @param polygon
      * @return A polygon which is the convex hull of the input polygon
      */
     public static Polygon.SimplePolygon convexHull(MultiPolygon polygon) {
-        Polygon.SimplePolygon[] convexHulls = new Polygon.SimplePolygon[polygon.getChildren().size()];
-
-        for (int i = 0; i < polygon.getChildren().size(); i++) {
-            convexHulls[i] = convexHull(polygon.getChildren().get(i).getPolygon());
+        Polygon.SimplePolygon[] shells = polygon.getShells();
+        int size = 0;
+        for (Polygon.SimplePolygon shell : shells) {
+            size += shell.getPoints().length;
         }
-
-        return convexHull(Stream.of(convexHulls).map(Polygon.SimplePolygon::getPoints).flatMap(Stream::of).toArray(Point[]::new));
+        Point[] points = new Point[size];
+        int offset = 0;
+        for (Polygon.SimplePolygon shell : shells) {
+            Point[] shellPoints = shell.getPoints();
+            System.arraycopy(shellPoints, 0, points, offset, shellPoints.length);
+            offset += shellPoints.length;
+        }
+        return convexHull(points);
     }
+
     /**
-     * Computes the convex hull of a polyline polygon using Graham's scan
+     * Computes the convex hull of a simple polygon
      *
      * @param polygon
      * @return A polygon which is the convex hull of the input polygon
@@ -43,175 +57,247 @@ public class CartesianConvexHull {
     }
 
     /**
-     * Computes the convex hull of a set of points using Graham's scan
+     * Computes the convex hull of a set of points
      *
      * @param points
      * @return A polygon which is the convex hull of the input points
      */
     public static Polygon.SimplePolygon convexHull(Point[] points) {
-        Point reference = getLowestPoint(points);
-        List<Point> sortedPoints = sortPoints(points, reference);
+        return select(points, convexHull(CartesianConvex.pack(points)));
+    }
 
-        Stack<Point> stack = new Stack<>();
+    /**
+     * Computes the convex hull of a set of points, splitting large sets over the pool
+     *
+     * @param points
+     * @param pool the pool computing the hulls of parts of the points
+     * @return A polygon which is the convex hull of the input points
+     */
+    public static Polygon.SimplePolygon convexHull(Point[] points, ForkJoinPool pool) {
+        return select(points, convexHull(CartesianConvex.pack(points), pool));
+    }
 
-        for (Point point : sortedPoints) {
-            //Remove last point from the stack if we make a clockwise turn (that point makes the hull concave)
-            while (stack.size() > 1 && AlgoUtil.ccw(stack.get(stack.size()-2), stack.peek(), point) <= 0) {
-                stack.pop();
-            }
-            stack.push(point);
+    private static Polygon.SimplePolygon select(Point[] points, int[] hull) {
+        Point[] result = new Point[hull.length];
+        for (int i = 0; i < hull.length; i++) {
+            result[i] = points[hull[i]];
         }
-
-        return Polygon.simple(stack.toArray(new Point[0]));
+        return Polygon.simple(result);
     }
 
     /**
-     * Computes the convex hull of a set of coordinates using Graham's scan
+     * Computes the convex hull of a set of coordinates
      *
      * @param coordinates of points
      * @return Ordered list of indices of the input which together form the convex hull
      */
     public static int[] convexHullByIndex(double[][] coordinates) {
-        double[] reference = getLowestCoordinate(coordinates);
-        List<Integer> sortedPoints = sortIndices(coordinates, reference);
+        double[] packed = new double[2 * coordinates.length];
+        for (int i = 0; i < coordinates.length; i++) {
+            packed[2 * i] = coordinates[i][0];
+            packed[2 * i + 1] = coordinates[i][1];
+        }
+        return convexHull(packed);
+    }
 
-        Stack<Integer> stack = new Stack<>();
+    /**
+     * Computes the convex hull of a set of packed coordinates
+     *
+     * @param coordinates the x and y coordinates of the points, one after the other
+     * @return Ordered list of indices of the points which together form the convex hull
+     */
+    public static int[] convexHull(double[] coordinates) {
+        int n = count(coordinates);
+        int[] indices = new int[n];
+        for (int i = 0; i < n; i++) {
+            indices[i] = i;
+        }
+        return start(coordinates, hull(coordinates, indices, n));
+    }
 
-        for (int current : sortedPoints) {
-            //Remove last point from the stack if we make a clockwise turn (that point makes the hull concave)
-            while (stack.size() > 1 && AlgoUtil.ccw(coordinates[stack.get(stack.size()-2)], coordinates[stack.peek()], coordinates[current]) <= 0) {
-                stack.pop();
+    /**
+     * Computes the convex hull of a set of packed coordinates, dividing sets of more than 65536 points into ranges whose
+     * hulls are computed and merged on the pool
+     *
+     * @param coordinates the x and y coordinates of the points, one after the other
+     * @param pool the pool computing the hulls of the ranges
+     * @return Ordered list of indices of the points which together form the convex hull
+     */
+    public static int[] convexHull(double[] coordinates, ForkJoinPool pool) {
+        return start(coordinates, pool.invoke(new Hull(coordinates, 0, count(coordinates))));
+    }
 
-            }
-            stack.push(current);
+    private static int count(double[] coordinates) {
+        if (coordinates.length % 2 != 0) {
+            throw new IllegalArgumentException("Expected pairs of x and y coordinates, got " + coordinates.length + " values");
         }
-
-        return stack.stream().mapToInt(i -> i).toArray();
+        return coordinates.length / 2;
     }
 
     /**
-     * Sorts the points based on their polar angle with respect to the reference point.
-     * Ties are broken based on the distance to the reference point
-     *
-     * @param points
-     * @param reference
-     * @return Sorted list of points
+     * @param indices the points of which to compute the hull, in the first count elements, which are reordered
+     * @return The hull starting at the point with the lowest x-value (and lowest y-value of the points with the same
+     * x-value)
      */
-    private static List<Point> sortPoints(Point[] points, Point reference) {
-        List<Point> sortedPoints = new ArrayList<>(Arrays.asList(points));
-        sortedPoints.sort((a, b) -> comparePoints(reference.getCoordinate(), a.getCoordinate(), b.getCoordinate()));
-
-        //Remove points with same polar angle but shorter distance to reference
-        List<Integer> toDelete = new ArrayList<>();
-        for (int i = 1; i < sortedPoints.size() - 1; i++) {
-            Point a = sortedPoints.get(i);
-            Point b = sortedPoints.get(i+1);
-
-            double angleA = getPolarAngle(reference.getCoordinate(), a.getCoordinate());
-            double angleB = getPolarAngle(reference.getCoordinate(), b.getCoordinate());
-            if (AlgoUtil.equal(angleA, angleB)) {
-                toDelete.add(i - toDelete.size());
+    private static int[] hull(double[] xy, int[] indices, int count) {
+        count = discardInterior(xy, indices, count);
+        if (count < 2) {
+            return Arrays.copyOf(indices, count);
+        }
+        sort(xy, indices, new int[count], 0, count);
+
+        int[] hull = new int[2 * count];
+        int size = 0;
+        //Lower chain from left to right, then upper chain from right to left, both turning counterclockwise only
+        for (int i = 0; i < count; i++) {
+            while (size >= 2 && cross(xy, hull[size - 2], hull[size - 1], indices[i]) <= 0) {
+                size--;
             }
+            hull[size++] = indices[i];
         }
-        for (Integer index: toDelete) {
-            sortedPoints.remove((int) index);
+        for (int i = count - 2, lower = size + 1; i >= 0; i--) {
+            while (size >= lower && cross(xy, hull[size - 2], hull[size - 1], indices[i]) <= 0) {
+                size--;
+            }
+            hull[size++] = indices[i];
         }
-        return sortedPoints;
+        //The last point is the first point again
+        return Arrays.copyOf(hull, Math.max(1, size - 1));
     }
 
     /**
-     * Sorts the points based on their polar angle with respect to the reference point.
-     * Ties are broken based on the distance to the reference point
+     * Moves the points which are not strictly inside the quadrilateral of the extreme points to the front
      *
-     * @param coordinates
-     * @param reference
-     * @return Sorted list of the indices of the array of input coordinates
+     * @return The number of points left
      */
-    private static List<Integer> sortIndices(double[][] coordinates, double[] reference) {
-        List<Integer> sortedIndices = IntStream.range(0, coordinates.length).boxed().collect(Collectors.toList());;
-        sortedIndices.sort((a, b) -> comparePoints(reference, coordinates[a], coordinates[b]));
-
-        //Remove points with same polar angle but shorter distance to reference
-        List<Integer> toDelete = new ArrayList<>();
-        for (int i = 1; i < sortedIndices.size() - 1; i++) {
-            int a = sortedIndices.get(i);
-            int b = sortedIndices.get(i+1);
-
-            double angleA = getPolarAngle(reference, coordinates[a]);
-            double angleB = getPolarAngle(reference, coordinates[b]);
-            if (AlgoUtil.equal(angleA, angleB)) {
-                toDelete.add(i - toDelete.size());
+    private static int discardInterior(double[] xy, int[] indices, int count) {
+        if (count < 8) {
+            return count;
+        }
+        int minX = indices[0], maxX = indices[0], minY = indices[0], maxY = indices[0];
+        for (int i = 1; i < count; i++) {
+            int p = indices[i];
+            if (xy[2 * p] < xy[2 * minX]) {
+                minX = p;
+            }
+            if (xy[2 * p] > xy[2 * maxX]) {
+                maxX = p;
+            }
+            if (xy[2 * p + 1] < xy[2 * minY]) {
+                minY = p;
+            }
+            if (xy[2 * p + 1] > xy[2 * maxY]) {
+                maxY = p;
             }
         }
-        for (Integer index: toDelete) {
-            sortedIndices.remove((int) index);
+
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            int p = indices[i];
+            boolean inside = cross(xy, minY, maxX, p) > 0 && cross(xy, maxX, maxY, p) > 0
+                    && cross(xy, maxY, minX, p) > 0 && cross(xy, minX, minY, p) > 0;
+            if (!inside) {
+                indices[kept++] = p;
+            }
         }
-        return sortedIndices;
+        return kept;
     }
 
     /**
-     * Returns the point with lowest y-value. If multiple points have the same y-value, return the one of those points with the lowest x-value
-     *
-     * @param inputPoints the array of points from which we will pick the lowest point
-     * @return Point with lowest y-value (and lowest x-value of the points with the same y-value)
+     * Merge sort of the indices on the x-value and y-value of their points
      */
-    private static Point getLowestPoint(Point[] inputPoints) {
-        Point outer = inputPoints[0];
-
-        for (Point point : inputPoints) {
-            if (point.getCoordinate()[1] < outer.getCoordinate()[1]) {
-                outer = point;
-            } else if (point.getCoordinate()[1] == outer.getCoordinate()[1]) {
-                if (point.getCoordinate()[0] < outer.getCoordinate()[0]) {
-                    outer = point;
+    private static void sort(double[] xy, int[] indices, int[] buffer, int from, int to) {
+        if (to - from <= INSERTION_SORT_THRESHOLD) {
+            for (int i = from + 1; i < to; i++) {
+                int p = indices[i];
+                int j = i;
+                while (j > from && before(xy, p, indices[j - 1])) {
+                    indices[j] = indices[j - 1];
+                    j--;
                 }
+                indices[j] = p;
             }
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        sort(xy, indices, buffer, from, middle);
+        sort(xy, indices, buffer, middle, to);
+        if (!before(xy, indices[middle], indices[middle - 1])) {
+            return;
+        }
+        System.arraycopy(indices, from, buffer, from, middle - from);
+        int i = from;
+        int j = middle;
+        int k = from;
+        while (i < middle && j < to) {
+            indices[k++] = before(xy, indices[j], buffer[i]) ? indices[j++] : buffer[i++];
+        }
+        while (i < middle) {
+            indices[k++] = buffer[i++];
         }
+    }
 
-        return outer;
+    private static boolean before(double[] xy, int a, int b) {
+        return xy[2 * a] < xy[2 * b] || (xy[2 * a] == xy[2 * b] && xy[2 * a + 1] < xy[2 * b + 1]);
     }
 
-    // TODO: Reduce duplicated code
-    private static double[] getLowestCoordinate(double[][] inputCoordinates) {
-        double[] outer = inputCoordinates[0];
+    private static double cross(double[] xy, int a, int b, int c) {
+        return (xy[2 * b] - xy[2 * a]) * (xy[2 * c + 1] - xy[2 * a + 1]) - (xy[2 * b + 1] - xy[2 * a + 1]) * (xy[2 * c] - xy[2 * a]);
+    }
 
-        for (double[] coordinate : inputCoordinates) {
-            if (coordinate[1] < outer[1]) {
-                outer = coordinate;
-            } else if (coordinate[1] == outer[1]) {
-                if (coordinate[0] < outer[0]) {
-                    outer = coordinate;
-                }
+    /**
+     * Rotates the hull to start at the point with the lowest y-value (and lowest x-value of the points with the same
+     * y-value)
+     */
+    private static int[] start(double[] xy, int[] hull) {
+        int start = 0;
+        for (int i = 1; i < hull.length; i++) {
+            double y = xy[2 * hull[i] + 1];
+            double startY = xy[2 * hull[start] + 1];
+            if (y < startY || (y == startY && xy[2 * hull[i]] < xy[2 * hull[start]])) {
+                start = i;
             }
         }
-
-        return outer;
+        int[] result = new int[hull.length];
+        for (int i = 0; i < hull.length; i++) {
+            result[i] = hull[(start + i) % hull.length];
+        }
+        return result;
     }
 
-    private static int comparePoints(double[] reference, double[] a, double[] b) {
-        if (Arrays.equals(a, b)) {
-            return 0;
-        }
+    /**
+     * Computes the hull of a range of points, splitting the range in halves whose hulls are merged
+     */
+    private static class Hull extends RecursiveTask<int[]> {
+        private static final long serialVersionUID = 1L;
 
-        double angleA = getPolarAngle(reference, a);
-        double angleB = getPolarAngle(reference, b);
+        private final double[] xy;
+        private final int from;
+        private final int to;
 
-        Distance calculator = DistanceCalculator.getCalculator(CRS.Cartesian);
-        if (AlgoUtil.equal(angleA, angleB)) {
-            return Double.compare(calculator.distance(reference, a), calculator.distance(reference, b));
+        private Hull(double[] xy, int from, int to) {
+            this.xy = xy;
+            this.from = from;
+            this.to = to;
         }
 
-        return Double.compare(angleA, angleB);
-    }
-
-    /**
-     * Computes the polar angle for point a with respect to the reference point
-     *
-     * @param reference the reference point which will act as the origin
-     * @param a         the point for which we want to know the polar angle
-     * @return The polar angle of a with respect to the reference point
-     */
-    private static double getPolarAngle(double[] reference, double[] a) {
-        return Math.atan2(a[1] - reference[1], a[0] - reference[0]);
+        @Override
+        protected int[] compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                int[] indices = new int[to - from];
+                for (int i = 0; i < indices.length; i++) {
+                    indices[i] = from + i;
+                }
+                return hull(xy, indices, indices.length);
+            }
+            int middle = (from + to) >>> 1;
+            Hull left = new Hull(xy, from, middle);
+            left.fork();
+            int[] right = new Hull(xy, middle, to).compute();
+            int[] leftHull = left.join();
+            int[] merged = Arrays.copyOf(leftHull, leftHull.length + right.length);
+            System.arraycopy(right, 0, merged, leftHull.length, right.length);
+            return hull(xy, merged, merged.length);
+        }
     }
 }
@@ -1,186 +1,171 @@
 package org.neo4j.spatial.algo.cartesian;
 
 import org.neo4j.spatial.algo.AlgoUtil;
+import org.neo4j.spatial.algo.ClosestPair;
 import org.neo4j.spatial.algo.Distance;
-import org.neo4j.spatial.algo.cartesian.intersect.CartesianIntersect;
-import org.neo4j.spatial.algo.cartesian.intersect.CartesianMCSweepLineIntersect;
+import org.neo4j.spatial.core.CRS;
+import org.neo4j.spatial.core.Envelope;
 import org.neo4j.spatial.core.LineSegment;
 import org.neo4j.spatial.core.MultiPolyline;
 import org.neo4j.spatial.core.Point;
 import org.neo4j.spatial.core.Polygon;
 import org.neo4j.spatial.core.Polyline;
+import org.neo4j.spatial.core.SegmentBuffer;
+import org.neo4j.spatial.core.SegmentVisitor;
 
 import static java.lang.String.format;
 
 public class CartesianDistance extends Distance {
+    /**
+     * The number of vertices from which the convex hulls of both geometries are worth computing to reject a pair, below
+     * it the segment scan costs about as much as the hull distance
+     */
+    private static final int HULL_BOUND_SIZE = 64;
+
     public double distance(Polygon a, Polygon b) {
-        boolean intersects = new CartesianMCSweepLineIntersect().doesIntersect(a, b);
+        Polygon.SimplePolygon aConvex = CartesianConvex.convexShell(a);
+        Polygon.SimplePolygon bConvex = CartesianConvex.convexShell(b);
+        if (aConvex != null && bConvex != null) {
+            return CartesianConvex.distance(aConvex.getPoints(), bConvex.getPoints());
+        }
 
-        //Check if one polygon is (partially) contained by the other
-        if (intersects) {
-            return 0;
-        } else  if (CartesianWithin.within(a, b.getShells()[0].getPoints()[0]) || CartesianWithin.within(b, a.getShells()[0].getPoints()[0])) {
+        //Boundaries crossing each other are found as a closest pair at distance 0, containment is not
+        if (CartesianWithin.within(a, b.rings().getRing(0).getPoints()[0]) || CartesianWithin.within(b, a.rings().getRing(0).getPoints()[0])) {
             return 0;
         }
 
-        LineSegment[] aLS = a.toLineSegments();
-        LineSegment[] bLS = b.toLineSegments();
-
-        return getMinDistance(aLS, bLS);
+        return getMinDistance(SegmentBuffer.of(a), SegmentBuffer.of(b));
     }
 
     @Override
     public DistanceResult distanceAndEndpoints(Polygon a, Polygon b) {
-        throw new IllegalStateException("Distance with end-points is not implemented for Cartesian data");
+        Polygon.SimplePolygon aConvex = CartesianConvex.convexShell(a);
+        Polygon.SimplePolygon bConvex = CartesianConvex.convexShell(b);
+        if (aConvex != null && bConvex != null) {
+            double[] closest = new double[4];
+            double distance = CartesianConvex.distance(CartesianConvex.pack(aConvex.getPoints()), CartesianConvex.pack(bConvex.getPoints()), closest);
+            if (distance > 0) {
+                return new DistanceResult(distance, Point.point(CRS.Cartesian, closest[0], closest[1]), Point.point(CRS.Cartesian, closest[2], closest[3]));
+            }
+        }
+        //Boundaries crossing each other are found as a closest pair at distance 0, containment is not
+        Point bStart = b.rings().getRing(0).getPoints()[0];
+        Point aStart = a.rings().getRing(0).getPoints()[0];
+        Point contained = CartesianWithin.within(a, bStart) ? bStart : CartesianWithin.within(b, aStart) ? aStart : null;
+        if (contained != null) {
+            DistanceResult closest = getMinDistanceAndEndpoints(a.toLineSegments(), b.toLineSegments());
+            if (closest.getDistance() > 0) {
+                //The contained vertex lies on both polygons
+                return new DistanceResult(0, contained, contained).withMessage("One polygon is covered by the other");
+            }
+            return closest;
+        }
+        return getMinDistanceAndEndpoints(a.toLineSegments(), b.toLineSegments());
     }
 
     @Override
     protected DistanceResult distanceAndEndpoints(LineSegment a, LineSegment b) {
-        throw new IllegalStateException("Distance with end-points is not implemented for Cartesian data");
+        double[] c = new double[4];
+        double[] a1 = a.getPoints()[0].getCoordinate();
+        double[] a2 = a.getPoints()[1].getCoordinate();
+        double[] b1 = b.getPoints()[0].getCoordinate();
+        double[] b2 = b.getPoints()[1].getCoordinate();
+        double distance = closestPoints(a1[0], a1[1], a2[0], a2[1], b1[0], b1[1], b2[0], b2[1], c);
+        return new DistanceResult(distance, Point.point(CRS.Cartesian, c[0], c[1]), Point.point(CRS.Cartesian, c[2], c[3]));
     }
 
     @Override
-    public double distance(Polygon polygon, MultiPolyline multiPolyline) {
-        boolean intersects = new CartesianMCSweepLineIntersect().doesIntersect(polygon, multiPolyline);
+    protected double[] bound(LineSegment[] lineSegments, int from, int to) {
+        double[] envelope = new double[]{Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        for (int i = from; i < to; i++) {
+            for (Point point : lineSegments[i].getPoints()) {
+                double[] c = point.getCoordinate();
+                envelope[0] = Math.min(envelope[0], c[0]);
+                envelope[1] = Math.min(envelope[1], c[1]);
+                envelope[2] = Math.max(envelope[2], c[0]);
+                envelope[3] = Math.max(envelope[3], c[1]);
+            }
+        }
+        return envelope;
+    }
 
-        //Check if the multi polyline is (partially) contained by the polygon
-        if (intersects) {
-            return 0;
-        } else  if (CartesianWithin.within(polygon, multiPolyline.getChildren()[0].getPoints()[0])) {
+    @Override
+    protected double lowerBound(double[] a, double[] b) {
+        return Envelope.distance(a, 0, b, 0);
+    }
+
+    @Override
+    public double distance(Polygon polygon, MultiPolyline multiPolyline) {
+        //Check if the multi polyline is (partially) contained by the polygon, crossings are found at distance 0
+        if (CartesianWithin.within(polygon, multiPolyline.getChildren()[0].getPoints()[0])) {
             return 0;
         }
 
-        LineSegment[] aLS = polygon.toLineSegments();
-        LineSegment[] bLS = multiPolyline.toLineSegments();
-
-        return getMinDistance(aLS, bLS);
+        return getMinDistance(SegmentBuffer.of(polygon), SegmentBuffer.of(multiPolyline));
     }
 
     @Override
     public double distance(Polygon polygon, Polyline polyline) {
-        boolean intersects = new CartesianMCSweepLineIntersect().doesIntersect(polygon, polyline);
-
-        //Check if the polyline is (partially) contained by the polygon
-        if (intersects) {
-            return 0;
-        } else  if (CartesianWithin.within(polygon, polyline.getPoints()[0])) {
+        //Check if the polyline is (partially) contained by the polygon, crossings are found at distance 0
+        if (CartesianWithin.within(polygon, polyline.getPoints()[0])) {
             return 0;
         }
 
-        LineSegment[] aLS = polygon.toLineSegments();
-        LineSegment[] bLS = polyline.toLineSegments();
-
-        return getMinDistance(aLS, bLS);
+        return getMinDistance(SegmentBuffer.of(polygon), SegmentBuffer.of(polyline));
     }
 
     @Override
     public double distance(Polygon polygon, LineSegment lineSegment) {
-        LineSegment[] lineSegments = polygon.toLineSegments();
-
-        double minDistance = Double.MAX_VALUE;
-
-        for (LineSegment currentLineSegment : lineSegments) {
-            double current = distance(currentLineSegment, lineSegment);
-
-            if (current < minDistance) {
-                minDistance = current;
-            }
-        }
-
-        return minDistance;
+        return getMinDistance(SegmentBuffer.of(polygon), SegmentBuffer.of(lineSegment));
     }
 
     @Override
     public double distance(Polygon polygon, Point point) {
+        Polygon.SimplePolygon convex = CartesianConvex.convexShell(polygon);
+        if (convex != null) {
+            return CartesianConvex.distance(convex.getPoints(), new Point[]{point});
+        }
         if (CartesianWithin.within(polygon, point)) {
             return 0;
         }
 
-        LineSegment[] lineSegments = polygon.toLineSegments();
-
-        double minDistance = Double.MAX_VALUE;
-
-        for (LineSegment lineSegment : lineSegments) {
-            double current = distance(lineSegment, point);
-
-            if (current < minDistance) {
-                minDistance = current;
-            }
-        }
-
-        return minDistance;
+        double[] c = point.getCoordinate();
+        MinDistanceVisitor visitor = new MinDistanceVisitor(c[0], c[1]);
+        polygon.visitSegments(visitor);
+        return visitor.minDistance;
     }
 
     @Override
     public double distance(MultiPolyline a, MultiPolyline b) {
-        LineSegment[] aLS = a.toLineSegments();
-        LineSegment[] bLS = b.toLineSegments();
-
-        return getMinDistance(aLS, bLS);
+        return getMinDistance(SegmentBuffer.of(a), SegmentBuffer.of(b));
     }
 
     @Override
     public double distance(MultiPolyline a, Polyline b) {
-        LineSegment[] aLS = a.toLineSegments();
-        LineSegment[] bLS = b.toLineSegments();
-
-        return getMinDistance(aLS, bLS);
+        return getMinDistance(SegmentBuffer.of(a), SegmentBuffer.of(b));
     }
 
     @Override
     public double distance(MultiPolyline a, LineSegment b) {
-        double minDistance = Double.MAX_VALUE;
-
-        LineSegment[] aLS = a.toLineSegments();
-
-        for (LineSegment aLineSegment : aLS) {
-            double current = distance(aLineSegment, b);
-            if (current < minDistance) {
-                minDistance = current;
-            }
-        }
-
-        return minDistance;
+        return getMinDistance(SegmentBuffer.of(a), SegmentBuffer.of(b));
     }
 
     @Override
     public double distance(Polyline a, Polyline b) {
-        LineSegment[] aLS = a.toLineSegments();
-        LineSegment[] bLS = b.toLineSegments();
-
-        return getMinDistance(aLS, bLS);
+        return getMinDistance(SegmentBuffer.of(a), SegmentBuffer.of(b));
     }
 
     @Override
     public double distance(Polyline polyline, LineSegment lineSegment) {
-        double minDistance = Double.MAX_VALUE;
-
-        LineSegment[] aLS = polyline.toLineSegments();
-
-        for (LineSegment aLineSegment : aLS) {
-            double current = distance(aLineSegment, lineSegment);
-            if (current < minDistance) {
-                minDistance = current;
-            }
-        }
-
-        return minDistance;
+        return getMinDistance(SegmentBuffer.of(polyline), SegmentBuffer.of(lineSegment));
     }
 
     @Override
     public double distance(Polyline polyline, Point point) {
-        double minDistance = Double.MAX_VALUE;
-
-        LineSegment[] aLS = polyline.toLineSegments();
-
-        for (LineSegment aLineSegment : aLS) {
-            double current = distance(aLineSegment, point);
-            if (current < minDistance) {
-                minDistance = current;
-            }
-        }
-
-        return minDistance;
+        double[] c = point.getCoordinate();
+        MinDistanceVisitor visitor = new MinDistanceVisitor(c[0], c[1]);
+        polyline.visitSegments(visitor);
+        return visitor.minDistance;
     }
 
     @Override
@@ -216,26 +201,188 @@ public class CartesianDistance extends Distance {
 
     @Override
     public double distance(LineSegment a, LineSegment b) {
-        Point intersect = CartesianIntersect.lineSegmentIntersect(a, b);
-        if (intersect != null) {
-            return 0;
+        double[] a1 = a.getPoints()[0].getCoordinate();
+        double[] a2 = a.getPoints()[1].getCoordinate();
+        double[] b1 = b.getPoints()[0].getCoordinate();
+        double[] b2 = b.getPoints()[1].getCoordinate();
+        return distance(a1[0], a1[1], a2[0], a2[1], b1[0], b1[1], b2[0], b2[1]);
+    }
+
+    /**
+     * Reject by the gap between the envelopes, and for larger geometries by the distance between the convex hulls of the
+     * vertices
+     */
+    @Override
+    protected boolean mayBeWithinDistance(Point[] a, Point[] b, double threshold) {
+        if (Envelope.distance(envelope(a), 0, envelope(b), 0) > threshold) {
+            return false;
+        }
+        return a.length < HULL_BOUND_SIZE || b.length < HULL_BOUND_SIZE || CartesianConvex.distance(a, b) <= threshold;
+    }
+
+    @Override
+    public boolean isWithinDistance(Polygon a, Polygon b, double threshold) {
+        Polygon.SimplePolygon aConvex = CartesianConvex.convexShell(a);
+        Polygon.SimplePolygon bConvex = CartesianConvex.convexShell(b);
+        if (aConvex != null && bConvex != null) {
+            return CartesianConvex.distance(aConvex.getPoints(), bConvex.getPoints()) <= threshold;
         }
+        return super.isWithinDistance(a, b, threshold);
+    }
+
+    @Override
+    protected boolean isWithinDistance(LineSegment[] aLS, LineSegment[] bLS, double threshold) {
+        return isWithinDistance(SegmentBuffer.of(aLS), SegmentBuffer.of(bLS), threshold);
+    }
 
-        double minDistance = Double.MAX_VALUE;
-        for (int i = 0; i < a.getPoints().length; i++) {
-            double distance = distance(b, a.getPoints()[i]);
-            if (distance < minDistance) {
-                minDistance = distance;
+    private static boolean isWithinDistance(SegmentBuffer aLS, SegmentBuffer bLS, double threshold) {
+        for (int i = 0; i < aLS.size(); i++) {
+            double minX = Math.min(aLS.getX1(i), aLS.getX2(i)) - threshold;
+            double maxX = Math.max(aLS.getX1(i), aLS.getX2(i)) + threshold;
+            double minY = Math.min(aLS.getY1(i), aLS.getY2(i)) - threshold;
+            double maxY = Math.max(aLS.getY1(i), aLS.getY2(i)) + threshold;
+            for (int j = 0; j < bLS.size(); j++) {
+                //Skip segments outside the envelope of the first segment grown by the threshold
+                if (Math.max(bLS.getX1(j), bLS.getX2(j)) < minX || Math.min(bLS.getX1(j), bLS.getX2(j)) > maxX
+                        || Math.max(bLS.getY1(j), bLS.getY2(j)) < minY || Math.min(bLS.getY1(j), bLS.getY2(j)) > maxY) {
+                    continue;
+                }
+                if (distance(aLS.getX1(i), aLS.getY1(i), aLS.getX2(i), aLS.getY2(i), bLS.getX1(j), bLS.getY1(j), bLS.getX2(j), bLS.getY2(j)) <= threshold) {
+                    return true;
+                }
             }
         }
-        for (int i = 0; i < b.getPoints().length; i++) {
-            double distance = distance(a, b.getPoints()[i]);
-            if (distance < minDistance) {
-                minDistance = distance;
+        return false;
+    }
+
+    private static double[] envelope(Point[] points) {
+        double[] envelope = new double[]{Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        for (Point point : points) {
+            double[] c = point.getCoordinate();
+            envelope[0] = Math.min(envelope[0], c[0]);
+            envelope[1] = Math.min(envelope[1], c[1]);
+            envelope[2] = Math.max(envelope[2], c[0]);
+            envelope[3] = Math.max(envelope[3], c[1]);
+        }
+        return envelope;
+    }
+
+    private double getMinDistance(SegmentBuffer aLS, SegmentBuffer bLS) {
+        ClosestPair.Tree aTree = ClosestPair.Tree.build(aLS.size(), (from, to) -> envelope(aLS, from, to));
+        ClosestPair.Tree bTree = ClosestPair.Tree.build(bLS.size(), (from, to) -> envelope(bLS, from, to));
+        ClosestPair pair = ClosestPair.search(aTree, bTree, this::lowerBound,
+                (i, j) -> distance(aLS.getX1(i), aLS.getY1(i), aLS.getX2(i), aLS.getY2(i), bLS.getX1(j), bLS.getY1(j), bLS.getX2(j), bLS.getY2(j)),
+                Double.POSITIVE_INFINITY);
+        return pair.isFound() ? pair.getDistance() : Double.MAX_VALUE;
+    }
+
+    private static double[] envelope(SegmentBuffer segments, int from, int to) {
+        double[] envelope = new double[]{Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        for (int i = from; i < to; i++) {
+            envelope[0] = Math.min(envelope[0], Math.min(segments.getX1(i), segments.getX2(i)));
+            envelope[1] = Math.min(envelope[1], Math.min(segments.getY1(i), segments.getY2(i)));
+            envelope[2] = Math.max(envelope[2], Math.max(segments.getX1(i), segments.getX2(i)));
+            envelope[3] = Math.max(envelope[3], Math.max(segments.getY1(i), segments.getY2(i)));
+        }
+        return envelope;
+    }
+
+    /**
+     * @return The minimum distance between the line segments (ax1, ay1)-(ax2, ay2) and (bx1, by1)-(bx2, by2)
+     */
+    static double distance(double ax1, double ay1, double ax2, double ay2, double bx1, double by1, double bx2, double by2) {
+        //Segments crossing each other have distance 0, otherwise the minimum is attained at one of the end points
+        double d1 = cross(ax1, ay1, ax2, ay2, bx1, by1);
+        double d2 = cross(ax1, ay1, ax2, ay2, bx2, by2);
+        double d3 = cross(bx1, by1, bx2, by2, ax1, ay1);
+        double d4 = cross(bx1, by1, bx2, by2, ax2, ay2);
+        if (((d1 > 0 && d2 < 0) || (d1 < 0 && d2 > 0)) && ((d3 > 0 && d4 < 0) || (d3 < 0 && d4 > 0))) {
+            return 0;
+        }
+
+        double minDistance = distance(bx1, by1, bx2, by2, ax1, ay1);
+        minDistance = Math.min(minDistance, distance(bx1, by1, bx2, by2, ax2, ay2));
+        minDistance = Math.min(minDistance, distance(ax1, ay1, ax2, ay2, bx1, by1));
+        return Math.min(minDistance, distance(ax1, ay1, ax2, ay2, bx2, by2));
+    }
+
+    /**
+     * Find the closest points of the line segments (ax1, ay1)-(ax2, ay2) and (bx1, by1)-(bx2, by2)
+     *
+     * @param closest receives the closest point on the first segment followed by the closest point on the second
+     * @return The minimum distance between the line segments
+     */
+    static double closestPoints(double ax1, double ay1, double ax2, double ay2, double bx1, double by1, double bx2, double by2, double[] closest) {
+        double d1 = cross(ax1, ay1, ax2, ay2, bx1, by1);
+        double d2 = cross(ax1, ay1, ax2, ay2, bx2, by2);
+        double d3 = cross(bx1, by1, bx2, by2, ax1, ay1);
+        double d4 = cross(bx1, by1, bx2, by2, ax2, ay2);
+        if (((d1 > 0 && d2 < 0) || (d1 < 0 && d2 > 0)) && ((d3 > 0 && d4 < 0) || (d3 < 0 && d4 > 0))) {
+            double t = d3 / (d3 - d4);
+            closest[0] = closest[2] = ax1 + t * (ax2 - ax1);
+            closest[1] = closest[3] = ay1 + t * (ay2 - ay1);
+            return 0;
+        }
+
+        //Otherwise one of the end points is closest to the other segment
+        double best = Double.POSITIVE_INFINITY;
+        for (int end = 0; end < 4; end++) {
+            boolean onA = end < 2;
+            double px = end == 0 ? ax1 : end == 1 ? ax2 : end == 2 ? bx1 : bx2;
+            double py = end == 0 ? ay1 : end == 1 ? ay2 : end == 2 ? by1 : by2;
+            double x1 = onA ? bx1 : ax1, y1 = onA ? by1 : ay1, x2 = onA ? bx2 : ax2, y2 = onA ? by2 : ay2;
+            double dx = x2 - x1;
+            double dy = y2 - y1;
+            double lengthSquared = dx * dx + dy * dy;
+            double t = lengthSquared == 0 ? 0 : Math.max(0, Math.min(1, ((px - x1) * dx + (py - y1) * dy) / lengthSquared));
+            double qx = x1 + t * dx;
+            double qy = y1 + t * dy;
+            double distance = Math.sqrt((qx - px) * (qx - px) + (qy - py) * (qy - py));
+            if (distance < best) {
+                best = distance;
+                closest[0] = onA ? px : qx;
+                closest[1] = onA ? py : qy;
+                closest[2] = onA ? qx : px;
+                closest[3] = onA ? qy : py;
             }
         }
+        return best;
+    }
+
+    /**
+     * @return The minimum distance between the line segment (x1, y1)-(x2, y2) and the point (px, py)
+     */
+    static double distance(double x1, double y1, double x2, double y2, double px, double py) {
+        double dx = x2 - x1;
+        double dy = y2 - y1;
+        double lengthSquared = dx * dx + dy * dy;
+
+        double t = lengthSquared == 0 ? 0 : Math.max(0, Math.min(1, ((px - x1) * dx + (py - y1) * dy) / lengthSquared));
 
-        return minDistance;
+        double ex = x1 + t * dx - px;
+        double ey = y1 + t * dy - py;
+        return Math.sqrt(ex * ex + ey * ey);
+    }
+
+    private static double cross(double x1, double y1, double x2, double y2, double px, double py) {
+        return (x2 - x1) * (py - y1) - (y2 - y1) * (px - x1);
+    }
+
+    private static class MinDistanceVisitor implements SegmentVisitor {
+        private final double x;
+        private final double y;
+        private double minDistance = Double.MAX_VALUE;
+
+        private MinDistanceVisitor(double x, double y) {
+            this.x = x;
+            this.y = y;
+        }
+
+        @Override
+        public boolean visit(double x1, double y1, double x2, double y2, int ringIndex, int segmentIndex) {
+            minDistance = Math.min(minDistance, distance(x1, y1, x2, y2, x, y));
+            return true;
+        }
     }
 
     @Override
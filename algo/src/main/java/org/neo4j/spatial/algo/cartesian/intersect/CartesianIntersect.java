@@ -67,6 +67,9 @@ public abstract class CartesianIntersect implements Intersect {
             Double y = overlaps(
                     new double[]{a0.getCoordinate()[1], a1.getCoordinate()[1]},
                     new double[]{b0.getCoordinate()[1], b1.getCoordinate()[1]});
+            if (x == null || y == null) {
+                return null;
+            }
 
             return Point.point(CRS.Cartesian, x, y);
         }
@@ -4,8 +4,11 @@ import org.neo4j.spatial.algo.AlgoUtil;
 import org.neo4j.spatial.core.*;
 
 import java.util.*;
-import java.util.stream.Stream;
 
+/**
+ * The state of a sweep is kept in the fields of the instance, so an instance must not be used by several threads at
+ * once. {@link org.neo4j.spatial.algo.IntersectCalculator} hands out a separate instance to every thread.
+ */
 public class CartesianMCSweepLineIntersect extends CartesianIntersect {
     private List<MonotoneChain> activeChainList;
     private List<MonotoneChain> sweepingChainList;
@@ -21,7 +24,6 @@ public class CartesianMCSweepLineIntersect extends CartesianIntersect {
     }
 
     private void initialize() {
-        MonotoneChain.resetId();
         this.activeChainList = new ArrayList<>();
         this.sweepingChainList = new ArrayList<>();
         this.outputList = new ArrayList<>();
@@ -34,8 +36,8 @@ public class CartesianMCSweepLineIntersect extends CartesianIntersect {
         Polygon.SimplePolygon[] bPolygons = getSimplePolygons(b);
 
         Set<Double> angleSet = new HashSet<>();
-        angleSet.addAll(computeAngles(a.toLineSegments()));
-        angleSet.addAll(computeAngles(b.toLineSegments()));
+        a.visitSegments(angleCollector(angleSet));
+        b.visitSegments(angleCollector(angleSet));
         computeSweepDirection(angleSet);
 
         List<MonotoneChain> inputList = new ArrayList<>();
@@ -51,8 +53,8 @@ public class CartesianMCSweepLineIntersect extends CartesianIntersect {
         Polygon.SimplePolygon[] bPolygons = getSimplePolygons(b);
 
         Set<Double> angleSet = new HashSet<>();
-        angleSet.addAll(computeAngles(a.toLineSegments()));
-        angleSet.addAll(computeAngles(b.toLineSegments()));
+        a.visitSegments(angleCollector(angleSet));
+        b.visitSegments(angleCollector(angleSet));
         computeSweepDirection(angleSet);
 
         List<MonotoneChain> inputList = new ArrayList<>();
@@ -68,8 +70,8 @@ public class CartesianMCSweepLineIntersect extends CartesianIntersect {
         Polyline[] bPolylines = b.getChildren();
 
         Set<Double> angleSet = new HashSet<>();
-        angleSet.addAll(computeAngles(a.toLineSegments()));
-        angleSet.addAll(computeAngles(b.toLineSegments()));
+        a.visitSegments(angleCollector(angleSet));
+        b.visitSegments(angleCollector(angleSet));
         computeSweepDirection(angleSet);
 
         List<MonotoneChain> inputList = new ArrayList<>();
@@ -85,8 +87,8 @@ public class CartesianMCSweepLineIntersect extends CartesianIntersect {
         Polyline[] bPolylines = multiPolyline.getChildren();
 
         Set<Double> angleSet = new HashSet<>();
-        angleSet.addAll(computeAngles(polygon.toLineSegments()));
-        angleSet.addAll(computeAngles(multiPolyline.toLineSegments()));
+        polygon.visitSegments(angleCollector(angleSet));
+        multiPolyline.visitSegments(angleCollector(angleSet));
         computeSweepDirection(angleSet);
 
         List<MonotoneChain> inputList = new ArrayList<>();
@@ -101,8 +103,8 @@ public class CartesianMCSweepLineIntersect extends CartesianIntersect {
         Polygon.SimplePolygon[] aPolygons = getSimplePolygons(polygon);
 
         Set<Double> angleSet = new HashSet<>();
-        angleSet.addAll(computeAngles(polygon.toLineSegments()));
-        angleSet.addAll(computeAngles(polyline.toLineSegments()));
+        polygon.visitSegments(angleCollector(angleSet));
+        polyline.visitSegments(angleCollector(angleSet));
         computeSweepDirection(angleSet);
 
         List<MonotoneChain> inputList = new ArrayList<>();
@@ -117,8 +119,8 @@ public class CartesianMCSweepLineIntersect extends CartesianIntersect {
         Polygon.SimplePolygon[] aPolygons = getSimplePolygons(a);
 
         Set<Double> angleSet = new HashSet<>();
-        angleSet.addAll(computeAngles(a.toLineSegments()));
-        angleSet.addAll(computeAngles(b.toLineSegments()));
+        a.visitSegments(angleCollector(angleSet));
+        b.visitSegments(angleCollector(angleSet));
         computeSweepDirection(angleSet);
 
         List<MonotoneChain> inputList = new ArrayList<>();
@@ -134,8 +136,8 @@ public class CartesianMCSweepLineIntersect extends CartesianIntersect {
         Polyline[] bPolylines = b.getChildren();
 
         Set<Double> angleSet = new HashSet<>();
-        angleSet.addAll(computeAngles(a.toLineSegments()));
-        angleSet.addAll(computeAngles(b.toLineSegments()));
+        a.visitSegments(angleCollector(angleSet));
+        b.visitSegments(angleCollector(angleSet));
         computeSweepDirection(angleSet);
 
         List<MonotoneChain> inputList = new ArrayList<>();
@@ -150,8 +152,8 @@ public class CartesianMCSweepLineIntersect extends CartesianIntersect {
         Polyline[] aPolylines = a.getChildren();
 
         Set<Double> angleSet = new HashSet<>();
-        angleSet.addAll(computeAngles(a.toLineSegments()));
-        angleSet.addAll(computeAngles(b.toLineSegments()));
+        a.visitSegments(angleCollector(angleSet));
+        b.visitSegments(angleCollector(angleSet));
         computeSweepDirection(angleSet);
 
         List<MonotoneChain> inputList = new ArrayList<>();
@@ -166,8 +168,8 @@ public class CartesianMCSweepLineIntersect extends CartesianIntersect {
         Polyline[] aPolylines = a.getChildren();
 
         Set<Double> angleSet = new HashSet<>();
-        angleSet.addAll(computeAngles(a.toLineSegments()));
-        angleSet.addAll(computeAngles(new LineSegment[]{b}));
+        a.visitSegments(angleCollector(angleSet));
+        addAngles(angleSet, new LineSegment[]{b});
         computeSweepDirection(angleSet);
 
         List<MonotoneChain> inputList = new ArrayList<>();
@@ -186,8 +188,8 @@ public class CartesianMCSweepLineIntersect extends CartesianIntersect {
         initialize();
 
         Set<Double> angleSet = new HashSet<>();
-        angleSet.addAll(computeAngles(a.toLineSegments()));
-        angleSet.addAll(computeAngles(b.toLineSegments()));
+        a.visitSegments(angleCollector(angleSet));
+        b.visitSegments(angleCollector(angleSet));
         computeSweepDirection(angleSet);
 
         List<MonotoneChain> inputList = new ArrayList<>();
@@ -201,8 +203,8 @@ public class CartesianMCSweepLineIntersect extends CartesianIntersect {
         initialize();
 
         Set<Double> angleSet = new HashSet<>();
-        angleSet.addAll(computeAngles(a.toLineSegments()));
-        angleSet.addAll(computeAngles(new LineSegment[]{b}));
+        a.visitSegments(angleCollector(angleSet));
+        addAngles(angleSet, new LineSegment[]{b});
         computeSweepDirection(angleSet);
 
         List<MonotoneChain> inputList = new ArrayList<>();
@@ -260,8 +262,7 @@ public class CartesianMCSweepLineIntersect extends CartesianIntersect {
      * @return List of all the shells and holes of the input polygon as simple polygons
      */
     private Polygon.SimplePolygon[] getSimplePolygons(Polygon polygon) {
-        Polygon.SimplePolygon[] aPolygons = Stream.concat(Arrays.stream(polygon.getShells()), Arrays.stream(polygon.getHoles()))
-                .toArray(Polygon.SimplePolygon[]::new);
+        Polygon.SimplePolygon[] aPolygons = polygon.rings().getShellsAndHoles();
         for (int i = 0; i < aPolygons.length; i++) {
             aPolygons[i] = filterCollinear(aPolygons[i]);
         }
@@ -401,26 +402,29 @@ public class CartesianMCSweepLineIntersect extends CartesianIntersect {
      * @param lineSegments All the line segments of the geometry
      * @return Compute the angles of the line segments
      */
-    private Set<Double> computeAngles(LineSegment[] lineSegments) {
-        Set<Double> angles = new HashSet<>();
-
+    private void addAngles(Set<Double> angles, LineSegment[] lineSegments) {
         for (LineSegment segment : lineSegments) {
-            Point p = segment.getPoints()[0];
-            Point q = segment.getPoints()[1];
-
-            double dx = q.getCoordinate()[0] - p.getCoordinate()[0];
-            double dy = q.getCoordinate()[1] - p.getCoordinate()[1];
+            double[] p = segment.getPoints()[0].getCoordinate();
+            double[] q = segment.getPoints()[1].getCoordinate();
+            addAngle(angles, p[0], p[1], q[0], q[1]);
+        }
+    }
 
-            double angle = Math.atan2(dy, dx);
+    private static SegmentVisitor angleCollector(Set<Double> angles) {
+        return (x1, y1, x2, y2, ringIndex, segmentIndex) -> {
+            addAngle(angles, x1, y1, x2, y2);
+            return true;
+        };
+    }
 
-            if (angle < -0) {
-                angle += Math.PI;
-            }
+    private static void addAngle(Set<Double> angles, double x1, double y1, double x2, double y2) {
+        double angle = Math.atan2(y2 - y1, x2 - x1);
 
-            angles.add(angle);
+        if (angle < -0) {
+            angle += Math.PI;
         }
 
-        return angles;
+        angles.add(angle);
     }
 
     /**
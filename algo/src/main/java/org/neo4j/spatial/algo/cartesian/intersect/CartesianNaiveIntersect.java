@@ -1,11 +1,13 @@
 package org.neo4j.spatial.algo.cartesian.intersect;
 
 import org.neo4j.spatial.algo.AlgoUtil;
+import org.neo4j.spatial.core.CRS;
 import org.neo4j.spatial.core.LineSegment;
 import org.neo4j.spatial.core.MultiPolyline;
 import org.neo4j.spatial.core.Point;
 import org.neo4j.spatial.core.Polyline;
 import org.neo4j.spatial.core.Polygon;
+import org.neo4j.spatial.core.SegmentBuffer;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -13,97 +15,112 @@ import java.util.List;
 public class CartesianNaiveIntersect extends CartesianIntersect {
     @Override
     public boolean doesIntersect(Polygon a, Polygon b) {
-        LineSegment[] aLS = a.toLineSegments();
-        LineSegment[] bLS = b.toLineSegments();
+        SegmentBuffer aLS = SegmentBuffer.of(a);
+        SegmentBuffer bLS = SegmentBuffer.of(b);
 
         return compareLineSegments(aLS, bLS, true).length > 0;
     }
 
     @Override
     public Point[] intersect(Polygon a, Polyline b) {
-        LineSegment[] aLS = a.toLineSegments();
-        LineSegment[] bLS = b.toLineSegments();
+        SegmentBuffer aLS = SegmentBuffer.of(a);
+        SegmentBuffer bLS = SegmentBuffer.of(b);
 
         return compareLineSegments(aLS, bLS, false);
     }
 
     @Override
     public boolean doesIntersect(Polygon a, MultiPolyline b) {
-        LineSegment[] aLS = a.toLineSegments();
-        LineSegment[] bLS = b.toLineSegments();
+        SegmentBuffer aLS = SegmentBuffer.of(a);
+        SegmentBuffer bLS = SegmentBuffer.of(b);
 
         return compareLineSegments(aLS, bLS, true).length > 0;
     }
 
     @Override
     public Point[] intersect(Polygon a, MultiPolyline b) {
-        LineSegment[] aLS = a.toLineSegments();
-        LineSegment[] bLS = b.toLineSegments();
+        SegmentBuffer aLS = SegmentBuffer.of(a);
+        SegmentBuffer bLS = SegmentBuffer.of(b);
 
         return compareLineSegments(aLS, bLS, false);
     }
 
     @Override
     public boolean doesIntersect(Polygon polygon, Polyline polyline) {
-        LineSegment[] aLS = polygon.toLineSegments();
-        LineSegment[] bLS = polyline.toLineSegments();
+        SegmentBuffer aLS = SegmentBuffer.of(polygon);
+        SegmentBuffer bLS = SegmentBuffer.of(polyline);
 
         return compareLineSegments(aLS, bLS, true).length > 0;
     }
 
     @Override
     public Point[] intersect(MultiPolyline a, MultiPolyline b) {
-        LineSegment[] aLS = a.toLineSegments();
-        LineSegment[] bLS = b.toLineSegments();
+        SegmentBuffer aLS = SegmentBuffer.of(a);
+        SegmentBuffer bLS = SegmentBuffer.of(b);
 
         return compareLineSegments(aLS, bLS, false);
     }
 
     @Override
     public Point[] intersect(MultiPolyline a, Polyline b) {
-        LineSegment[] aLS = a.toLineSegments();
-        LineSegment[] bLS = b.toLineSegments();
+        SegmentBuffer aLS = SegmentBuffer.of(a);
+        SegmentBuffer bLS = SegmentBuffer.of(b);
 
         return compareLineSegments(aLS, bLS, false);
     }
 
     @Override
     public Point[] intersect(MultiPolyline a, LineSegment b) {
-        LineSegment[] aLS = a.toLineSegments();
-        LineSegment[] bLS = new LineSegment[]{b};
+        SegmentBuffer aLS = SegmentBuffer.of(a);
+        SegmentBuffer bLS = SegmentBuffer.of(b);
 
         return compareLineSegments(aLS, bLS, false);
     }
 
     @Override
     public Point[] intersect(Polyline a, Polyline b) {
-        LineSegment[] aLS = a.toLineSegments();
-        LineSegment[] bLS = b.toLineSegments();
+        SegmentBuffer aLS = SegmentBuffer.of(a);
+        SegmentBuffer bLS = SegmentBuffer.of(b);
 
         return compareLineSegments(aLS, bLS, false);
     }
 
     @Override
     public Point[] intersect(Polyline a, LineSegment b) {
-        LineSegment[] aLS = a.toLineSegments();
-        LineSegment[] bLS = new LineSegment[]{b};
+        SegmentBuffer aLS = SegmentBuffer.of(a);
+        SegmentBuffer bLS = SegmentBuffer.of(b);
 
         return compareLineSegments(aLS, bLS, false);
     }
 
     @Override
     public Point[] intersect(Polygon a, Polygon b) {
-        LineSegment[] aLS = a.toLineSegments();
-        LineSegment[] bLS = b.toLineSegments();
+        SegmentBuffer aLS = SegmentBuffer.of(a);
+        SegmentBuffer bLS = SegmentBuffer.of(b);
 
         return compareLineSegments(aLS, bLS, false);
     }
 
-    private Point[] compareLineSegments(LineSegment[] aLS, LineSegment[] bLS, boolean shortcut) {
+    private Point[] compareLineSegments(SegmentBuffer aLS, SegmentBuffer bLS, boolean shortcut) {
         List<Point> intersections = new ArrayList<>();
-        for (LineSegment aL : aLS) {
-            for (LineSegment bL : bLS) {
-                Point newIntersection = super.intersect(aL, bL);
+        for (int i = 0; i < aLS.size(); i++) {
+            double aMinX = Math.min(aLS.getX1(i), aLS.getX2(i)) - AlgoUtil.EPSILON;
+            double aMaxX = Math.max(aLS.getX1(i), aLS.getX2(i)) + AlgoUtil.EPSILON;
+            double aMinY = Math.min(aLS.getY1(i), aLS.getY2(i)) - AlgoUtil.EPSILON;
+            double aMaxY = Math.max(aLS.getY1(i), aLS.getY2(i)) + AlgoUtil.EPSILON;
+            LineSegment aL = null;
+
+            for (int j = 0; j < bLS.size(); j++) {
+                //Segments with disjoint bounding boxes cannot intersect, so only the others are compared in full
+                if (Math.max(bLS.getX1(j), bLS.getX2(j)) < aMinX || Math.min(bLS.getX1(j), bLS.getX2(j)) > aMaxX ||
+                        Math.max(bLS.getY1(j), bLS.getY2(j)) < aMinY || Math.min(bLS.getY1(j), bLS.getY2(j)) > aMaxY) {
+                    continue;
+                }
+
+                if (aL == null) {
+                    aL = segment(aLS, i);
+                }
+                Point newIntersection = super.intersect(aL, segment(bLS, j));
                 if (newIntersection != null) {
                     addPoint(intersections, newIntersection);
                     if (shortcut) {
@@ -116,6 +133,12 @@ public class CartesianNaiveIntersect extends CartesianIntersect {
         return intersections.toArray(new Point[0]);
     }
 
+    private static LineSegment segment(SegmentBuffer buffer, int index) {
+        return LineSegment.lineSegment(
+                Point.point(CRS.Cartesian, buffer.getX1(index), buffer.getY1(index)),
+                Point.point(CRS.Cartesian, buffer.getX2(index), buffer.getY2(index)));
+    }
+
     private void addPoint(List<Point> intersections, Point newIntersection) {
         boolean flag = false;
         for (Point intersection : intersections) {
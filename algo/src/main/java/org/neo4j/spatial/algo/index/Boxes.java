@@ -0,0 +1,239 @@
+package org.neo4j.spatial.algo.index;
+
+import org.neo4j.spatial.algo.WithinCalculator;
+import org.neo4j.spatial.algo.wgs84.WGSUtil;
+import org.neo4j.spatial.core.CRS;
+import org.neo4j.spatial.core.Envelope;
+import org.neo4j.spatial.core.HasCRS;
+import org.neo4j.spatial.core.Point;
+import org.neo4j.spatial.core.Polygon;
+import org.neo4j.spatial.core.Polyline;
+import org.neo4j.spatial.core.Vector;
+
+/**
+ * Axis aligned boxes stored in a flat array, {@code dims} minima followed by {@code dims} maxima per box.
+ * <p>
+ * Cartesian geometries are bounded by their envelope. WGS84 geometries are bounded in the space of their n-vectors,
+ * which has no discontinuity at the antimeridian or the poles: the box contains every point on the great circle arcs
+ * between consecutive points, and for polygons also the interior. Polygons containing a pole are bounded by the whole
+ * sphere.
+ */
+final class Boxes {
+    private static final Point[] AXES = new Point[]{
+            Point.point(CRS.WGS84, 0, 0), Point.point(CRS.WGS84, 90, 0), null,
+            Point.point(CRS.WGS84, 180, 0), Point.point(CRS.WGS84, -90, 0), null
+    };
+
+    private Boxes() {
+    }
+
+    static int dimensions(CRS crs) {
+        if (crs == CRS.Cartesian) {
+            return 2;
+        } else if (crs == CRS.WGS84) {
+            return 3;
+        } else {
+            throw new IllegalArgumentException("The coordinate reference system is not supported for indexing: " + crs);
+        }
+    }
+
+    static void empty(double[] boxes, int box, int dims) {
+        for (int d = 0; d < dims; d++) {
+            boxes[2 * dims * box + d] = Double.POSITIVE_INFINITY;
+            boxes[2 * dims * box + dims + d] = Double.NEGATIVE_INFINITY;
+        }
+    }
+
+    static void include(double[] boxes, int box, int dims, double... coordinates) {
+        int offset = 2 * dims * box;
+        for (int d = 0; d < dims; d++) {
+            boxes[offset + d] = Math.min(boxes[offset + d], coordinates[d]);
+            boxes[offset + dims + d] = Math.max(boxes[offset + dims + d], coordinates[d]);
+        }
+    }
+
+    static void include(double[] boxes, int box, double[] others, int other, int dims) {
+        int offset = 2 * dims * box;
+        int otherOffset = 2 * dims * other;
+        for (int d = 0; d < dims; d++) {
+            boxes[offset + d] = Math.min(boxes[offset + d], others[otherOffset + d]);
+            boxes[offset + dims + d] = Math.max(boxes[offset + dims + d], others[otherOffset + dims + d]);
+        }
+    }
+
+    static double center(double[] boxes, int box, int dims, int d) {
+        return boxes[2 * dims * box + d] + boxes[2 * dims * box + dims + d];
+    }
+
+    static boolean intersects(double[] boxes, int box, int dims, double[] query) {
+        int offset = 2 * dims * box;
+        for (int d = 0; d < dims; d++) {
+            if (boxes[offset + d] > query[dims + d] || query[d] > boxes[offset + dims + d]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static boolean contains(double[] boxes, int box, int dims, double[] coordinate) {
+        int offset = 2 * dims * box;
+        for (int d = 0; d < dims; d++) {
+            if (coordinate[d] < boxes[offset + d] || coordinate[d] > boxes[offset + dims + d]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return The coordinate of the point in the space of the boxes
+     */
+    static double[] coordinate(Point point) {
+        if (point.getCRS() == CRS.WGS84) {
+            return Vector.pointCoordinatesToVectorCoordinates(point.getCoordinate());
+        }
+        return point.getCoordinate();
+    }
+
+    /**
+     * Set the box to the bounds of a point, polyline or polygon
+     */
+    static void bound(HasCRS geometry, double[] boxes, int box, int dims) {
+        empty(boxes, box, dims);
+        if (geometry instanceof Point) {
+            include(boxes, box, dims, coordinate((Point) geometry));
+        } else if (geometry instanceof Polyline) {
+            Polyline polyline = (Polyline) geometry;
+            for (Point point : polyline.getPoints()) {
+                include(boxes, box, dims, coordinate(point));
+            }
+            if (dims == 3) {
+                polyline.visitSegments((x1, y1, x2, y2, ringIndex, segmentIndex) -> includeArc(boxes, box, x1, y1, x2, y2));
+            }
+        } else if (geometry instanceof Polygon) {
+            Polygon polygon = (Polygon) geometry;
+            if (dims == 2) {
+                for (Polygon.SimplePolygon shell : polygon.getShells()) {
+                    for (Point point : shell.getPoints()) {
+                        include(boxes, box, dims, point.getCoordinate());
+                    }
+                }
+            } else {
+                polygon.visitSegments((x1, y1, x2, y2, ringIndex, segmentIndex) -> {
+                    include(boxes, box, dims, Vector.pointCoordinatesToVectorCoordinates(new double[]{x1, y1}));
+                    return includeArc(boxes, box, x1, y1, x2, y2);
+                });
+                //The extreme of a coordinate over the interior is either on the boundary or at the axis itself
+                if (containsPole(polygon)) {
+                    include(boxes, box, dims, -1, -1, -1);
+                    include(boxes, box, dims, 1, 1, 1);
+                } else {
+                    for (int axis = 0; axis < AXES.length; axis++) {
+                        if (AXES[axis] != null && WithinCalculator.within(polygon, AXES[axis])) {
+                            boxes[2 * dims * box + (axis < dims ? dims + axis : axis - dims)] = axis < dims ? 1 : -1;
+                        }
+                    }
+                }
+            }
+        } else {
+            throw new IllegalArgumentException("Only points, polylines and polygons can be indexed, got " + geometry.getClass().getSimpleName());
+        }
+        if (boxes[2 * dims * box] > boxes[2 * dims * box + dims]) {
+            throw new IllegalArgumentException("Cannot index an empty geometry");
+        }
+    }
+
+    private static boolean containsPole(Polygon polygon) {
+        for (Polygon.SimplePolygon shell : polygon.getShells()) {
+            double courseDelta = WGSUtil.courseDelta(shell.getPoints());
+            if (courseDelta <= 270 && courseDelta >= -270) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Include the great circle arc between two WGS84 coordinates. Every point of the arc is a point on the chord scaled
+     * by at most the inverse of the cosine of half the angle, so the chord end points scaled by that factor suffice.
+     */
+    static boolean includeArc(double[] boxes, int box, double x1, double y1, double x2, double y2) {
+        double[] a = Vector.pointCoordinatesToVectorCoordinates(new double[]{x1, y1});
+        double[] b = Vector.pointCoordinatesToVectorCoordinates(new double[]{x2, y2});
+        double sx = a[0] + b[0], sy = a[1] + b[1], sz = a[2] + b[2];
+        double cosHalf = Math.sqrt(sx * sx + sy * sy + sz * sz) / 2;
+        if (cosHalf < 1e-9) {
+            include(boxes, box, 3, -1, -1, -1);
+            include(boxes, box, 3, 1, 1, 1);
+        } else {
+            include(boxes, box, 3, a[0] / cosHalf, a[1] / cosHalf, a[2] / cosHalf);
+            include(boxes, box, 3, b[0] / cosHalf, b[1] / cosHalf, b[2] / cosHalf);
+        }
+        return true;
+    }
+
+    /**
+     * @return The box of the window, for WGS84 covering every n-vector of the longitude and latitude range
+     */
+    static double[] window(CRS crs, Envelope window) {
+        if (crs == CRS.Cartesian) {
+            return new double[]{window.getMinX(), window.getMinY(), window.getMaxX(), window.getMaxY()};
+        }
+        double minLon = Math.toRadians(window.getMinX()), maxLon = Math.toRadians(window.getMaxX());
+        double minLat = Math.toRadians(window.getMinY()), maxLat = Math.toRadians(window.getMaxY());
+
+        double minCosLat = Math.min(Math.cos(minLat), Math.cos(maxLat));
+        double maxCosLat = minLat <= 0 && 0 <= maxLat ? 1 : Math.max(Math.cos(minLat), Math.cos(maxLat));
+        double minCosLon = minLon <= -Math.PI || Math.PI <= maxLon ? -1 : Math.min(Math.cos(minLon), Math.cos(maxLon));
+        double maxCosLon = minLon <= 0 && 0 <= maxLon ? 1 : Math.max(Math.cos(minLon), Math.cos(maxLon));
+        double minSinLon = minLon <= -Math.PI / 2 && -Math.PI / 2 <= maxLon ? -1 : Math.min(Math.sin(minLon), Math.sin(maxLon));
+        double maxSinLon = minLon <= Math.PI / 2 && Math.PI / 2 <= maxLon ? 1 : Math.max(Math.sin(minLon), Math.sin(maxLon));
+
+        //The cosine of the latitude is never negative, so the extremes of the products are at the extremes of the factors
+        return new double[]{
+                Math.min(minCosLon * minCosLat, minCosLon * maxCosLat),
+                Math.min(minSinLon * minCosLat, minSinLon * maxCosLat),
+                Math.sin(minLat),
+                Math.max(maxCosLon * minCosLat, maxCosLon * maxCosLat),
+                Math.max(maxSinLon * minCosLat, maxSinLon * maxCosLat),
+                Math.sin(maxLat)
+        };
+    }
+
+    /**
+     * @return A lower bound of the distance from the coordinate to anything inside the box
+     */
+    static double lowerBound(double[] boxes, int box, int dims, double[] coordinate) {
+        int offset = 2 * dims * box;
+        if (dims == 2) {
+            return Envelope.distance(boxes[offset], boxes[offset + 1], boxes[offset + 2], boxes[offset + 3], coordinate[0], coordinate[1], coordinate[0], coordinate[1]);
+        }
+        if (contains(boxes, box, dims, coordinate)) {
+            return 0;
+        }
+        //The largest dot product over the box bounds the cosine of the angle to any unit vector inside it
+        double dot = 0;
+        for (int d = 0; d < 3; d++) {
+            dot += Math.max(coordinate[d] * boxes[offset + d], coordinate[d] * boxes[offset + 3 + d]);
+        }
+        return WGSUtil.RADIUS * Math.acos(Math.max(-1, Math.min(1, dot)));
+    }
+
+    /**
+     * @return A lower bound of the distance between anything inside the one box and anything inside the other box
+     */
+    static double lowerBound(double[] boxes, int box, double[] others, int other, int dims) {
+        int offset = 2 * dims * box;
+        int otherOffset = 2 * dims * other;
+        if (dims == 2) {
+            return Envelope.distance(boxes, offset, others, otherOffset);
+        }
+        double gap = 0;
+        for (int d = 0; d < dims; d++) {
+            double delta = Math.max(0, Math.max(boxes[offset + d] - others[otherOffset + dims + d], others[otherOffset + d] - boxes[offset + dims + d]));
+            gap += delta * delta;
+        }
+        //The gap between the boxes bounds the chord between any two unit vectors inside them
+        return WGSUtil.RADIUS * 2 * Math.asin(Math.min(1, Math.sqrt(gap) / 2));
+    }
+}
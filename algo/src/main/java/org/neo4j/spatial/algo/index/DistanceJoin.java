@@ -0,0 +1,357 @@
+package org.neo4j.spatial.algo.index;
+
+import org.neo4j.spatial.algo.ClosestPair;
+import org.neo4j.spatial.algo.Distance;
+import org.neo4j.spatial.algo.DistanceCalculator;
+import org.neo4j.spatial.algo.WithinCalculator;
+import org.neo4j.spatial.core.CRS;
+import org.neo4j.spatial.core.HasCRS;
+import org.neo4j.spatial.core.LineSegment;
+import org.neo4j.spatial.core.Point;
+import org.neo4j.spatial.core.Polygon;
+import org.neo4j.spatial.core.Polyline;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * Distances between all pairs of points, polylines and polygons in one set, as a full matrix or as the k nearest
+ * neighbours of every geometry.
+ * <p>
+ * Every geometry is prepared once: its segments are split in halves down to a few consecutive segments, each range with a
+ * bounding box in the space of {@link Boxes}. The distance between two geometries is the {@link ClosestPair} of those
+ * trees, which stops as soon as the lower bound between the closest pair of ranges left exceeds the closest distance
+ * found so far, or the distance beyond which the pair is of no interest. Pairs of geometries are skipped entirely by the lower bound
+ * between their bounding boxes. The distances of segments are computed by the {@link Distance} of
+ * {@link DistanceCalculator}, the rows of the matrix and the neighbours of the geometries in parallel on a
+ * {@link ForkJoinPool}.
+ */
+public final class DistanceJoin {
+    private final CRS crs;
+    private final int dims;
+    private final Distance calculator;
+    private final Prepared[] prepared;
+    private final double[] boxes;
+
+    private DistanceJoin(CRS crs, Prepared[] prepared, double[] boxes) {
+        this.crs = crs;
+        this.dims = Boxes.dimensions(crs);
+        this.calculator = DistanceCalculator.getCalculator(crs);
+        this.prepared = prepared;
+        this.boxes = boxes;
+    }
+
+    /**
+     * @param geometries points, polylines and polygons, all in the same coordinate reference system
+     * @return The prepared geometries, whose indices in the list identify them in the results
+     */
+    public static DistanceJoin build(List<? extends HasCRS> geometries) {
+        CRS crs = geometries.isEmpty() ? CRS.Cartesian : geometries.get(0).getCRS();
+        int dims = Boxes.dimensions(crs);
+        Prepared[] prepared = new Prepared[geometries.size()];
+        double[] boxes = new double[2 * dims * prepared.length];
+        for (int i = 0; i < prepared.length; i++) {
+            HasCRS geometry = geometries.get(i);
+            if (geometry.getCRS() != crs) {
+                throw new IllegalArgumentException("All geometries should be in " + crs + ", got " + geometry.getCRS());
+            }
+            Boxes.bound(geometry, boxes, i, dims);
+            prepared[i] = new Prepared(geometry, dims);
+        }
+        return new DistanceJoin(crs, prepared, boxes);
+    }
+
+    public int size() {
+        return prepared.length;
+    }
+
+    public CRS getCRS() {
+        return crs;
+    }
+
+    /**
+     * @return The minimum distance between the two geometries, 0 if one intersects or contains the other
+     */
+    public double distance(int a, int b) {
+        return distance(a, b, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * @return The full symmetric matrix of distances, computed on the common fork join pool
+     */
+    public double[][] matrix() {
+        return matrix(Double.POSITIVE_INFINITY, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param maxDistance the distance beyond which pairs of geometries are of no interest
+     * @param pool the pool on which the rows of the matrix are computed
+     * @return The symmetric matrix of distances, with {@link Double#POSITIVE_INFINITY} for every pair further apart than
+     * the maximum distance
+     */
+    public double[][] matrix(double maxDistance, ForkJoinPool pool) {
+        int n = prepared.length;
+        double[][] matrix = new double[n][n];
+        pool.invoke(new Rows(0, n, i -> {
+            for (int j = i + 1; j < n; j++) {
+                double distance = Boxes.lowerBound(boxes, i, boxes, j, dims) > maxDistance ? Double.POSITIVE_INFINITY : distance(i, j, Math.nextUp(maxDistance));
+                matrix[i][j] = distance > maxDistance ? Double.POSITIVE_INFINITY : distance;
+            }
+        }));
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < i; j++) {
+                matrix[i][j] = matrix[j][i];
+            }
+        }
+        return matrix;
+    }
+
+    /**
+     * @param k the number of neighbours of each geometry
+     * @return The k nearest other geometries of every geometry, computed on the common fork join pool
+     */
+    public Neighbours nearest(int k) {
+        return nearest(k, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param k the number of neighbours of each geometry
+     * @param pool the pool on which the neighbours are computed
+     * @return The k nearest other geometries of every geometry, or all other geometries if there are fewer
+     */
+    public Neighbours nearest(int k, ForkJoinPool pool) {
+        if (k < 1) {
+            throw new IllegalArgumentException("Invalid 'k', should be at least 1, but was: " + k);
+        }
+        int n = prepared.length;
+        int[][] indices = new int[n][];
+        double[][] distances = new double[n][];
+        pool.invoke(new Rows(0, n, i -> {
+            int count = Math.min(k, n - 1);
+            int[] nearest = new int[count];
+            double[] nearestDistances = new double[count];
+            indices[i] = nearest;
+            distances[i] = nearestDistances;
+            if (count == 0) {
+                return;
+            }
+            int found = 0;
+
+            //Visit the other geometries in the order of the lower bound of their distance, from a heap of all of them
+            int[] heap = new int[n - 1];
+            double[] bounds = new double[n - 1];
+            for (int j = 0, h = 0; j < n; j++) {
+                if (j != i) {
+                    heap[h] = j;
+                    bounds[h++] = Boxes.lowerBound(boxes, i, boxes, j, dims);
+                }
+            }
+            int size = heap.length;
+            for (int h = size / 2 - 1; h >= 0; h--) {
+                siftDown(heap, bounds, h, size);
+            }
+            while (size > 0) {
+                double cutoff = found < count ? Double.POSITIVE_INFINITY : nearestDistances[count - 1];
+                if (bounds[0] >= cutoff) {
+                    break;
+                }
+                int j = heap[0];
+                size--;
+                heap[0] = heap[size];
+                bounds[0] = bounds[size];
+                siftDown(heap, bounds, 0, size);
+
+                double distance = distance(i, j, cutoff);
+                if (distance < cutoff) {
+                    int position = Math.min(found, count - 1);
+                    while (position > 0 && nearestDistances[position - 1] > distance) {
+                        nearest[position] = nearest[position - 1];
+                        nearestDistances[position] = nearestDistances[position - 1];
+                        position--;
+                    }
+                    nearest[position] = j;
+                    nearestDistances[position] = distance;
+                    found = Math.min(found + 1, count);
+                }
+            }
+        }));
+        return new Neighbours(indices, distances);
+    }
+
+    private static void siftDown(int[] heap, double[] bounds, int position, int size) {
+        while (2 * position + 1 < size) {
+            int child = 2 * position + 1;
+            if (child + 1 < size && bounds[child + 1] < bounds[child]) {
+                child++;
+            }
+            if (bounds[position] <= bounds[child]) {
+                return;
+            }
+            int index = heap[position];
+            double bound = bounds[position];
+            heap[position] = heap[child];
+            bounds[position] = bounds[child];
+            heap[child] = index;
+            bounds[child] = bound;
+            position = child;
+        }
+    }
+
+    /**
+     * @return The distance between the geometries if it is less than the cutoff, otherwise a value of at least the cutoff
+     */
+    private double distance(int a, int b, double cutoff) {
+        Prepared first = prepared[a];
+        Prepared second = prepared[b];
+        //Only geometries with intersecting boxes can contain one another
+        if (Boxes.lowerBound(boxes, a, boxes, b, dims) == 0 && (first.contains(second) || second.contains(first))) {
+            return 0;
+        }
+
+        return ClosestPair.search(first.tree, second.tree, (x, y) -> Boxes.lowerBound(x, 0, y, 0, dims),
+                (s, t) -> elementDistance(first, s, second, t), cutoff).getDistance();
+    }
+
+    private double elementDistance(Prepared first, int s, Prepared second, int t) {
+        if (first.point != null && second.point != null) {
+            return calculator.distance(first.point, second.point);
+        } else if (first.point != null) {
+            return calculator.distance(second.segments[t], first.point);
+        } else if (second.point != null) {
+            return calculator.distance(first.segments[s], second.point);
+        }
+        return calculator.distance(first.segments[s], second.segments[t]);
+    }
+
+    /**
+     * A geometry with its tree of boxes over its segments, or its single point
+     */
+    private static class Prepared {
+        private final Polygon polygon;
+        private final Point point;
+        private final LineSegment[] segments;
+        private final Point[] firstPoints;
+        private final ClosestPair.Tree tree;
+
+        private Prepared(HasCRS geometry, int dims) {
+            if (geometry instanceof Point) {
+                polygon = null;
+                point = (Point) geometry;
+                segments = null;
+                firstPoints = new Point[]{point};
+                tree = ClosestPair.Tree.build(1, (from, to) -> {
+                    double[] box = new double[2 * dims];
+                    Boxes.bound(point, box, 0, dims);
+                    return box;
+                });
+                return;
+            } else if (geometry instanceof Polygon) {
+                polygon = (Polygon) geometry;
+                segments = polygon.toLineSegments();
+                List<Point> shells = new ArrayList<>();
+                for (Polygon.SimplePolygon shell : polygon.getShells()) {
+                    shells.add(shell.getPoints()[0]);
+                }
+                firstPoints = shells.toArray(new Point[0]);
+            } else {
+                polygon = null;
+                segments = ((Polyline) geometry).toLineSegments();
+                firstPoints = new Point[]{((Polyline) geometry).getPoints()[0]};
+            }
+            point = null;
+
+            tree = ClosestPair.Tree.build(segments.length, (from, to) -> bound(segments, from, to, dims));
+        }
+
+        private static double[] bound(LineSegment[] segments, int from, int to, int dims) {
+            double[] box = new double[2 * dims];
+            Boxes.empty(box, 0, dims);
+            for (int s = from; s < to; s++) {
+                Point[] ends = segments[s].getPoints();
+                for (Point end : ends) {
+                    Boxes.include(box, 0, dims, Boxes.coordinate(end));
+                }
+                if (dims == 3) {
+                    double[] start = ends[0].getCoordinate();
+                    double[] end = ends[1].getCoordinate();
+                    Boxes.includeArc(box, 0, start[0], start[1], end[0], end[1]);
+                }
+            }
+            return box;
+        }
+
+        /**
+         * Without crossing boundaries, every part of the other geometry is either inside the polygon or outside it
+         */
+        private boolean contains(Prepared other) {
+            if (polygon == null) {
+                return false;
+            }
+            for (Point first : other.firstPoints) {
+                if (WithinCalculator.within(polygon, first)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Computes the rows of a range one by one, splitting the range so idle workers steal half of it
+     */
+    private static class Rows extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final IntConsumer row;
+
+        private Rows(int from, int to, IntConsumer row) {
+            this.from = from;
+            this.to = to;
+            this.row = row;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 1) {
+                if (from < to) {
+                    row.accept(from);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new Rows(from, middle, row), new Rows(middle, to, row));
+        }
+    }
+
+    /**
+     * The nearest neighbours of every geometry, closest first
+     */
+    public static final class Neighbours {
+        private final int[][] indices;
+        private final double[][] distances;
+
+        private Neighbours(int[][] indices, double[][] distances) {
+            this.indices = indices;
+            this.distances = distances;
+        }
+
+        /**
+         * @return The indices of the nearest geometries of the geometry
+         */
+        public int[] get(int geometry) {
+            return indices[geometry];
+        }
+
+        /**
+         * @return The distances to the nearest geometries of the geometry, in the same order
+         */
+        public double[] distances(int geometry) {
+            return distances[geometry];
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package org.neo4j.spatial.algo.index;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Collects indices in a growing primitive array, for queries passing their results to an {@link IntConsumer}
+ */
+public final class IndexCollector implements IntConsumer {
+    private int[] indices = new int[16];
+    private int size;
+
+    @Override
+    public void accept(int index) {
+        if (size == indices.length) {
+            indices = Arrays.copyOf(indices, 2 * size);
+        }
+        indices[size++] = index;
+    }
+
+    /**
+     * Forget the collected indices, keeping the array for the next query
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * @return The collected indices, in the order they were accepted
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(indices, size);
+    }
+}
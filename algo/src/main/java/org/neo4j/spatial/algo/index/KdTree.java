@@ -0,0 +1,385 @@
+package org.neo4j.spatial.algo.index;
+
+import org.neo4j.spatial.algo.wgs84.WGSUtil;
+import org.neo4j.spatial.core.CRS;
+import org.neo4j.spatial.core.Envelope;
+import org.neo4j.spatial.core.Point;
+import org.neo4j.spatial.core.Vector;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Static kd-tree over a large set of points, stored in primitive arrays without any object per point.
+ * <p>
+ * The tree is implicit: the points of every subtree are a contiguous range of the arrays, with the splitting point in
+ * the middle, smaller coordinates before it and larger coordinates after it. Each range is split in the dimension with
+ * the widest spread. WGS84 points are stored as n-vectors, so the tree works in three dimensions and a radius on the
+ * sphere is a lower bound of the dot product with the center instead of a great circle distance per point.
+ * <p>
+ * Query results are the indices of the points in the order they were given when building the tree.
+ */
+public final class KdTree {
+    private final CRS crs;
+    private final int dims;
+    private final double[] xy;
+    private final double[] coordinates;
+    private final int[] ids;
+    private final byte[] splits;
+
+    private KdTree(CRS crs, double[] xy) {
+        this.crs = crs;
+        this.dims = Boxes.dimensions(crs);
+        this.xy = xy;
+        int n = xy.length / 2;
+        this.coordinates = new double[dims * n];
+        this.ids = new int[n];
+        this.splits = new byte[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = i;
+            if (dims == 2) {
+                coordinates[2 * i] = xy[2 * i];
+                coordinates[2 * i + 1] = xy[2 * i + 1];
+            } else {
+                double[] vector = Vector.pointCoordinatesToVectorCoordinates(new double[]{xy[2 * i], xy[2 * i + 1]});
+                System.arraycopy(vector, 0, coordinates, 3 * i, 3);
+            }
+        }
+        build(0, n);
+    }
+
+    /**
+     * @param points the points, all in the same coordinate reference system
+     * @return A tree over the points
+     */
+    public static KdTree build(List<Point> points) {
+        CRS crs = points.isEmpty() ? CRS.Cartesian : points.get(0).getCRS();
+        double[] xy = new double[2 * points.size()];
+        for (int i = 0; i < points.size(); i++) {
+            Point point = points.get(i);
+            if (point.getCRS() != crs) {
+                throw new IllegalArgumentException("All points should be in " + crs + ", got " + point.getCRS());
+            }
+            xy[2 * i] = point.getCoordinate()[0];
+            xy[2 * i + 1] = point.getCoordinate()[1];
+        }
+        return new KdTree(crs, xy);
+    }
+
+    /**
+     * @param crs the coordinate reference system of the points
+     * @param xy the x and y coordinates of the points, for WGS84 longitude and latitude, which are copied
+     * @return A tree over the points
+     */
+    public static KdTree build(CRS crs, double... xy) {
+        if (xy.length % 2 != 0) {
+            throw new IllegalArgumentException("Expected pairs of coordinates, got " + xy.length + " values");
+        }
+        return new KdTree(crs, Arrays.copyOf(xy, xy.length));
+    }
+
+    private void build(int from, int to) {
+        while (to - from > 1) {
+            int split = widest(from, to);
+            int middle = (from + to) >>> 1;
+            select(from, to - 1, middle, split);
+            splits[middle] = (byte) split;
+            build(from, middle);
+            from = middle + 1;
+        }
+    }
+
+    private int widest(int from, int to) {
+        int widest = 0;
+        double widestSpread = -1;
+        for (int d = 0; d < dims; d++) {
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = from; i < to; i++) {
+                min = Math.min(min, coordinates[dims * i + d]);
+                max = Math.max(max, coordinates[dims * i + d]);
+            }
+            if (max - min > widestSpread) {
+                widest = d;
+                widestSpread = max - min;
+            }
+        }
+        return widest;
+    }
+
+    /**
+     * Partially sort the range, such that the point at k has the k-th coordinate in the dimension
+     */
+    private void select(int left, int right, int k, int d) {
+        while (left < right) {
+            double pivot = coordinates[dims * ((left + right) >>> 1) + d];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (coordinates[dims * i + d] < pivot) {
+                    i++;
+                }
+                while (coordinates[dims * j + d] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(i++, j--);
+                }
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void swap(int i, int j) {
+        for (int d = 0; d < dims; d++) {
+            double coordinate = coordinates[dims * i + d];
+            coordinates[dims * i + d] = coordinates[dims * j + d];
+            coordinates[dims * j + d] = coordinate;
+        }
+        int id = ids[i];
+        ids[i] = ids[j];
+        ids[j] = id;
+    }
+
+    public CRS getCRS() {
+        return crs;
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public Point getPoint(int index) {
+        return Point.point(crs, xy[2 * index], xy[2 * index + 1]);
+    }
+
+    /**
+     * @param center the center
+     * @param distance the distance, for WGS84 in meters along the sphere
+     * @return The indices of the points at most the distance away from the center
+     */
+    public int[] withinDistance(Point center, double distance) {
+        IndexCollector collector = new IndexCollector();
+        withinDistance(center, distance, collector);
+        return collector.toArray();
+    }
+
+    /**
+     * Pass the indices of the points at most the distance away from the center to the consumer, in no particular order
+     */
+    public void withinDistance(Point center, double distance, IntConsumer consumer) {
+        double[] q = coordinate(center);
+        if (dims == 2) {
+            withinRadius(0, size(), q, distance, distance * distance, consumer);
+        } else {
+            double angle = distance / WGSUtil.RADIUS;
+            if (angle >= Math.PI) {
+                for (int id = 0; id < size(); id++) {
+                    consumer.accept(id);
+                }
+                return;
+            }
+            //Unit vectors with a dot product of at least cos(angle) are within a chord of 2 sin(angle / 2)
+            double minDot = Math.cos(angle);
+            double chord = 2 * Math.sin(angle / 2);
+            withinDot(0, size(), q, minDot, chord, consumer);
+        }
+    }
+
+    private void withinRadius(int from, int to, double[] q, double radius, double radiusSquared, IntConsumer consumer) {
+        while (from < to) {
+            int middle = (from + to) >>> 1;
+            double dx = coordinates[2 * middle] - q[0];
+            double dy = coordinates[2 * middle + 1] - q[1];
+            if (dx * dx + dy * dy <= radiusSquared) {
+                consumer.accept(ids[middle]);
+            }
+            if (to - from == 1) {
+                return;
+            }
+            double difference = q[splits[middle]] - coordinates[2 * middle + splits[middle]];
+            if (difference - radius <= 0) {
+                withinRadius(from, middle, q, radius, radiusSquared, consumer);
+            }
+            if (difference + radius < 0) {
+                return;
+            }
+            from = middle + 1;
+        }
+    }
+
+    private void withinDot(int from, int to, double[] q, double minDot, double chord, IntConsumer consumer) {
+        while (from < to) {
+            int middle = (from + to) >>> 1;
+            int offset = 3 * middle;
+            if (coordinates[offset] * q[0] + coordinates[offset + 1] * q[1] + coordinates[offset + 2] * q[2] >= minDot) {
+                consumer.accept(ids[middle]);
+            }
+            if (to - from == 1) {
+                return;
+            }
+            double difference = q[splits[middle]] - coordinates[offset + splits[middle]];
+            if (difference - chord <= 0) {
+                withinDot(from, middle, q, minDot, chord, consumer);
+            }
+            if (difference + chord < 0) {
+                return;
+            }
+            from = middle + 1;
+        }
+    }
+
+    /**
+     * @param window the window, for WGS84 in degrees of longitude and latitude
+     * @return The indices of the points inside the window, the border included
+     */
+    public int[] query(Envelope window) {
+        IndexCollector collector = new IndexCollector();
+        query(0, size(), Boxes.window(crs, window), window, collector);
+        return collector.toArray();
+    }
+
+    private void query(int from, int to, double[] box, Envelope window, IndexCollector collector) {
+        while (from < to) {
+            int middle = (from + to) >>> 1;
+            int id = ids[middle];
+            if (window.contains(xy[2 * id], xy[2 * id + 1])) {
+                collector.accept(id);
+            }
+            if (to - from == 1) {
+                return;
+            }
+            int d = splits[middle];
+            double split = coordinates[dims * middle + d];
+            if (box[d] <= split) {
+                query(from, middle, box, window, collector);
+            }
+            if (box[dims + d] < split) {
+                return;
+            }
+            from = middle + 1;
+        }
+    }
+
+    /**
+     * @param point the point
+     * @param k the maximum number of neighbors
+     * @return The indices of the at most k nearest points, ordered by increasing distance
+     */
+    public int[] nearest(Point point, int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("The number of neighbors should not be negative, got " + k);
+        }
+        //For n-vectors the chord is increasing with the distance along the sphere, so the order is the same
+        Neighbors neighbors = new Neighbors(Math.min(k, size()));
+        if (neighbors.capacity > 0) {
+            nearest(0, size(), coordinate(point), neighbors);
+        }
+        return neighbors.sorted();
+    }
+
+    private void nearest(int from, int to, double[] q, Neighbors neighbors) {
+        if (from >= to) {
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        double distanceSquared = 0;
+        for (int d = 0; d < dims; d++) {
+            double difference = coordinates[dims * middle + d] - q[d];
+            distanceSquared += difference * difference;
+        }
+        neighbors.offer(ids[middle], distanceSquared);
+        if (to - from == 1) {
+            return;
+        }
+
+        double difference = q[splits[middle]] - coordinates[dims * middle + splits[middle]];
+        if (difference <= 0) {
+            nearest(from, middle, q, neighbors);
+            if (difference * difference <= neighbors.worst()) {
+                nearest(middle + 1, to, q, neighbors);
+            }
+        } else {
+            nearest(middle + 1, to, q, neighbors);
+            if (difference * difference <= neighbors.worst()) {
+                nearest(from, middle, q, neighbors);
+            }
+        }
+    }
+
+    private double[] coordinate(Point point) {
+        if (point.getCRS() != crs) {
+            throw new IllegalArgumentException("The point should be in " + crs + ", got " + point.getCRS());
+        }
+        return Boxes.coordinate(point);
+    }
+
+    /**
+     * Bounded max-heap of the nearest points found so far, the farthest on top
+     */
+    private static class Neighbors {
+        private final int capacity;
+        private final int[] ids;
+        private final double[] distances;
+        private int size;
+
+        private Neighbors(int capacity) {
+            this.capacity = capacity;
+            this.ids = new int[capacity];
+            this.distances = new double[capacity];
+        }
+
+        private double worst() {
+            return size < capacity ? Double.POSITIVE_INFINITY : distances[0];
+        }
+
+        private void offer(int id, double distance) {
+            if (size < capacity) {
+                int i = size++;
+                while (i > 0 && distances[(i - 1) / 2] < distance) {
+                    ids[i] = ids[(i - 1) / 2];
+                    distances[i] = distances[(i - 1) / 2];
+                    i = (i - 1) / 2;
+                }
+                ids[i] = id;
+                distances[i] = distance;
+            } else if (distance < distances[0]) {
+                int i = 0;
+                while (2 * i + 1 < size) {
+                    int child = 2 * i + 1;
+                    if (child + 1 < size && distances[child + 1] > distances[child]) {
+                        child++;
+                    }
+                    if (distances[child] <= distance) {
+                        break;
+                    }
+                    ids[i] = ids[child];
+                    distances[i] = distances[child];
+                    i = child;
+                }
+                ids[i] = id;
+                distances[i] = distance;
+            }
+        }
+
+        private int[] sorted() {
+            Integer[] positions = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                positions[i] = i;
+            }
+            Arrays.sort(positions, (a, b) -> Double.compare(distances[a], distances[b]));
+            int[] result = new int[size];
+            for (int i = 0; i < size; i++) {
+                result[i] = ids[positions[i]];
+            }
+            return result;
+        }
+    }
+}
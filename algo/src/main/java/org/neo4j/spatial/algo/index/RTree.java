@@ -0,0 +1,346 @@
+package org.neo4j.spatial.algo.index;
+
+import org.neo4j.spatial.algo.Distance;
+import org.neo4j.spatial.algo.DistanceCalculator;
+import org.neo4j.spatial.algo.WithinCalculator;
+import org.neo4j.spatial.core.CRS;
+import org.neo4j.spatial.core.Envelope;
+import org.neo4j.spatial.core.HasCRS;
+import org.neo4j.spatial.core.Point;
+import org.neo4j.spatial.core.Polygon;
+import org.neo4j.spatial.core.Polyline;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.IntConsumer;
+
+/**
+ * Static R-tree over points, polylines and polygons, bulk loaded with Sort-Tile-Recursive packing.
+ * <p>
+ * Cartesian geometries are indexed by their envelopes. WGS84 geometries are indexed by three dimensional boxes around
+ * their n-vectors, so queries near the antimeridian or the poles need no special treatment. The nodes of every level
+ * are stored in flat arrays, the children of a node being a contiguous range of the level below.
+ *
+ * @param <G> the type of the indexed geometries
+ */
+public final class RTree<G extends HasCRS> {
+    private static final int NODE_CAPACITY = 16;
+
+    private final CRS crs;
+    private final int dims;
+    private final List<G> geometries;
+    private final int[] items;
+    private final double[][] boxes;
+    private final int[][] firstChild;
+    private final int[][] lastChild;
+
+    private RTree(CRS crs, int dims, List<G> geometries, int[] items, double[][] boxes, int[][] firstChild, int[][] lastChild) {
+        this.crs = crs;
+        this.dims = dims;
+        this.geometries = geometries;
+        this.items = items;
+        this.boxes = boxes;
+        this.firstChild = firstChild;
+        this.lastChild = lastChild;
+    }
+
+    /**
+     * @param geometries the points, polylines and polygons to index, all in the same coordinate reference system
+     * @param <G> the type of the geometries
+     * @return A tree over the geometries, whose indices in the list identify them in query results
+     */
+    public static <G extends HasCRS> RTree<G> build(List<? extends G> geometries) {
+        List<G> copy = new ArrayList<>(geometries);
+        CRS crs = copy.isEmpty() ? CRS.Cartesian : copy.get(0).getCRS();
+        int dims = Boxes.dimensions(crs);
+        int n = copy.size();
+
+        double[] itemBoxes = new double[2 * dims * n];
+        for (int i = 0; i < n; i++) {
+            G geometry = copy.get(i);
+            if (geometry.getCRS() != crs) {
+                throw new IllegalArgumentException("All geometries should be in " + crs + ", got " + geometry.getCRS());
+            }
+            Boxes.bound(geometry, itemBoxes, i, dims);
+        }
+
+        List<double[]> levelBoxes = new ArrayList<>();
+        List<int[]> levelFirst = new ArrayList<>();
+        List<int[]> levelLast = new ArrayList<>();
+
+        int[] items = sortTileRecursive(itemBoxes, n, dims);
+        levelBoxes.add(permute(itemBoxes, items, dims));
+        levelFirst.add(new int[0]);
+        levelLast.add(new int[0]);
+
+        int count = n;
+        while (count > 1) {
+            double[] children = levelBoxes.get(levelBoxes.size() - 1);
+            int parents = (count + NODE_CAPACITY - 1) / NODE_CAPACITY;
+            double[] parentBoxes = new double[2 * dims * parents];
+            int[] first = new int[parents];
+            int[] last = new int[parents];
+            for (int p = 0; p < parents; p++) {
+                first[p] = p * NODE_CAPACITY;
+                last[p] = Math.min(count, first[p] + NODE_CAPACITY) - 1;
+                Boxes.empty(parentBoxes, p, dims);
+                for (int c = first[p]; c <= last[p]; c++) {
+                    Boxes.include(parentBoxes, p, children, c, dims);
+                }
+            }
+
+            int[] order = sortTileRecursive(parentBoxes, parents, dims);
+            levelBoxes.add(permute(parentBoxes, order, dims));
+            levelFirst.add(permute(first, order));
+            levelLast.add(permute(last, order));
+            count = parents;
+        }
+
+        return new RTree<>(crs, dims, copy, items, levelBoxes.toArray(new double[0][]), levelFirst.toArray(new int[0][]), levelLast.toArray(new int[0][]));
+    }
+
+    /**
+     * Order boxes such that consecutive runs of the node capacity are compact, by sorting on the center in the first
+     * dimension, cutting into slabs, and recursively sorting each slab on the next dimension
+     */
+    private static int[] sortTileRecursive(double[] boxes, int count, int dims) {
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        sortTiles(order, 0, count, 0, dims, boxes);
+        int[] result = new int[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = order[i];
+        }
+        return result;
+    }
+
+    private static void sortTiles(Integer[] order, int from, int to, int d, int dims, double[] boxes) {
+        Arrays.sort(order, from, to, Comparator.comparingDouble(box -> Boxes.center(boxes, box, dims, d)));
+        if (d == dims - 1) {
+            return;
+        }
+        int pages = (to - from + NODE_CAPACITY - 1) / NODE_CAPACITY;
+        int slabs = (int) Math.ceil(Math.pow(pages, 1.0 / (dims - d)));
+        int slabSize = NODE_CAPACITY * ((pages + slabs - 1) / slabs);
+        for (int start = from; start < to; start += slabSize) {
+            sortTiles(order, start, Math.min(to, start + slabSize), d + 1, dims, boxes);
+        }
+    }
+
+    private static double[] permute(double[] boxes, int[] order, int dims) {
+        double[] result = new double[boxes.length];
+        for (int i = 0; i < order.length; i++) {
+            System.arraycopy(boxes, 2 * dims * order[i], result, 2 * dims * i, 2 * dims);
+        }
+        return result;
+    }
+
+    private static int[] permute(int[] values, int[] order) {
+        int[] result = new int[values.length];
+        for (int i = 0; i < order.length; i++) {
+            result[i] = values[order[i]];
+        }
+        return result;
+    }
+
+    public CRS getCRS() {
+        return crs;
+    }
+
+    public int size() {
+        return items.length;
+    }
+
+    public G get(int index) {
+        return geometries.get(index);
+    }
+
+    /**
+     * @param window the window, for WGS84 in degrees of longitude and latitude
+     * @return The geometries whose bounding boxes intersect the bounding box of the window
+     */
+    public List<G> query(Envelope window) {
+        double[] query = Boxes.window(crs, window);
+        List<G> result = new ArrayList<>();
+        search((boxes, box) -> Boxes.intersects(boxes, box, dims, query), index -> result.add(geometries.get(index)));
+        return result;
+    }
+
+    /**
+     * @param point the point
+     * @return The polygons containing the point, the polylines passing through it and the points equal to it
+     */
+    public List<G> containing(Point point) {
+        checkCRS(point);
+        double[] coordinate = Boxes.coordinate(point);
+        List<G> candidates = new ArrayList<>();
+        search((boxes, box) -> Boxes.contains(boxes, box, dims, coordinate), index -> candidates.add(geometries.get(index)));
+
+        List<G> result = new ArrayList<>(candidates.size());
+        for (G candidate : candidates) {
+            if (candidate instanceof Polygon ? WithinCalculator.within((Polygon) candidate, point) : distance(DistanceCalculator.getCalculator(crs), candidate, point) == 0) {
+                result.add(candidate);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Pass the indices of the geometries whose bounding boxes contain the point to the consumer, without testing the
+     * geometries themselves. This lets callers refine the candidates with their own prepared geometries.
+     */
+    public void candidates(Point point, IntConsumer consumer) {
+        checkCRS(point);
+        double[] coordinate = Boxes.coordinate(point);
+        search((boxes, box) -> Boxes.contains(boxes, box, dims, coordinate), consumer);
+    }
+
+    private void search(BoxFilter filter, IntConsumer consumer) {
+        int top = boxes.length - 1;
+        int[] stack = new int[2 * (NODE_CAPACITY * boxes.length + size())];
+        int depth = 0;
+        for (int node = 0; node < boxes[top].length / (2 * dims); node++) {
+            stack[depth++] = top;
+            stack[depth++] = node;
+        }
+        while (depth > 0) {
+            int node = stack[--depth];
+            int level = stack[--depth];
+            if (!filter.accept(boxes[level], node)) {
+                continue;
+            }
+            if (level == 0) {
+                consumer.accept(items[node]);
+            } else {
+                for (int child = firstChild[level][node]; child <= lastChild[level][node]; child++) {
+                    stack[depth++] = level - 1;
+                    stack[depth++] = child;
+                }
+            }
+        }
+    }
+
+    /**
+     * Find the nearest geometries by a best-first search, in which a node is only opened when no geometry found so far
+     * can be closer than its bounding box. The distances are calculated by the {@link Distance} calculator of the
+     * coordinate reference system, which is zero for points inside a polygon.
+     *
+     * @param point the point
+     * @param k the maximum number of neighbors
+     * @return The at most k nearest geometries, ordered by increasing distance
+     */
+    public List<Neighbor<G>> nearest(Point point, int k) {
+        checkCRS(point);
+        if (k < 0) {
+            throw new IllegalArgumentException("The number of neighbors should not be negative, got " + k);
+        }
+        Distance calculator = DistanceCalculator.getCalculator(crs);
+        double[] coordinate = Boxes.coordinate(point);
+
+        PriorityQueue<Entry> queue = new PriorityQueue<>();
+        int top = boxes.length - 1;
+        for (int node = 0; node < boxes[top].length / (2 * dims); node++) {
+            queue.add(new Entry(Boxes.lowerBound(boxes[top], node, dims, coordinate), top, node, false));
+        }
+
+        List<Neighbor<G>> result = new ArrayList<>(Math.min(k, size()));
+        while (result.size() < k && !queue.isEmpty()) {
+            Entry entry = queue.poll();
+            if (entry.exact) {
+                result.add(new Neighbor<>(items[entry.node], geometries.get(items[entry.node]), entry.distance));
+            } else if (entry.level == 0) {
+                queue.add(new Entry(distance(calculator, geometries.get(items[entry.node]), point), 0, entry.node, true));
+            } else {
+                int level = entry.level - 1;
+                for (int child = firstChild[entry.level][entry.node]; child <= lastChild[entry.level][entry.node]; child++) {
+                    queue.add(new Entry(Boxes.lowerBound(boxes[level], child, dims, coordinate), level, child, false));
+                }
+            }
+        }
+        return result;
+    }
+
+    private static double distance(Distance calculator, HasCRS geometry, Point point) {
+        if (geometry instanceof Polygon) {
+            return calculator.distance((Polygon) geometry, point);
+        } else if (geometry instanceof Polyline) {
+            return calculator.distance((Polyline) geometry, point);
+        } else {
+            return calculator.distance((Point) geometry, point);
+        }
+    }
+
+    private void checkCRS(Point point) {
+        if (point.getCRS() != crs) {
+            throw new IllegalArgumentException("The point should be in " + crs + ", got " + point.getCRS());
+        }
+    }
+
+    @FunctionalInterface
+    private interface BoxFilter {
+        boolean accept(double[] boxes, int box);
+    }
+
+    private static class Entry implements Comparable<Entry> {
+        private final double distance;
+        private final int level;
+        private final int node;
+        private final boolean exact;
+
+        private Entry(double distance, int level, int node, boolean exact) {
+            this.distance = distance;
+            this.level = level;
+            this.node = node;
+            this.exact = exact;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int result = Double.compare(distance, other.distance);
+            //Exact distances go first, so a geometry is reported before a node that cannot be closer
+            return result != 0 ? result : Boolean.compare(other.exact, exact);
+        }
+    }
+
+    /**
+     * A geometry found by a nearest neighbor search
+     *
+     * @param <G> the type of the geometry
+     */
+    public static final class Neighbor<G> {
+        private final int index;
+        private final G geometry;
+        private final double distance;
+
+        Neighbor(int index, G geometry, double distance) {
+            this.index = index;
+            this.geometry = geometry;
+            this.distance = distance;
+        }
+
+        /**
+         * @return The index of the geometry in the list the tree was built from
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        public G getGeometry() {
+            return geometry;
+        }
+
+        public double getDistance() {
+            return distance;
+        }
+
+        @Override
+        public String toString() {
+            return "Neighbor{" + index + ", " + distance + "}";
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package org.neo4j.spatial.algo.index;
+
+import org.neo4j.spatial.algo.Intersect;
+import org.neo4j.spatial.algo.IntersectCalculator;
+import org.neo4j.spatial.algo.WithinCalculator;
+import org.neo4j.spatial.core.CRS;
+import org.neo4j.spatial.core.HasCRS;
+import org.neo4j.spatial.core.Polygon;
+import org.neo4j.spatial.core.Polyline;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Finds all pairs of overlapping polygons and polylines within one set of geometries.
+ * <p>
+ * Candidate pairs are generated by a sort-and-sweep over the bounding boxes of {@link RTree}: the boxes are sorted by
+ * their minimum along the axis in which their centers are spread the most, and every box is only compared with the boxes
+ * starting before it ends. The candidates are then refined in parallel by the monotone chain sweep line intersection,
+ * together with a point-in-polygon test for polygons containing the other geometry without their boundaries crossing.
+ */
+public final class SelfJoin {
+    private final List<HasCRS> geometries;
+    private final int[] firsts;
+    private final int[] seconds;
+
+    private SelfJoin(List<HasCRS> geometries, int[] firsts, int[] seconds) {
+        this.geometries = geometries;
+        this.firsts = firsts;
+        this.seconds = seconds;
+    }
+
+    /**
+     * @param geometries polygons and polylines, all in the same coordinate reference system
+     * @return The candidate pairs of the geometries, whose indices in the list identify them in the pairs
+     */
+    public static SelfJoin candidates(List<? extends HasCRS> geometries) {
+        List<HasCRS> copy = new ArrayList<>(geometries);
+        CRS crs = copy.isEmpty() ? CRS.Cartesian : copy.get(0).getCRS();
+        int dims = Boxes.dimensions(crs);
+        int n = copy.size();
+
+        double[] boxes = new double[2 * dims * n];
+        for (int i = 0; i < n; i++) {
+            HasCRS geometry = copy.get(i);
+            if (!(geometry instanceof Polygon) && !(geometry instanceof Polyline)) {
+                throw new IllegalArgumentException("Only polygons and polylines can be joined, got " + geometry.getClass().getSimpleName());
+            } else if (geometry.getCRS() != crs) {
+                throw new IllegalArgumentException("All geometries should be in " + crs + ", got " + geometry.getCRS());
+            }
+            Boxes.bound(geometry, boxes, i, dims);
+        }
+
+        int axis = widest(boxes, n, dims);
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(boxes[2 * dims * a + axis], boxes[2 * dims * b + axis]));
+
+        int[] firsts = new int[16];
+        int[] seconds = new int[16];
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            int a = order[i];
+            double end = boxes[2 * dims * a + dims + axis];
+            double[] box = Arrays.copyOfRange(boxes, 2 * dims * a, 2 * dims * (a + 1));
+            for (int j = i + 1; j < n && boxes[2 * dims * order[j] + axis] <= end; j++) {
+                int b = order[j];
+                if (Boxes.intersects(boxes, b, dims, box)) {
+                    if (count == firsts.length) {
+                        firsts = Arrays.copyOf(firsts, 2 * count);
+                        seconds = Arrays.copyOf(seconds, 2 * count);
+                    }
+                    firsts[count] = Math.min(a, b);
+                    seconds[count++] = Math.max(a, b);
+                }
+            }
+        }
+        return new SelfJoin(copy, Arrays.copyOf(firsts, count), Arrays.copyOf(seconds, count));
+    }
+
+    private static int widest(double[] boxes, int n, int dims) {
+        int widest = 0;
+        double widestSpread = -1;
+        for (int d = 0; d < dims; d++) {
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < n; i++) {
+                min = Math.min(min, Boxes.center(boxes, i, dims, d));
+                max = Math.max(max, Boxes.center(boxes, i, dims, d));
+            }
+            if (max - min > widestSpread) {
+                widest = d;
+                widestSpread = max - min;
+            }
+        }
+        return widest;
+    }
+
+    /**
+     * @return The number of candidate pairs, whose bounding boxes intersect
+     */
+    public int candidateCount() {
+        return firsts.length;
+    }
+
+    /**
+     * @return The indices of the first and second geometry of every candidate pair, the first being the smaller index
+     */
+    public Stream<int[]> candidatePairs() {
+        return IntStream.range(0, firsts.length).mapToObj(k -> new int[]{firsts[k], seconds[k]});
+    }
+
+    /**
+     * Refine the candidates in parallel, on the common fork join pool.
+     *
+     * @return The indices of the first and second geometry of every pair of geometries that intersect or contain one
+     * another, the first being the smaller index, in no particular order
+     */
+    public Stream<int[]> intersecting() {
+        return IntStream.range(0, firsts.length).parallel()
+                .filter(k -> intersects(geometries.get(firsts[k]), geometries.get(seconds[k])))
+                .mapToObj(k -> new int[]{firsts[k], seconds[k]});
+    }
+
+    /**
+     * @param geometries polygons and polylines, all in the same coordinate reference system
+     * @return The pairs of geometries that intersect or contain one another, see {@link #intersecting()}
+     */
+    public static Stream<int[]> intersecting(List<? extends HasCRS> geometries) {
+        return candidates(geometries).intersecting();
+    }
+
+    private static boolean intersects(HasCRS a, HasCRS b) {
+        Intersect calculator = IntersectCalculator.getCalculator(a.getCRS(), IntersectCalculator.AlgorithmVariant.MCSweepLine);
+        if (a instanceof Polygon && b instanceof Polygon) {
+            Polygon first = (Polygon) a;
+            Polygon second = (Polygon) b;
+            return calculator.doesIntersect(first, second) || containsShell(first, second) || containsShell(second, first);
+        } else if (a instanceof Polygon) {
+            return calculator.doesIntersect((Polygon) a, (Polyline) b) || WithinCalculator.within((Polygon) a, ((Polyline) b).getPoints()[0]);
+        } else if (b instanceof Polygon) {
+            return intersects(b, a);
+        }
+        return calculator.intersect((Polyline) a, (Polyline) b).length > 0;
+    }
+
+    /**
+     * Without crossing boundaries, a shell of the other polygon is either inside the polygon or outside it entirely
+     */
+    private static boolean containsShell(Polygon polygon, Polygon other) {
+        for (Polygon.SimplePolygon shell : other.getShells()) {
+            if (WithinCalculator.within(polygon, shell.getPoints()[0])) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
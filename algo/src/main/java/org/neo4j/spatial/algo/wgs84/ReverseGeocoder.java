@@ -0,0 +1,438 @@
+package org.neo4j.spatial.algo.wgs84;
+
+import org.neo4j.spatial.algo.WithinCalculator;
+import org.neo4j.spatial.algo.index.IndexCollector;
+import org.neo4j.spatial.core.CRS;
+import org.neo4j.spatial.core.Point;
+import org.neo4j.spatial.core.Polygon;
+import org.neo4j.spatial.core.Vector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Point location over a static set of WGS84 polygons, like the nested administrative areas of a reverse geocoder.
+ * <p>
+ * The sphere is partitioned into disjoint cells of {@link CellId}, subdivided until no cell is crossed by more than a
+ * few edges of any polygon. Every cell lists the polygons it overlaps: polygons containing the whole cell, and polygons
+ * whose boundary crosses it together with the edges crossing the cell and whether the center of the cell is inside.
+ * A point is located by a binary search for its cell, after which it is inside a crossing polygon iff the arc from the
+ * center of the cell to the point crosses an even number of those edges when the center is inside, or an odd number
+ * when it is outside. No query ever visits more than the edges of a single cell.
+ * <p>
+ * The polygons should not contain a pole. Points exactly on an edge, or on an arc between a vertex and a cell center,
+ * may be decided differently than by {@link WithinCalculator}.
+ */
+public final class ReverseGeocoder {
+    public static final int DEFAULT_MAX_LEVEL = 24;
+    public static final int DEFAULT_MAX_EDGES = 8;
+
+    private final List<Polygon> polygons;
+    private final long[] cells;
+    private final double[] centers;
+    private final int[] entryStart;
+    private final int[] entryPolygon;
+    private final boolean[] entryInside;
+    private final int[] edgeStart;
+    private final double[] edges;
+
+    private ReverseGeocoder(List<Polygon> polygons, Builder builder) {
+        this.polygons = polygons;
+        this.cells = Arrays.copyOf(builder.cells, builder.cellCount);
+        this.centers = Arrays.copyOf(builder.centers, 3 * builder.cellCount);
+        this.entryStart = Arrays.copyOf(builder.entryStart, builder.cellCount + 1);
+        this.entryPolygon = Arrays.copyOf(builder.entryPolygon, builder.entryCount);
+        this.entryInside = Arrays.copyOf(builder.entryInside, builder.entryCount);
+        this.edgeStart = Arrays.copyOf(builder.edgeStart, builder.entryCount + 1);
+        this.edges = Arrays.copyOf(builder.edges, 9 * builder.edgeCount);
+    }
+
+    /**
+     * @param polygons the WGS84 polygons, none of which contains a pole
+     * @return A geocoder over the polygons, whose indices in the list identify them in query results
+     */
+    public static ReverseGeocoder build(List<? extends Polygon> polygons) {
+        return build(polygons, DEFAULT_MAX_LEVEL, DEFAULT_MAX_EDGES);
+    }
+
+    /**
+     * @param polygons the WGS84 polygons, none of which contains a pole
+     * @param maxLevel the finest level of the cells
+     * @param maxEdges the number of edges of a polygon above which a cell is subdivided
+     * @return A geocoder over the polygons, whose indices in the list identify them in query results
+     */
+    public static ReverseGeocoder build(List<? extends Polygon> polygons, int maxLevel, int maxEdges) {
+        if (maxLevel < 0 || maxLevel > CellId.MAX_LEVEL) {
+            throw new IllegalArgumentException("The maximum level should be between 0 and " + CellId.MAX_LEVEL + ", got " + maxLevel);
+        } else if (maxEdges < 1) {
+            throw new IllegalArgumentException("The maximum number of edges should be at least 1, got " + maxEdges);
+        }
+        List<Polygon> copy = new ArrayList<>(polygons);
+        for (Polygon polygon : copy) {
+            if (polygon.getCRS() != CRS.WGS84) {
+                throw new IllegalArgumentException("Reverse geocoding is only defined for WGS84 polygons, got " + polygon.getCRS());
+            }
+        }
+        Builder builder = new Builder(copy, maxLevel, maxEdges);
+        builder.build();
+        return new ReverseGeocoder(copy, builder);
+    }
+
+    public int size() {
+        return polygons.size();
+    }
+
+    public Polygon get(int index) {
+        return polygons.get(index);
+    }
+
+    /**
+     * @return The number of cells of the partition, each overlapping at least one polygon
+     */
+    public int cellCount() {
+        return cells.length;
+    }
+
+    /**
+     * @return The indices of the polygons containing the point, in increasing order
+     */
+    public int[] containing(Point point) {
+        if (point.getCRS() != CRS.WGS84) {
+            throw new IllegalArgumentException("The point should be in WGS84, got " + point.getCRS());
+        }
+        IndexCollector collector = new IndexCollector();
+        containing(point.getCoordinate()[0], point.getCoordinate()[1], collector);
+        return collector.toArray();
+    }
+
+    /**
+     * @param coordinates the longitude and latitude of every point, in degrees
+     * @return For every point the indices of the polygons containing it, in increasing order
+     */
+    public int[][] containing(double... coordinates) {
+        if (coordinates.length % 2 != 0) {
+            throw new IllegalArgumentException("Expected pairs of coordinates, got " + coordinates.length + " values");
+        }
+        int[][] result = new int[coordinates.length / 2][];
+        IndexCollector collector = new IndexCollector();
+        for (int i = 0; i < result.length; i++) {
+            collector.clear();
+            containing(coordinates[2 * i], coordinates[2 * i + 1], collector);
+            result[i] = collector.toArray();
+        }
+        return result;
+    }
+
+    /**
+     * Pass the indices of the polygons containing the point to the consumer, in increasing order
+     */
+    public void containing(double longitude, double latitude, IntConsumer consumer) {
+        double lon = Math.toRadians(longitude);
+        double lat = Math.toRadians(latitude);
+        double cosLat = Math.cos(lat);
+        double[] point = new double[]{cosLat * Math.cos(lon), cosLat * Math.sin(lon), Math.sin(lat)};
+        long leaf = CellId.fromVector(point);
+
+        int cell = floor(leaf);
+        if (cell < 0 || !CellId.contains(cells[cell], leaf)) {
+            return;
+        }
+        int c = 3 * cell;
+        //The normal of the great circle through the center of the cell and the point, shared by all edges
+        double cx = centers[c], cy = centers[c + 1], cz = centers[c + 2];
+        double nx = cy * point[2] - cz * point[1];
+        double ny = cz * point[0] - cx * point[2];
+        double nz = cx * point[1] - cy * point[0];
+        for (int entry = entryStart[cell]; entry < entryStart[cell + 1]; entry++) {
+            boolean inside = entryInside[entry];
+            for (int e = 9 * edgeStart[entry]; e < 9 * edgeStart[entry + 1]; e += 9) {
+                if (crosses(edges, e, cx, cy, cz, point, nx, ny, nz)) {
+                    inside = !inside;
+                }
+            }
+            if (inside) {
+                consumer.accept(entryPolygon[entry]);
+            }
+        }
+    }
+
+    /**
+     * @return The index of the last cell starting at or before the leaf, or -1 if there is none
+     */
+    private int floor(long leaf) {
+        int low = 0;
+        int high = cells.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (Long.compareUnsigned(CellId.rangeMin(cells[middle]), leaf) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return high;
+    }
+
+    /**
+     * Strict crossing of the arc CD with the edge stored at the offset as its end points A and B and their normal,
+     * where N is the normal of CD. The arcs cross iff the four triangles ACB, BDA, CBD and DAC have the same orientation.
+     */
+    private static boolean crosses(double[] edges, int e, double cx, double cy, double cz, double[] d, double nx, double ny, double nz) {
+        double acb = -(edges[e + 6] * cx + edges[e + 7] * cy + edges[e + 8] * cz);
+        double bda = edges[e + 6] * d[0] + edges[e + 7] * d[1] + edges[e + 8] * d[2];
+        if (acb == 0 || bda == 0 || (acb > 0) != (bda > 0)) {
+            return false;
+        }
+        double cbd = -(nx * edges[e + 3] + ny * edges[e + 4] + nz * edges[e + 5]);
+        double dac = nx * edges[e] + ny * edges[e + 1] + nz * edges[e + 2];
+        return cbd != 0 && dac != 0 && (cbd > 0) == (acb > 0) && (dac > 0) == (acb > 0);
+    }
+
+    private static boolean crosses(double[] a, double[] b, double[] ab, double[] c, double[] d) {
+        double[] cd = cross(c, d);
+        double[] edge = new double[]{a[0], a[1], a[2], b[0], b[1], b[2], ab[0], ab[1], ab[2]};
+        return crosses(edge, 0, c[0], c[1], c[2], d, cd[0], cd[1], cd[2]);
+    }
+
+    /**
+     * Inclusive crossing of the arcs AB and CD. Arcs on the same great circle, like an edge along a meridian and the
+     * side of a cell on that meridian, only touch where they overlap.
+     */
+    private static boolean touches(double[] a, double[] b, double[] ab, double[] c, double[] d) {
+        if (dot(ab, c) == 0 && dot(ab, d) == 0) {
+            return onArc(a, b, ab, c) || onArc(a, b, ab, d) || onArc(c, d, ab, a) || onArc(c, d, ab, b);
+        }
+        return CellCovering.crossing(a, b, c, d);
+    }
+
+    /**
+     * @return True iff the point on the great circle with the given normal lies on the arc from X to Y
+     */
+    private static boolean onArc(double[] x, double[] y, double[] normal, double[] point) {
+        return dot(cross(x, point), normal) >= 0 && dot(cross(point, y), normal) >= 0;
+    }
+
+    private static double dot(double[] a, double[] b) {
+        return a[0] * b[0] + a[1] * b[1] + a[2] * b[2];
+    }
+
+    private static double[] cross(double[] a, double[] b) {
+        return new double[]{a[1] * b[2] - a[2] * b[1], a[2] * b[0] - a[0] * b[2], a[0] * b[1] - a[1] * b[0]};
+    }
+
+    private static double[] center(long cell) {
+        double[] sum = new double[3];
+        for (double[] vertex : CellId.vertices(cell)) {
+            for (int d = 0; d < 3; d++) {
+                sum[d] += vertex[d];
+            }
+        }
+        return new Vector(sum).normalize().getCoordinates();
+    }
+
+    /**
+     * Builds the partition top down from the six faces. Every candidate polygon of a cell carries the edges crossing
+     * the cell and whether the center of the cell is inside, which is passed on to the children by counting the edges
+     * crossing the arc between the centers.
+     */
+    private static class Builder {
+        private final int maxLevel;
+        private final int maxEdges;
+        private final double[][] starts;
+        private final double[][] ends;
+        private final double[][] normals;
+        private final long[][] startCells;
+        private final long[][] endCells;
+        private final List<Polygon> polygons;
+
+        private long[] cells = new long[64];
+        private double[] centers = new double[3 * 64];
+        private int[] entryStart = new int[65];
+        private int cellCount;
+        private int[] entryPolygon = new int[64];
+        private boolean[] entryInside = new boolean[64];
+        private int[] edgeStart = new int[65];
+        private int entryCount;
+        private double[] edges = new double[9 * 64];
+        private int edgeCount;
+
+        private Builder(List<Polygon> polygons, int maxLevel, int maxEdges) {
+            this.polygons = polygons;
+            this.maxLevel = maxLevel;
+            this.maxEdges = maxEdges;
+            int n = polygons.size();
+            this.starts = new double[n][];
+            this.ends = new double[n][];
+            this.normals = new double[n][];
+            this.startCells = new long[n][];
+            this.endCells = new long[n][];
+            for (int p = 0; p < n; p++) {
+                List<double[]> segments = new ArrayList<>();
+                polygons.get(p).visitSegments((x1, y1, x2, y2, ringIndex, segmentIndex) -> segments.add(new double[]{x1, y1, x2, y2}));
+                int m = segments.size();
+                starts[p] = new double[3 * m];
+                ends[p] = new double[3 * m];
+                normals[p] = new double[3 * m];
+                startCells[p] = new long[m];
+                endCells[p] = new long[m];
+                for (int s = 0; s < m; s++) {
+                    double[] segment = segments.get(s);
+                    double[] a = Vector.pointCoordinatesToVectorCoordinates(new double[]{segment[0], segment[1]});
+                    double[] b = Vector.pointCoordinatesToVectorCoordinates(new double[]{segment[2], segment[3]});
+                    System.arraycopy(a, 0, starts[p], 3 * s, 3);
+                    System.arraycopy(b, 0, ends[p], 3 * s, 3);
+                    System.arraycopy(cross(a, b), 0, normals[p], 3 * s, 3);
+                    startCells[p][s] = CellId.fromVector(a);
+                    endCells[p][s] = CellId.fromVector(b);
+                }
+            }
+        }
+
+        private void build() {
+            for (int face = 0; face < 6; face++) {
+                long cell = CellId.fromFace(face);
+                double[][] vertices = CellId.vertices(cell);
+                double[] center = center(cell);
+                //Decide a generic point of the face by the within calculator, which is unreliable at the poles at the face centers
+                double[] anchor = new double[3];
+                for (int d = 0; d < 3; d++) {
+                    anchor[d] = 0.6 * center[d] + 0.3 * vertices[0][d] + 0.1 * vertices[1][d];
+                }
+                anchor = new Vector(anchor).normalize().getCoordinates();
+                Point anchorPoint = new Vector(anchor).toPoint();
+
+                List<Candidate> candidates = new ArrayList<>();
+                for (int p = 0; p < polygons.size(); p++) {
+                    int[] all = new int[startCells[p].length];
+                    for (int s = 0; s < all.length; s++) {
+                        all[s] = s;
+                    }
+                    boolean inside = WithinCalculator.within(polygons.get(p), anchorPoint) != (crossings(p, all, anchor, center) % 2 == 1);
+                    Candidate candidate = new Candidate(p, crossing(p, all, cell, vertices), inside);
+                    if (candidate.segments.length > 0 || inside) {
+                        candidates.add(candidate);
+                    }
+                }
+                visit(cell, center, candidates);
+            }
+            entryStart[cellCount] = entryCount;
+            edgeStart[entryCount] = edgeCount;
+        }
+
+        private void visit(long cell, double[] center, List<Candidate> candidates) {
+            if (candidates.isEmpty()) {
+                return;
+            }
+            boolean subdivide = false;
+            if (CellId.level(cell) < maxLevel) {
+                for (Candidate candidate : candidates) {
+                    subdivide |= candidate.segments.length > maxEdges;
+                }
+            }
+            if (!subdivide) {
+                addCell(cell, center, candidates);
+                return;
+            }
+            for (long child : CellId.children(cell)) {
+                double[][] vertices = CellId.vertices(child);
+                double[] childCenter = center(child);
+                List<Candidate> childCandidates = new ArrayList<>(candidates.size());
+                for (Candidate candidate : candidates) {
+                    if (candidate.segments.length == 0) {
+                        childCandidates.add(candidate);
+                        continue;
+                    }
+                    //The arc between the centers lies inside the cell, so only the edges crossing the cell can cross it
+                    boolean inside = candidate.inside != (crossings(candidate.polygon, candidate.segments, center, childCenter) % 2 == 1);
+                    int[] segments = crossing(candidate.polygon, candidate.segments, child, vertices);
+                    if (segments.length > 0 || inside) {
+                        childCandidates.add(new Candidate(candidate.polygon, segments, inside));
+                    }
+                }
+                visit(child, childCenter, childCandidates);
+            }
+        }
+
+        private int crossings(int polygon, int[] segments, double[] from, double[] to) {
+            int count = 0;
+            for (int s : segments) {
+                double[] a = Arrays.copyOfRange(starts[polygon], 3 * s, 3 * s + 3);
+                double[] b = Arrays.copyOfRange(ends[polygon], 3 * s, 3 * s + 3);
+                double[] ab = Arrays.copyOfRange(normals[polygon], 3 * s, 3 * s + 3);
+                if (crosses(a, b, ab, from, to)) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        /**
+         * @return The segments of the polygon touching the cell, either by an end point inside it or by crossing one of its edges
+         */
+        private int[] crossing(int polygon, int[] segments, long cell, double[][] vertices) {
+            int[] result = new int[segments.length];
+            int count = 0;
+            for (int s : segments) {
+                if (CellId.contains(cell, startCells[polygon][s]) || CellId.contains(cell, endCells[polygon][s])) {
+                    result[count++] = s;
+                    continue;
+                }
+                double[] a = Arrays.copyOfRange(starts[polygon], 3 * s, 3 * s + 3);
+                double[] b = Arrays.copyOfRange(ends[polygon], 3 * s, 3 * s + 3);
+                double[] ab = Arrays.copyOfRange(normals[polygon], 3 * s, 3 * s + 3);
+                for (int v = 0; v < 4; v++) {
+                    if (touches(a, b, ab, vertices[v], vertices[(v + 1) % 4])) {
+                        result[count++] = s;
+                        break;
+                    }
+                }
+            }
+            return Arrays.copyOf(result, count);
+        }
+
+        private void addCell(long cell, double[] center, List<Candidate> candidates) {
+            if (cellCount == cells.length) {
+                cells = Arrays.copyOf(cells, 2 * cellCount);
+                centers = Arrays.copyOf(centers, 6 * cellCount);
+                entryStart = Arrays.copyOf(entryStart, 2 * cellCount + 1);
+            }
+            cells[cellCount] = cell;
+            System.arraycopy(center, 0, centers, 3 * cellCount, 3);
+            entryStart[cellCount++] = entryCount;
+
+            for (Candidate candidate : candidates) {
+                if (entryCount == entryPolygon.length) {
+                    entryPolygon = Arrays.copyOf(entryPolygon, 2 * entryCount);
+                    entryInside = Arrays.copyOf(entryInside, 2 * entryCount);
+                    edgeStart = Arrays.copyOf(edgeStart, 2 * entryCount + 1);
+                }
+                entryPolygon[entryCount] = candidate.polygon;
+                entryInside[entryCount] = candidate.inside;
+                edgeStart[entryCount++] = edgeCount;
+                for (int s : candidate.segments) {
+                    if (9 * (edgeCount + 1) > edges.length) {
+                        edges = Arrays.copyOf(edges, 2 * edges.length);
+                    }
+                    int offset = 9 * edgeCount++;
+                    System.arraycopy(starts[candidate.polygon], 3 * s, edges, offset, 3);
+                    System.arraycopy(ends[candidate.polygon], 3 * s, edges, offset + 3, 3);
+                    System.arraycopy(normals[candidate.polygon], 3 * s, edges, offset + 6, 3);
+                }
+            }
+        }
+    }
+
+    private static class Candidate {
+        private final int polygon;
+        private final int[] segments;
+        private final boolean inside;
+
+        private Candidate(int polygon, int[] segments, boolean inside) {
+            this.polygon = polygon;
+            this.segments = segments;
+            this.inside = inside;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package org.neo4j.spatial.algo.wgs84;
 
 import org.neo4j.spatial.algo.Area;
 import org.neo4j.spatial.core.Polygon;
+import org.neo4j.spatial.core.TraversalCursor;
 import org.neo4j.spatial.core.Vector;
 
 public class WGS84Area extends Area {
@@ -12,10 +13,10 @@ public class WGS84Area extends Area {
      */
     @Override
     public double area(Polygon.SimplePolygon polygon) {
-        polygon.startTraversal();
+        TraversalCursor cursor = polygon.openCursor();
         Vector currentGC;
-        Vector prev = new Vector(polygon.getNextPoint());
-        Vector current = new Vector(polygon.getNextPoint());
+        Vector prev = new Vector(cursor.next());
+        Vector current = new Vector(cursor.next());
         Vector previousGC = prev.cross(current);
 
         prev = current;
@@ -26,8 +27,8 @@ public class WGS84Area extends Area {
 
         int n = 0;
 
-        while (!polygon.fullyTraversed()) {
-            current = new Vector(polygon.getNextPoint());
+        while (cursor.hasNext()) {
+            current = new Vector(cursor.next());
 
             if (prev.equals(current)) {
                 continue;
@@ -1,39 +1,38 @@
 package org.neo4j.spatial.algo.wgs84;
 
 import org.neo4j.spatial.algo.cartesian.CartesianConvexHull;
-import org.neo4j.spatial.core.CRS;
 import org.neo4j.spatial.core.MultiPolygon;
 import org.neo4j.spatial.core.Point;
 import org.neo4j.spatial.core.Polygon;
 import org.neo4j.spatial.core.Vector;
 
-import java.net.CacheRequest;
-import java.util.Arrays;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.Stack;
 import java.util.stream.Stream;
 
+/**
+ * Convex hulls of points on one hemisphere.
+ * <p>
+ * The points are converted to n-vectors once, and a pole of a hemisphere containing them is found as the point of their
+ * convex hull in space closest to the origin, which lies strictly in front of every point exactly when the points lie on
+ * an open hemisphere. The points are then projected from the center of the earth onto the plane touching the sphere at
+ * that pole. This gnomonic projection maps great circles to straight lines, so the spherical hull consists of the same
+ * points, in the same order, as the hull of the projected points.
+ */
 public class WGS84ConvexHull {
+    private static final int MAX_POLE_ITERATIONS = 1000;
+    private static final double POLE_TOLERANCE = 1e-12;
+
     /**
-     * Computes the convex hull of a multipolygon using Graham's scan
+     * Computes the convex hull of the shells of a multipolygon
      *
      * @param polygon
      * @return A polygon which is the convex hull of the input polygon
      */
     public static Polygon.SimplePolygon convexHull(MultiPolygon polygon) {
-        Polygon.SimplePolygon[] convexHulls = new Polygon.SimplePolygon[polygon.getChildren().size()];
-
-        for (int i = 0; i < polygon.getChildren().size(); i++) {
-            convexHulls[i] = convexHull(polygon.getChildren().get(i).getPolygon());
-        }
-
-        return convexHull(Stream.of(convexHulls).map(Polygon.SimplePolygon::getPoints).flatMap(Stream::of).toArray(Point[]::new));
+        return convexHull(Stream.of(polygon.getShells()).map(Polygon.SimplePolygon::getPoints).flatMap(Stream::of).toArray(Point[]::new));
     }
 
     /**
-     * Computes the convex hull of a polyline polygon using Graham's scan
+     * Computes the convex hull of a simple polygon
      *
      * @param polygon
      * @return A polygon which is the convex hull of the input polygon
@@ -49,92 +48,109 @@ public class WGS84ConvexHull {
      * @return A polygon which is the convex hull of the input points
      */
     public static Polygon.SimplePolygon convexHull(Point[] points) {
-        Vector[] vectors = new Vector[points.length];
+        double[] vectors = new double[3 * points.length];
         for (int i = 0; i < points.length; i++) {
-            vectors[i] = new Vector(points[i]);
+            double[] coordinate = points[i].getCoordinate();
+            double lon = Math.toRadians(coordinate[0]);
+            double lat = Math.toRadians(coordinate[1]);
+            vectors[3 * i] = Math.cos(lat) * Math.cos(lon);
+            vectors[3 * i + 1] = Math.cos(lat) * Math.sin(lon);
+            vectors[3 * i + 2] = Math.sin(lat);
         }
 
-        Vector pole = getPoleOfHemisphere(vectors);
-
+        double[] pole = pole(vectors);
         if (pole == null) {
             throw new IllegalArgumentException("Points do not lie all on the same hemisphere");
         }
 
-        Vector[] rotatedVectors = rotatePoints(pole, vectors);
-
-        Map<Vector, Integer> mappingToIndex = new HashMap<>();
-
-        for (int i = 0; i < rotatedVectors.length; i++) {
-            mappingToIndex.put(rotatedVectors[i], i);
+        int[] hull = CartesianConvexHull.convexHull(project(pole, vectors));
+        Point[] result = new Point[hull.length];
+        for (int i = 0; i < hull.length; i++) {
+            result[i] = points[hull[i]];
         }
+        return Polygon.simple(result);
+    }
 
-        Arrays.sort(rotatedVectors, (a, b) -> {
-            double cosThetaA = Math.acos(a.getCoordinate(2) / a.magnitude());
-            double cosThetaB = Math.acos(b.getCoordinate(2) / b.magnitude());
-
-            double tanPhiA = Math.atan2(a.getCoordinate(1), a.getCoordinate(0));
-            double tanPhiB = Math.atan2(b.getCoordinate(1), b.getCoordinate(0));
-
-            int compareAzimuth = Double.compare(tanPhiA, tanPhiB);
-            int comparePolar = Double.compare(cosThetaA, cosThetaB);
-
-            return compareAzimuth != 0 ? compareAzimuth : comparePolar;
-        });
-
-        int start = 0;
-        double minTheta = Double.MAX_VALUE;
-        double maxTheta = 0;
-
-        for (int i = 0; i < rotatedVectors.length; i++) {
-            Vector v = rotatedVectors[i];
-            double cosTheta = Math.acos(v.getCoordinate(2) / v.magnitude());
-
-            if (maxTheta < cosTheta) {
-                start = i;
-                maxTheta = cosTheta;
-            }
-
-            if (minTheta > cosTheta) {
-                minTheta = cosTheta;
-            }
+    /**
+     * Gnomonic projection onto the plane touching the sphere at the pole, with axes such that counterclockwise rings
+     * seen from outside the sphere stay counterclockwise
+     *
+     * @param pole a unit vector in front of all vectors
+     * @param vectors the x, y and z coordinates of the n-vectors, one after the other
+     * @return The packed x and y coordinates of the projected vectors
+     */
+    private static double[] project(double[] pole, double[] vectors) {
+        //The x-axis is pole x north pole, or the x-axis of the earth for poles at the north or south pole
+        double[] xAxis = new double[]{pole[1], -pole[0], 0};
+        double length = Math.hypot(xAxis[0], xAxis[1]);
+        if (length < POLE_TOLERANCE) {
+            xAxis = new double[]{1, 0, 0};
+        } else {
+            xAxis[0] /= length;
+            xAxis[1] /= length;
         }
+        double[] yAxis = new double[]{
+                pole[1] * xAxis[2] - pole[2] * xAxis[1],
+                pole[2] * xAxis[0] - pole[0] * xAxis[2],
+                pole[0] * xAxis[1] - pole[1] * xAxis[0]
+        };
 
-        if (maxTheta - minTheta < 0.1) {
+        double[] projected = new double[2 * (vectors.length / 3)];
+        for (int i = 0; i < vectors.length / 3; i++) {
+            double z = dot(pole, vectors, i);
+            projected[2 * i] = dot(xAxis, vectors, i) / z;
+            projected[2 * i + 1] = dot(yAxis, vectors, i) / z;
+        }
+        return projected;
+    }
 
-            double[][] rotatedCoords = new double[rotatedVectors.length][2];
-            for (int i = 0; i < rotatedVectors.length; i++) {
-                double[] coordinates = rotatedVectors[i].getCoordinates();
-                rotatedCoords[i][0] = coordinates[0];
-                rotatedCoords[i][1] = coordinates[1];
+    /**
+     * Gilbert's algorithm for the point of the convex hull of the vectors closest to the origin. Every vector lies
+     * strictly in front of that point, unless the origin is in the hull and the vectors do not lie on an open hemisphere.
+     *
+     * @param vectors the x, y and z coordinates of the n-vectors, one after the other
+     * @return A unit vector strictly in front of all vectors, or null if there is none
+     */
+    private static double[] pole(double[] vectors) {
+        if (vectors.length == 0) {
+            return null;
+        }
+        double[] m = new double[]{vectors[0], vectors[1], vectors[2]};
+        double minDot = 0;
+        for (int iteration = 0; iteration < MAX_POLE_ITERATIONS; iteration++) {
+            int support = 0;
+            minDot = Double.POSITIVE_INFINITY;
+            for (int i = 0; i < vectors.length / 3; i++) {
+                double dot = dot(m, vectors, i);
+                if (dot < minDot) {
+                    support = i;
+                    minDot = dot;
+                }
             }
-
-            int[] indexes = CartesianConvexHull.convexHullByIndex(rotatedCoords);
-            Point[] resultPoints = new Point[indexes.length];
-
-            for (int i = 0; i < indexes.length; i++) {
-                Vector rotated = rotatedVectors[indexes[i]];
-                int index = mappingToIndex.get(rotated);
-                resultPoints[i] = points[index];
+            double mm = m[0] * m[0] + m[1] * m[1] + m[2] * m[2];
+            //Half way to the optimal margin is good enough to project, and no progress is possible without a gap
+            if (minDot >= mm / 2 || mm - minDot <= POLE_TOLERANCE) {
+                break;
             }
 
-            return Polygon.simple(resultPoints);
-
-        } else {
-
-            Stack<Vector> stack = new Stack<>();
-
-            for (int i = 0; i < rotatedVectors.length + 1; i++) {
-                Vector v = rotatedVectors[(i + start) % rotatedVectors.length];
-
-                //Remove last point from the stack if it does not cross the edge (stack.size()-2), v)
-                while (stack.size() > 1 && WGSUtil.intersect(stack.get(stack.size() - 2), v, stack.peek(), WGSUtil.NORTH_POLE) == null) {
-                    stack.pop();
-                }
-                stack.push(v);
-            }
+            double dx = vectors[3 * support] - m[0];
+            double dy = vectors[3 * support + 1] - m[1];
+            double dz = vectors[3 * support + 2] - m[2];
+            double t = Math.min(1, (mm - minDot) / (dx * dx + dy * dy + dz * dz));
+            m[0] += t * dx;
+            m[1] += t * dy;
+            m[2] += t * dz;
+        }
 
-            return Polygon.simple(stack.stream().map(v -> points[mappingToIndex.get(v)]).toArray(Point[]::new));
+        double length = Math.sqrt(m[0] * m[0] + m[1] * m[1] + m[2] * m[2]);
+        if (minDot <= POLE_TOLERANCE * length || length <= POLE_TOLERANCE) {
+            return null;
         }
+        return new double[]{m[0] / length, m[1] / length, m[2] / length};
+    }
+
+    private static double dot(double[] a, double[] vectors, int i) {
+        return a[0] * vectors[3 * i] + a[1] * vectors[3 * i + 1] + a[2] * vectors[3 * i + 2];
     }
 
     /**
@@ -178,58 +194,17 @@ public class WGS84ConvexHull {
     }
 
     /**
-     * Compute the central pole for all the points
+     * Compute a pole for all the points
      *
      * @param vectors The points represented by n-vectors
-     * @return The pole represented as a n-vector. Returns null if not all the points reside on the same hemisphere
+     * @return The pole represented as a n-vector. Returns null if not all the points reside on the same open hemisphere
      */
     public static Vector getPoleOfHemisphere(Vector[] vectors) {
-        Stack<Vector> poles = new Stack<>();
-
-        outer:
+        double[] packed = new double[3 * vectors.length];
         for (int i = 0; i < vectors.length; i++) {
-            for (int j = 0; j < vectors.length; j++) {
-                if (i == j) {
-                    continue;
-                }
-
-                Vector[] intersections = new Vector[]{
-                        vectors[i].cross(vectors[j]),
-                        vectors[j].cross(vectors[i])
-                };
-
-                boolean[] flags = new boolean[2];
-
-                for (int l = 0; l < 2; l++) {
-                    for (int k = 0; k < vectors.length; k++) {
-                        if (k == i || k == j) {
-                            continue;
-                        }
-                        if (intersections[l].dot(vectors[k]) < 0) {
-                            //Angle between pole and point is greater than 90 degrees
-                            flags[l] = true;
-                            break;
-                        }
-                    }
-                }
-
-                for (int l = 0; l < 2; l++) {
-                    if (!flags[l]) {
-                        poles.add(intersections[l]);
-                    }
-                }
-            }
-        }
-
-        if (poles.empty()) {
-            return null;
+            System.arraycopy(vectors[i].getCoordinates(), 0, packed, 3 * i, 3);
         }
-
-        Vector center = poles.pop();
-        while (!poles.empty()) {
-            center = center.add(poles.pop());
-        }
-
-        return center.normalize();
+        double[] pole = pole(packed);
+        return pole == null ? null : new Vector(pole);
     }
 }
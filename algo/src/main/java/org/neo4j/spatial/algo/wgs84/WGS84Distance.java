@@ -300,7 +300,8 @@ public class WGS84Distance extends Distance {
         //Point intersect = WGS84Intersect.lineSegmentIntersect(a, b);
         Point intersect = CartesianIntersect.lineSegmentIntersect(a, b);
         if (intersect != null) {
-            return DistanceResult.OVERLAP_RESULT.withMessage("Two LineSegements intersect: " + a + " intersects " + b);
+            Point crossing = Point.point(CRS.WGS84, intersect.getCoordinate());
+            return new DistanceResult(0, crossing, crossing).withMessage("Two LineSegements intersect: " + a + " intersects " + b);
         }
 
         DistanceResult min = DistanceResult.NO_RESULT;
@@ -331,4 +332,62 @@ public class WGS84Distance extends Distance {
         //WGS84Distance (in meters)
         return WGSUtil.distance(u, v);
     }
+
+    /**
+     * Reject by the spherical caps around the geometries: a cap of less than a quarter circle around the vertices also
+     * contains the great circle arcs between them and the interior of a polygon with those vertices
+     */
+    @Override
+    protected boolean mayBeWithinDistance(Point[] a, Point[] b, double threshold) {
+        Vector aCenter = center(a);
+        Vector bCenter = center(b);
+        double aRadius = radius(aCenter, a);
+        double bRadius = radius(bCenter, b);
+        double quarter = Math.PI / 2 * WGSUtil.RADIUS;
+        if (aRadius >= quarter || bRadius >= quarter) {
+            return true;
+        }
+        return WGSUtil.distance(aCenter, bCenter) - aRadius - bRadius <= threshold;
+    }
+
+    /**
+     * The spherical cap around the line segments, as the unit vector of its center followed by its radius
+     */
+    @Override
+    protected double[] bound(LineSegment[] lineSegments, int from, int to) {
+        Point[] points = new Point[2 * (to - from)];
+        for (int i = from; i < to; i++) {
+            points[2 * (i - from)] = lineSegments[i].getPoints()[0];
+            points[2 * (i - from) + 1] = lineSegments[i].getPoints()[1];
+        }
+        Vector center = center(points);
+        double[] c = center.getCoordinates();
+        return new double[]{c[0], c[1], c[2], radius(center, points)};
+    }
+
+    @Override
+    protected double lowerBound(double[] a, double[] b) {
+        double quarter = Math.PI / 2 * WGSUtil.RADIUS;
+        if (a[3] >= quarter || b[3] >= quarter) {
+            return 0;
+        }
+        double distance = WGSUtil.distance(new Vector(a[0], a[1], a[2]), new Vector(b[0], b[1], b[2]));
+        return Math.max(0, distance - a[3] - b[3]);
+    }
+
+    private static Vector center(Point[] points) {
+        Vector sum = new Vector(0, 0, 0);
+        for (Point point : points) {
+            sum = sum.add(new Vector(point));
+        }
+        return sum.magnitude() < 1e-9 ? new Vector(points[0]) : sum.normalize();
+    }
+
+    private static double radius(Vector center, Point[] points) {
+        double radius = 0;
+        for (Point point : points) {
+            radius = Math.max(radius, WGSUtil.distance(center, new Vector(point)));
+        }
+        return radius;
+    }
 }
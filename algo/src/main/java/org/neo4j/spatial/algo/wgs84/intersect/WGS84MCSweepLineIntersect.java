@@ -9,6 +9,10 @@ import org.neo4j.spatial.core.*;
 import java.util.*;
 import java.util.stream.Stream;
 
+/**
+ * The state of a sweep is kept in the fields of the instance, so an instance must not be used by several threads at
+ * once. {@link org.neo4j.spatial.algo.IntersectCalculator} hands out a separate instance to every thread.
+ */
 public class WGS84MCSweepLineIntersect extends WGS84Intersect {
     private List<MonotoneChain> activeChainList;
     private List<MonotoneChain> sweepingChainList;
@@ -22,7 +26,6 @@ public class WGS84MCSweepLineIntersect extends WGS84Intersect {
     }
 
     private void initialize() {
-        MonotoneChain.resetId();
         this.activeChainList = new ArrayList<>();
         this.sweepingChainList = new ArrayList<>();
         this.outputList = new ArrayList<>();
@@ -355,8 +358,7 @@ public class WGS84MCSweepLineIntersect extends WGS84Intersect {
      * @return List of all the shells and holes of the input polygon as simple polygons
      */
     private Polygon.SimplePolygon[] getSimplePolygons(Polygon polygon) {
-        Polygon.SimplePolygon[] aPolygons = Stream.concat(Arrays.stream(polygon.getShells()), Arrays.stream(polygon.getHoles()))
-                .toArray(Polygon.SimplePolygon[]::new);
+        Polygon.SimplePolygon[] aPolygons = polygon.rings().getShellsAndHoles();
         for (int i = 0; i < aPolygons.length; i++) {
             aPolygons[i] = filterCollinear(aPolygons[i]);
         }
@@ -8,6 +8,9 @@ import org.neo4j.spatial.core.MultiPolygon;
 import org.neo4j.spatial.core.Point;
 import org.neo4j.spatial.core.Polygon;
 
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.junit.Assert.assertThat;
 
@@ -147,6 +150,57 @@ public class CartesianConvexHullTest {
         assertThat("expected convex hull", Polygon.SimplePolygon.areEqual(convexHull, expected), equalTo(true));
     }
 
+    @Test
+    public void convexHullOfPackedCoordinates() {
+        Random random = new Random(1);
+        for (int n : new int[]{3, 10, 100, 10000}) {
+            double[] coordinates = new double[2 * n];
+            for (int i = 0; i < coordinates.length; i++) {
+                //Rounded coordinates give duplicates and collinear points
+                coordinates[i] = n < 100 ? random.nextInt(5) : random.nextGaussian() * 100;
+            }
+            int[] hull = CartesianConvexHull.convexHull(coordinates);
+
+            for (int i = 0; i < hull.length; i++) {
+                int a = hull[i], b = hull[(i + 1) % hull.length], c = hull[(i + 2) % hull.length];
+                assertThat("expected strictly convex hull", cross(coordinates, a, b, c) > 0, equalTo(hull.length > 2));
+                for (int p = 0; p < n; p++) {
+                    assertThat("expected point inside hull", cross(coordinates, a, b, p) >= 0, equalTo(true));
+                }
+            }
+            for (int i = 1; i < hull.length; i++) {
+                assertThat("expected hull to start at the lowest point", coordinates[2 * hull[0] + 1] <= coordinates[2 * hull[i] + 1], equalTo(true));
+            }
+        }
+    }
+
+    @Test
+    public void convexHullInParallel() {
+        Random random = new Random(1);
+        double[] coordinates = new double[2 * 300000];
+        for (int i = 0; i < coordinates.length; i += 2) {
+            double angle = random.nextDouble() * 2 * Math.PI;
+            double radius = Math.sqrt(random.nextDouble());
+            coordinates[i] = radius * Math.cos(angle);
+            coordinates[i + 1] = radius * Math.sin(angle);
+        }
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            assertThat(CartesianConvexHull.convexHull(coordinates, pool), equalTo(CartesianConvexHull.convexHull(coordinates)));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void convexHullOfUnpairedCoordinates() {
+        CartesianConvexHull.convexHull(new double[]{0, 0, 1, 0, 1});
+    }
+
+    private static double cross(double[] xy, int a, int b, int c) {
+        return (xy[2 * b] - xy[2 * a]) * (xy[2 * c + 1] - xy[2 * a + 1]) - (xy[2 * b + 1] - xy[2 * a + 1]) * (xy[2 * c] - xy[2 * a]);
+    }
+
     private MultiPolygon makeMultiPolygon() {
         Point[][] input = new Point[][]{
                 {
@@ -5,6 +5,8 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import java.util.Random;
+
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.closeTo;
@@ -129,4 +131,104 @@ public class CartesianDistanceTest {
         assertThat(calculator.distance(a, Point.point(CRS.Cartesian, 8, 0)), equalTo(0.0));
         assertThat(calculator.distance(a, Point.point(CRS.Cartesian, 8.5, 0)), equalTo(0.5));
     }
+
+    @Test
+    public void shouldAgreeWithDistanceOnWithinDistance() {
+        Random random = new Random(1);
+        Distance calculator = DistanceCalculator.getCalculator(CRS.Cartesian);
+        int within = 0;
+        for (int i = 0; i < 300; i++) {
+            Polygon.SimplePolygon a = star(random, random.nextDouble() * 100, random.nextDouble() * 100, i % 10 == 0 ? 200 : 8);
+            Polygon.SimplePolygon b = star(random, random.nextDouble() * 100, random.nextDouble() * 100, i % 10 == 0 ? 200 : 8);
+            Polyline polyline = Polyline.polyline(b.getPoints());
+            Point point = b.getPoints()[0];
+            double threshold = random.nextDouble() * 30;
+
+            assertThat(calculator.isWithinDistance(a, b, threshold), equalTo(calculator.distance(a, b) <= threshold));
+            assertThat(calculator.isWithinDistance(a, polyline, threshold), equalTo(calculator.distance(a, polyline) <= threshold));
+            assertThat(calculator.isWithinDistance(Polyline.polyline(a.getPoints()), polyline, threshold), equalTo(calculator.distance(Polyline.polyline(a.getPoints()), polyline) <= threshold));
+            assertThat(calculator.isWithinDistance(a, point, threshold), equalTo(calculator.distance(a, point) <= threshold));
+            assertThat(calculator.isWithinDistance(polyline, a.getPoints()[0], threshold), equalTo(calculator.distance(polyline, a.getPoints()[0]) <= threshold));
+            within += calculator.isWithinDistance(a, b, threshold) ? 1 : 0;
+        }
+        assertThat(within > 50 && within < 250, equalTo(true));
+
+        //Contained without touching
+        Polygon.SimplePolygon outer = Polygon.simple(Point.point(CRS.Cartesian, 0, 0), Point.point(CRS.Cartesian, 100, 0), Point.point(CRS.Cartesian, 100, 100), Point.point(CRS.Cartesian, 0, 100));
+        Polygon.SimplePolygon inner = Polygon.simple(Point.point(CRS.Cartesian, 40, 40), Point.point(CRS.Cartesian, 60, 40), Point.point(CRS.Cartesian, 60, 60), Point.point(CRS.Cartesian, 40, 60));
+        assertThat(calculator.isWithinDistance(outer, inner, 0), equalTo(true));
+        assertThat(calculator.isWithinDistance(inner, outer, 0), equalTo(true));
+        assertThat(calculator.isWithinDistance(Polyline.polyline(outer.getPoints()), Polyline.polyline(inner.getPoints()), 39), equalTo(false));
+        assertThat(calculator.isWithinDistance(Polyline.polyline(outer.getPoints()), Polyline.polyline(inner.getPoints()), 40), equalTo(true));
+    }
+
+    @Test
+    public void shouldFindDistanceAndEndpoints() {
+        Random random = new Random(2);
+        Distance calculator = DistanceCalculator.getCalculator(CRS.Cartesian);
+        for (int i = 0; i < 200; i++) {
+            Polygon.SimplePolygon a = star(random, random.nextDouble() * 100, random.nextDouble() * 100, 2 * (2 + random.nextInt(60)));
+            Polygon.SimplePolygon b = star(random, random.nextDouble() * 100, random.nextDouble() * 100, 2 * (2 + random.nextInt(60)));
+            double expected = calculator.distance(a, b);
+
+            Distance.DistanceResult result = calculator.distanceAndEndpoints(a, b);
+            assertThat(result.getDistance(), closeTo(expected, 1e-9));
+            if (expected > 0) {
+                assertThat(calculator.distance(Polyline.polyline(a.getPoints()), result.getStart()), closeTo(0, 1e-9));
+                assertThat(calculator.distance(Polyline.polyline(b.getPoints()), result.getEnd()), closeTo(0, 1e-9));
+                assertThat(calculator.distance(result.getStart(), result.getEnd()), closeTo(expected, 1e-9));
+            } else {
+                assertThat(calculator.distance(result.getStart(), result.getEnd()), closeTo(0, 1e-9));
+                assertThat(calculator.distance(a, result.getStart()), closeTo(0, 1e-9));
+                assertThat(calculator.distance(b, result.getEnd()), closeTo(0, 1e-9));
+            }
+        }
+
+        Polygon.SimplePolygon square = Polygon.simple(Point.point(CRS.Cartesian, 0, 0), Point.point(CRS.Cartesian, 10, 0), Point.point(CRS.Cartesian, 10, 10), Point.point(CRS.Cartesian, 0, 10));
+        Polygon.SimplePolygon triangle = Polygon.simple(Point.point(CRS.Cartesian, 20, 5), Point.point(CRS.Cartesian, 13, 3), Point.point(CRS.Cartesian, 20, 0));
+        Distance.DistanceResult result = calculator.distanceAndEndpoints(square, triangle);
+        assertThat(result.getDistance(), equalTo(3.0));
+        assertThat(result.getStart(), equalTo(Point.point(CRS.Cartesian, 10, 3)));
+        assertThat(result.getEnd(), equalTo(Point.point(CRS.Cartesian, 13, 3)));
+
+        Polygon.SimplePolygon crossing = Polygon.simple(Point.point(CRS.Cartesian, 5, 5), Point.point(CRS.Cartesian, 15, 5), Point.point(CRS.Cartesian, 15, 15));
+        result = calculator.distanceAndEndpoints(square, crossing);
+        assertThat(result.getDistance(), equalTo(0.0));
+        assertThat(result.getStart(), equalTo(result.getEnd()));
+
+        Polygon.SimplePolygon inside = Polygon.simple(Point.point(CRS.Cartesian, 2, 2), Point.point(CRS.Cartesian, 3, 2), Point.point(CRS.Cartesian, 3, 3));
+        result = calculator.distanceAndEndpoints(square, inside);
+        assertThat(result.getDistance(), equalTo(0.0));
+        assertThat(result.getStart(), equalTo(Point.point(CRS.Cartesian, 2, 2)));
+        assertThat(result.getEnd(), equalTo(Point.point(CRS.Cartesian, 2, 2)));
+        assertThat(result.asMap().get("start"), equalTo(Point.point(CRS.Cartesian, 2, 2)));
+    }
+
+    @Test
+    public void shouldFindDistanceBetweenLargePolygons() {
+        Distance calculator = DistanceCalculator.getCalculator(CRS.Cartesian);
+        Polygon.SimplePolygon a = TestGeometries.dentedCircle(CRS.Cartesian, 0, 0, 100, 50000);
+        Polygon.SimplePolygon b = TestGeometries.dentedCircle(CRS.Cartesian, 250, 0, 100, 50000);
+        assertThat(a.isConvex(), equalTo(false));
+
+        assertThat(calculator.distance(a, b), closeTo(50, 1e-9));
+        assertThat(calculator.distance(Polyline.polyline(a.getPoints()), Polyline.polyline(b.getPoints())), closeTo(50, 1e-9));
+        Distance.DistanceResult result = calculator.distanceAndEndpoints(a, b);
+        assertThat(result.getDistance(), closeTo(50, 1e-9));
+        assertThat(result.getStart().getCoordinate()[0], closeTo(100, 1e-9));
+        assertThat(result.getEnd().getCoordinate()[0], closeTo(150, 1e-9));
+    }
+
+    /**
+     * A star shaped polygon, far from convex so the hull bound is not the distance itself
+     */
+    private static Polygon.SimplePolygon star(Random random, double x, double y, int count) {
+        Point[] points = new Point[count];
+        for (int i = 0; i < count; i++) {
+            double angle = 2 * Math.PI * i / count;
+            double radius = (i % 2 == 0 ? 10 : 2) * (0.5 + random.nextDouble());
+            points[i] = Point.point(CRS.Cartesian, x + radius * Math.cos(angle), y + radius * Math.sin(angle));
+        }
+        return Polygon.simple(points);
+    }
 }
@@ -0,0 +1,42 @@
+package org.neo4j.spatial.algo;
+
+import org.neo4j.spatial.core.CRS;
+import org.neo4j.spatial.core.Point;
+import org.neo4j.spatial.core.Polygon;
+
+/**
+ * Geometries shared by the tests of this module
+ */
+public final class TestGeometries {
+    private TestGeometries() {
+    }
+
+    /**
+     * @return The counterclockwise square with its lower left corner at (x, y)
+     */
+    public static Polygon.SimplePolygon square(CRS crs, double x, double y, double size) {
+        return Polygon.simple(Point.point(crs, x, y), Point.point(crs, x + size, y), Point.point(crs, x + size, y + size), Point.point(crs, x, y + size));
+    }
+
+    /**
+     * @return The counterclockwise Cartesian square with its lower left corner at (x, y)
+     */
+    public static Polygon.SimplePolygon square(double x, double y, double size) {
+        return square(CRS.Cartesian, x, y, size);
+    }
+
+    /**
+     * A circle with many small inward dents, so it is not convex, whose extremes along the x-axis are at (x - radius, y)
+     * and (x + radius, y)
+     */
+    public static Polygon.SimplePolygon dentedCircle(CRS crs, double x, double y, double radius, int count) {
+        Point[] points = new Point[count];
+        for (int i = 0; i < count; i++) {
+            double angle = 2 * Math.PI * i / count;
+            double dent = Math.sin(50 * angle);
+            double r = radius * (1 - 0.02 * dent * dent);
+            points[i] = Point.point(crs, x + r * Math.cos(angle), y + r * Math.sin(angle));
+        }
+        return Polygon.simple(points);
+    }
+}
@@ -0,0 +1,98 @@
+package org.neo4j.spatial.algo.cartesian;
+
+import org.junit.Test;
+import org.neo4j.spatial.algo.Distance;
+import org.neo4j.spatial.algo.DistanceCalculator;
+import org.neo4j.spatial.core.CRS;
+import org.neo4j.spatial.core.MultiPolygon;
+import org.neo4j.spatial.core.Point;
+import org.neo4j.spatial.core.Polygon;
+import org.neo4j.spatial.core.Polyline;
+
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.neo4j.spatial.algo.TestGeometries.square;
+
+public class CartesianConvexTest {
+
+    @Test
+    public void shouldFindSameDistanceAsSegmentScan() {
+        Random random = new Random(1);
+        Distance calculator = DistanceCalculator.getCalculator(CRS.Cartesian);
+        int intersecting = 0;
+        for (int i = 0; i < 500; i++) {
+            Polygon.SimplePolygon a = hull(random, random.nextDouble() * 100, random.nextDouble() * 100, 3 + random.nextInt(50));
+            Polygon.SimplePolygon b = hull(random, random.nextDouble() * 100, random.nextDouble() * 100, 3 + random.nextInt(50));
+            assertThat(a.isConvex(), equalTo(true));
+
+            double expected = scan(calculator, a, b);
+            assertThat(CartesianConvex.distance(a.getPoints(), b.getPoints()), equalTo(expected));
+            assertThat(calculator.distance(a, b), equalTo(expected));
+            assertThat(CartesianConvex.intersects(a.getPoints(), b.getPoints()), equalTo(expected == 0));
+            intersecting += expected == 0 ? 1 : 0;
+
+            Distance.DistanceResult result = calculator.distanceAndEndpoints(a, b);
+            assertThat(result.getDistance(), closeTo(expected, 1e-9));
+            if (expected > 0) {
+                assertThat(calculator.distance(result.getStart(), result.getEnd()), closeTo(expected, 1e-9));
+                assertThat(calculator.distance(Polyline.polyline(a.getPoints()), result.getStart()), closeTo(0, 1e-9));
+                assertThat(calculator.distance(Polyline.polyline(b.getPoints()), result.getEnd()), closeTo(0, 1e-9));
+            }
+
+            Point point = Point.point(CRS.Cartesian, random.nextDouble() * 100, random.nextDouble() * 100);
+            double pointDistance = CartesianWithin.within(a, point) ? 0 : calculator.distance(Polyline.polyline(a.getPoints()), point);
+            assertThat(calculator.distance(a, point), closeTo(pointDistance, 1e-9));
+        }
+        assertThat(intersecting > 50 && intersecting < 450, equalTo(true));
+    }
+
+    @Test
+    public void shouldOnlyUseSingleConvexShells() {
+        Polygon.SimplePolygon square = square(0, 0, 10);
+        assertThat(CartesianConvex.convexShell(square), notNullValue());
+        assertThat(CartesianConvex.convexShell(MultiPolygon.build(square)), notNullValue());
+        assertThat(CartesianConvex.convexShell(MultiPolygon.build(square, square(2, 2, 2))), nullValue());
+        assertThat(CartesianConvex.convexShell(MultiPolygon.build(square, square(20, 20, 2))), nullValue());
+
+        //The hole keeps the other polygon at a distance from the shell
+        Distance calculator = DistanceCalculator.getCalculator(CRS.Cartesian);
+        assertThat(calculator.distance(MultiPolygon.build(square, square(2, 2, 6)), square(4, 4, 1)), equalTo(2.0));
+    }
+
+    @Test
+    public void shouldBeWithinTheDistanceOfTheSegmentScan() {
+        Random random = new Random(2);
+        Distance calculator = DistanceCalculator.getCalculator(CRS.Cartesian);
+        for (int i = 0; i < 500; i++) {
+            Polygon.SimplePolygon a = hull(random, random.nextDouble() * 100, random.nextDouble() * 100, 3 + random.nextInt(50));
+            Polygon.SimplePolygon b = hull(random, random.nextDouble() * 100, random.nextDouble() * 100, 3 + random.nextInt(50));
+
+            //The threshold is the exact distance of the closest segments, which the convex distance should reach
+            double threshold = scan(calculator, a, b);
+            assertThat(calculator.isWithinDistance(a, b, threshold), equalTo(true));
+            if (threshold > 0) {
+                assertThat(calculator.isWithinDistance(a, b, threshold * 0.99), equalTo(false));
+            }
+        }
+    }
+
+    private static double scan(Distance calculator, Polygon.SimplePolygon a, Polygon.SimplePolygon b) {
+        if (CartesianWithin.within(a, b.getPoints()[0]) || CartesianWithin.within(b, a.getPoints()[0])) {
+            return 0;
+        }
+        return calculator.distance(Polyline.polyline(a.getPoints()), Polyline.polyline(b.getPoints()));
+    }
+
+    private static Polygon.SimplePolygon hull(Random random, double x, double y, int count) {
+        Point[] points = new Point[count];
+        for (int i = 0; i < count; i++) {
+            points[i] = Point.point(CRS.Cartesian, x + random.nextGaussian() * 10, y + random.nextGaussian() * 10);
+        }
+        return CartesianConvexHull.convexHull(points);
+    }
+}
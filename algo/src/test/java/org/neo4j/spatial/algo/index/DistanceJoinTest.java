@@ -0,0 +1,143 @@
+package org.neo4j.spatial.algo.index;
+
+import org.junit.Test;
+import org.neo4j.spatial.algo.Distance;
+import org.neo4j.spatial.algo.DistanceCalculator;
+import org.neo4j.spatial.core.CRS;
+import org.neo4j.spatial.core.HasCRS;
+import org.neo4j.spatial.core.Point;
+import org.neo4j.spatial.core.Polygon;
+import org.neo4j.spatial.core.Polyline;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.equalTo;
+import static org.neo4j.spatial.algo.TestGeometries.square;
+
+public class DistanceJoinTest {
+
+    @Test
+    public void shouldComputeSameMatrixAsDistanceInCartesian() {
+        List<HasCRS> geometries = geometries(new Random(1), CRS.Cartesian, 120, 1000, 40);
+        //A polygon inside another one, at distance 0
+        geometries.add(square(CRS.Cartesian, 2000, 2000, 100));
+        geometries.add(square(CRS.Cartesian, 2040, 2040, 10));
+        DistanceJoin join = DistanceJoin.build(geometries);
+
+        assertMatrix(geometries, join.matrix(), 1e-9);
+        assertThat(join.distance(geometries.size() - 2, geometries.size() - 1), equalTo(0.0));
+
+        double[][] pruned = join.matrix(100, new ForkJoinPool(2));
+        double[][] full = join.matrix();
+        for (int i = 0; i < geometries.size(); i++) {
+            for (int j = 0; j < geometries.size(); j++) {
+                assertThat(pruned[i][j], equalTo(full[i][j] > 100 ? Double.POSITIVE_INFINITY : full[i][j]));
+            }
+        }
+    }
+
+    @Test
+    public void shouldFindNearestNeighboursInCartesian() {
+        List<HasCRS> geometries = geometries(new Random(2), CRS.Cartesian, 150, 1000, 40);
+        assertNearest(geometries, DistanceJoin.build(geometries), 5, 1e-9);
+    }
+
+    @Test
+    public void shouldComputeSameDistancesInWGS84() {
+        List<HasCRS> geometries = geometries(new Random(3), CRS.WGS84, 60, 20, 1);
+        DistanceJoin join = DistanceJoin.build(geometries);
+        assertMatrix(geometries, join.matrix(), 1e-6);
+        assertNearest(geometries, join, 3, 1e-6);
+    }
+
+    @Test
+    public void shouldHandleTinySets() {
+        assertThat(DistanceJoin.build(Collections.emptyList()).matrix().length, equalTo(0));
+        DistanceJoin single = DistanceJoin.build(Collections.singletonList(Point.point(CRS.Cartesian, 1, 1)));
+        assertThat(single.matrix(), equalTo(new double[][]{{0}}));
+        assertThat(single.nearest(3).get(0), equalTo(new int[0]));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNotJoinMixedCRS() {
+        DistanceJoin.build(Arrays.asList(Point.point(CRS.Cartesian, 0, 0), Point.point(CRS.WGS84, 0, 0)));
+    }
+
+    private static void assertMatrix(List<HasCRS> geometries, double[][] matrix, double precision) {
+        for (int i = 0; i < geometries.size(); i++) {
+            assertThat(matrix[i][i], equalTo(0.0));
+            for (int j = i + 1; j < geometries.size(); j++) {
+                double expected = distance(geometries.get(i), geometries.get(j));
+                assertThat(i + "-" + j, matrix[i][j], closeTo(expected, precision * Math.max(1, expected)));
+                assertThat(matrix[j][i], equalTo(matrix[i][j]));
+            }
+        }
+    }
+
+    private static void assertNearest(List<HasCRS> geometries, DistanceJoin join, int k, double precision) {
+        DistanceJoin.Neighbours neighbours = join.nearest(k);
+        for (int i = 0; i < geometries.size(); i++) {
+            double[] expected = new double[geometries.size() - 1];
+            for (int j = 0, e = 0; j < geometries.size(); j++) {
+                if (j != i) {
+                    expected[e++] = distance(geometries.get(i), geometries.get(j));
+                }
+            }
+            Arrays.sort(expected);
+            double[] actual = neighbours.distances(i);
+            assertThat(actual.length, equalTo(k));
+            for (int n = 0; n < k; n++) {
+                assertThat(actual[n], closeTo(expected[n], precision * Math.max(1, expected[n])));
+                assertThat(actual[n], closeTo(distance(geometries.get(i), geometries.get(neighbours.get(i)[n])), precision * Math.max(1, expected[n])));
+            }
+        }
+    }
+
+    private static double distance(HasCRS a, HasCRS b) {
+        Distance calculator = DistanceCalculator.getCalculator(a);
+        if (b instanceof Polygon && !(a instanceof Polygon)) {
+            return distance(b, a);
+        } else if (a instanceof Polygon) {
+            if (b instanceof Polygon) {
+                return calculator.distance((Polygon) a, (Polygon) b);
+            }
+            return b instanceof Polyline ? calculator.distance((Polygon) a, (Polyline) b) : calculator.distance((Polygon) a, (Point) b);
+        } else if (a instanceof Polyline) {
+            return b instanceof Polyline ? calculator.distance((Polyline) a, (Polyline) b) : calculator.distance((Polyline) a, (Point) b);
+        } else if (b instanceof Polyline) {
+            return calculator.distance((Polyline) b, (Point) a);
+        }
+        return calculator.distance((Point) a, (Point) b);
+    }
+
+    /**
+     * Polygons, polylines and points. In WGS84 the polygons do not overlap, as the polygon distance does not detect containment there.
+     */
+    private static List<HasCRS> geometries(Random random, CRS crs, int count, double extent, double size) {
+        List<HasCRS> geometries = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            double x = random.nextDouble() * extent;
+            double y = random.nextDouble() * extent;
+            double s = size * (0.2 + random.nextDouble());
+            if (i % 3 == 0) {
+                geometries.add(crs == CRS.WGS84 ? square(crs, (i / 3) % 10 * 2 * size, (i / 30) * 2 * size, s / 2) : square(crs, x, y, s));
+            } else if (i % 3 == 1) {
+                Point[] points = new Point[2 + random.nextInt(30)];
+                for (int p = 0; p < points.length; p++) {
+                    points[p] = Point.point(crs, x + p * s / 4, y + random.nextDouble() * s);
+                }
+                geometries.add(Polyline.polyline(points));
+            } else {
+                geometries.add(Point.point(crs, x, y));
+            }
+        }
+        return geometries;
+    }
+}
@@ -0,0 +1,89 @@
+package org.neo4j.spatial.algo.index;
+
+import org.junit.Test;
+import org.neo4j.spatial.algo.Distance;
+import org.neo4j.spatial.algo.DistanceCalculator;
+import org.neo4j.spatial.core.CRS;
+import org.neo4j.spatial.core.Envelope;
+import org.neo4j.spatial.core.Point;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.equalTo;
+
+public class KdTreeTest {
+
+    @Test
+    public void shouldFindSameAsScanInCartesian() {
+        assertSameAsScan(new Random(1), CRS.Cartesian, 0, 0, 1000, 1000, 20);
+    }
+
+    @Test
+    public void shouldFindSameAsScanInWGS84() {
+        assertSameAsScan(new Random(2), CRS.WGS84, -180, -90, 360, 180, 500000);
+    }
+
+    @Test
+    public void shouldHandleDuplicatePoints() {
+        KdTree tree = KdTree.build(CRS.Cartesian, 1, 1, 1, 1, 1, 1, 2, 2, 1, 1);
+
+        assertThat(tree.withinDistance(Point.point(CRS.Cartesian, 1, 1), 0).length, equalTo(4));
+        assertThat(tree.nearest(Point.point(CRS.Cartesian, 2, 2), 2)[0], equalTo(3));
+        assertThat(tree.query(new Envelope(1.5, 1.5, 3, 3)), equalTo(new int[]{3}));
+    }
+
+    private static void assertSameAsScan(Random random, CRS crs, double minX, double minY, double width, double height, double radius) {
+        List<Point> points = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            points.add(Point.point(crs, minX + random.nextDouble() * width, minY + random.nextDouble() * height));
+        }
+        KdTree tree = KdTree.build(points);
+        Distance calculator = DistanceCalculator.getCalculator(crs);
+
+        for (int i = 0; i < 100; i++) {
+            Point center = Point.point(crs, minX + random.nextDouble() * width, minY + random.nextDouble() * height);
+            double[] distances = new double[points.size()];
+            List<Integer> within = new ArrayList<>();
+            for (int j = 0; j < points.size(); j++) {
+                distances[j] = calculator.distance(points.get(j), center);
+                //Points too close to the border may fall either way through rounding
+                if (Math.abs(distances[j] - radius) < 1e-6 * radius) {
+                    within = null;
+                    break;
+                }
+                if (distances[j] <= radius) {
+                    within.add(j);
+                }
+            }
+            if (within != null) {
+                int[] found = tree.withinDistance(center, radius);
+                Arrays.sort(found);
+                assertThat(found, equalTo(within.stream().mapToInt(Integer::intValue).toArray()));
+            }
+
+            int[] nearest = tree.nearest(center, 10);
+            double[] sorted = Arrays.stream(points.stream().mapToDouble(p -> calculator.distance(p, center)).toArray()).sorted().toArray();
+            for (int k = 0; k < nearest.length; k++) {
+                assertThat(calculator.distance(tree.getPoint(nearest[k]), center), closeTo(sorted[k], 1e-6));
+            }
+
+            double x = center.getCoordinate()[0];
+            double y = center.getCoordinate()[1];
+            Envelope window = new Envelope(x, y, Math.min(minX + width, x + random.nextDouble() * width / 10), Math.min(minY + height, y + random.nextDouble() * height / 10));
+            List<Integer> inside = new ArrayList<>();
+            for (int j = 0; j < points.size(); j++) {
+                if (window.contains(points.get(j).getCoordinate()[0], points.get(j).getCoordinate()[1])) {
+                    inside.add(j);
+                }
+            }
+            int[] found = tree.query(window);
+            Arrays.sort(found);
+            assertThat(found, equalTo(inside.stream().mapToInt(Integer::intValue).toArray()));
+        }
+    }
+}
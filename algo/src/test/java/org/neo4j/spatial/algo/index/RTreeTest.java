@@ -0,0 +1,134 @@
+package org.neo4j.spatial.algo.index;
+
+import org.junit.Test;
+import org.neo4j.spatial.algo.Distance;
+import org.neo4j.spatial.algo.DistanceCalculator;
+import org.neo4j.spatial.algo.WithinCalculator;
+import org.neo4j.spatial.core.CRS;
+import org.neo4j.spatial.core.Envelope;
+import org.neo4j.spatial.core.HasCRS;
+import org.neo4j.spatial.core.Point;
+import org.neo4j.spatial.core.Polygon;
+import org.neo4j.spatial.core.Polyline;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasItem;
+
+public class RTreeTest {
+
+    @Test
+    public void shouldFindSameAsScanInCartesian() {
+        Random random = new Random(1);
+        List<HasCRS> geometries = geometries(random, CRS.Cartesian, 2000, 0, 0, 1000, 1000, 10);
+        RTree<HasCRS> tree = RTree.build(geometries);
+        assertThat(tree.size(), equalTo(geometries.size()));
+
+        for (int i = 0; i < 50; i++) {
+            double x = random.nextDouble() * 1000;
+            double y = random.nextDouble() * 1000;
+            Envelope window = new Envelope(x, y, x + random.nextDouble() * 100, y + random.nextDouble() * 100);
+            List<HasCRS> expected = new ArrayList<>();
+            for (HasCRS geometry : geometries) {
+                if (window.intersects(envelope(geometry))) {
+                    expected.add(geometry);
+                }
+            }
+            assertThat(new HashSet<>(tree.query(window)), equalTo(new HashSet<>(expected)));
+        }
+
+        assertContainingAndNearest(random, tree, geometries, CRS.Cartesian, 0, 0, 1000, 1000);
+    }
+
+    @Test
+    public void shouldFindSameAsScanInWGS84() {
+        Random random = new Random(2);
+        List<HasCRS> geometries = geometries(random, CRS.WGS84, 1000, -180, -90, 360, 180, 2);
+        //A polygon whose edge bulges beyond its points towards the north pole and one across the antimeridian
+        geometries.add(Polygon.simple(Point.point(CRS.WGS84, -40, 80), Point.point(CRS.WGS84, 40, 80), Point.point(CRS.WGS84, 40, 70), Point.point(CRS.WGS84, -40, 70)));
+        geometries.add(Polygon.simple(Point.point(CRS.WGS84, 179, 10), Point.point(CRS.WGS84, -179, 10), Point.point(CRS.WGS84, -179, 11), Point.point(CRS.WGS84, 179, 11)));
+        RTree<HasCRS> tree = RTree.build(geometries);
+
+        assertThat(tree.containing(Point.point(CRS.WGS84, 0, 81.5)), hasItem(geometries.get(geometries.size() - 2)));
+        assertThat(tree.containing(Point.point(CRS.WGS84, 180, 10.5)), hasItem(geometries.get(geometries.size() - 1)));
+        assertThat(tree.nearest(Point.point(CRS.WGS84, -179.5, 10.5), 1).get(0).getIndex(), equalTo(geometries.size() - 1));
+
+        assertContainingAndNearest(random, tree, geometries, CRS.WGS84, -180, -90, 360, 180);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNotMixCoordinateReferenceSystems() {
+        RTree.build(Arrays.asList(Point.point(CRS.Cartesian, 0, 0), Point.point(CRS.WGS84, 0, 0)));
+    }
+
+    private static void assertContainingAndNearest(Random random, RTree<HasCRS> tree, List<HasCRS> geometries, CRS crs, double minX, double minY, double width, double height) {
+        Distance calculator = DistanceCalculator.getCalculator(crs);
+        for (int i = 0; i < 50; i++) {
+            Point point = Point.point(crs, minX + random.nextDouble() * width, minY + random.nextDouble() * height);
+
+            List<HasCRS> containing = new ArrayList<>();
+            double[] distances = new double[geometries.size()];
+            for (int j = 0; j < geometries.size(); j++) {
+                HasCRS geometry = geometries.get(j);
+                if (geometry instanceof Polygon) {
+                    if (WithinCalculator.within((Polygon) geometry, point)) {
+                        containing.add(geometry);
+                    }
+                    distances[j] = calculator.distance((Polygon) geometry, point);
+                } else if (geometry instanceof Polyline) {
+                    distances[j] = calculator.distance((Polyline) geometry, point);
+                } else {
+                    distances[j] = calculator.distance((Point) geometry, point);
+                }
+            }
+            assertThat(new HashSet<>(tree.containing(point)), equalTo(new HashSet<>(containing)));
+
+            Arrays.sort(distances);
+            List<RTree.Neighbor<HasCRS>> nearest = tree.nearest(point, 10);
+            assertThat(nearest.size(), equalTo(10));
+            for (int k = 0; k < 10; k++) {
+                assertThat(nearest.get(k).getDistance(), closeTo(distances[k], 1e-6));
+            }
+        }
+    }
+
+    private static List<HasCRS> geometries(Random random, CRS crs, int count, double minX, double minY, double width, double height, double size) {
+        List<HasCRS> geometries = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            double x = minX + random.nextDouble() * (width - size);
+            double y = minY + random.nextDouble() * (height - size);
+            switch (i % 3) {
+                case 0:
+                    geometries.add(Point.point(crs, x, y));
+                    break;
+                case 1:
+                    geometries.add(Polyline.polyline(Point.point(crs, x, y), Point.point(crs, x + random.nextDouble() * size, y + random.nextDouble() * size), Point.point(crs, x + random.nextDouble() * size, y)));
+                    break;
+                default:
+                    geometries.add(Polygon.simple(Point.point(crs, x, y), Point.point(crs, x + size, y), Point.point(crs, x + size, y + size), Point.point(crs, x, y + random.nextDouble() * size)));
+            }
+        }
+        return geometries;
+    }
+
+    private static Point[] points(HasCRS geometry) {
+        if (geometry instanceof Polygon) {
+            return ((Polygon) geometry).getShells()[0].getPoints();
+        } else if (geometry instanceof Polyline) {
+            return ((Polyline) geometry).getPoints();
+        } else {
+            return new Point[]{(Point) geometry};
+        }
+    }
+
+    private static Envelope envelope(HasCRS geometry) {
+        return Envelope.of(points(geometry));
+    }
+}
@@ -0,0 +1,108 @@
+package org.neo4j.spatial.algo.index;
+
+import org.junit.Test;
+import org.neo4j.spatial.algo.Intersect;
+import org.neo4j.spatial.algo.IntersectCalculator;
+import org.neo4j.spatial.algo.WithinCalculator;
+import org.neo4j.spatial.core.CRS;
+import org.neo4j.spatial.core.HasCRS;
+import org.neo4j.spatial.core.MultiPolygon;
+import org.neo4j.spatial.core.Point;
+import org.neo4j.spatial.core.Polygon;
+import org.neo4j.spatial.core.Polyline;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+import static org.neo4j.spatial.algo.TestGeometries.square;
+
+public class SelfJoinTest {
+
+    @Test
+    public void shouldFindSameAsNaiveInCartesian() {
+        Random random = new Random(1);
+        List<HasCRS> geometries = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            double x = random.nextDouble() * 1000;
+            double y = random.nextDouble() * 1000;
+            double size = 5 + random.nextDouble() * (i % 20 == 0 ? 200 : 40);
+            if (i % 5 == 0) {
+                geometries.add(Polyline.polyline(Point.point(CRS.Cartesian, x, y), Point.point(CRS.Cartesian, x + size, y + size / 2), Point.point(CRS.Cartesian, x + size, y + size)));
+            } else {
+                geometries.add(square(CRS.Cartesian, x, y, size));
+            }
+        }
+        //A polygon inside another one without their boundaries crossing
+        geometries.add(square(CRS.Cartesian, 2000, 2000, 100));
+        geometries.add(square(CRS.Cartesian, 2040, 2040, 10));
+
+        SelfJoin join = SelfJoin.candidates(geometries);
+        assertThat(join.candidateCount(), lessThan(geometries.size() * geometries.size() / 10));
+        Set<List<Integer>> expected = naive(geometries);
+        assertThat(expected.size(), greaterThan(50));
+        assertThat(pairs(join), equalTo(expected));
+    }
+
+    @Test
+    public void shouldFindSameAsNaiveInWGS84() {
+        Random random = new Random(2);
+        List<HasCRS> geometries = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            geometries.add(square(CRS.WGS84, -40 + random.nextDouble() * 80, -40 + random.nextDouble() * 80, 1 + random.nextDouble() * 10));
+        }
+        //A polygon with a second shell inside the other polygon
+        geometries.add(MultiPolygon.build(square(CRS.WGS84, 100, 10, 2), square(CRS.WGS84, 110, 10, 2)));
+        geometries.add(square(CRS.WGS84, 108, 8, 6));
+
+        Set<List<Integer>> expected = naive(geometries);
+        assertThat(expected.size(), greaterThan(50));
+        assertThat(pairs(SelfJoin.candidates(geometries)), equalTo(expected));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNotJoinMixedCRS() {
+        SelfJoin.candidates(Arrays.asList(square(CRS.Cartesian, 0, 0, 1), square(CRS.WGS84, 0, 0, 1)));
+    }
+
+    private static Set<List<Integer>> pairs(SelfJoin join) {
+        return join.intersecting().map(pair -> Arrays.asList(pair[0], pair[1])).collect(Collectors.toSet());
+    }
+
+    private static Set<List<Integer>> naive(List<HasCRS> geometries) {
+        Intersect intersect = IntersectCalculator.getCalculator(geometries.get(0).getCRS(), IntersectCalculator.AlgorithmVariant.Naive);
+        Set<List<Integer>> result = new HashSet<>();
+        for (int i = 0; i < geometries.size(); i++) {
+            for (int j = i + 1; j < geometries.size(); j++) {
+                HasCRS a = geometries.get(i);
+                HasCRS b = geometries.get(j);
+                boolean overlaps;
+                if (a instanceof Polygon && b instanceof Polygon) {
+                    overlaps = intersect.doesIntersect((Polygon) a, (Polygon) b) || contains((Polygon) a, (Polygon) b) || contains((Polygon) b, (Polygon) a);
+                } else if (a instanceof Polygon) {
+                    overlaps = intersect.doesIntersect((Polygon) a, (Polyline) b) || WithinCalculator.within((Polygon) a, ((Polyline) b).getPoints()[0]);
+                } else if (b instanceof Polygon) {
+                    overlaps = intersect.doesIntersect((Polygon) b, (Polyline) a) || WithinCalculator.within((Polygon) b, ((Polyline) a).getPoints()[0]);
+                } else {
+                    overlaps = intersect.intersect((Polyline) a, (Polyline) b).length > 0;
+                }
+                if (overlaps) {
+                    result.add(Arrays.asList(i, j));
+                }
+            }
+        }
+        return result;
+    }
+
+    private static boolean contains(Polygon polygon, Polygon other) {
+        return Arrays.stream(other.getShells()).anyMatch(shell -> WithinCalculator.within(polygon, shell.getPoints()[0]));
+    }
+}
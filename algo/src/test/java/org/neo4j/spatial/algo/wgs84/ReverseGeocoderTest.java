@@ -0,0 +1,104 @@
+package org.neo4j.spatial.algo.wgs84;
+
+import org.junit.Test;
+import org.neo4j.spatial.algo.WithinCalculator;
+import org.neo4j.spatial.core.CRS;
+import org.neo4j.spatial.core.MultiPolygon;
+import org.neo4j.spatial.core.Point;
+import org.neo4j.spatial.core.Polygon;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+
+public class ReverseGeocoderTest {
+
+    @Test
+    public void shouldFindContainingPolygonsLikeWithin() {
+        List<Polygon> polygons = areas();
+        ReverseGeocoder geocoder = ReverseGeocoder.build(polygons);
+        assertThat(geocoder.size(), equalTo(polygons.size()));
+
+        Random random = new Random(1);
+        int found = 0;
+        for (int i = 0; i < 3000; i++) {
+            Point point = i % 4 == 0
+                    ? Point.point(CRS.WGS84, 160 + random.nextDouble() * 40 - (i % 8 == 0 ? 360 : 0), 45 + random.nextDouble() * 30)
+                    : Point.point(CRS.WGS84, -10 + random.nextDouble() * 60, 10 + random.nextDouble() * 55);
+            int[] expected = polygons.stream().filter(polygon -> WithinCalculator.within(polygon, point)).mapToInt(polygons::indexOf).toArray();
+            assertThat(point.toString(), geocoder.containing(point), equalTo(expected));
+            found += expected.length;
+        }
+        assertThat(found, greaterThan(500));
+    }
+
+    @Test
+    public void shouldLocateBatchesOfCoordinates() {
+        List<Polygon> polygons = areas();
+        ReverseGeocoder geocoder = ReverseGeocoder.build(polygons, 20, 4);
+        assertThat(geocoder.cellCount(), greaterThan(0));
+
+        int[][] result = geocoder.containing(5, 45, 11, 46, 20, 20, 35, 50, -100, 0, 180, 60);
+        assertThat(result[0], equalTo(new int[]{0, 1}));
+        assertThat(result[1], equalTo(new int[0]));
+        assertThat(result[2], equalTo(new int[]{3}));
+        assertThat(result[3], equalTo(new int[]{2}));
+        assertThat(result[4], equalTo(new int[0]));
+        assertThat(result[5], equalTo(new int[]{4}));
+        for (int i = 0; i < result.length; i++) {
+            assertThat(result[i], equalTo(geocoder.containing(Point.point(CRS.WGS84, new double[]{5, 11, 20, 35, -100, 180}[i], new double[]{45, 46, 20, 50, 0, 60}[i]))));
+        }
+
+        assertThat(ReverseGeocoder.build(Collections.emptyList()).containing(10, 10)[0], equalTo(new int[0]));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNotBuildForCartesianPolygons() {
+        ReverseGeocoder.build(Arrays.asList(Polygon.simple(Point.point(CRS.Cartesian, 0, 0), Point.point(CRS.Cartesian, 1, 0), Point.point(CRS.Cartesian, 0, 1))));
+    }
+
+    /**
+     * A country with a hole and a region inside it, a neighbouring country sharing an edge, a finely detailed round
+     * area and an area crossing the antimeridian
+     */
+    private static List<Polygon> areas() {
+        List<Polygon> polygons = new ArrayList<>();
+        polygons.add(MultiPolygon.build(
+                Polygon.simple(densify(new double[][]{{0, 40}, {30, 40}, {30, 60}, {0, 60}}, 50)),
+                Polygon.simple(points(new double[][]{{10, 45}, {12, 45}, {12, 47}, {10, 47}}))));
+        polygons.add(Polygon.simple(densify(new double[][]{{2, 42}, {9.5, 42}, {9.5, 50}, {2, 50}}, 10)));
+        polygons.add(Polygon.simple(densify(new double[][]{{30, 40}, {40, 40}, {40, 60}, {30, 60}}, 20)));
+
+        Point[] circle = new Point[1000];
+        for (int i = 0; i < circle.length; i++) {
+            double angle = 2 * Math.PI * i / circle.length;
+            circle[i] = Point.point(CRS.WGS84, 20 + 5 * Math.cos(angle), 20 + 5 * Math.sin(angle) * (1 + 0.1 * Math.sin(17 * angle)));
+        }
+        polygons.add(Polygon.simple(circle));
+        polygons.add(Polygon.simple(points(new double[][]{{170, 50}, {-170, 50}, {-170, 70}, {175, 65}})));
+        return polygons;
+    }
+
+    private static Point[] points(double[][] coordinates) {
+        return Arrays.stream(coordinates).map(c -> Point.point(CRS.WGS84, c)).toArray(Point[]::new);
+    }
+
+    private static Point[] densify(double[][] corners, int steps) {
+        Point[] points = new Point[corners.length * steps];
+        for (int i = 0; i < corners.length; i++) {
+            double[] from = corners[i];
+            double[] to = corners[(i + 1) % corners.length];
+            for (int s = 0; s < steps; s++) {
+                double t = (double) s / steps;
+                points[i * steps + s] = Point.point(CRS.WGS84, from[0] + t * (to[0] - from[0]), from[1] + t * (to[1] - from[1]));
+            }
+        }
+        return points;
+    }
+}
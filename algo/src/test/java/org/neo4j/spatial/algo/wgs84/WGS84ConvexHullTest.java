@@ -7,9 +7,13 @@ import org.neo4j.spatial.algo.cartesian.CartesianConvexHull;
 import org.neo4j.spatial.core.CRS;
 import org.neo4j.spatial.core.Point;
 import org.neo4j.spatial.core.Polygon;
+import org.neo4j.spatial.core.PolygonUtil;
 import org.neo4j.spatial.core.Vector;
 
+import java.util.Random;
+
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.*;
 
 public class WGS84ConvexHullTest {
@@ -188,4 +192,54 @@ public class WGS84ConvexHullTest {
         exceptionGrabber.expectMessage("Points do not lie all on the same hemisphere");
         WGS84ConvexHull.convexHull(points);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void convexHullOfManyPoints() {
+        Random random = new Random(1);
+        //A cap around a center in the southern hemisphere, crossing the antimeridian
+        Vector center = new Vector(Point.point(CRS.WGS84, 170, -30));
+        Point[] points = new Point[100000];
+        for (int i = 0; i < points.length; i++) {
+            double lon;
+            double lat;
+            do {
+                lon = 170 + random.nextGaussian() * 25;
+                lat = -30 + random.nextGaussian() * 25;
+            } while (lat < -89 || lat > 89 || new Vector(Point.point(CRS.WGS84, lon, lat)).dot(center) < 0.3);
+            points[i] = Point.point(CRS.WGS84, lon > 180 ? lon - 360 : lon, lat);
+        }
+
+        Point[] hull = PolygonUtil.openRing(WGS84ConvexHull.convexHull(points).getPoints());
+        for (int i = 0; i < hull.length; i++) {
+            Vector a = new Vector(hull[i]);
+            Vector b = new Vector(hull[(i + 1) % hull.length]);
+            Vector c = new Vector(hull[(i + 2) % hull.length]);
+            Vector normal = a.cross(b);
+            assertThat("expected counterclockwise hull", normal.dot(c) > 0, equalTo(true));
+            for (Point point : points) {
+                assertThat("expected point inside hull", normal.dot(new Vector(point)) > -1e-12, equalTo(true));
+            }
+        }
+    }
+
+    @Test
+    public void poleOfHemisphere() {
+        Vector[] vectors = new Vector[]{
+                new Vector(Point.point(CRS.WGS84, 0, 1)),
+                new Vector(Point.point(CRS.WGS84, 120, 1)),
+                new Vector(Point.point(CRS.WGS84, -120, 1))
+        };
+        Vector pole = WGS84ConvexHull.getPoleOfHemisphere(vectors);
+        for (Vector vector : vectors) {
+            assertThat(vector.dot(pole) > 0, equalTo(true));
+        }
+
+        //The corners of a tetrahedron around the center of the earth
+        assertThat(WGS84ConvexHull.getPoleOfHemisphere(new Vector[]{
+                new Vector(Point.point(CRS.WGS84, 0, -30)),
+                new Vector(Point.point(CRS.WGS84, 120, -30)),
+                new Vector(Point.point(CRS.WGS84, -120, -30)),
+                new Vector(Point.point(CRS.WGS84, 0, 90))
+        }), nullValue());
+    }
+}
@@ -4,13 +4,17 @@ import org.junit.Test;
 
 import java.util.Arrays;
 import java.util.Map;
+import java.util.Random;
 
 import org.neo4j.spatial.algo.Distance;
 import org.neo4j.spatial.algo.DistanceCalculator;
+import org.neo4j.spatial.algo.TestGeometries;
 import org.neo4j.spatial.core.CRS;
 import org.neo4j.spatial.core.LineSegment;
+import org.neo4j.spatial.core.MultiPolyline;
 import org.neo4j.spatial.core.Point;
 import org.neo4j.spatial.core.Polygon;
+import org.neo4j.spatial.core.Polyline;
 
 import static org.hamcrest.Matchers.closeTo;
 import static org.hamcrest.Matchers.containsInAnyOrder;
@@ -156,4 +160,86 @@ public class WGS84DistanceTest {
         assertThat(result.get("end"), equalTo(Point.point(CRS.WGS84, 0, 0)));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void shouldAgreeWithDistanceOnWithinDistance() {
+        Random random = new Random(1);
+        int within = 0;
+        for (int i = 0; i < 200; i++) {
+            Point[] a = ring(random, -10 + random.nextDouble() * 20, 50 + random.nextDouble() * 10);
+            Point[] b = ring(random, -10 + random.nextDouble() * 20, 50 + random.nextDouble() * 10);
+            Polyline polyline = Polyline.polyline(b);
+            double threshold = random.nextDouble() * 500000;
+
+            assertThat(calculator.isWithinDistance(Polyline.polyline(a), polyline, threshold), equalTo(calculator.distance(Polyline.polyline(a), polyline) <= threshold));
+            assertThat(calculator.isWithinDistance(Polygon.simple(a), polyline, threshold), equalTo(calculator.distance(Polygon.simple(a), polyline) <= threshold));
+            assertThat(calculator.isWithinDistance(Polygon.simple(a), b[0], threshold), equalTo(calculator.distance(Polygon.simple(a), b[0]) <= threshold));
+            assertThat(calculator.isWithinDistance(polyline, a[0], threshold), equalTo(calculator.distance(polyline, a[0]) <= threshold));
+            within += calculator.isWithinDistance(Polyline.polyline(a), polyline, threshold) ? 1 : 0;
+        }
+        assertThat(within, greaterThan(20));
+
+        Polygon.SimplePolygon outer = Polygon.simple(Point.point(CRS.WGS84, 0, 0), Point.point(CRS.WGS84, 10, 0), Point.point(CRS.WGS84, 10, 10), Point.point(CRS.WGS84, 0, 10));
+        Polygon.SimplePolygon inner = Polygon.simple(Point.point(CRS.WGS84, 4, 4), Point.point(CRS.WGS84, 6, 4), Point.point(CRS.WGS84, 6, 6), Point.point(CRS.WGS84, 4, 6));
+        assertThat(calculator.isWithinDistance(outer, inner, 0), equalTo(true));
+        assertThat(calculator.isWithinDistance(inner, Point.point(CRS.WGS84, 175, 5), 1000000), equalTo(false));
+    }
+
+    @Test
+    public void shouldBeWithinTheExactDistanceOfLargePolylines() {
+        Polyline a = Polyline.polyline(TestGeometries.dentedCircle(CRS.WGS84, 0, 0, 0.1, 50000).getPoints());
+        Polyline b = Polyline.polyline(TestGeometries.dentedCircle(CRS.WGS84, 0.25, 0, 0.1, 50000).getPoints());
+        double distance = calculator.distance(a, b);
+
+        assertThat(calculator.isWithinDistance(a, b, distance), equalTo(true));
+        assertThat(calculator.isWithinDistance(a, b, Math.nextDown(distance)), equalTo(false));
+    }
+
+    @Test
+    public void shouldNotBeWithinDistanceOfEmptyMultiPolyline() {
+        Polygon.SimplePolygon polygon = Polygon.simple(Point.point(CRS.WGS84, 0, 0), Point.point(CRS.WGS84, 10, 0), Point.point(CRS.WGS84, 10, 10), Point.point(CRS.WGS84, 0, 10));
+
+        assertThat(calculator.isWithinDistance(polygon, new MultiPolyline(), Double.MAX_VALUE), equalTo(false));
+    }
+
+    @Test
+    public void shouldFindSameClosestPairAsScan() {
+        Random random = new Random(2);
+        for (int i = 0; i < 100; i++) {
+            Polygon.SimplePolygon a = Polygon.simple(ring(random, random.nextDouble() * 10, 40 + random.nextDouble() * 10));
+            Polygon.SimplePolygon b = Polygon.simple(ring(random, random.nextDouble() * 10, 40 + random.nextDouble() * 10));
+            double expected = Double.MAX_VALUE;
+            for (LineSegment aLineSegment : a.toLineSegments()) {
+                for (LineSegment bLineSegment : b.toLineSegments()) {
+                    expected = Math.min(expected, calculator.distance(aLineSegment, bLineSegment));
+                }
+            }
+            assertThat(calculator.distance(a, b), closeTo(expected, 1e-6));
+            Distance.DistanceResult result = calculator.distanceAndEndpoints(a, b);
+            assertThat(result.getDistance(), closeTo(expected, 1e-6));
+            assertThat(calculator.distance(result.getStart(), result.getEnd()), closeTo(expected, 1));
+        }
+    }
+
+    @Test
+    public void shouldFindDistanceBetweenLargePolygons() {
+        Polygon.SimplePolygon a = TestGeometries.dentedCircle(CRS.WGS84, 0, 0, 0.1, 50000);
+        Polygon.SimplePolygon b = TestGeometries.dentedCircle(CRS.WGS84, 0.25, 0, 0.1, 50000);
+        double expected = calculator.distance(Point.point(CRS.WGS84, 0.1, 0), Point.point(CRS.WGS84, 0.15, 0));
+
+        assertThat(calculator.distance(a, b), closeTo(expected, 1e-3));
+        Distance.DistanceResult result = calculator.distanceAndEndpoints(a, b);
+        assertThat(result.getDistance(), closeTo(expected, 1e-3));
+        assertThat(result.getStart().getCoordinate()[0], closeTo(0.1, 1e-9));
+        assertThat(result.getEnd().getCoordinate()[0], closeTo(0.15, 1e-9));
+    }
+
+    private static Point[] ring(Random random, double lon, double lat) {
+        Point[] points = new Point[12];
+        for (int i = 0; i < points.length; i++) {
+            double angle = 2 * Math.PI * i / points.length;
+            double radius = random.nextDouble() + 0.5;
+            points[i] = Point.point(CRS.WGS84, lon + radius * Math.cos(angle), lat + radius * Math.sin(angle));
+        }
+        return points;
+    }
+}
@@ -0,0 +1,337 @@
+package org.neo4j.spatial.algo;
+
+import org.neo4j.spatial.core.CRS;
+import org.neo4j.spatial.core.Envelope;
+import org.neo4j.spatial.core.Point;
+import org.neo4j.spatial.core.Polygon;
+import org.neo4j.spatial.core.SegmentBuffer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+import static java.lang.String.format;
+
+/**
+ * Cartesian polygon prepared for many point-in-polygon tests.
+ * <p>
+ * The envelope of the polygon is divided into a grid of cells, every cell listing the segments whose envelope overlaps
+ * it. Cells without segments are entirely inside or outside the polygon, which is decided once when preparing.
+ * For any other cell, the crossings of a ray to the right of the point are counted over the segments of the cells in
+ * its row, each segment only in the cell where it crosses the ray. The result equals {@link WithinCalculator#within}
+ * for polygons with properly nested rings.
+ * <p>
+ * A prepared polygon can be written in a compact binary layout with a version and checksum header and read back from
+ * any byte buffer. Reading from a mapped file uses the mapped bytes directly, so a prepared polygon answers queries
+ * without being rebuilt or copied onto the heap.
+ */
+public final class PreparedPolygon {
+    static final int MAGIC = 0x50505047;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 24;
+
+    private static final int MAX_CELLS_PER_AXIS = 4096;
+
+    private final Envelope envelope;
+    private final int columns;
+    private final int rows;
+    private final double cellWidth;
+    private final double cellHeight;
+    private final DoubleBuffer segments;
+    private final IntBuffer cellStart;
+    private final IntBuffer cellSegments;
+    private final ByteBuffer cellInside;
+
+    private PreparedPolygon(Envelope envelope, int columns, int rows, DoubleBuffer segments, IntBuffer cellStart, IntBuffer cellSegments, ByteBuffer cellInside) {
+        this.envelope = envelope;
+        this.columns = columns;
+        this.rows = rows;
+        this.cellWidth = envelope.getWidth() / columns;
+        this.cellHeight = envelope.getHeight() / rows;
+        this.segments = segments;
+        this.cellStart = cellStart;
+        this.cellSegments = cellSegments;
+        this.cellInside = cellInside;
+    }
+
+    public static PreparedPolygon prepare(Polygon polygon) {
+        if (polygon.getCRS() != CRS.Cartesian) {
+            throw new IllegalArgumentException("Only Cartesian polygons can be prepared, got " + polygon.getCRS());
+        }
+        SegmentBuffer buffer = SegmentBuffer.of(polygon);
+        int n = buffer.size();
+        if (n == 0) {
+            throw new IllegalArgumentException("Cannot prepare a polygon without segments");
+        }
+
+        double[] coordinates = new double[4 * n];
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            coordinates[4 * i] = buffer.getX1(i);
+            coordinates[4 * i + 1] = buffer.getY1(i);
+            coordinates[4 * i + 2] = buffer.getX2(i);
+            coordinates[4 * i + 3] = buffer.getY2(i);
+            minX = Math.min(minX, Math.min(buffer.getX1(i), buffer.getX2(i)));
+            minY = Math.min(minY, Math.min(buffer.getY1(i), buffer.getY2(i)));
+            maxX = Math.max(maxX, Math.max(buffer.getX1(i), buffer.getX2(i)));
+            maxY = Math.max(maxY, Math.max(buffer.getY1(i), buffer.getY2(i)));
+        }
+        Envelope envelope = new Envelope(minX, minY, maxX, maxY);
+
+        //About one cell per segment, shaped after the envelope
+        double aspect = envelope.getHeight() == 0 ? 1 : envelope.getWidth() / envelope.getHeight();
+        int columns = clamp((int) Math.ceil(Math.sqrt(n * aspect)));
+        int rows = clamp((int) Math.ceil((double) n / columns));
+        double cellWidth = envelope.getWidth() / columns;
+        double cellHeight = envelope.getHeight() / rows;
+
+        //Every segment is listed in all cells overlapped by its envelope
+        int[][] ranges = new int[n][];
+        for (int i = 0; i < n; i++) {
+            double x1 = coordinates[4 * i], y1 = coordinates[4 * i + 1];
+            double x2 = coordinates[4 * i + 2], y2 = coordinates[4 * i + 3];
+            ranges[i] = new int[]{
+                    cell(Math.min(x1, x2), minX, cellWidth, columns), cell(Math.max(x1, x2), minX, cellWidth, columns),
+                    cell(Math.min(y1, y2), minY, cellHeight, rows), cell(Math.max(y1, y2), minY, cellHeight, rows)
+            };
+        }
+
+        int cells = columns * rows;
+        int[] start = new int[cells + 1];
+        for (int i = 0; i < n; i++) {
+            int[] range = ranges[i];
+            for (int row = range[2]; row <= range[3]; row++) {
+                for (int column = range[0]; column <= range[1]; column++) {
+                    start[row * columns + column + 1]++;
+                }
+            }
+        }
+        for (int c = 0; c < cells; c++) {
+            start[c + 1] += start[c];
+        }
+        int[] fill = new int[cells];
+        int[] cellSegments = new int[start[cells]];
+        for (int i = 0; i < n; i++) {
+            int[] range = ranges[i];
+            for (int row = range[2]; row <= range[3]; row++) {
+                for (int column = range[0]; column <= range[1]; column++) {
+                    int cell = row * columns + column;
+                    cellSegments[start[cell] + fill[cell]++] = i;
+                }
+            }
+        }
+
+        PreparedPolygon indexed = new PreparedPolygon(envelope, columns, rows, DoubleBuffer.wrap(coordinates), IntBuffer.wrap(start), IntBuffer.wrap(cellSegments), ByteBuffer.allocate(cells));
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                int cell = row * columns + column;
+                if (start[cell] == start[cell + 1]) {
+                    double x = minX + (column + 0.5) * indexed.cellWidth;
+                    double y = minY + (row + 0.5) * indexed.cellHeight;
+                    indexed.cellInside.put(cell, (byte) (indexed.crossings(x, y, row, column) ? 1 : 0));
+                }
+            }
+        }
+        return indexed;
+    }
+
+    private static int clamp(int cells) {
+        return Math.max(1, Math.min(MAX_CELLS_PER_AXIS, cells));
+    }
+
+    public Envelope getEnvelope() {
+        return envelope;
+    }
+
+    public boolean contains(Point point) {
+        if (point.getCRS() != CRS.Cartesian) {
+            throw new IllegalArgumentException("Only Cartesian points can be tested, got " + point.getCRS());
+        }
+        return contains(point.getCoordinate()[0], point.getCoordinate()[1]);
+    }
+
+    public boolean contains(double x, double y) {
+        if (!envelope.contains(x, y)) {
+            return false;
+        }
+        int column = column(x);
+        int row = row(y);
+        int cell = row * columns + column;
+        if (cellStart.get(cell) == cellStart.get(cell + 1)) {
+            return cellInside.get(cell) != 0;
+        }
+        return crossings(x, y, row, column);
+    }
+
+    /**
+     * @return True iff a ray from the point to the right crosses the rings an odd number of times
+     */
+    private boolean crossings(double x, double y, int row, int column) {
+        boolean inside = false;
+        for (int c = column; c < columns; c++) {
+            int cell = row * columns + c;
+            for (int k = cellStart.get(cell), end = cellStart.get(cell + 1); k < end; k++) {
+                int s = cellSegments.get(k);
+                double x1 = segments.get(4 * s);
+                double y1 = segments.get(4 * s + 1);
+                double x2 = segments.get(4 * s + 2);
+                double y2 = segments.get(4 * s + 3);
+                if ((y2 > y) != (y1 > y)) {
+                    //Same arithmetic as CartesianWithin, with the second end point as its current point
+                    double crossing = (x1 - x2) * (y - y2) / (y1 - y2) + x2;
+                    int crossingColumn = Math.max(column(Math.min(x1, x2)), Math.min(column(Math.max(x1, x2)), column(crossing)));
+                    if (crossingColumn == c && x < crossing) {
+                        inside = !inside;
+                    }
+                }
+            }
+        }
+        return inside;
+    }
+
+    private int column(double x) {
+        return cell(x, envelope.getMinX(), cellWidth, columns);
+    }
+
+    private int row(double y) {
+        return cell(y, envelope.getMinY(), cellHeight, rows);
+    }
+
+    private static int cell(double value, double min, double size, int count) {
+        if (size == 0) {
+            return 0;
+        }
+        return Math.max(0, Math.min(count - 1, (int) ((value - min) / size)));
+    }
+
+    /**
+     * @return The number of bytes written by {@link #write(ByteBuffer)}
+     */
+    public int serializedSize() {
+        return HEADER_SIZE + payloadSize();
+    }
+
+    private int payloadSize() {
+        return align(4 * Integer.BYTES + 4 * Double.BYTES + segments.limit() * Double.BYTES + cellStart.limit() * Integer.BYTES + cellSegments.limit() * Integer.BYTES + cellInside.limit());
+    }
+
+    private static int align(int size) {
+        return (size + 7) & ~7;
+    }
+
+    /**
+     * Write the prepared polygon at the position of the buffer, in little endian order, and advance the position past it.
+     * The layout is a header of magic number, version, payload length and CRC32 checksum of the payload, followed by the
+     * grid dimensions, envelope, segments, cell offsets, cell segments and empty cell states.
+     */
+    public void write(ByteBuffer target) {
+        ByteBuffer out = target.slice().order(ByteOrder.LITTLE_ENDIAN);
+        int payloadSize = payloadSize();
+        out.position(HEADER_SIZE);
+        out.putInt(columns).putInt(rows).putInt(segments.limit() / 4).putInt(cellSegments.limit());
+        out.putDouble(envelope.getMinX()).putDouble(envelope.getMinY()).putDouble(envelope.getMaxX()).putDouble(envelope.getMaxY());
+        for (int i = 0; i < segments.limit(); i++) {
+            out.putDouble(segments.get(i));
+        }
+        for (int i = 0; i < cellStart.limit(); i++) {
+            out.putInt(cellStart.get(i));
+        }
+        for (int i = 0; i < cellSegments.limit(); i++) {
+            out.putInt(cellSegments.get(i));
+        }
+        for (int i = 0; i < cellInside.limit(); i++) {
+            out.put(cellInside.get(i));
+        }
+        while (out.position() < HEADER_SIZE + payloadSize) {
+            out.put((byte) 0);
+        }
+
+        ByteBuffer payload = out.duplicate();
+        payload.position(HEADER_SIZE).limit(HEADER_SIZE + payloadSize);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        out.putInt(0, MAGIC).putInt(4, VERSION).putLong(8, payloadSize).putLong(16, crc.getValue());
+        target.position(target.position() + HEADER_SIZE + payloadSize);
+    }
+
+    public void write(Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(serializedSize());
+        write(buffer);
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Read a prepared polygon at the position of the buffer and advance the position past it, verifying its checksum
+     */
+    public static PreparedPolygon read(ByteBuffer source) {
+        return read(source, true);
+    }
+
+    /**
+     * Read a prepared polygon at the position of the buffer and advance the position past it. The prepared polygon keeps
+     * using the bytes of the buffer, so a direct or mapped buffer stays off the heap.
+     *
+     * @param verify true to verify the checksum, which reads every byte of the prepared polygon once
+     */
+    public static PreparedPolygon read(ByteBuffer source, boolean verify) {
+        ByteBuffer in = source.slice().order(ByteOrder.LITTLE_ENDIAN);
+        if (in.remaining() < HEADER_SIZE || in.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not a prepared polygon");
+        }
+        if (in.getInt(4) != VERSION) {
+            throw new IllegalArgumentException(format("Unsupported prepared polygon version %d", in.getInt(4)));
+        }
+        long payloadSize = in.getLong(8);
+        if (payloadSize < 0 || payloadSize > in.remaining() - HEADER_SIZE) {
+            throw new IllegalArgumentException(format("Truncated prepared polygon, expected %d bytes but only %d remain", payloadSize, in.remaining() - HEADER_SIZE));
+        }
+        in.position(HEADER_SIZE).limit(HEADER_SIZE + (int) payloadSize);
+        if (verify) {
+            CRC32 crc = new CRC32();
+            crc.update(in.duplicate());
+            if (crc.getValue() != in.getLong(16)) {
+                throw new IllegalArgumentException("Checksum mismatch, the prepared polygon is corrupt");
+            }
+        }
+
+        int columns = in.getInt();
+        int rows = in.getInt();
+        int segmentCount = in.getInt();
+        int cellSegmentCount = in.getInt();
+        Envelope envelope = new Envelope(in.getDouble(), in.getDouble(), in.getDouble(), in.getDouble());
+        int cells = columns * rows;
+
+        DoubleBuffer segments = view(in, segmentCount * 4 * Double.BYTES).asDoubleBuffer();
+        IntBuffer cellStart = view(in, (cells + 1) * Integer.BYTES).asIntBuffer();
+        IntBuffer cellSegments = view(in, cellSegmentCount * Integer.BYTES).asIntBuffer();
+        ByteBuffer cellInside = view(in, cells);
+
+        source.position(source.position() + HEADER_SIZE + (int) payloadSize);
+        return new PreparedPolygon(envelope, columns, rows, segments, cellStart, cellSegments, cellInside);
+    }
+
+    public static PreparedPolygon read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    private static ByteBuffer view(ByteBuffer in, int length) {
+        ByteBuffer view = in.slice().order(ByteOrder.LITTLE_ENDIAN);
+        view.limit(length);
+        in.position(in.position() + length);
+        return view;
+    }
+}
@@ -3,6 +3,7 @@ package org.neo4j.spatial.algo.cartesian;
 import org.neo4j.spatial.algo.CCW;
 import org.neo4j.spatial.core.Point;
 import org.neo4j.spatial.core.Polygon;
+import org.neo4j.spatial.core.TraversalCursor;
 
 public class CartesianCCW implements CCW {
     @Override
@@ -36,10 +37,10 @@ public class CartesianCCW implements CCW {
     public static double shoelace(Polygon.SimplePolygon polygon) {
         double sum = 0;
 
-        polygon.startTraversal();
-        double[] previous = polygon.getNextPoint().getCoordinate();
-        while (!polygon.fullyTraversed()) {
-            double[] current = polygon.getNextPoint().getCoordinate();
+        TraversalCursor cursor = polygon.openCursor();
+        double[] previous = cursor.next().getCoordinate();
+        while (cursor.hasNext()) {
+            double[] current = cursor.next().getCoordinate();
 
             sum += (previous[0] * current[1]) - (current[0] * previous[1]);
             previous = current;
@@ -2,12 +2,29 @@ package org.neo4j.spatial.algo.cartesian;
 
 import org.neo4j.spatial.core.Point;
 import org.neo4j.spatial.core.Polygon;
+import org.neo4j.spatial.core.PolygonRings;
 
-import java.util.Arrays;
 
 public class CartesianWithin {
     public static boolean within(Polygon polygon, Point point) {
-        return Arrays.stream(polygon.getShells()).filter(s -> within(s, point)).count() > Arrays.stream(polygon.getHoles()).filter(h -> within(h, point)).count();
+        PolygonRings rings = polygon.rings();
+        int withinShells = 0;
+        int withinHoles = 0;
+        int i = 0;
+        while (i < rings.size()) {
+            if (within(rings.getRing(i), point)) {
+                if (rings.isShell(i)) {
+                    withinShells++;
+                } else {
+                    withinHoles++;
+                }
+                i++;
+            } else {
+                //The rings nested in this ring cannot contain the point either
+                i = rings.getSubtreeEnd(i);
+            }
+        }
+        return withinShells > withinHoles;
     }
 
     /**
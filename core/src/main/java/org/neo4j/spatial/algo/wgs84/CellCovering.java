@@ -0,0 +1,303 @@
+package org.neo4j.spatial.algo.wgs84;
+
+import org.neo4j.spatial.algo.WithinCalculator;
+import org.neo4j.spatial.core.CRS;
+import org.neo4j.spatial.core.HasCRS;
+import org.neo4j.spatial.core.Point;
+import org.neo4j.spatial.core.Polygon;
+import org.neo4j.spatial.core.Polyline;
+import org.neo4j.spatial.core.Vector;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/**
+ * Interior and exterior coverings of a WGS84 polygon or polyline by the cells of {@link CellId}.
+ * <p>
+ * The interior covering consists of cells entirely inside the polygon, the exterior covering additionally of the cells
+ * crossed by its boundary, so every point of the polygon lies in the exterior covering. A point in the interior covering
+ * is therefore inside the polygon and a point outside the exterior covering is outside it, which decides most points
+ * by a binary search over the cell ids. Polylines only have an exterior covering.
+ * <p>
+ * The coverings are computed top down from the six faces, where a cell is subdivided as long as the boundary crosses
+ * it, the maximum level is not reached and the number of cells stays within the limit. Only the segments crossing a
+ * cell are tested against its children.
+ */
+public final class CellCovering {
+    private final HasCRS geometry;
+    private final long[] interior;
+    private final long[] exterior;
+
+    private CellCovering(HasCRS geometry, long[] interior, long[] exterior) {
+        this.geometry = geometry;
+        this.interior = interior;
+        this.exterior = exterior;
+    }
+
+    /**
+     * @param polygon the polygon, which should not contain a pole
+     * @param maxLevel the finest level of the cells
+     * @param maxCells the number of cells after which cells are no longer subdivided
+     */
+    public static CellCovering cover(Polygon polygon, int maxLevel, int maxCells) {
+        return new Coverer(polygon, true, maxLevel, maxCells).cover();
+    }
+
+    public static CellCovering cover(Polyline polyline, int maxLevel, int maxCells) {
+        return new Coverer(polyline, false, maxLevel, maxCells).cover();
+    }
+
+    /**
+     * @return The cells inside the geometry, sorted as unsigned numbers
+     */
+    public long[] getInterior() {
+        return interior.clone();
+    }
+
+    /**
+     * @return The cells covering the geometry, sorted as unsigned numbers
+     */
+    public long[] getExterior() {
+        return exterior.clone();
+    }
+
+    /**
+     * @return True iff the cell lies inside a cell of the interior covering
+     */
+    public boolean isInside(long cellId) {
+        return covers(interior, cellId);
+    }
+
+    /**
+     * @return True iff the cell does not intersect the exterior covering
+     */
+    public boolean isOutside(long cellId) {
+        return !intersects(exterior, cellId);
+    }
+
+    /**
+     * Decide by the coverings if possible, and by {@link WithinCalculator} for points near the boundary
+     */
+    public boolean contains(Point point) {
+        long leaf = CellId.fromPoint(point);
+        if (isInside(leaf)) {
+            return true;
+        } else if (isOutside(leaf)) {
+            return false;
+        }
+        return geometry instanceof Polygon && WithinCalculator.within((Polygon) geometry, point);
+    }
+
+    /**
+     * @param cells disjoint cells sorted as unsigned numbers
+     * @return True iff one of the cells contains the given cell
+     */
+    public static boolean covers(long[] cells, long cellId) {
+        int index = floor(cells, CellId.rangeMin(cellId));
+        return index >= 0 && CellId.contains(cells[index], cellId);
+    }
+
+    /**
+     * @param cells disjoint cells sorted as unsigned numbers
+     * @return True iff one of the cells intersects the given cell
+     */
+    public static boolean intersects(long[] cells, long cellId) {
+        int index = floor(cells, CellId.rangeMax(cellId));
+        return index >= 0 && CellId.intersects(cells[index], cellId);
+    }
+
+    /**
+     * @return The index of the last cell starting at or before the leaf, or -1 if there is none
+     */
+    private static int floor(long[] cells, long leaf) {
+        int low = 0;
+        int high = cells.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (Long.compareUnsigned(CellId.rangeMin(cells[middle]), leaf) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return high;
+    }
+
+    private static long[] sorted(long[] cells, int size) {
+        long[] result = new long[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = cells[i] ^ Long.MIN_VALUE;
+        }
+        Arrays.sort(result);
+        for (int i = 0; i < size; i++) {
+            result[i] ^= Long.MIN_VALUE;
+        }
+        return result;
+    }
+
+    private static class Coverer {
+        private final HasCRS geometry;
+        private final boolean area;
+        private final int maxLevel;
+        private final int maxCells;
+        private final double[][] starts;
+        private final double[][] ends;
+        private final long[] startCells;
+        private final long[] endCells;
+        private int segmentCount;
+
+        private long[] interior = new long[16];
+        private int interiorSize;
+        private long[] boundary = new long[16];
+        private int boundarySize;
+
+        private Coverer(Polygon polygon, boolean area, int maxLevel, int maxCells) {
+            this((HasCRS) polygon, area, maxLevel, maxCells, countSegments(polygon));
+            polygon.visitSegments(this::addSegment);
+        }
+
+        private Coverer(Polyline polyline, boolean area, int maxLevel, int maxCells) {
+            this(polyline, area, maxLevel, maxCells, Math.max(1, polyline.getPoints().length - 1));
+            if (polyline.getPoints().length == 1) {
+                double[] c = polyline.getPoints()[0].getCoordinate();
+                addSegment(c[0], c[1], c[0], c[1], 0, 0);
+            } else {
+                polyline.visitSegments(this::addSegment);
+            }
+        }
+
+        private Coverer(HasCRS geometry, boolean area, int maxLevel, int maxCells, int segments) {
+            if (geometry.getCRS() != CRS.WGS84) {
+                throw new IllegalArgumentException("Cell coverings are only defined for WGS84 geometries, got " + geometry.getCRS());
+            }
+            if (maxLevel < 0 || maxLevel > CellId.MAX_LEVEL) {
+                throw new IllegalArgumentException("The maximum level should be between 0 and " + CellId.MAX_LEVEL + ", got " + maxLevel);
+            }
+            this.geometry = geometry;
+            this.area = area;
+            this.maxLevel = maxLevel;
+            this.maxCells = Math.max(6, maxCells);
+            this.starts = new double[segments][];
+            this.ends = new double[segments][];
+            this.startCells = new long[segments];
+            this.endCells = new long[segments];
+        }
+
+        private static int countSegments(Polygon polygon) {
+            int[] count = new int[1];
+            polygon.visitSegments((x1, y1, x2, y2, ringIndex, segmentIndex) -> ++count[0] > 0);
+            return count[0];
+        }
+
+        private boolean addSegment(double x1, double y1, double x2, double y2, int ringIndex, int segmentIndex) {
+            int i = segmentCount++;
+            starts[i] = Vector.pointCoordinatesToVectorCoordinates(new double[]{x1, y1});
+            ends[i] = Vector.pointCoordinatesToVectorCoordinates(new double[]{x2, y2});
+            startCells[i] = CellId.fromVector(starts[i]);
+            endCells[i] = CellId.fromVector(ends[i]);
+            return true;
+        }
+
+        private CellCovering cover() {
+            int[] all = new int[segmentCount];
+            for (int i = 0; i < segmentCount; i++) {
+                all[i] = i;
+            }
+            //Cells crossed by the boundary wait to be subdivided, coarsest first
+            Deque<Candidate> queue = new ArrayDeque<>();
+            for (int face = 0; face < 6; face++) {
+                classify(CellId.fromFace(face), all, queue);
+            }
+            while (!queue.isEmpty()) {
+                Candidate candidate = queue.peekFirst();
+                boolean subdivide = CellId.level(candidate.cell) < maxLevel && interiorSize + queue.size() + 3 <= maxCells;
+                if (!subdivide) {
+                    break;
+                }
+                queue.pollFirst();
+                for (long child : CellId.children(candidate.cell)) {
+                    classify(child, candidate.segments, queue);
+                }
+            }
+            for (Candidate candidate : queue) {
+                boundary = add(boundary, boundarySize++, candidate.cell);
+            }
+
+            long[] exterior = Arrays.copyOf(interior, interiorSize + boundarySize);
+            System.arraycopy(boundary, 0, exterior, interiorSize, boundarySize);
+            return new CellCovering(geometry, sorted(interior, interiorSize), sorted(exterior, exterior.length));
+        }
+
+        private void classify(long cell, int[] segments, Deque<Candidate> queue) {
+            double[][] vertices = CellId.vertices(cell);
+            int[] crossing = new int[segments.length];
+            int crossingCount = 0;
+            for (int segment : segments) {
+                if (crosses(cell, vertices, segment)) {
+                    crossing[crossingCount++] = segment;
+                }
+            }
+            if (crossingCount > 0) {
+                queue.addLast(new Candidate(cell, Arrays.copyOf(crossing, crossingCount)));
+            } else if (area && WithinCalculator.within((Polygon) geometry, CellId.toPoint(cell))) {
+                //Without any boundary inside the cell, the whole cell is on the same side as its center
+                interior = add(interior, interiorSize++, cell);
+            }
+        }
+
+        private boolean crosses(long cell, double[][] vertices, int segment) {
+            if (CellId.contains(cell, startCells[segment]) || CellId.contains(cell, endCells[segment])) {
+                return true;
+            }
+            for (int v = 0; v < 4; v++) {
+                if (crossing(starts[segment], ends[segment], vertices[v], vertices[(v + 1) % 4])) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static long[] add(long[] cells, int index, long cell) {
+            if (index == cells.length) {
+                cells = Arrays.copyOf(cells, 2 * index);
+            }
+            cells[index] = cell;
+            return cells;
+        }
+    }
+
+    /**
+     * @return True iff the great circle arcs AB and CD cross, including when an end point lies on the other arc.
+     * Degenerate configurations may report a crossing that does not exist, which only makes a covering coarser.
+     */
+    static boolean crossing(double[] a, double[] b, double[] c, double[] d) {
+        double[] ab = cross(a, b);
+        double[] cd = cross(c, d);
+        double acb = -dot(ab, c);
+        double bda = dot(ab, d);
+        double cbd = -dot(cd, b);
+        double dac = dot(cd, a);
+        boolean positive = acb > 0 || bda > 0 || cbd > 0 || dac > 0;
+        boolean negative = acb < 0 || bda < 0 || cbd < 0 || dac < 0;
+        return !(positive && negative);
+    }
+
+    private static double[] cross(double[] a, double[] b) {
+        return new double[]{a[1] * b[2] - a[2] * b[1], a[2] * b[0] - a[0] * b[2], a[0] * b[1] - a[1] * b[0]};
+    }
+
+    private static double dot(double[] a, double[] b) {
+        return a[0] * b[0] + a[1] * b[1] + a[2] * b[2];
+    }
+
+    private static class Candidate {
+        private final long cell;
+        private final int[] segments;
+
+        private Candidate(long cell, int[] segments) {
+            this.cell = cell;
+            this.segments = segments;
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package org.neo4j.spatial.algo.wgs84;
+
+import org.neo4j.spatial.core.CRS;
+import org.neo4j.spatial.core.Point;
+import org.neo4j.spatial.core.Vector;
+
+/**
+ * Hierarchical cells on the sphere, identified by 64 bit ids.
+ * <p>
+ * The sphere is projected onto the six faces of a cube, face 0 to 2 on the positive x, y and z axes and face 3 to 5 on
+ * the negative axes. Each face is divided into a quadtree of up to {@link #MAX_LEVEL} levels, using a quadratic
+ * transform so cells of a level have similar areas. The edges of every cell are great circle arcs.
+ * <p>
+ * An id holds the face in its top 3 bits, followed by two bits per level for the quadrant and a single marker bit,
+ * below which all bits are zero. The ids of all descendants of a cell therefore form the contiguous range between
+ * {@link #rangeMin(long)} and {@link #rangeMax(long)}, and sorting ids as unsigned numbers keeps cells near each other.
+ */
+public final class CellId {
+    public static final int MAX_LEVEL = 30;
+
+    private static final int POSITION_BITS = 2 * MAX_LEVEL + 1;
+    private static final long MAX_SIZE = 1L << MAX_LEVEL;
+
+    private CellId() {
+    }
+
+    /**
+     * @return The id of the cell of the given level containing the point
+     */
+    public static long fromPoint(Point point, int level) {
+        if (point.getCRS() != CRS.WGS84) {
+            throw new IllegalArgumentException("Cells are only defined for WGS84 points, got " + point.getCRS());
+        }
+        return parent(fromVector(Vector.pointCoordinatesToVectorCoordinates(point.getCoordinate())), level);
+    }
+
+    /**
+     * @return The id of the leaf cell containing the point
+     */
+    public static long fromPoint(Point point) {
+        return fromPoint(point, MAX_LEVEL);
+    }
+
+    /**
+     * @param vector a unit vector
+     * @return The id of the leaf cell containing the point of the vector
+     */
+    public static long fromVector(double[] vector) {
+        int axis = 0;
+        for (int d = 1; d < 3; d++) {
+            if (Math.abs(vector[d]) > Math.abs(vector[axis])) {
+                axis = d;
+            }
+        }
+        int face = vector[axis] < 0 ? axis + 3 : axis;
+        double major = Math.abs(vector[axis]);
+        long i = stToIJ(uvToST(vector[(axis + 1) % 3] / major));
+        long j = stToIJ(uvToST(vector[(axis + 2) % 3] / major));
+        return fromFaceIJ(face, i, j);
+    }
+
+    /**
+     * @return The id of the level 0 cell covering a whole face
+     */
+    public static long fromFace(int face) {
+        if (face < 0 || face > 5) {
+            throw new IllegalArgumentException("Invalid face " + face);
+        }
+        return ((long) face << POSITION_BITS) | levelBit(0);
+    }
+
+    static long fromFaceIJ(int face, long i, long j) {
+        return ((long) face << POSITION_BITS) | (interleave(i, j) << 1) | 1L;
+    }
+
+    public static int face(long id) {
+        return (int) (id >>> POSITION_BITS);
+    }
+
+    public static int level(long id) {
+        return MAX_LEVEL - Long.numberOfTrailingZeros(id) / 2;
+    }
+
+    public static boolean isValid(long id) {
+        return face(id) < 6 && id != 0 && Long.numberOfTrailingZeros(id) % 2 == 0;
+    }
+
+    /**
+     * @return The lowest set bit, which marks the level of the cell
+     */
+    static long lowestBit(long id) {
+        return id & -id;
+    }
+
+    /**
+     * @return The lowest set bit of the cells of the given level
+     */
+    private static long levelBit(int level) {
+        return 1L << (2 * (MAX_LEVEL - level));
+    }
+
+    /**
+     * @return The ancestor of the cell at the given level, which should not be finer than the level of the cell
+     */
+    public static long parent(long id, int level) {
+        if (level < 0 || level > level(id)) {
+            throw new IllegalArgumentException("Invalid level " + level + " for a parent of a cell of level " + level(id));
+        }
+        long bit = levelBit(level);
+        return (id & -bit) | bit;
+    }
+
+    public static long parent(long id) {
+        return parent(id, level(id) - 1);
+    }
+
+    /**
+     * @param position the quadrant of the child, from 0 to 3
+     */
+    public static long child(long id, int position) {
+        long bit = lowestBit(id);
+        if (bit == 1) {
+            throw new IllegalArgumentException("A leaf cell has no children");
+        }
+        return id - bit + (2L * position + 1) * (bit >>> 2);
+    }
+
+    public static long[] children(long id) {
+        return new long[]{child(id, 0), child(id, 1), child(id, 2), child(id, 3)};
+    }
+
+    /**
+     * @return The smallest id of a leaf cell inside the cell
+     */
+    public static long rangeMin(long id) {
+        return id - (lowestBit(id) - 1);
+    }
+
+    /**
+     * @return The largest id of a leaf cell inside the cell
+     */
+    public static long rangeMax(long id) {
+        return id + (lowestBit(id) - 1);
+    }
+
+    /**
+     * @return True iff the other cell is the cell itself or one of its descendants
+     */
+    public static boolean contains(long id, long other) {
+        return Long.compareUnsigned(rangeMin(id), other) <= 0 && Long.compareUnsigned(other, rangeMax(id)) <= 0;
+    }
+
+    public static boolean intersects(long id, long other) {
+        return Long.compareUnsigned(rangeMin(id), rangeMax(other)) <= 0 && Long.compareUnsigned(rangeMin(other), rangeMax(id)) <= 0;
+    }
+
+    /**
+     * @return The unit vectors of the four corners of the cell, counterclockwise in the coordinates of the face
+     */
+    public static double[][] vertices(long id) {
+        int face = face(id);
+        long size = sizeIJ(level(id));
+        long position = (id & ((1L << POSITION_BITS) - 1)) >>> 1;
+        long i = deinterleave(position >>> 1) & -size;
+        long j = deinterleave(position) & -size;
+        double u0 = stToUV((double) i / MAX_SIZE), u1 = stToUV((double) (i + size) / MAX_SIZE);
+        double v0 = stToUV((double) j / MAX_SIZE), v1 = stToUV((double) (j + size) / MAX_SIZE);
+        return new double[][]{toVector(face, u0, v0), toVector(face, u1, v0), toVector(face, u1, v1), toVector(face, u0, v1)};
+    }
+
+    /**
+     * @return The center of the cell
+     */
+    public static Point toPoint(long id) {
+        double[][] vertices = vertices(id);
+        double[] sum = new double[3];
+        for (double[] vertex : vertices) {
+            for (int d = 0; d < 3; d++) {
+                sum[d] += vertex[d];
+            }
+        }
+        return new Vector(sum).normalize().toPoint();
+    }
+
+    public static String toString(long id) {
+        StringBuilder builder = new StringBuilder().append(face(id)).append('/');
+        long position = (id & ((1L << POSITION_BITS) - 1)) >>> 1;
+        for (int level = 1; level <= level(id); level++) {
+            builder.append((position >>> (2 * (MAX_LEVEL - level))) & 3);
+        }
+        return builder.toString();
+    }
+
+    private static long sizeIJ(int level) {
+        return 1L << (MAX_LEVEL - level);
+    }
+
+    private static double[] toVector(int face, double u, double v) {
+        int axis = face % 3;
+        double[] vector = new double[3];
+        vector[axis] = face < 3 ? 1 : -1;
+        vector[(axis + 1) % 3] = u;
+        vector[(axis + 2) % 3] = v;
+        double norm = Math.sqrt(1 + u * u + v * v);
+        for (int d = 0; d < 3; d++) {
+            vector[d] /= norm;
+        }
+        return vector;
+    }
+
+    /**
+     * The quadratic transform between the face coordinate in [-1, 1] and the cell coordinate in [0, 1]
+     */
+    private static double uvToST(double u) {
+        return u >= 0 ? 0.5 * Math.sqrt(1 + 3 * u) : 1 - 0.5 * Math.sqrt(1 - 3 * u);
+    }
+
+    private static double stToUV(double s) {
+        return s >= 0.5 ? (4 * s * s - 1) / 3 : (1 - 4 * (1 - s) * (1 - s)) / 3;
+    }
+
+    private static long stToIJ(double s) {
+        return Math.max(0, Math.min(MAX_SIZE - 1, (long) Math.floor(s * MAX_SIZE)));
+    }
+
+    /**
+     * Spread the bits of i over the odd bits and the bits of j over the even bits
+     */
+    private static long interleave(long i, long j) {
+        return (spread(i) << 1) | spread(j);
+    }
+
+    private static long spread(long value) {
+        value &= 0x3fffffffL;
+        value = (value | (value << 16)) & 0x0000ffff0000ffffL;
+        value = (value | (value << 8)) & 0x00ff00ff00ff00ffL;
+        value = (value | (value << 4)) & 0x0f0f0f0f0f0f0f0fL;
+        value = (value | (value << 2)) & 0x3333333333333333L;
+        value = (value | (value << 1)) & 0x5555555555555555L;
+        return value;
+    }
+
+    private static long deinterleave(long value) {
+        value &= 0x5555555555555555L;
+        value = (value | (value >>> 1)) & 0x3333333333333333L;
+        value = (value | (value >>> 2)) & 0x0f0f0f0f0f0f0f0fL;
+        value = (value | (value >>> 4)) & 0x00ff00ff00ff00ffL;
+        value = (value | (value >>> 8)) & 0x0000ffff0000ffffL;
+        value = (value | (value >>> 16)) & 0x00000000ffffffffL;
+        return value;
+    }
+}
@@ -4,13 +4,28 @@ import org.neo4j.spatial.core.CRS;
 import org.neo4j.spatial.core.LineSegment;
 import org.neo4j.spatial.core.Point;
 import org.neo4j.spatial.core.Polygon;
+import org.neo4j.spatial.core.PolygonRings;
 
-import java.util.Arrays;
 
 public class WGS84Within {
     public static boolean within(Polygon polygon, Point point) {
-        long withinShells = Arrays.stream(polygon.getShells()).filter(s -> within(s, point)).count();
-        long withinHoles = Arrays.stream(polygon.getHoles()).filter(h -> within(h, point)).count();
+        PolygonRings rings = polygon.rings();
+        int withinShells = 0;
+        int withinHoles = 0;
+        int i = 0;
+        while (i < rings.size()) {
+            if (within(rings.getRing(i), point)) {
+                if (rings.isShell(i)) {
+                    withinShells++;
+                } else {
+                    withinHoles++;
+                }
+                i++;
+            } else {
+                //The rings nested in this ring cannot contain the point either
+                i = rings.getSubtreeEnd(i);
+            }
+        }
         return withinShells > withinHoles;
     }
 
@@ -1,5 +1,33 @@
 package org.neo4j.spatial.core;
 
+import static java.lang.String.format;
+
 public enum CRS {
-    WGS84, Cartesian;
+    WGS84(4326), Cartesian(7203);
+
+    private final int srid;
+
+    CRS(int srid) {
+        this.srid = srid;
+    }
+
+    /**
+     * @return The spatial reference identifier used for this coordinate reference system in EWKB and EWKT
+     */
+    public int getSRID() {
+        return srid;
+    }
+
+    /**
+     * @param srid the spatial reference identifier, where 0 stands for an unspecified planar system
+     * @return The coordinate reference system with the given identifier
+     */
+    public static CRS fromSRID(int srid) {
+        if (srid == 0 || srid == Cartesian.srid) {
+            return Cartesian;
+        } else if (srid == WGS84.srid) {
+            return WGS84;
+        }
+        throw new IllegalArgumentException(format("Unsupported spatial reference identifier: %d", srid));
+    }
 }
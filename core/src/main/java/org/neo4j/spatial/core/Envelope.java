@@ -0,0 +1,133 @@
+package org.neo4j.spatial.core;
+
+/**
+ * Axis aligned bounding box over the first two coordinates of a geometry
+ */
+public class Envelope {
+    private final double minX;
+    private final double minY;
+    private final double maxX;
+    private final double maxY;
+
+    public Envelope(double minX, double minY, double maxX, double maxY) {
+        if (minX > maxX || minY > maxY) {
+            throw new IllegalArgumentException("Invalid envelope, minimum should not exceed maximum: (" + minX + ", " + minY + ") > (" + maxX + ", " + maxY + ")");
+        }
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+    }
+
+    public static Envelope of(Point... points) {
+        if (points.length == 0) {
+            throw new IllegalArgumentException("Cannot create envelope of no points");
+        }
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (Point point : points) {
+            double[] coordinate = point.getCoordinate();
+            minX = Math.min(minX, coordinate[0]);
+            minY = Math.min(minY, coordinate[1]);
+            maxX = Math.max(maxX, coordinate[0]);
+            maxY = Math.max(maxY, coordinate[1]);
+        }
+        return new Envelope(minX, minY, maxX, maxY);
+    }
+
+    public double getMinX() {
+        return minX;
+    }
+
+    public double getMinY() {
+        return minY;
+    }
+
+    public double getMaxX() {
+        return maxX;
+    }
+
+    public double getMaxY() {
+        return maxY;
+    }
+
+    public double getWidth() {
+        return maxX - minX;
+    }
+
+    public double getHeight() {
+        return maxY - minY;
+    }
+
+    public double getArea() {
+        return getWidth() * getHeight();
+    }
+
+    /**
+     * @return True iff the other envelope lies inside this envelope, touching the border included
+     */
+    public boolean contains(Envelope other) {
+        return minX <= other.minX && minY <= other.minY && maxX >= other.maxX && maxY >= other.maxY;
+    }
+
+    public boolean contains(double x, double y) {
+        return minX <= x && x <= maxX && minY <= y && y <= maxY;
+    }
+
+    public boolean intersects(Envelope other) {
+        return minX <= other.maxX && other.minX <= maxX && minY <= other.maxY && other.minY <= maxY;
+    }
+
+    /**
+     * @return The minimum distance between anything inside this envelope and anything inside the other, 0 if they intersect
+     */
+    public double distance(Envelope other) {
+        return distance(minX, minY, maxX, maxY, other.minX, other.minY, other.maxX, other.maxY);
+    }
+
+    /**
+     * The distance between two envelopes packed as minimum x, minimum y, maximum x and maximum y, at an offset in their arrays
+     *
+     * @return The minimum distance between anything inside the one envelope and anything inside the other, 0 if they intersect
+     */
+    public static double distance(double[] a, int aOffset, double[] b, int bOffset) {
+        return distance(a[aOffset], a[aOffset + 1], a[aOffset + 2], a[aOffset + 3], b[bOffset], b[bOffset + 1], b[bOffset + 2], b[bOffset + 3]);
+    }
+
+    /**
+     * @return The minimum distance between anything inside the one envelope and anything inside the other, 0 if they intersect
+     */
+    public static double distance(double aMinX, double aMinY, double aMaxX, double aMaxY, double bMinX, double bMinY, double bMaxX, double bMaxY) {
+        double dx = Math.max(0, Math.max(aMinX - bMaxX, bMinX - aMaxX));
+        double dy = Math.max(0, Math.max(aMinY - bMaxY, bMinY - aMaxY));
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    public Envelope expandToInclude(Envelope other) {
+        return new Envelope(Math.min(minX, other.minX), Math.min(minY, other.minY), Math.max(maxX, other.maxX), Math.max(maxY, other.maxY));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Envelope)) return false;
+        Envelope other = (Envelope) o;
+        return minX == other.minX && minY == other.minY && maxX == other.maxX && maxY == other.maxY;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Double.hashCode(minX);
+        result = 31 * result + Double.hashCode(minY);
+        result = 31 * result + Double.hashCode(maxX);
+        result = 31 * result + Double.hashCode(maxY);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "Envelope{(" + minX + ", " + minY + "), (" + maxX + ", " + maxY + ")}";
+    }
+}
@@ -3,7 +3,6 @@ package org.neo4j.spatial.core;
 import org.neo4j.spatial.algo.AlgoUtil;
 
 import java.util.Arrays;
-import java.util.StringJoiner;
 
 import static java.lang.String.format;
 
@@ -104,11 +103,7 @@ class InMemoryLineSegment implements LineSegment {
 
     @Override
     public String toWKT() {
-        StringJoiner viewer = new StringJoiner(",", "LINESTRING(", ")");
-        for (Point point : points) {
-            viewer.add(point.getCoordinate()[0] + " " + point.getCoordinate()[1]);
-        }
-        return viewer.toString();
+        return WKTWriter.toWKT(this);
     }
 
     public String toString() {
@@ -0,0 +1,325 @@
+package org.neo4j.spatial.core;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static java.lang.String.format;
+
+/**
+ * File backed store of packed polygons and polylines, read through memory mapped buffers.
+ * <p>
+ * The data file starts with a header, followed by one record per geometry. A record holds the geometry type, the SRID,
+ * the number of rings, the point count and parent ring of every ring and then the coordinates of all rings, all little
+ * endian and aligned to 8 bytes. A separate index file holds the offset of every record in the data file, so the
+ * geometry with a given id is found with a single lookup.
+ * <p>
+ * Geometries read from the store are views whose coordinates stay in the mapped file, only the ring structure of a
+ * multipolygon is created on the heap. The files are mapped in segments, which no record crosses, so stores can
+ * exceed the 2GB limit of a single mapped buffer. Reading is thread safe.
+ */
+public class MappedGeometryStore implements Closeable {
+    static final int MAGIC = 0x53504753;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+
+    static final int POLYLINE = 1;
+    static final int SIMPLE_POLYGON = 2;
+    static final int MULTI_POLYGON = 3;
+
+    static final int SEGMENT_SHIFT = 30;
+    static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+
+    private final FileChannel data;
+    private final FileChannel index;
+    private final ByteBuffer[] segments;
+    private final DoubleBuffer[] coordinateSegments;
+    private final ByteBuffer[] indexSegments;
+    private final long size;
+
+    private MappedGeometryStore(Path dataFile, Path indexFile) throws IOException {
+        this.data = FileChannel.open(dataFile, StandardOpenOption.READ);
+        this.index = FileChannel.open(indexFile, StandardOpenOption.READ);
+        try {
+            long dataSize = data.size();
+            this.segments = map(data, dataSize);
+            this.coordinateSegments = new DoubleBuffer[segments.length];
+            for (int i = 0; i < segments.length; i++) {
+                coordinateSegments[i] = segments[i].asDoubleBuffer();
+            }
+            checkHeader(segments.length == 0 ? null : segments[0], dataFile);
+
+            this.indexSegments = map(index, index.size());
+            this.size = index.size() / Long.BYTES;
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Map an existing store for reading
+     *
+     * @param dataFile the data file, the index file is the same path with the suffix {@code .idx}
+     */
+    public static MappedGeometryStore open(Path dataFile) throws IOException {
+        return new MappedGeometryStore(dataFile, indexFile(dataFile));
+    }
+
+    /**
+     * Open a writer appending to the store, creating it if it does not exist
+     */
+    public static Writer append(Path dataFile) throws IOException {
+        return new Writer(dataFile, indexFile(dataFile));
+    }
+
+    static Path indexFile(Path dataFile) {
+        return dataFile.resolveSibling(dataFile.getFileName() + ".idx");
+    }
+
+    private static ByteBuffer[] map(FileChannel channel, long size) throws IOException {
+        int count = (int) ((size + SEGMENT_SIZE - 1) >> SEGMENT_SHIFT);
+        ByteBuffer[] result = new ByteBuffer[count];
+        for (int i = 0; i < count; i++) {
+            long start = (long) i << SEGMENT_SHIFT;
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, size - start));
+            result[i] = mapped.order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return result;
+    }
+
+    private static void checkHeader(ByteBuffer header, Path file) {
+        if (header == null || header.limit() < HEADER_SIZE || header.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not a geometry store: " + file);
+        }
+        if (header.getInt(4) != VERSION) {
+            throw new IllegalArgumentException(format("Unsupported geometry store version %d in %s", header.getInt(4), file));
+        }
+    }
+
+    /**
+     * @return The number of geometries in the store
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @return A view of the stored polygon or polyline
+     */
+    public HasCRS get(long id) {
+        long offset = offset(id);
+        ByteBuffer segment = segments[(int) (offset >> SEGMENT_SHIFT)];
+        DoubleBuffer coordinates = coordinateSegments[(int) (offset >> SEGMENT_SHIFT)];
+        int position = (int) (offset & (SEGMENT_SIZE - 1));
+
+        int type = segment.getInt(position);
+        CRS crs = CRS.fromSRID(segment.getInt(position + 4));
+        int ringCount = segment.getInt(position + 8);
+        int coordinatePosition = (position + HEADER_SIZE + ringCount * 8) / Double.BYTES;
+
+        switch (type) {
+            case POLYLINE:
+                return new PackedPolyline(crs, PackedCoordinates.of(coordinates, coordinatePosition, segment.getInt(position + HEADER_SIZE)));
+            case SIMPLE_POLYGON:
+                return new PackedSimplePolygon(crs, PackedCoordinates.of(coordinates, coordinatePosition, segment.getInt(position + HEADER_SIZE)));
+            case MULTI_POLYGON:
+                MultiPolygon multiPolygon = new MultiPolygon();
+                MultiPolygon.MultiPolygonNode[] nodes = new MultiPolygon.MultiPolygonNode[ringCount];
+                for (int i = 0; i < ringCount; i++) {
+                    int pointCount = segment.getInt(position + HEADER_SIZE + 8 * i);
+                    int parent = segment.getInt(position + HEADER_SIZE + 8 * i + 4);
+                    nodes[i] = new MultiPolygon.MultiPolygonNode(new PackedSimplePolygon(crs, PackedCoordinates.of(coordinates, coordinatePosition, pointCount)));
+                    //Rings are stored in pre-order, so every parent is attached before its children
+                    (parent < 0 ? multiPolygon : nodes[parent]).addChild(nodes[i]);
+                    coordinatePosition += 2 * pointCount;
+                }
+                return multiPolygon;
+            default:
+                throw new IllegalStateException(format("Invalid geometry type %d for id %d", type, id));
+        }
+    }
+
+    public Polygon getPolygon(long id) {
+        HasCRS geometry = get(id);
+        if (!(geometry instanceof Polygon)) {
+            throw new IllegalArgumentException(format("Geometry %d is not a polygon", id));
+        }
+        return (Polygon) geometry;
+    }
+
+    public Polyline getPolyline(long id) {
+        HasCRS geometry = get(id);
+        if (!(geometry instanceof Polyline)) {
+            throw new IllegalArgumentException(format("Geometry %d is not a polyline", id));
+        }
+        return (Polyline) geometry;
+    }
+
+    private long offset(long id) {
+        if (id < 0 || id >= size) {
+            throw new IllegalArgumentException(format("No geometry with id %d, the store holds %d geometries", id, size));
+        }
+        long position = id * Long.BYTES;
+        return indexSegments[(int) (position >> SEGMENT_SHIFT)].getLong((int) (position & (SEGMENT_SIZE - 1)));
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            data.close();
+        } finally {
+            index.close();
+        }
+    }
+
+    /**
+     * Appends geometries to a store. The geometries become visible to stores opened after the writer is closed.
+     */
+    public static class Writer implements Closeable {
+        private static final int BUFFER_SIZE = 1 << 20;
+
+        private final OutputStream data;
+        private final OutputStream index;
+        private final ByteBuffer offsetBuffer = ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        private ByteBuffer record = ByteBuffer.allocate(4096).order(ByteOrder.LITTLE_ENDIAN);
+        private long dataSize;
+        private long count;
+
+        private Writer(Path dataFile, Path indexFile) throws IOException {
+            boolean exists = Files.exists(dataFile);
+            if (exists) {
+                try (FileChannel channel = FileChannel.open(dataFile, StandardOpenOption.READ)) {
+                    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                    channel.read(header, 0);
+                    checkHeader(header, dataFile);
+                    this.dataSize = channel.size();
+                }
+                this.count = Files.exists(indexFile) ? Files.size(indexFile) / Long.BYTES : 0;
+            }
+            this.data = new BufferedOutputStream(Files.newOutputStream(dataFile, StandardOpenOption.CREATE, StandardOpenOption.APPEND), BUFFER_SIZE);
+            this.index = new BufferedOutputStream(Files.newOutputStream(indexFile, StandardOpenOption.CREATE, StandardOpenOption.APPEND), BUFFER_SIZE);
+            if (!exists) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(MAGIC).putInt(VERSION).putLong(0);
+                data.write(header.array());
+                this.dataSize = HEADER_SIZE;
+            }
+        }
+
+        /**
+         * @return The id of the stored polyline
+         */
+        public long add(Polyline polyline) throws IOException {
+            PackedCoordinates packed = polyline instanceof PackedPolyline ? ((PackedPolyline) polyline).getCoordinates() : null;
+            Point[] points = packed == null ? polyline.getPoints() : null;
+            int pointCount = packed == null ? points.length : packed.size();
+
+            startRecord(POLYLINE, polyline.getCRS(), 1, pointCount);
+            putRing(pointCount, -1);
+            putCoordinates(packed, points);
+            return writeRecord();
+        }
+
+        /**
+         * @return The id of the stored polygon
+         */
+        public long add(Polygon polygon) throws IOException {
+            PolygonRings rings = polygon.rings();
+            if (rings.size() == 0) {
+                throw new IllegalArgumentException("Cannot store a polygon without rings");
+            }
+            PackedCoordinates[] packed = new PackedCoordinates[rings.size()];
+            Point[][] points = new Point[rings.size()][];
+            int[] pointCounts = new int[rings.size()];
+            int pointCount = 0;
+            for (int i = 0; i < rings.size(); i++) {
+                Polygon.SimplePolygon ring = rings.getRing(i);
+                if (ring instanceof PackedSimplePolygon) {
+                    packed[i] = ((PackedSimplePolygon) ring).getCoordinates();
+                    pointCounts[i] = packed[i].size();
+                } else {
+                    points[i] = ring.getPoints();
+                    pointCounts[i] = points[i].length;
+                }
+                pointCount += pointCounts[i];
+            }
+
+            startRecord(polygon instanceof Polygon.SimplePolygon ? SIMPLE_POLYGON : MULTI_POLYGON, polygon.getCRS(), rings.size(), pointCount);
+            for (int i = 0; i < rings.size(); i++) {
+                putRing(pointCounts[i], rings.getParent(i));
+            }
+            for (int i = 0; i < rings.size(); i++) {
+                putCoordinates(packed[i], points[i]);
+            }
+            return writeRecord();
+        }
+
+        private void startRecord(int type, CRS crs, int ringCount, int pointCount) {
+            long recordSize = HEADER_SIZE + 8L * ringCount + 16L * pointCount;
+            if (recordSize > SEGMENT_SIZE) {
+                throw new IllegalArgumentException(format("Geometry of %d points is too large for the store", pointCount));
+            }
+            if (record.capacity() < recordSize) {
+                record = ByteBuffer.allocate((int) Math.max(recordSize, 2L * record.capacity())).order(ByteOrder.LITTLE_ENDIAN);
+            }
+            record.clear();
+            record.putInt(type).putInt(crs.getSRID()).putInt(ringCount).putInt(0);
+        }
+
+        private void putRing(int pointCount, int parent) {
+            record.putInt(pointCount).putInt(parent);
+        }
+
+        private void putCoordinates(PackedCoordinates packed, Point[] points) {
+            if (packed != null) {
+                for (int i = 0; i < packed.size(); i++) {
+                    record.putDouble(packed.getX(i)).putDouble(packed.getY(i));
+                }
+            } else {
+                for (Point point : points) {
+                    double[] coordinate = point.getCoordinate();
+                    record.putDouble(coordinate[0]).putDouble(coordinate[1]);
+                }
+            }
+        }
+
+        private long writeRecord() throws IOException {
+            int length = record.position();
+            //Records never cross a segment, so each can be read from a single mapped buffer
+            long segmentEnd = ((dataSize >> SEGMENT_SHIFT) + 1) << SEGMENT_SHIFT;
+            if (dataSize + length > segmentEnd) {
+                while (dataSize < segmentEnd) {
+                    data.write(0);
+                    dataSize++;
+                }
+            }
+
+            offsetBuffer.clear();
+            offsetBuffer.putLong(dataSize);
+            index.write(offsetBuffer.array());
+
+            data.write(record.array(), 0, length);
+            dataSize += length;
+            return count++;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                data.close();
+            } finally {
+                index.close();
+            }
+        }
+    }
+}
@@ -4,10 +4,12 @@ import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.StringJoiner;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 public class MonotoneChain {
-    private static long nextId = 0L;
+    //Ids only increase, so the chains of one geometry have smaller ids than those of a geometry partitioned after it, also when sweeping on many threads
+    private static final AtomicLong nextId = new AtomicLong();
 
     private List<Vertex> vertices;
     private Vertex frontVertex;
@@ -15,11 +17,7 @@ public class MonotoneChain {
 
     public MonotoneChain() {
         this.vertices = new ArrayList<>();
-        this.id = nextId++;
-    }
-
-    public static void resetId() {
-        MonotoneChain.nextId = 0L;
+        this.id = nextId.getAndIncrement();
     }
 
     public void add(LineSegment segment) {
@@ -6,6 +6,7 @@ import java.util.*;
 
 public class MultiPolygon implements Polygon {
     private List<MultiPolygonNode> children;
+    private PolygonRings rings;
 
     public MultiPolygon() {
         this.children = new ArrayList<>();
@@ -47,49 +48,120 @@ public class MultiPolygon implements Polygon {
         return true;
     }
 
+    /**
+     * Build a multipolygon from all its rings at once, finding the nesting of the rings in bulk instead of inserting them one by one
+     *
+     * @param polygons the rings, which should not cross each other
+     * @return The root of the multipolygon
+     */
+    public static MultiPolygon build(SimplePolygon... polygons) {
+        List<MultiPolygonNode> nodes = new ArrayList<>(polygons.length);
+        for (SimplePolygon polygon : polygons) {
+            nodes.add(new MultiPolygonNode(polygon));
+        }
+        return build(nodes);
+    }
+
+    /**
+     * Build a multipolygon from all its rings at once, finding the nesting of the rings in bulk instead of inserting them one by one
+     *
+     * @param nodes the nodes of the rings, which should not be part of a multipolygon yet
+     * @return The root of the multipolygon
+     */
+    public static MultiPolygon build(List<? extends MultiPolygonNode> nodes) {
+        SimplePolygon[] polygons = new SimplePolygon[nodes.size()];
+        for (int i = 0; i < polygons.length; i++) {
+            MultiPolygonNode node = nodes.get(i);
+            if (node.getParent() != null || !node.getChildren().isEmpty()) {
+                throw new IllegalArgumentException("Cannot build multipolygon from node that is already part of a multipolygon: " + node);
+            }
+            if (node.getCRS() != nodes.get(0).getCRS()) {
+                throw new IllegalArgumentException(String.format("Polygon[%d] has different coordinate reference system to Polygon[%d]: %s != %s", i, 0, node.getCRS(), nodes.get(0).getCRS()));
+            }
+            polygons[i] = node.getPolygon();
+        }
+
+        int[] parents = RingNester.parents(polygons);
+        List<List<Integer>> children = new ArrayList<>(polygons.length);
+        List<Integer> roots = new ArrayList<>();
+        for (int i = 0; i < polygons.length; i++) {
+            children.add(new ArrayList<>());
+        }
+        for (int i = 0; i < polygons.length; i++) {
+            (parents[i] < 0 ? roots : children.get(parents[i])).add(i);
+        }
+
+        //Attach top down, so every node gets its type when it is added
+        MultiPolygon root = new MultiPolygon();
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int i : roots) {
+            root.addChild(nodes.get(i));
+            queue.add(i);
+        }
+        while (!queue.isEmpty()) {
+            int parent = queue.poll();
+            for (int i : children.get(parent)) {
+                nodes.get(parent).addChild(nodes.get(i));
+                queue.add(i);
+            }
+        }
+        return root;
+    }
+
+    /**
+     * @return An unmodifiable view of the children, which change through {@link #addChild} and {@link #insertMultiPolygonNode}
+     */
     public List<MultiPolygonNode> getChildren() {
-        return this.children;
+        return Collections.unmodifiableList(this.children);
     }
 
     public void addChild(MultiPolygonNode other) {
         this.children.add(other);
         other.setParent(this);
         other.setType(PolygonType.SHELL);
+        invalidate();
     }
 
     void removeChild(MultiPolygonNode other) {
         this.children.remove(other);
+        invalidate();
     }
 
+    /**
+     * The view is cached until the tree below this multipolygon changes through its methods
+     *
+     * @return A flattened view of all the rings of the multipolygon
+     */
     @Override
-    public String toWKT() {
-        StringJoiner joiner = new StringJoiner(",", "MULTIPOLYGON(", ")");
-
-        for (MultiPolygonNode child : children) {
-            for (String s : child.getWKTPointString()) {
-                joiner.add(s);
-            }
+    public PolygonRings rings() {
+        PolygonRings result = this.rings;
+        if (result == null) {
+            result = PolygonRings.of(this);
+            this.rings = result;
         }
+        return result;
+    }
 
-        return joiner.toString();
+    /**
+     * Drop the cached view of the rings of this multipolygon, nodes also drop the views of the multipolygons containing them
+     */
+    void invalidate() {
+        this.rings = null;
+    }
+
+    @Override
+    public String toWKT() {
+        return WKTWriter.toWKT(this);
     }
 
     @Override
     public Polygon.SimplePolygon[] getShells() {
-        List<Polygon.SimplePolygon> polygons = new ArrayList<>();
-        for (MultiPolygonNode child : children) {
-            polygons.addAll(Arrays.asList(child.getShells()));
-        }
-        return polygons.toArray(new Polygon.SimplePolygon[0]);
+        return rings().getShells();
     }
 
     @Override
     public Polygon.SimplePolygon[] getHoles() {
-        List<Polygon.SimplePolygon> polygons = new ArrayList<>();
-        for (MultiPolygonNode child : children) {
-            polygons.addAll(Arrays.asList(child.getHoles()));
-        }
-        return polygons.toArray(new Polygon.SimplePolygon[0]);
+        return rings().getHoles();
     }
 
     @Override
@@ -196,64 +268,20 @@ public class MultiPolygon implements Polygon {
             for (MultiPolygonNode child : getChildren()) {
                 child.setType(PolygonType.getOther(type));
             }
+            invalidate();
         }
 
         @Override
-        public Polygon.SimplePolygon[] getShells() {
-            List<Polygon.SimplePolygon> polygons = new ArrayList<>();
-
-            if (this.type == PolygonType.SHELL) {
-                polygons.add(this.polygon);
-            }
-
-            for (MultiPolygonNode child : super.children) {
-                polygons.addAll(Arrays.asList(child.getShells()));
+        void invalidate() {
+            super.invalidate();
+            if (parent != null) {
+                parent.invalidate();
             }
-            return polygons.toArray(new Polygon.SimplePolygon[0]);
-        }
-
-        @Override
-        public Polygon.SimplePolygon[] getHoles() {
-            List<Polygon.SimplePolygon> polygons = new ArrayList<>();
-
-            if (this.type == PolygonType.HOLE) {
-                polygons.add(this.polygon);
-            }
-
-            for (MultiPolygonNode child : super.children) {
-                polygons.addAll(Arrays.asList(child.getHoles()));
-            }
-            return polygons.toArray(new Polygon.SimplePolygon[0]);
         }
 
         @Override
         public int dimension() {
             return this.polygon.dimension();
         }
-
-        List<String> getWKTPointString() {
-            List<String> result = new LinkedList<>();
-
-            for (MultiPolygonNode child : this.getChildren()) {
-                result.addAll(child.getWKTPointString());
-            }
-
-            if (this.type == PolygonType.SHELL) {
-                StringJoiner holes = new StringJoiner(",", "", ")");
-                String shell = "(" + this.polygon.toWKTPointString(false);
-
-                if (this.getChildren().size() > 0) {
-                    for (MultiPolygonNode child : this.getChildren()) {
-                        holes.add(child.getPolygon().toWKTPointString(true));
-                    }
-
-                    result.add(shell + ", " + holes.toString());
-                } else {
-                    result.add(shell + ")");
-                }
-            }
-
-            return result;
-        }
     }
 }
@@ -3,7 +3,6 @@ package org.neo4j.spatial.core;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.StringJoiner;
 
 public class MultiPolyline implements HasCRS {
     private List<Polyline> children;
@@ -35,6 +34,21 @@ public class MultiPolyline implements HasCRS {
         return lineSegments.toArray(new LineSegment[0]);
     }
 
+    /**
+     * Visit all segments of the polylines, with the index of the polyline as ring index
+     *
+     * @param visitor the visitor receiving the segments
+     * @return False iff the visitor stopped the visit
+     */
+    public boolean visitSegments(SegmentVisitor visitor) {
+        for (int i = 0; i < children.size(); i++) {
+            if (!SegmentVisitor.visit(children.get(i).getPoints(), false, i, visitor)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Override
     public CRS getCRS() {
         return children.isEmpty() ? CRS.Cartesian : children.get(0).getCRS();
@@ -45,12 +59,6 @@ public class MultiPolyline implements HasCRS {
     }
 
     public String toWKT() {
-        StringJoiner joiner = new StringJoiner(",", "MULTILINESTRING(", ")");
-
-        for (Polyline child : children) {
-            joiner.add(child.toWKTPointString());
-        }
-
-        return joiner.toString();
+        return WKTWriter.toWKT(this);
     }
 }
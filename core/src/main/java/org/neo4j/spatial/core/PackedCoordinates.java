@@ -0,0 +1,158 @@
+package org.neo4j.spatial.core;
+
+import java.nio.DoubleBuffer;
+import java.util.NoSuchElementException;
+
+import static java.lang.String.format;
+
+/**
+ * Two dimensional coordinates stored as consecutive x and y values in a double buffer, which may be a heap array or a
+ * mapped file. Only absolute reads are used, so the position of the buffer does not matter and a single buffer can
+ * be shared by many views and threads.
+ */
+public final class PackedCoordinates {
+    private final DoubleBuffer coordinates;
+    private final int offset;
+    private final int size;
+
+    private PackedCoordinates(DoubleBuffer coordinates, int offset, int size) {
+        if (offset < 0 || size < 0 || offset + 2L * size > coordinates.limit()) {
+            throw new IllegalArgumentException(format("Coordinates %d to %d do not fit in a buffer of %d values", offset, offset + 2L * size, coordinates.limit()));
+        }
+        this.coordinates = coordinates;
+        this.offset = offset;
+        this.size = size;
+    }
+
+    /**
+     * @param xy the x and y values of all points, one after the other
+     */
+    public static PackedCoordinates of(double... xy) {
+        if (xy.length % 2 != 0) {
+            throw new IllegalArgumentException("Packed coordinates need an even number of values, got " + xy.length);
+        }
+        return new PackedCoordinates(DoubleBuffer.wrap(xy), 0, xy.length / 2);
+    }
+
+    /**
+     * @param coordinates the buffer, read without copying
+     * @param offset      the index of the x value of the first point in the buffer
+     * @param size        the number of points
+     */
+    public static PackedCoordinates of(DoubleBuffer coordinates, int offset, int size) {
+        return new PackedCoordinates(coordinates, offset, size);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public double getX(int index) {
+        return coordinates.get(offset + 2 * index);
+    }
+
+    public double getY(int index) {
+        return coordinates.get(offset + 2 * index + 1);
+    }
+
+    public Point getPoint(CRS crs, int index) {
+        return Point.point(crs, getX(index), getY(index));
+    }
+
+    public Point[] toPoints(CRS crs) {
+        Point[] points = new Point[size];
+        for (int i = 0; i < size; i++) {
+            points[i] = getPoint(crs, i);
+        }
+        return points;
+    }
+
+    /**
+     * @return True iff the last point equals the first point
+     */
+    public boolean isClosed() {
+        return size > 1 && getX(0) == getX(size - 1) && getY(0) == getY(size - 1);
+    }
+
+    public Envelope getEnvelope() {
+        if (size == 0) {
+            throw new IllegalArgumentException("Cannot create envelope of no points");
+        }
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < size; i++) {
+            double x = getX(i);
+            double y = getY(i);
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+        }
+        return new Envelope(minX, minY, maxX, maxY);
+    }
+
+    /**
+     * Visit the segments between consecutive points, like {@link SegmentVisitor#visit(Point[], boolean, int, SegmentVisitor)}
+     */
+    public boolean visitSegments(boolean closed, int ringIndex, SegmentVisitor visitor) {
+        if (size < 2) {
+            return true;
+        }
+        double previousX = getX(0);
+        double previousY = getY(0);
+        for (int i = 1; i < size; i++) {
+            double x = getX(i);
+            double y = getY(i);
+            if (!visitor.visit(previousX, previousY, x, y, ringIndex, i - 1)) {
+                return false;
+            }
+            previousX = x;
+            previousY = y;
+        }
+        if (closed && !isClosed()) {
+            return visitor.visit(previousX, previousY, getX(0), getY(0), ringIndex, size - 1);
+        }
+        return true;
+    }
+
+    /**
+     * @return A cursor returning all points from the first to the last
+     */
+    public TraversalCursor openCursor(CRS crs) {
+        return new TraversalCursor() {
+            private int index = 0;
+
+            @Override
+            public boolean hasNext() {
+                return index < size;
+            }
+
+            @Override
+            public Point next() {
+                if (index >= size) {
+                    throw new NoSuchElementException("The traversal is complete");
+                }
+                return getPoint(crs, index++);
+            }
+        };
+    }
+
+    /**
+     * @return A copy of the coordinates with the first point appended, or these coordinates if they already form a closed ring
+     */
+    PackedCoordinates close() {
+        if (isClosed()) {
+            return this;
+        }
+        double[] closed = new double[2 * size + 2];
+        for (int i = 0; i < size; i++) {
+            closed[2 * i] = getX(i);
+            closed[2 * i + 1] = getY(i);
+        }
+        closed[2 * size] = getX(0);
+        closed[2 * size + 1] = getY(0);
+        return of(closed);
+    }
+}
@@ -0,0 +1,111 @@
+package org.neo4j.spatial.core;
+
+import static java.lang.String.format;
+
+/**
+ * Polyline over packed coordinates, creating points only when they are asked for.
+ * Segment visits and plain traversals read the coordinates directly.
+ */
+public class PackedPolyline implements Polyline {
+    private final CRS crs;
+    private final PackedCoordinates coordinates;
+
+    private TraversalCursor cursor;
+
+    public PackedPolyline(CRS crs, PackedCoordinates coordinates) {
+        this.crs = crs;
+        this.coordinates = coordinates;
+        if (this.coordinates.size() < 2) {
+            throw new IllegalArgumentException("Polyline cannot have less than 2 points");
+        }
+    }
+
+    public static PackedPolyline of(CRS crs, double... xy) {
+        return new PackedPolyline(crs, PackedCoordinates.of(xy));
+    }
+
+    public PackedCoordinates getCoordinates() {
+        return coordinates;
+    }
+
+    @Override
+    public CRS getCRS() {
+        return crs;
+    }
+
+    @Override
+    public int dimension() {
+        return 2;
+    }
+
+    @Override
+    public Point[] getPoints() {
+        return coordinates.toPoints(crs);
+    }
+
+    @Override
+    public boolean visitSegments(SegmentVisitor visitor) {
+        return coordinates.visitSegments(false, 0, visitor);
+    }
+
+    @Override
+    public TraversalCursor openCursor() {
+        return coordinates.openCursor(crs);
+    }
+
+    @Override
+    public Point getNextPoint() {
+        if (cursor == null) {
+            startTraversal();
+        }
+        return cursor.next();
+    }
+
+    @Override
+    public void startTraversal(Point startPoint, Point directionPoint) {
+        this.cursor = openCursor(startPoint, directionPoint);
+    }
+
+    @Override
+    public void startTraversal() {
+        this.cursor = openCursor();
+    }
+
+    @Override
+    public boolean fullyTraversed() {
+        return cursor != null && !cursor.hasNext();
+    }
+
+    @Override
+    public String toString() {
+        return format("PackedPolyline%s", toWKT());
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof Polyline)) {
+            return false;
+        }
+        Point[] otherPoints = ((Polyline) other).getPoints();
+        if (otherPoints.length != coordinates.size()) {
+            return false;
+        }
+        for (int i = 0; i < otherPoints.length; i++) {
+            double[] coordinate = otherPoints[i].getCoordinate();
+            if (coordinate[0] != coordinates.getX(i) || coordinate[1] != coordinates.getY(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = crs.hashCode();
+        for (int i = 0; i < coordinates.size(); i++) {
+            result = 31 * result + Double.hashCode(coordinates.getX(i));
+            result = 31 * result + Double.hashCode(coordinates.getY(i));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,116 @@
+package org.neo4j.spatial.core;
+
+import static java.lang.String.format;
+
+/**
+ * Simple polygon over packed coordinates, creating points only when they are asked for.
+ * Segment visits and plain traversals read the coordinates directly.
+ */
+public class PackedSimplePolygon implements Polygon.SimplePolygon {
+    private final CRS crs;
+    private final PackedCoordinates coordinates;
+
+    private TraversalCursor cursor;
+    private Boolean convex;
+
+    /**
+     * @param crs         the coordinate reference system of the coordinates
+     * @param coordinates the coordinates of the ring, which is closed by a copy if the last point differs from the first
+     */
+    public PackedSimplePolygon(CRS crs, PackedCoordinates coordinates) {
+        this.crs = crs;
+        this.coordinates = coordinates.close();
+        if (this.coordinates.size() < 4) {
+            throw new IllegalArgumentException("Polygon cannot have less than 4 points");
+        }
+    }
+
+    public static PackedSimplePolygon of(CRS crs, double... xy) {
+        return new PackedSimplePolygon(crs, PackedCoordinates.of(xy));
+    }
+
+    public PackedCoordinates getCoordinates() {
+        return coordinates;
+    }
+
+    @Override
+    public CRS getCRS() {
+        return crs;
+    }
+
+    @Override
+    public int dimension() {
+        return 2;
+    }
+
+    @Override
+    public Point[] getPoints() {
+        return coordinates.toPoints(crs);
+    }
+
+    @Override
+    public boolean visitSegments(SegmentVisitor visitor) {
+        return coordinates.visitSegments(true, 0, visitor);
+    }
+
+    @Override
+    public TraversalCursor openCursor() {
+        return coordinates.openCursor(crs);
+    }
+
+    @Override
+    public Point getNextPoint() {
+        if (cursor == null) {
+            startTraversal();
+        }
+        return cursor.next();
+    }
+
+    @Override
+    public void startTraversal(Point startPoint, Point directionPoint) {
+        this.cursor = openCursor(startPoint, directionPoint);
+    }
+
+    @Override
+    public void startTraversal() {
+        this.cursor = openCursor();
+    }
+
+    @Override
+    public boolean fullyTraversed() {
+        return cursor != null && !cursor.hasNext();
+    }
+
+    @Override
+    public boolean isSimple() {
+        return true;
+    }
+
+    @Override
+    public boolean isConvex() {
+        if (convex == null) {
+            convex = PolygonUtil.isConvex(this);
+        }
+        return convex;
+    }
+
+    @Override
+    public String toString() {
+        return format("PackedSimplePolygon%s", toWKT());
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof SimplePolygon && SimplePolygon.areEqual(this, (SimplePolygon) other);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = crs.hashCode();
+        for (int i = 0; i < coordinates.size(); i++) {
+            result = 31 * result + Double.hashCode(coordinates.getX(i));
+            result = 31 * result + Double.hashCode(coordinates.getY(i));
+        }
+        return result;
+    }
+}
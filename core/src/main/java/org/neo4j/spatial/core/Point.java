@@ -70,7 +70,7 @@ public interface Point extends HasCRS {
     }
 
     default String toWKT() {
-        return "POINT(" + getCoordinate()[0] + " " + getCoordinate()[1] + ")";
+        return WKTWriter.toWKT(this);
     }
 
     default String toLatLon() {
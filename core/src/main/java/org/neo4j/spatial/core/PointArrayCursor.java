@@ -0,0 +1,113 @@
+package org.neo4j.spatial.core;
+
+import org.neo4j.spatial.algo.cartesian.CartesianUtil;
+import org.neo4j.spatial.algo.wgs84.WGSUtil;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Cursor over an array of points, used by the in-memory geometries and as default for all other geometries
+ */
+public final class PointArrayCursor implements TraversalCursor {
+    private final Point[] points;
+    private final int length;
+    private final int start;
+    private final int direction;
+    private final int count;
+    private int returned;
+
+    private PointArrayCursor(Point[] points, int length, int start, int direction, int count) {
+        this.points = points;
+        this.length = length;
+        this.start = start;
+        this.direction = direction;
+        this.count = count;
+        this.returned = 0;
+    }
+
+    /**
+     * Traverse a closed ring from its first point, returning that point again at the end
+     *
+     * @param points the points of the ring, where the last point equals the first
+     */
+    public static PointArrayCursor ring(Point[] points) {
+        return new PointArrayCursor(points, points.length - 1, 0, 1, points.length);
+    }
+
+    /**
+     * Traverse a closed ring from the point closest to the start point, towards the neighbour closest to the direction
+     * point, returning the start point again at the end
+     *
+     * @param points the points of the ring, where the last point equals the first
+     */
+    public static PointArrayCursor ring(Point[] points, Point startPoint, Point directionPoint) {
+        int length = points.length - 1;
+        int start = closest(points, startPoint);
+
+        double forwardDistance = distance(directionPoint, points[(start + 1) % length]);
+        double backwardDistance = distance(directionPoint, points[((start - 1) % length + length) % length]);
+        int direction = forwardDistance < backwardDistance ? 1 : -1;
+
+        return new PointArrayCursor(points, length, start % length, direction, points.length);
+    }
+
+    /**
+     * Traverse a polyline from its first point to its last point
+     */
+    public static PointArrayCursor polyline(Point[] points) {
+        return new PointArrayCursor(points, points.length, 0, 1, points.length);
+    }
+
+    /**
+     * Traverse a polyline from the point closest to the start point, towards the end of the polyline at the side of the
+     * neighbour closest to the direction point
+     */
+    public static PointArrayCursor polyline(Point[] points, Point startPoint, Point directionPoint) {
+        int start = closest(points, startPoint);
+
+        double forwardDistance = start + 1 < points.length ? distance(directionPoint, points[start + 1]) : Double.MAX_VALUE;
+        double backwardDistance = start - 1 >= 0 ? distance(directionPoint, points[start - 1]) : Double.MAX_VALUE;
+        int direction = forwardDistance < backwardDistance ? 1 : -1;
+
+        int count = direction == 1 ? points.length - start : start + 1;
+        return new PointArrayCursor(points, points.length, start, direction, count);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return returned < count;
+    }
+
+    @Override
+    public Point next() {
+        if (returned >= count) {
+            throw new NoSuchElementException("The traversal is complete");
+        }
+        int index = ((start + direction * returned) % length + length) % length;
+        returned++;
+        return points[index];
+    }
+
+    private static int closest(Point[] points, Point point) {
+        double minDistance = Double.MAX_VALUE;
+        int minIdx = 0;
+        for (int i = 0; i < points.length; i++) {
+            double currentDistance = distance(point, points[i]);
+            if (currentDistance < minDistance) {
+                minDistance = currentDistance;
+                minIdx = i;
+            }
+        }
+        return minIdx;
+    }
+
+    private static double distance(Point start, Point point) {
+        if (start.getCRS() == CRS.Cartesian) {
+            return CartesianUtil.distance(start.getCoordinate(), point.getCoordinate());
+        } else {
+            Vector u = new Vector(start);
+            Vector v = new Vector(point);
+            return WGSUtil.distance(u, v);
+        }
+    }
+}
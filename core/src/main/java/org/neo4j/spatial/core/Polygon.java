@@ -1,15 +1,10 @@
 package org.neo4j.spatial.core;
 
-import org.neo4j.spatial.algo.CCW;
-import org.neo4j.spatial.algo.CCWCalculator;
-import org.neo4j.spatial.algo.cartesian.CartesianUtil;
-import org.neo4j.spatial.algo.wgs84.WGSUtil;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import java.util.StringJoiner;
 
 import static java.lang.String.format;
 
@@ -43,16 +38,36 @@ public interface Polygon extends HasCRS {
      */
     default LineSegment[] toLineSegments() {
         List<LineSegment> lineSegments = new ArrayList<>();
-        for (SimplePolygon shell : this.getShells()) {
-            Collections.addAll(lineSegments, shell.toLineSegments());
-        }
-        for (SimplePolygon hole : this.getHoles()) {
-            Collections.addAll(lineSegments, hole.toLineSegments());
+        for (SimplePolygon ring : this.rings().getShellsAndHoles()) {
+            Collections.addAll(lineSegments, ring.toLineSegments());
         }
 
         return lineSegments.toArray(new LineSegment[0]);
     }
 
+    /**
+     * Visit all segments of the polygon, ring by ring in the order of {@link #rings()}, with the index of the ring in that view
+     *
+     * @param visitor the visitor receiving the segments
+     * @return False iff the visitor stopped the visit
+     */
+    default boolean visitSegments(SegmentVisitor visitor) {
+        PolygonRings rings = this.rings();
+        for (int i = 0; i < rings.size(); i++) {
+            if (!SegmentVisitor.visit(rings.getRing(i).getPoints(), true, i, visitor)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return A flattened view of all the rings of the polygon
+     */
+    default PolygonRings rings() {
+        return PolygonRings.of(getShells(), getHoles());
+    }
+
     SimplePolygon[] getShells();
 
     SimplePolygon[] getHoles();
@@ -116,14 +131,21 @@ public interface Polygon extends HasCRS {
 
         Point[] getPoints();
 
+        /**
+         * @return True iff the ring is convex in the plane of its coordinates, see {@link PolygonUtil#isConvex(SimplePolygon)}
+         */
+        default boolean isConvex() {
+            return PolygonUtil.isConvex(this);
+        }
+
         @Override
         default LineSegment[] toLineSegments() {
             List<LineSegment> lineSegments = new ArrayList<>();
 
-            startTraversal();
-            Point previous = getNextPoint();
-            while (!fullyTraversed()) {
-                Point current = getNextPoint();
+            TraversalCursor cursor = openCursor();
+            Point previous = cursor.next();
+            while (cursor.hasNext()) {
+                Point current = cursor.next();
 
                 lineSegments.add(LineSegment.lineSegment(previous, current));
                 previous = current;
@@ -136,11 +158,35 @@ public interface Polygon extends HasCRS {
             return new SimplePolygon[]{this};
         }
 
+        @Override
+        default PolygonRings rings() {
+            return PolygonRings.of(new SimplePolygon[]{this}, new SimplePolygon[0]);
+        }
+
         @Override
         default SimplePolygon[] getHoles() {
             return new SimplePolygon[0];
         }
 
+        /**
+         * Open a cursor traversing the ring from its first point, returning that point again at the end
+         *
+         * @return A new cursor, independent of any other traversal of this polygon
+         */
+        default TraversalCursor openCursor() {
+            return PointArrayCursor.ring(getPoints());
+        }
+
+        /**
+         * Open a cursor traversing the ring from the point closest to the start point, in the direction of the
+         * neighbour closest to the direction point, returning the start point again at the end
+         *
+         * @return A new cursor, independent of any other traversal of this polygon
+         */
+        default TraversalCursor openCursor(Point startPoint, Point directionPoint) {
+            return PointArrayCursor.ring(getPoints(), startPoint, directionPoint);
+        }
+
         Point getNextPoint();
 
         void startTraversal(Point startPoint, Point directionPoint);
@@ -151,40 +197,7 @@ public interface Polygon extends HasCRS {
 
         @Override
         default String toWKT() {
-            return "POLYGON(" + toWKTPointString(false) + ")";
-        }
-
-        /**
-         * @param hole True if the polygon represents a hole
-         * @return Produces a WKT-representation of the polygon without the suffix and in the correct order
-         */
-        default String toWKTPointString(boolean hole) {
-            Point[] points = getPoints();
-            CCW calculator = CCWCalculator.getCalculator(points);
-            StringJoiner joiner = new StringJoiner(",", "(", ")");
-            if (hole) {
-                if (calculator.isCCW(this)) {
-                    for (int i = 0; i < points.length; i++) {
-                        joiner.add(points[i].getCoordinate()[0] + " " + points[i].getCoordinate()[1]);
-                    }
-                } else {
-                    for (int i = points.length - 1; i >= 0; i--) {
-                        joiner.add(points[i].getCoordinate()[0] + " " + points[i].getCoordinate()[1]);
-                    }
-                }
-            } else {
-                if (calculator.isCCW(this)) {
-                    for (int i = points.length - 1; i >= 0; i--) {
-                        joiner.add(points[i].getCoordinate()[0] + " " + points[i].getCoordinate()[1]);
-                    }
-                } else {
-                    for (int i = 0; i < points.length; i++) {
-                        joiner.add(points[i].getCoordinate()[0] + " " + points[i].getCoordinate()[1]);
-                    }
-                }
-            }
-
-            return joiner.toString();
+            return WKTWriter.toWKT(this);
         }
     }
 
@@ -192,10 +205,8 @@ public interface Polygon extends HasCRS {
         private Point[] points;
         private CRS crs;
 
-        private int pointer;
-        private int start;
-        private int direction;
-        private boolean traversing;
+        private TraversalCursor cursor;
+        private Boolean convex;
 
         private InMemorySimplePolygon(Point... points) {
             this.points = PolygonUtil.closeRing(points);
@@ -204,71 +215,39 @@ public interface Polygon extends HasCRS {
             }
             Polygon.assertAllSameDimension(this.points);
             crs = Polygon.assertAllSameCRS(this.points);
-            this.pointer = 0;
-            this.start = 0;
-            this.traversing = false;
         }
 
         @Override
-        public Point getNextPoint() {
-            if (pointer == start ) {
-                this.traversing = true;
-            }
-            pointer = nextIndex(pointer, direction);
-            return points[pointer];
+        public TraversalCursor openCursor() {
+            return PointArrayCursor.ring(points);
         }
 
-        private int nextIndex(int idx, int direction) {
-            return ((idx + direction) % (points.length - 1) + (points.length - 1)) % (points.length - 1);
+        @Override
+        public TraversalCursor openCursor(Point startPoint, Point directionPoint) {
+            return PointArrayCursor.ring(points, startPoint, directionPoint);
         }
 
         @Override
-        public void startTraversal(Point startPoint, Point directionPoint) {
-            this.traversing = false;
-            double minDistance = Double.MAX_VALUE;
-            int minIdx = 0;
-            for (int i = 0; i < this.points.length; i++) {
-                double currentDistance = distance(startPoint, points[i]);
-                if (currentDistance < minDistance) {
-                    minDistance = currentDistance;
-                    minIdx = i;
-                }
-            }
-
-            this.start = minIdx;
-
-            double forwardDistance = distance(directionPoint, points[(minIdx + 1) % (points.length - 1)]);
-            int backwardsIdx = nextIndex(minIdx, -1);
-            double backwardDistance = distance(directionPoint, points[backwardsIdx]);
-            if (forwardDistance < backwardDistance) {
-                this.direction = 1;
-            } else {
-                this.direction = -1;
+        public Point getNextPoint() {
+            if (cursor == null) {
+                startTraversal();
             }
-            this.pointer = nextIndex(minIdx, -direction);
+            return cursor.next();
         }
 
-        private double distance(Point start, Point point) {
-            if (start.getCRS() == CRS.Cartesian) {
-                return CartesianUtil.distance(start.getCoordinate(), point.getCoordinate());
-            } else {
-                Vector u = new Vector(start);
-                Vector v = new Vector(point);
-                return WGSUtil.distance(u, v);
-            }
+        @Override
+        public void startTraversal(Point startPoint, Point directionPoint) {
+            this.cursor = openCursor(startPoint, directionPoint);
         }
 
         @Override
         public void startTraversal() {
-            this.traversing = false;
-            this.start = 0;
-            this.pointer = -1;
-            this.direction = 1;
+            this.cursor = openCursor();
         }
 
         @Override
         public boolean fullyTraversed() {
-            return pointer == start && this.traversing;
+            return cursor != null && !cursor.hasNext();
         }
 
         @Override
@@ -291,6 +270,17 @@ public interface Polygon extends HasCRS {
             return true;
         }
 
+        /**
+         * The points never change, so the convexity is only computed once
+         */
+        @Override
+        public boolean isConvex() {
+            if (convex == null) {
+                convex = PolygonUtil.isConvex(this);
+            }
+            return convex;
+        }
+
         @Override
         public String toString() {
             return format("InMemorySimplePolygon%s", Arrays.toString(points));
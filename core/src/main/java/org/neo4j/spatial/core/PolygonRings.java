@@ -0,0 +1,179 @@
+package org.neo4j.spatial.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable flattened view of all the rings of a polygon.
+ * The rings are stored in pre-order, so the rings inside a ring directly follow it and end at its subtree end.
+ * A ring which does not contain a point therefore allows skipping all the rings inside it.
+ */
+public final class PolygonRings {
+    private final Polygon.SimplePolygon[] rings;
+    private final boolean[] shell;
+    private final int[] depth;
+    private final int[] parent;
+    private final int[] subtreeEnd;
+    private final int shellCount;
+
+    private PolygonRings(Polygon.SimplePolygon[] rings, boolean[] shell, int[] depth, int[] parent, int[] subtreeEnd) {
+        this.rings = rings;
+        this.shell = shell;
+        this.depth = depth;
+        this.parent = parent;
+        this.subtreeEnd = subtreeEnd;
+        int shells = 0;
+        for (boolean s : shell) {
+            if (s) {
+                shells++;
+            }
+        }
+        this.shellCount = shells;
+    }
+
+    /**
+     * Create a view without nesting information, every ring being a root ring
+     */
+    public static PolygonRings of(Polygon.SimplePolygon[] shells, Polygon.SimplePolygon[] holes) {
+        int n = shells.length + holes.length;
+        Polygon.SimplePolygon[] rings = new Polygon.SimplePolygon[n];
+        boolean[] shell = new boolean[n];
+        int[] depth = new int[n];
+        int[] parent = new int[n];
+        int[] subtreeEnd = new int[n];
+        for (int i = 0; i < n; i++) {
+            rings[i] = i < shells.length ? shells[i] : holes[i - shells.length];
+            shell[i] = i < shells.length;
+            parent[i] = -1;
+            subtreeEnd[i] = i + 1;
+        }
+        return new PolygonRings(rings, shell, depth, parent, subtreeEnd);
+    }
+
+    /**
+     * Create the view of a multipolygon, including the nesting of its rings
+     */
+    static PolygonRings of(MultiPolygon polygon) {
+        Builder builder = new Builder();
+        if (polygon instanceof MultiPolygon.MultiPolygonNode) {
+            builder.add((MultiPolygon.MultiPolygonNode) polygon, 0, -1);
+        } else {
+            for (MultiPolygon.MultiPolygonNode child : polygon.getChildren()) {
+                builder.add(child, 0, -1);
+            }
+        }
+        return builder.build();
+    }
+
+    public int size() {
+        return rings.length;
+    }
+
+    public Polygon.SimplePolygon getRing(int index) {
+        return rings[index];
+    }
+
+    public boolean isShell(int index) {
+        return shell[index];
+    }
+
+    public int getDepth(int index) {
+        return depth[index];
+    }
+
+    /**
+     * @return The index of the ring directly containing the given ring, or -1 if it is a root ring
+     */
+    public int getParent(int index) {
+        return parent[index];
+    }
+
+    /**
+     * @return The index after the last ring inside the given ring
+     */
+    public int getSubtreeEnd(int index) {
+        return subtreeEnd[index];
+    }
+
+    public int getShellCount() {
+        return shellCount;
+    }
+
+    public int getHoleCount() {
+        return rings.length - shellCount;
+    }
+
+    public Polygon.SimplePolygon[] getShells() {
+        return filter(true);
+    }
+
+    public Polygon.SimplePolygon[] getHoles() {
+        return filter(false);
+    }
+
+    /**
+     * @return All the shells followed by all the holes
+     */
+    public Polygon.SimplePolygon[] getShellsAndHoles() {
+        Polygon.SimplePolygon[] result = new Polygon.SimplePolygon[rings.length];
+        int index = 0;
+        for (int i = 0; i < rings.length; i++) {
+            if (shell[i]) {
+                result[index++] = rings[i];
+            }
+        }
+        for (int i = 0; i < rings.length; i++) {
+            if (!shell[i]) {
+                result[index++] = rings[i];
+            }
+        }
+        return result;
+    }
+
+    private Polygon.SimplePolygon[] filter(boolean shells) {
+        Polygon.SimplePolygon[] result = new Polygon.SimplePolygon[shells ? shellCount : rings.length - shellCount];
+        int index = 0;
+        for (int i = 0; i < rings.length; i++) {
+            if (shell[i] == shells) {
+                result[index++] = rings[i];
+            }
+        }
+        return result;
+    }
+
+    private static class Builder {
+        private final List<Polygon.SimplePolygon> rings = new ArrayList<>();
+        private final List<Boolean> shell = new ArrayList<>();
+        private final List<Integer> depth = new ArrayList<>();
+        private final List<Integer> parent = new ArrayList<>();
+        private final List<Integer> subtreeEnd = new ArrayList<>();
+
+        private void add(MultiPolygon.MultiPolygonNode node, int nodeDepth, int nodeParent) {
+            int index = rings.size();
+            rings.add(node.getPolygon());
+            shell.add(node.getType() != MultiPolygon.PolygonType.HOLE);
+            depth.add(nodeDepth);
+            parent.add(nodeParent);
+            subtreeEnd.add(-1);
+            for (MultiPolygon.MultiPolygonNode child : node.getChildren()) {
+                add(child, nodeDepth + 1, index);
+            }
+            subtreeEnd.set(index, rings.size());
+        }
+
+        private PolygonRings build() {
+            int n = rings.size();
+            boolean[] shells = new boolean[n];
+            int[] depths = new int[n];
+            int[] parents = new int[n];
+            int[] ends = new int[n];
+            for (int i = 0; i < n; i++) {
+                shells[i] = shell.get(i);
+                depths[i] = depth.get(i);
+                parents[i] = parent.get(i);
+                ends[i] = subtreeEnd.get(i);
+            }
+            return new PolygonRings(rings.toArray(new Polygon.SimplePolygon[0]), shells, depths, parents, ends);
+        }
+    }
+}
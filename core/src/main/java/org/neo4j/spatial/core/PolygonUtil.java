@@ -24,4 +24,63 @@ public class PolygonUtil {
         Point[] copy = Arrays.copyOf(points, points.length - 1);
         return copy;
     }
+
+    /**
+     * A ring is convex in the plane of its coordinates if it turns the same way at every vertex, ignoring repeated
+     * points and straight angles, and turns around only once
+     *
+     * @return True iff the ring of the polygon is convex
+     */
+    public static boolean isConvex(Polygon.SimplePolygon polygon) {
+        ConvexityVisitor visitor = new ConvexityVisitor();
+        return polygon.visitSegments(visitor) && visitor.closeRing();
+    }
+
+    private static class ConvexityVisitor implements SegmentVisitor {
+        private double firstDx, firstDy;
+        private double previousDx, previousDy;
+        private boolean started;
+        private int sign;
+        private double turning;
+
+        @Override
+        public boolean visit(double x1, double y1, double x2, double y2, int ringIndex, int segmentIndex) {
+            double dx = x2 - x1;
+            double dy = y2 - y1;
+            if (dx == 0 && dy == 0) {
+                return true;
+            }
+            if (!started) {
+                firstDx = dx;
+                firstDy = dy;
+                started = true;
+            } else if (!turn(dx, dy)) {
+                return false;
+            }
+            previousDx = dx;
+            previousDy = dy;
+            return true;
+        }
+
+        private boolean turn(double dx, double dy) {
+            double cross = previousDx * dy - previousDy * dx;
+            double dot = previousDx * dx + previousDy * dy;
+            if (cross != 0) {
+                int turnSign = cross > 0 ? 1 : -1;
+                if (sign != 0 && sign != turnSign) {
+                    return false;
+                }
+                sign = turnSign;
+            } else if (dot < 0) {
+                //Turning back along the same line
+                return false;
+            }
+            turning += Math.atan2(cross, dot);
+            return true;
+        }
+
+        private boolean closeRing() {
+            return started && sign != 0 && turn(firstDx, firstDy) && Math.abs(Math.abs(turning) - 2 * Math.PI) < 1e-6;
+        }
+    }
 }
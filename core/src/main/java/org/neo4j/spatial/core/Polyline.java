@@ -1,12 +1,9 @@
 package org.neo4j.spatial.core;
 
-import org.neo4j.spatial.algo.cartesian.CartesianUtil;
-import org.neo4j.spatial.algo.wgs84.WGSUtil;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.StringJoiner;
 
 import static java.lang.String.format;
 
@@ -41,10 +38,10 @@ public interface Polyline extends HasCRS {
     default LineSegment[] toLineSegments() {
         List<LineSegment> lineSegments = new ArrayList<>();
 
-        startTraversal();
-        Point previous = getNextPoint();
-        while (!fullyTraversed()) {
-            Point current = getNextPoint();
+        TraversalCursor cursor = openCursor();
+        Point previous = cursor.next();
+        while (cursor.hasNext()) {
+            Point current = cursor.next();
 
             lineSegments.add(LineSegment.lineSegment(previous, current));
             previous = current;
@@ -52,8 +49,37 @@ public interface Polyline extends HasCRS {
         return lineSegments.toArray(new LineSegment[0]);
     }
 
+    /**
+     * Visit all segments of the polyline, with ring index 0
+     *
+     * @param visitor the visitor receiving the segments
+     * @return False iff the visitor stopped the visit
+     */
+    default boolean visitSegments(SegmentVisitor visitor) {
+        return SegmentVisitor.visit(getPoints(), false, 0, visitor);
+    }
+
     Point[] getPoints();
 
+    /**
+     * Open a cursor traversing the polyline from its first point to its last point
+     *
+     * @return A new cursor, independent of any other traversal of this polyline
+     */
+    default TraversalCursor openCursor() {
+        return PointArrayCursor.polyline(getPoints());
+    }
+
+    /**
+     * Open a cursor traversing the polyline from the point closest to the start point, towards the end of the
+     * polyline at the side of the neighbour closest to the direction point
+     *
+     * @return A new cursor, independent of any other traversal of this polyline
+     */
+    default TraversalCursor openCursor(Point startPoint, Point directionPoint) {
+        return PointArrayCursor.polyline(getPoints(), startPoint, directionPoint);
+    }
+
     Point getNextPoint();
 
     void startTraversal(Point startPoint, Point directionPoint);
@@ -68,28 +94,14 @@ public interface Polyline extends HasCRS {
      * @return The WKT string describing the polygon
      */
     default String toWKT() {
-        return "LINESTRING(" + toWKTPointString() + ")";
-    }
-
-    /**
-     * @return Produces a WKT-representation of the polygon without the suffix and in the correct order
-     */
-    default String toWKTPointString() {
-        Point[] points = getPoints();
-        StringJoiner joiner = new StringJoiner(",", "(", ")");
-        for (int i = 0; i < points.length; i++) {
-            joiner.add(points[i].getCoordinate()[0] + " " + points[i].getCoordinate()[1]);
-        }
-
-        return joiner.toString();
+        return WKTWriter.toWKT(this);
     }
     class InMemoryPolyline implements Polyline {
         private Point[] points;
-        private int pointer;
-        private int direction;
-        private boolean traversing;
         private CRS crs;
 
+        private TraversalCursor cursor;
+
         private InMemoryPolyline(Point... points) {
             this.points = points;
             if (this.points.length < 2) {
@@ -115,70 +127,38 @@ public interface Polyline extends HasCRS {
         }
 
         @Override
-        public Point getNextPoint() {
-            this.traversing = true;
-            Point point = points[pointer];
-            pointer = pointer + direction;
-            return point;
+        public TraversalCursor openCursor() {
+            return PointArrayCursor.polyline(points);
         }
 
         @Override
-        public void startTraversal(Point startPoint, Point directionPoint) {
-            this.traversing = false;
-            double minDistance = Double.MAX_VALUE;
-            int minIdx = 0;
-            for (int i = 0; i < this.points.length; i++) {
-                double currentDistance = distance(startPoint, points[i]);
-                if (currentDistance < minDistance) {
-                    minDistance = currentDistance;
-                    minIdx = i;
-                }
-            }
-
-            this.pointer = minIdx;
-
-            int forwardIdx = minIdx + 1;
-            int backwardsIdx = minIdx - 1;
-            double forwardDistance = Double.MAX_VALUE;
-            double backwardDistance = Double.MAX_VALUE;
-
-            if (forwardIdx < points.length) {
-                forwardDistance = distance(directionPoint, points[forwardIdx]);
-            }
+        public TraversalCursor openCursor(Point startPoint, Point directionPoint) {
+            return PointArrayCursor.polyline(points, startPoint, directionPoint);
+        }
 
-            if (backwardsIdx >= 0) {
-                backwardDistance = distance(directionPoint, points[backwardsIdx]);
-            }
-            if (forwardDistance < backwardDistance) {
-                this.direction = 1;
-            } else {
-                this.direction = -1;
+        @Override
+        public Point getNextPoint() {
+            if (cursor == null) {
+                startTraversal();
             }
+            return cursor.next();
         }
 
-        private double distance(Point start, Point point) {
-            if (start.getCRS() == CRS.Cartesian) {
-                return CartesianUtil.distance(start.getCoordinate(), point.getCoordinate());
-            } else {
-                Vector u = new Vector(start);
-                Vector v = new Vector(point);
-                return WGSUtil.distance(u, v);
-            }
+        @Override
+        public void startTraversal(Point startPoint, Point directionPoint) {
+            this.cursor = openCursor(startPoint, directionPoint);
         }
 
         @Override
         public void startTraversal() {
-            this.traversing = false;
-            this.pointer = 0;
-            this.direction = 1;
+            this.cursor = openCursor();
         }
 
         @Override
         public boolean fullyTraversed() {
-            return (pointer < 0 || pointer >= points.length) && this.traversing;
+            return cursor != null && !cursor.hasNext();
         }
 
-
         @Override
         public String toString() {
             return format("InMemoryPolyline%s", Arrays.toString(points));
@@ -0,0 +1,227 @@
+package org.neo4j.spatial.core;
+
+import org.neo4j.spatial.algo.WithinCalculator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Finds the nesting of many non-crossing rings at once.
+ * The rings are placed from the largest envelope to the smallest, so every ring containing another ring is placed first.
+ * The candidate parents of a ring are the earlier rings whose envelope contains its envelope, found through a packed
+ * envelope tree, and only those are tested for containment of a single interior point of the ring.
+ */
+class RingNester {
+    private static final Envelope WORLD = new Envelope(-180, -90, 180, 90);
+
+    private final Polygon.SimplePolygon[] rings;
+    private final Envelope[] envelopes;
+    private final int[] rank;
+
+    private RingNester(Polygon.SimplePolygon[] rings) {
+        this.rings = rings;
+        this.envelopes = new Envelope[rings.length];
+        this.rank = new int[rings.length];
+    }
+
+    /**
+     * @param rings the rings, all in the same coordinate reference system
+     * @return For each ring the index of the smallest ring containing it, or -1 if no ring contains it
+     */
+    static int[] parents(Polygon.SimplePolygon[] rings) {
+        return new RingNester(rings).nest();
+    }
+
+    private int[] nest() {
+        int n = rings.length;
+        double[] areas = new double[n];
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            Point[] points = rings[i].getPoints();
+            envelopes[i] = envelope(rings[i].getCRS(), points);
+            areas[i] = Math.abs(planarArea(points));
+            order[i] = i;
+        }
+
+        //A ring containing another ring has an envelope at least as large, ties are decided by the area of the ring itself
+        Arrays.sort(order, Comparator.<Integer>comparingDouble(i -> -envelopes[i].getArea()).thenComparingDouble(i -> -areas[i]).thenComparingInt(i -> i));
+        for (int i = 0; i < n; i++) {
+            rank[order[i]] = i;
+        }
+
+        EnvelopeTree tree = new EnvelopeTree(envelopes);
+        int[] parents = new int[n];
+        List<Integer> candidates = new ArrayList<>();
+        for (int r : order) {
+            parents[r] = -1;
+
+            candidates.clear();
+            tree.containing(envelopes[r], candidates);
+            candidates.removeIf(c -> rank[c] >= rank[r]);
+            if (candidates.isEmpty()) {
+                continue;
+            }
+
+            //The containing rings form a chain, the smallest one is the direct parent
+            candidates.sort(Comparator.comparingInt(c -> -rank[c]));
+            Point inside = interiorPoint(rings[r], envelopes[r]);
+            for (int c : candidates) {
+                if (WithinCalculator.within(rings[c], inside)) {
+                    parents[r] = c;
+                    break;
+                }
+            }
+        }
+        return parents;
+    }
+
+    private static Envelope envelope(CRS crs, Point[] points) {
+        Envelope envelope = Envelope.of(points);
+        //Rings crossing the antimeridian or enclosing a pole have no meaningful envelope in longitude and latitude
+        if (crs == CRS.WGS84 && envelope.getWidth() > 180) {
+            return WORLD;
+        }
+        return envelope;
+    }
+
+    private static double planarArea(Point[] points) {
+        double area = 0;
+        for (int i = 0, j = points.length - 1; i < points.length; j = i++) {
+            double[] a = points[j].getCoordinate();
+            double[] b = points[i].getCoordinate();
+            area += a[0] * b[1] - b[0] * a[1];
+        }
+        return area / 2;
+    }
+
+    /**
+     * Find a point strictly inside the ring, away from its vertices. A horizontal line is laid through the middle of the
+     * ring, avoiding the height of any vertex, and the point is the middle of the widest interval of that line inside the ring.
+     * Points shared between rings, like touching vertices, thereby do not decide the nesting.
+     */
+    static Point interiorPoint(Polygon.SimplePolygon ring, Envelope envelope) {
+        Point[] points = ring.getPoints();
+        if (envelope == WORLD) {
+            return points[0];
+        }
+
+        double middle = (envelope.getMinY() + envelope.getMaxY()) / 2;
+        double below = Double.NEGATIVE_INFINITY;
+        double above = Double.POSITIVE_INFINITY;
+        for (Point point : points) {
+            double y = point.getCoordinate()[1];
+            if (y <= middle) {
+                below = Math.max(below, y);
+            } else {
+                above = Math.min(above, y);
+            }
+        }
+        if (below == Double.NEGATIVE_INFINITY || above == Double.POSITIVE_INFINITY) {
+            return points[0];
+        }
+        double y = (below + above) / 2;
+
+        double[] crossings = new double[points.length];
+        int count = 0;
+        for (int i = 0, j = points.length - 1; i < points.length; j = i++) {
+            double[] a = points[j].getCoordinate();
+            double[] b = points[i].getCoordinate();
+            if ((a[1] > y) != (b[1] > y)) {
+                crossings[count++] = a[0] + (y - a[1]) * (b[0] - a[0]) / (b[1] - a[1]);
+            }
+        }
+        Arrays.sort(crossings, 0, count);
+
+        double bestWidth = -1;
+        double x = points[0].getCoordinate()[0];
+        for (int i = 0; i + 1 < count; i += 2) {
+            double width = crossings[i + 1] - crossings[i];
+            if (width > bestWidth) {
+                bestWidth = width;
+                x = (crossings[i] + crossings[i + 1]) / 2;
+            }
+        }
+        if (bestWidth <= 0) {
+            return points[0];
+        }
+        return Point.point(ring.getCRS(), x, y);
+    }
+
+    /**
+     * Static R-tree over envelopes, packed with the Sort-Tile-Recursive algorithm
+     */
+    static class EnvelopeTree {
+        private static final int NODE_CAPACITY = 16;
+
+        private final Node root;
+
+        EnvelopeTree(Envelope[] envelopes) {
+            List<Node> level = new ArrayList<>(envelopes.length);
+            for (int i = 0; i < envelopes.length; i++) {
+                level.add(new Node(envelopes[i], i, null));
+            }
+            while (level.size() > 1) {
+                level = pack(level);
+            }
+            this.root = level.isEmpty() ? null : level.get(0);
+        }
+
+        private static List<Node> pack(List<Node> nodes) {
+            int parentCount = (nodes.size() + NODE_CAPACITY - 1) / NODE_CAPACITY;
+            int slices = (int) Math.ceil(Math.sqrt(parentCount));
+            int sliceSize = slices * NODE_CAPACITY;
+
+            nodes.sort(Comparator.comparingDouble(node -> node.bounds.getMinX() + node.bounds.getMaxX()));
+            List<Node> parents = new ArrayList<>(parentCount);
+            for (int s = 0; s < nodes.size(); s += sliceSize) {
+                List<Node> slice = new ArrayList<>(nodes.subList(s, Math.min(s + sliceSize, nodes.size())));
+                slice.sort(Comparator.comparingDouble(node -> node.bounds.getMinY() + node.bounds.getMaxY()));
+                for (int i = 0; i < slice.size(); i += NODE_CAPACITY) {
+                    Node[] children = slice.subList(i, Math.min(i + NODE_CAPACITY, slice.size())).toArray(new Node[0]);
+                    Envelope bounds = children[0].bounds;
+                    for (Node child : children) {
+                        bounds = bounds.expandToInclude(child.bounds);
+                    }
+                    parents.add(new Node(bounds, -1, children));
+                }
+            }
+            return parents;
+        }
+
+        /**
+         * Add the indices of all envelopes containing the given envelope
+         */
+        void containing(Envelope envelope, List<Integer> result) {
+            if (root != null) {
+                containing(root, envelope, result);
+            }
+        }
+
+        private static void containing(Node node, Envelope envelope, List<Integer> result) {
+            if (!node.bounds.contains(envelope)) {
+                return;
+            }
+            if (node.children == null) {
+                result.add(node.item);
+                return;
+            }
+            for (Node child : node.children) {
+                containing(child, envelope, result);
+            }
+        }
+
+        private static class Node {
+            private final Envelope bounds;
+            private final int item;
+            private final Node[] children;
+
+            private Node(Envelope bounds, int item, Node[] children) {
+                this.bounds = bounds;
+                this.item = item;
+                this.children = children;
+            }
+        }
+    }
+}
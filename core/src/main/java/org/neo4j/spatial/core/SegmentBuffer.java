@@ -0,0 +1,115 @@
+package org.neo4j.spatial.core;
+
+import java.util.Arrays;
+
+/**
+ * The segments of a geometry copied into primitive arrays, for algorithms which have to visit them many times,
+ * like the inner loop of a pairwise comparison
+ */
+public final class SegmentBuffer implements SegmentVisitor {
+    private double[] coordinates;
+    private int[] rings;
+    private int[] segments;
+    private int size;
+
+    private SegmentBuffer(int capacity) {
+        this.coordinates = new double[4 * capacity];
+        this.rings = new int[capacity];
+        this.segments = new int[capacity];
+    }
+
+    public static SegmentBuffer of(Polygon polygon) {
+        SegmentBuffer buffer = new SegmentBuffer(16);
+        polygon.visitSegments(buffer);
+        return buffer;
+    }
+
+    public static SegmentBuffer of(Polyline polyline) {
+        SegmentBuffer buffer = new SegmentBuffer(16);
+        polyline.visitSegments(buffer);
+        return buffer;
+    }
+
+    public static SegmentBuffer of(MultiPolyline multiPolyline) {
+        SegmentBuffer buffer = new SegmentBuffer(16);
+        multiPolyline.visitSegments(buffer);
+        return buffer;
+    }
+
+    public static SegmentBuffer of(LineSegment lineSegment) {
+        SegmentBuffer buffer = new SegmentBuffer(1);
+        SegmentVisitor.visit(lineSegment.getPoints(), false, 0, buffer);
+        return buffer;
+    }
+
+    public static SegmentBuffer of(LineSegment[] lineSegments) {
+        SegmentBuffer buffer = new SegmentBuffer(Math.max(1, lineSegments.length));
+        for (int i = 0; i < lineSegments.length; i++) {
+            Point[] points = lineSegments[i].getPoints();
+            buffer.visit(points[0].getCoordinate()[0], points[0].getCoordinate()[1], points[1].getCoordinate()[0], points[1].getCoordinate()[1], 0, i);
+        }
+        return buffer;
+    }
+
+    @Override
+    public boolean visit(double x1, double y1, double x2, double y2, int ringIndex, int segmentIndex) {
+        if (size == rings.length) {
+            int capacity = Math.max(16, size * 2);
+            coordinates = Arrays.copyOf(coordinates, 4 * capacity);
+            rings = Arrays.copyOf(rings, capacity);
+            segments = Arrays.copyOf(segments, capacity);
+        }
+        int offset = 4 * size;
+        coordinates[offset] = x1;
+        coordinates[offset + 1] = y1;
+        coordinates[offset + 2] = x2;
+        coordinates[offset + 3] = y2;
+        rings[size] = ringIndex;
+        segments[size] = segmentIndex;
+        size++;
+        return true;
+    }
+
+    /**
+     * Pass the buffered segments on to another visitor
+     *
+     * @return False iff the visitor stopped the visit
+     */
+    public boolean visitSegments(SegmentVisitor visitor) {
+        for (int i = 0; i < size; i++) {
+            int offset = 4 * i;
+            if (!visitor.visit(coordinates[offset], coordinates[offset + 1], coordinates[offset + 2], coordinates[offset + 3], rings[i], segments[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public double getX1(int index) {
+        return coordinates[4 * index];
+    }
+
+    public double getY1(int index) {
+        return coordinates[4 * index + 1];
+    }
+
+    public double getX2(int index) {
+        return coordinates[4 * index + 2];
+    }
+
+    public double getY2(int index) {
+        return coordinates[4 * index + 3];
+    }
+
+    public int getRingIndex(int index) {
+        return rings[index];
+    }
+
+    public int getSegmentIndex(int index) {
+        return segments[index];
+    }
+}
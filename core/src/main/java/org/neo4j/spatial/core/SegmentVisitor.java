@@ -0,0 +1,49 @@
+package org.neo4j.spatial.core;
+
+/**
+ * Receives the segments of a geometry as primitive end point coordinates, so no LineSegment or Point needs to be
+ * created per segment. Visiting reads the points of the geometry instead of using its traversal state, so the same
+ * geometry can be visited from several threads.
+ */
+@FunctionalInterface
+public interface SegmentVisitor {
+    /**
+     * @param x1 the x-coordinate of the first end point
+     * @param y1 the y-coordinate of the first end point
+     * @param x2 the x-coordinate of the second end point
+     * @param y2 the y-coordinate of the second end point
+     * @param ringIndex the index of the ring or polyline the segment belongs to
+     * @param segmentIndex the index of the segment within its ring or polyline
+     * @return False to stop visiting the remaining segments
+     */
+    boolean visit(double x1, double y1, double x2, double y2, int ringIndex, int segmentIndex);
+
+    /**
+     * Visit the segments between consecutive points
+     *
+     * @param points the points
+     * @param closed true if the points describe a ring, in which case the last point is connected to the first if they differ
+     * @param ringIndex the index passed on as the ring index of every segment
+     * @param visitor the visitor
+     * @return False iff the visitor stopped the visit
+     */
+    static boolean visit(Point[] points, boolean closed, int ringIndex, SegmentVisitor visitor) {
+        if (points.length < 2) {
+            return true;
+        }
+        double[] previous = points[0].getCoordinate();
+        int segment = 0;
+        for (int i = 1; i < points.length; i++) {
+            double[] current = points[i].getCoordinate();
+            if (!visitor.visit(previous[0], previous[1], current[0], current[1], ringIndex, segment++)) {
+                return false;
+            }
+            previous = current;
+        }
+        double[] first = points[0].getCoordinate();
+        if (closed && (previous[0] != first[0] || previous[1] != first[1])) {
+            return visitor.visit(previous[0], previous[1], first[0], first[1], ringIndex, segment);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,18 @@
+package org.neo4j.spatial.core;
+
+/**
+ * Traverses the points of a polygon or polyline. The position of the traversal is kept in the cursor instead of the
+ * geometry, so any number of cursors can traverse the same geometry at the same time, also from different threads.
+ */
+public interface TraversalCursor {
+    /**
+     * @return True iff the traversal has not returned all its points yet
+     */
+    boolean hasNext();
+
+    /**
+     * @return The next point of the traversal
+     * @throws java.util.NoSuchElementException if the traversal is complete
+     */
+    Point next();
+}
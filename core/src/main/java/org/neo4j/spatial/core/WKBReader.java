@@ -0,0 +1,187 @@
+package org.neo4j.spatial.core;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.lang.String.format;
+
+/**
+ * Reads OGC WKB, including ISO and PostGIS EWKB dimension flags and EWKB SRIDs, from a {@link ByteBuffer} into packed
+ * geometries. The geometries produced are the same as for {@link WKTReader}, only the first two ordinates are kept.
+ * Reading advances the position of the buffer to the end of the geometry and leaves its byte order unchanged.
+ */
+public final class WKBReader {
+    private static final int EWKB_Z = 0x80000000;
+    private static final int EWKB_M = 0x40000000;
+    private static final int EWKB_SRID = 0x20000000;
+    private static final int EWKB_FLAGS = EWKB_Z | EWKB_M | EWKB_SRID;
+
+    private final CRS targetCRS;
+
+    /**
+     * Reads geometries in the CRS given by their SRID, or Cartesian if they have none
+     */
+    public WKBReader() {
+        this(null);
+    }
+
+    /**
+     * @param targetCRS the coordinate reference system of all read geometries, whatever their SRID
+     */
+    public WKBReader(CRS targetCRS) {
+        this.targetCRS = targetCRS;
+    }
+
+    public HasCRS read(byte[] wkb) {
+        return read(ByteBuffer.wrap(wkb));
+    }
+
+    public HasCRS read(ByteBuffer wkb) {
+        ByteOrder order = wkb.order();
+        try {
+            return readGeometry(wkb, targetCRS == null ? CRS.Cartesian : targetCRS, true);
+        } finally {
+            wkb.order(order);
+        }
+    }
+
+    /**
+     * @return The polygon described by a POLYGON or MULTIPOLYGON
+     */
+    public Polygon readPolygon(ByteBuffer wkb) {
+        HasCRS geometry = read(wkb);
+        if (!(geometry instanceof Polygon)) {
+            throw new IllegalArgumentException("Expected a POLYGON or MULTIPOLYGON, got " + geometry.getClass().getSimpleName());
+        }
+        return (Polygon) geometry;
+    }
+
+    private HasCRS readGeometry(ByteBuffer wkb, CRS crs, boolean root) {
+        Header header = readHeader(wkb);
+        if (header.srid >= 0 && root && targetCRS == null) {
+            crs = CRS.fromSRID(header.srid);
+        }
+
+        switch (header.type) {
+            case WKBWriter.POINT:
+                double x = wkb.getDouble();
+                double y = wkb.getDouble();
+                skipOrdinates(wkb, header.dimension);
+                return Point.point(crs, x, y);
+            case WKBWriter.LINESTRING: {
+                int count = wkb.getInt();
+                if (count == 0) {
+                    return new MultiPolyline();
+                }
+                return new PackedPolyline(crs, readCoordinates(wkb, count, header.dimension));
+            }
+            case WKBWriter.POLYGON: {
+                List<Polygon.SimplePolygon> rings = new ArrayList<>();
+                readPolygonRings(wkb, crs, header.dimension, rings);
+                return WKTReader.polygon(rings);
+            }
+            case WKBWriter.MULTILINESTRING: {
+                int count = wkb.getInt();
+                MultiPolyline multiPolyline = new MultiPolyline();
+                for (int i = 0; i < count; i++) {
+                    HasCRS child = readGeometry(wkb, crs, false);
+                    if (child instanceof Polyline) {
+                        multiPolyline.insertPolyline((Polyline) child);
+                    } else if (!(child instanceof MultiPolyline)) {
+                        throw new IllegalArgumentException("MULTILINESTRING can only contain LINESTRING, got " + child.getClass().getSimpleName());
+                    }
+                }
+                return multiPolyline;
+            }
+            case WKBWriter.MULTIPOLYGON: {
+                int count = wkb.getInt();
+                List<Polygon.SimplePolygon> rings = new ArrayList<>();
+                for (int i = 0; i < count; i++) {
+                    Header child = readHeader(wkb);
+                    if (child.type != WKBWriter.POLYGON) {
+                        throw new IllegalArgumentException(format("MULTIPOLYGON can only contain POLYGON, got type %d", child.type));
+                    }
+                    readPolygonRings(wkb, crs, child.dimension, rings);
+                }
+                return WKTReader.polygon(rings);
+            }
+            default:
+                throw new IllegalArgumentException(format("Unsupported WKB geometry type %d", header.type));
+        }
+    }
+
+    private static Header readHeader(ByteBuffer wkb) {
+        byte order = wkb.get();
+        if (order == 0) {
+            wkb.order(ByteOrder.BIG_ENDIAN);
+        } else if (order == 1) {
+            wkb.order(ByteOrder.LITTLE_ENDIAN);
+        } else {
+            throw new IllegalArgumentException(format("Invalid WKB byte order %d at position %d", order, wkb.position() - 1));
+        }
+
+        int type = wkb.getInt();
+        int dimension = 2;
+        if ((type & EWKB_Z) != 0) {
+            dimension++;
+        }
+        if ((type & EWKB_M) != 0) {
+            dimension++;
+        }
+        int srid = (type & EWKB_SRID) != 0 ? wkb.getInt() : -1;
+        type &= ~EWKB_FLAGS;
+
+        //ISO WKB encodes z, m and zm as 1000, 2000 and 3000 added to the type
+        int iso = type / 1000;
+        type %= 1000;
+        if (iso == 1 || iso == 2) {
+            dimension++;
+        } else if (iso == 3) {
+            dimension += 2;
+        }
+        return new Header(type, dimension, srid);
+    }
+
+    private static void readPolygonRings(ByteBuffer wkb, CRS crs, int dimension, List<Polygon.SimplePolygon> rings) {
+        int count = wkb.getInt();
+        for (int i = 0; i < count; i++) {
+            rings.add(new PackedSimplePolygon(crs, readCoordinates(wkb, wkb.getInt(), dimension)));
+        }
+    }
+
+    private static PackedCoordinates readCoordinates(ByteBuffer wkb, int count, int dimension) {
+        if (count < 0 || (long) count * dimension * Double.BYTES > wkb.remaining()) {
+            throw new IllegalArgumentException(format("Invalid WKB coordinate count %d at position %d", count, wkb.position()));
+        }
+        double[] xy = new double[2 * count];
+        if (dimension == 2) {
+            wkb.asDoubleBuffer().get(xy);
+            wkb.position(wkb.position() + xy.length * Double.BYTES);
+        } else {
+            for (int i = 0; i < count; i++) {
+                xy[2 * i] = wkb.getDouble();
+                xy[2 * i + 1] = wkb.getDouble();
+                skipOrdinates(wkb, dimension);
+            }
+        }
+        return PackedCoordinates.of(xy);
+    }
+
+    private static void skipOrdinates(ByteBuffer wkb, int dimension) {
+        wkb.position(wkb.position() + (dimension - 2) * Double.BYTES);
+    }
+
+    private static class Header {
+        private final int type;
+        private final int dimension;
+        private final int srid;
+
+        private Header(int type, int dimension, int srid) {
+            this.type = type;
+            this.dimension = dimension;
+            this.srid = srid;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package org.neo4j.spatial.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Writes geometries as OGC well-known binary, either into a {@link ByteBuffer} or through a fixed size buffer to an {@link OutputStream}.
+ * Only the first two coordinates of every point are written, rings are oriented like {@link WKTWriter} does.
+ * Writing to a byte buffer without enough space remaining fails with a {@link java.nio.BufferOverflowException}.
+ */
+public final class WKBWriter {
+    static final int POINT = 1;
+    static final int LINESTRING = 2;
+    static final int POLYGON = 3;
+    static final int MULTILINESTRING = 5;
+    static final int MULTIPOLYGON = 6;
+
+    private static final int STREAM_BUFFER_SIZE = 8192;
+
+    private final ByteBuffer buffer;
+    private final OutputStream out;
+    private final byte byteOrder;
+
+    /**
+     * Writes into the given buffer, in the byte order of the buffer
+     */
+    public WKBWriter(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.out = null;
+        this.byteOrder = byteOrder(buffer.order());
+    }
+
+    /**
+     * Writes little endian WKB to the given stream, the stream is neither flushed nor closed
+     */
+    public WKBWriter(OutputStream out) {
+        this(out, ByteOrder.LITTLE_ENDIAN);
+    }
+
+    public WKBWriter(OutputStream out, ByteOrder order) {
+        this.buffer = ByteBuffer.allocate(STREAM_BUFFER_SIZE).order(order);
+        this.out = out;
+        this.byteOrder = byteOrder(order);
+    }
+
+    public static byte[] toWKB(Polygon polygon) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            new WKBWriter(bytes).write(polygon);
+        } catch (IOException e) {
+            //A ByteArrayOutputStream does not throw
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static byte[] toWKB(MultiPolyline multiPolyline) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            new WKBWriter(bytes).write(multiPolyline);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public void write(Point point) throws IOException {
+        header(POINT);
+        coordinate(point);
+        flush();
+    }
+
+    public void write(Polyline polyline) throws IOException {
+        lineString(polyline.getPoints());
+        flush();
+    }
+
+    public void write(MultiPolyline multiPolyline) throws IOException {
+        header(MULTILINESTRING);
+        putInt(multiPolyline.getChildren().length);
+        for (Polyline child : multiPolyline.getChildren()) {
+            lineString(child.getPoints());
+        }
+        flush();
+    }
+
+    /**
+     * Writes a simple polygon as POLYGON and any other polygon as MULTIPOLYGON, with every shell followed by the holes directly inside it
+     */
+    public void write(Polygon polygon) throws IOException {
+        if (polygon instanceof Polygon.SimplePolygon) {
+            header(POLYGON);
+            putInt(1);
+            ring(((Polygon.SimplePolygon) polygon).getPoints(), false);
+            flush();
+            return;
+        }
+
+        PolygonRings rings = polygon.rings();
+        header(MULTIPOLYGON);
+        putInt(rings.getShellCount());
+        for (int i = 0; i < rings.size(); i++) {
+            if (!rings.isShell(i)) {
+                continue;
+            }
+            int ringCount = 1;
+            for (int j = i + 1; j < rings.getSubtreeEnd(i); j = rings.getSubtreeEnd(j)) {
+                ringCount++;
+            }
+
+            header(POLYGON);
+            putInt(ringCount);
+            ring(rings.getRing(i).getPoints(), false);
+            for (int j = i + 1; j < rings.getSubtreeEnd(i); j = rings.getSubtreeEnd(j)) {
+                ring(rings.getRing(j).getPoints(), true);
+            }
+        }
+        flush();
+    }
+
+    private void lineString(Point[] points) throws IOException {
+        header(LINESTRING);
+        putInt(points.length);
+        for (Point point : points) {
+            coordinate(point);
+        }
+    }
+
+    private void ring(Point[] points, boolean hole) throws IOException {
+        boolean reversed = WKTWriter.isReversed(points, hole);
+        putInt(points.length);
+        for (int i = 0; i < points.length; i++) {
+            coordinate(points[reversed ? points.length - 1 - i : i]);
+        }
+    }
+
+    private void header(int type) throws IOException {
+        require(5);
+        buffer.put(byteOrder);
+        buffer.putInt(type);
+    }
+
+    private void putInt(int value) throws IOException {
+        require(4);
+        buffer.putInt(value);
+    }
+
+    private void coordinate(Point point) throws IOException {
+        double[] coordinate = point.getCoordinate();
+        require(16);
+        buffer.putDouble(coordinate[0]);
+        buffer.putDouble(coordinate[1]);
+    }
+
+    private void require(int bytes) throws IOException {
+        if (out != null && buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        if (out != null && buffer.position() > 0) {
+            out.write(buffer.array(), 0, buffer.position());
+            buffer.clear();
+        }
+    }
+
+    private static byte byteOrder(ByteOrder order) {
+        return (byte) (order == ByteOrder.LITTLE_ENDIAN ? 1 : 0);
+    }
+}
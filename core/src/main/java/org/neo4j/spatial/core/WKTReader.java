@@ -0,0 +1,358 @@
+package org.neo4j.spatial.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.lang.String.format;
+
+/**
+ * Reads WKT and EWKT directly from a {@link CharSequence} into packed geometries, without copying the text.
+ * Points are read as {@link Point}, linestrings as {@link PackedPolyline}, multilinestrings as {@link MultiPolyline},
+ * polygons without holes as {@link PackedSimplePolygon} and all other polygons as {@link MultiPolygon}.
+ * Only the first two ordinates of every coordinate are kept.
+ * <p>
+ * A reader keeps a coordinate buffer between calls and is therefore not thread safe.
+ */
+public final class WKTReader {
+    private static final double[] POWERS_OF_TEN = new double[]{
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    //Every integer up to 2^53 is exactly representable as a double
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    private static final int MAX_MANTISSA_DIGITS = 18;
+
+    private final CRS targetCRS;
+
+    private CharSequence text;
+    private int position;
+    private int end;
+    private CRS crs;
+    private double[] buffer = new double[64];
+
+    /**
+     * Reads geometries in the CRS given by their SRID prefix, or Cartesian if they have none
+     */
+    public WKTReader() {
+        this(null);
+    }
+
+    /**
+     * @param targetCRS the coordinate reference system of all read geometries, whatever their SRID prefix
+     */
+    public WKTReader(CRS targetCRS) {
+        this.targetCRS = targetCRS;
+    }
+
+    public HasCRS read(CharSequence wkt) {
+        return read(wkt, 0, wkt.length());
+    }
+
+    /**
+     * Read the geometry between the given indices, allowing many geometries to be read from one large text
+     */
+    public HasCRS read(CharSequence wkt, int start, int end) {
+        this.text = wkt;
+        this.position = start;
+        this.end = end;
+        try {
+            this.crs = targetCRS == null ? CRS.Cartesian : targetCRS;
+            skipWhitespace();
+            if (matchKeyword("SRID")) {
+                expect('=');
+                int srid = (int) readNumber();
+                expect(';');
+                if (targetCRS == null) {
+                    this.crs = CRS.fromSRID(srid);
+                }
+            }
+
+            HasCRS geometry = readGeometry();
+            skipWhitespace();
+            if (position < end) {
+                throw error("Unexpected text after geometry");
+            }
+            return geometry;
+        } finally {
+            this.text = null;
+        }
+    }
+
+    /**
+     * @return The polygon described by a POLYGON or MULTIPOLYGON
+     */
+    public Polygon readPolygon(CharSequence wkt) {
+        HasCRS geometry = read(wkt);
+        if (!(geometry instanceof Polygon)) {
+            throw new IllegalArgumentException("Expected a POLYGON or MULTIPOLYGON, got " + geometry.getClass().getSimpleName());
+        }
+        return (Polygon) geometry;
+    }
+
+    /**
+     * @return The polylines described by a LINESTRING or MULTILINESTRING
+     */
+    public MultiPolyline readMultiPolyline(CharSequence wkt) {
+        HasCRS geometry = read(wkt);
+        if (geometry instanceof Polyline) {
+            MultiPolyline multiPolyline = new MultiPolyline();
+            multiPolyline.insertPolyline((Polyline) geometry);
+            return multiPolyline;
+        } else if (geometry instanceof MultiPolyline) {
+            return (MultiPolyline) geometry;
+        }
+        throw new IllegalArgumentException("Expected a LINESTRING or MULTILINESTRING, got " + geometry.getClass().getSimpleName());
+    }
+
+    private HasCRS readGeometry() {
+        skipWhitespace();
+        if (matchKeyword("POINT")) {
+            skipDimensions();
+            if (matchKeyword("EMPTY")) {
+                throw error("Empty points are not supported");
+            }
+            expect('(');
+            int count = readCoordinates();
+            if (count != 1) {
+                throw error("A point should have exactly one coordinate");
+            }
+            expect(')');
+            return Point.point(crs, buffer[0], buffer[1]);
+        } else if (matchKeyword("LINESTRING")) {
+            skipDimensions();
+            if (matchKeyword("EMPTY")) {
+                return new MultiPolyline();
+            }
+            return new PackedPolyline(crs, readCoordinateList());
+        } else if (matchKeyword("POLYGON")) {
+            skipDimensions();
+            List<Polygon.SimplePolygon> rings = new ArrayList<>();
+            if (!matchKeyword("EMPTY")) {
+                readPolygonRings(rings);
+            }
+            return polygon(rings);
+        } else if (matchKeyword("MULTILINESTRING")) {
+            skipDimensions();
+            MultiPolyline multiPolyline = new MultiPolyline();
+            if (matchKeyword("EMPTY")) {
+                return multiPolyline;
+            }
+            expect('(');
+            do {
+                multiPolyline.insertPolyline(new PackedPolyline(crs, readCoordinateList()));
+            } while (accept(','));
+            expect(')');
+            return multiPolyline;
+        } else if (matchKeyword("MULTIPOLYGON")) {
+            skipDimensions();
+            List<Polygon.SimplePolygon> rings = new ArrayList<>();
+            if (!matchKeyword("EMPTY")) {
+                expect('(');
+                do {
+                    readPolygonRings(rings);
+                } while (accept(','));
+                expect(')');
+            }
+            return polygon(rings);
+        }
+        throw error("Unsupported geometry type");
+    }
+
+    /**
+     * @return A simple polygon for a single ring, otherwise the multipolygon nesting all rings
+     */
+    static Polygon polygon(List<Polygon.SimplePolygon> rings) {
+        if (rings.size() == 1) {
+            return rings.get(0);
+        } else if (rings.isEmpty()) {
+            return new MultiPolygon();
+        }
+        return MultiPolygon.build(rings.toArray(new Polygon.SimplePolygon[0]));
+    }
+
+    private void readPolygonRings(List<Polygon.SimplePolygon> rings) {
+        expect('(');
+        do {
+            rings.add(new PackedSimplePolygon(crs, readCoordinateList()));
+        } while (accept(','));
+        expect(')');
+    }
+
+    private PackedCoordinates readCoordinateList() {
+        expect('(');
+        int count = readCoordinates();
+        expect(')');
+        return PackedCoordinates.of(Arrays.copyOf(buffer, 2 * count));
+    }
+
+    /**
+     * Read comma separated coordinates into the buffer
+     *
+     * @return The number of coordinates in the buffer
+     */
+    private int readCoordinates() {
+        int count = 0;
+        do {
+            skipWhitespace();
+            double x = readNumber();
+            double y = readNumber();
+            //Further ordinates, like z and m, are skipped
+            while (startsNumber()) {
+                readNumber();
+            }
+            if (buffer.length < 2 * count + 2) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            buffer[2 * count] = x;
+            buffer[2 * count + 1] = y;
+            count++;
+        } while (accept(','));
+        return count;
+    }
+
+    private void skipDimensions() {
+        if (!matchKeyword("ZM") && !matchKeyword("Z")) {
+            matchKeyword("M");
+        }
+    }
+
+    private boolean startsNumber() {
+        skipWhitespace();
+        if (position >= end) {
+            return false;
+        }
+        char c = text.charAt(position);
+        return (c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.';
+    }
+
+    /**
+     * Parse a decimal number in place. Numbers with at most 18 significant digits, whose mantissa and power of ten are
+     * both exactly representable, are computed with a single correctly rounded operation. All others are passed on to
+     * {@link Double#parseDouble(String)}.
+     */
+    private double readNumber() {
+        skipWhitespace();
+        int start = position;
+        boolean negative = false;
+        if (position < end && (text.charAt(position) == '-' || text.charAt(position) == '+')) {
+            negative = text.charAt(position) == '-';
+            position++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean exact = true;
+        boolean any = false;
+
+        while (position < end && isDigit(text.charAt(position))) {
+            int digit = text.charAt(position++) - '0';
+            any = true;
+            if (digits < MAX_MANTISSA_DIGITS) {
+                mantissa = mantissa * 10 + digit;
+                if (mantissa != 0) {
+                    digits++;
+                }
+            } else {
+                exact = false;
+            }
+        }
+        if (position < end && text.charAt(position) == '.') {
+            position++;
+            while (position < end && isDigit(text.charAt(position))) {
+                int digit = text.charAt(position++) - '0';
+                any = true;
+                if (digits < MAX_MANTISSA_DIGITS) {
+                    mantissa = mantissa * 10 + digit;
+                    exponent--;
+                    if (mantissa != 0) {
+                        digits++;
+                    }
+                } else {
+                    exact = false;
+                }
+            }
+        }
+        if (!any) {
+            throw error("Expected a number");
+        }
+        if (position < end && (text.charAt(position) == 'e' || text.charAt(position) == 'E')) {
+            position++;
+            boolean negativeExponent = false;
+            if (position < end && (text.charAt(position) == '-' || text.charAt(position) == '+')) {
+                negativeExponent = text.charAt(position) == '-';
+                position++;
+            }
+            int value = 0;
+            boolean exponentDigits = false;
+            while (position < end && isDigit(text.charAt(position))) {
+                exponentDigits = true;
+                if (value < 100000) {
+                    value = value * 10 + (text.charAt(position) - '0');
+                }
+                position++;
+            }
+            if (!exponentDigits) {
+                throw error("Expected exponent digits");
+            }
+            exponent += negativeExponent ? -value : value;
+        }
+
+        if (exact && mantissa <= MAX_EXACT_MANTISSA && exponent >= -22 && exponent <= 22) {
+            double value = exponent >= 0 ? mantissa * POWERS_OF_TEN[exponent] : mantissa / POWERS_OF_TEN[-exponent];
+            return negative ? -value : value;
+        }
+        return Double.parseDouble(text.subSequence(start, position).toString());
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * Consume the keyword if the next word equals it, ignoring case
+     */
+    private boolean matchKeyword(String keyword) {
+        skipWhitespace();
+        int length = keyword.length();
+        if (position + length > end) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (Character.toUpperCase(text.charAt(position + i)) != keyword.charAt(i)) {
+                return false;
+            }
+        }
+        if (position + length < end && Character.isLetter(text.charAt(position + length))) {
+            return false;
+        }
+        position += length;
+        return true;
+    }
+
+    private boolean accept(char c) {
+        skipWhitespace();
+        if (position < end && text.charAt(position) == c) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(char c) {
+        if (!accept(c)) {
+            throw error(format("Expected '%c'", c));
+        }
+    }
+
+    private void skipWhitespace() {
+        while (position < end && Character.isWhitespace(text.charAt(position))) {
+            position++;
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(format("%s at position %d of WKT", message, position));
+    }
+}
@@ -0,0 +1,228 @@
+package org.neo4j.spatial.core;
+
+import org.neo4j.spatial.algo.CCWCalculator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Writes geometries as WKT directly to an {@link Appendable}, without building intermediate strings per ring or point.
+ * Only the first two coordinates of every point are written. Shells are written in clockwise order and holes in
+ * counter-clockwise order, as the rings of a multipolygon are oriented by {@link #isReversed(Point[], boolean)}.
+ * <p>
+ * Coordinates are formatted as {@link Double#toString(double)} would. Values written in plain notation with at most 15
+ * to 16 significant digits, which covers coordinates read from decimal sources, are written digit by digit. Other values
+ * go through {@link StringBuilder#append(double)}, or {@link Double#toString(double)} for other targets.
+ * <p>
+ * The rings of a multipolygon are written as before the writer existed: a shell is separated from its first hole by a
+ * comma and a space, and all other rings by a comma only.
+ */
+public final class WKTWriter {
+    //Double.toString writes values from 10^-3 up to 10^7 in plain notation
+    private static final double MIN_PLAIN = 1e-3;
+    private static final double MAX_PLAIN = 1e7;
+    //Integers up to 2^53 and the powers of ten up to 10^22 are exact doubles
+    private static final double MAX_EXACT = 9007199254740992.0;
+    private static final double[] POWERS_OF_TEN = new double[23];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private final Appendable out;
+    private final char[] digits = new char[32];
+
+    public WKTWriter(Appendable out) {
+        this.out = out;
+    }
+
+    public static String toWKT(Point point) {
+        return write(new StringBuilder(32), writer -> writer.write(point));
+    }
+
+    public static String toWKT(LineSegment segment) {
+        return write(new StringBuilder(64), writer -> writer.write(segment));
+    }
+
+    public static String toWKT(Polyline polyline) {
+        return write(new StringBuilder(), writer -> writer.write(polyline));
+    }
+
+    public static String toWKT(MultiPolyline multiPolyline) {
+        return write(new StringBuilder(), writer -> writer.write(multiPolyline));
+    }
+
+    public static String toWKT(Polygon polygon) {
+        return write(new StringBuilder(), writer -> writer.write(polygon));
+    }
+
+    private static String write(StringBuilder builder, WriteAction action) {
+        try {
+            action.write(new WKTWriter(builder));
+        } catch (IOException e) {
+            //A StringBuilder does not throw
+            throw new UncheckedIOException(e);
+        }
+        return builder.toString();
+    }
+
+    public void write(Point point) throws IOException {
+        out.append("POINT(");
+        writeCoordinate(point);
+        out.append(')');
+    }
+
+    public void write(LineSegment segment) throws IOException {
+        out.append("LINESTRING");
+        writePoints(segment.getPoints(), false);
+    }
+
+    public void write(Polyline polyline) throws IOException {
+        out.append("LINESTRING");
+        writePoints(polyline.getPoints(), false);
+    }
+
+    public void write(MultiPolyline multiPolyline) throws IOException {
+        if (multiPolyline.getChildren().length == 0) {
+            out.append("MULTILINESTRING EMPTY");
+            return;
+        }
+        out.append("MULTILINESTRING(");
+        boolean first = true;
+        for (Polyline child : multiPolyline.getChildren()) {
+            if (!first) {
+                out.append(',');
+            }
+            writePoints(child.getPoints(), false);
+            first = false;
+        }
+        out.append(')');
+    }
+
+    /**
+     * Writes a simple polygon as POLYGON and any other polygon as MULTIPOLYGON, with every shell followed by the holes directly inside it
+     */
+    public void write(Polygon polygon) throws IOException {
+        if (polygon instanceof Polygon.SimplePolygon) {
+            out.append("POLYGON(");
+            writeRing(((Polygon.SimplePolygon) polygon).getPoints(), false);
+            out.append(')');
+            return;
+        }
+
+        PolygonRings rings = polygon.rings();
+        if (rings.getShellCount() == 0) {
+            out.append("MULTIPOLYGON EMPTY");
+            return;
+        }
+        out.append("MULTIPOLYGON(");
+        boolean first = true;
+        for (int i = 0; i < rings.size(); i++) {
+            if (!rings.isShell(i)) {
+                continue;
+            }
+            if (!first) {
+                out.append(',');
+            }
+            out.append('(');
+            writeRing(rings.getRing(i).getPoints(), false);
+            for (int j = i + 1; j < rings.getSubtreeEnd(i); j = rings.getSubtreeEnd(j)) {
+                out.append(j == i + 1 ? ", " : ",");
+                writeRing(rings.getRing(j).getPoints(), true);
+            }
+            out.append(')');
+            first = false;
+        }
+        out.append(')');
+    }
+
+    private void writeRing(Point[] points, boolean hole) throws IOException {
+        writePoints(points, isReversed(points, hole));
+    }
+
+    private void writePoints(Point[] points, boolean reversed) throws IOException {
+        out.append('(');
+        for (int i = 0; i < points.length; i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            writeCoordinate(points[reversed ? points.length - 1 - i : i]);
+        }
+        out.append(')');
+    }
+
+    private void writeCoordinate(Point point) throws IOException {
+        double[] coordinate = point.getCoordinate();
+        writeDouble(coordinate[0]);
+        out.append(' ');
+        writeDouble(coordinate[1]);
+    }
+
+    /**
+     * Appends the value formatted like {@link Double#toString(double)}
+     */
+    void writeDouble(double value) throws IOException {
+        double magnitude = Math.abs(value);
+        if (value == 0) {
+            out.append(Double.doubleToRawLongBits(value) == 0 ? "0.0" : "-0.0");
+        } else if (magnitude >= MIN_PLAIN && magnitude < MAX_PLAIN && writePlain(value, magnitude)) {
+            return;
+        } else if (out instanceof StringBuilder) {
+            ((StringBuilder) out).append(value);
+        } else {
+            out.append(Double.toString(value));
+        }
+    }
+
+    /**
+     * Writes the value with the fewest decimals, at least one, that read back as the same value. With the digits and the
+     * power of ten both exact doubles, their correctly rounded quotient is the value the decimal reads back as.
+     *
+     * @return False, without writing anything, if the value needs more digits than fit in an exact double
+     */
+    private boolean writePlain(double value, double magnitude) throws IOException {
+        for (int decimals = 1; decimals < POWERS_OF_TEN.length; decimals++) {
+            double scaled = magnitude * POWERS_OF_TEN[decimals];
+            if (scaled >= MAX_EXACT) {
+                return false;
+            }
+            long mantissa = Math.round(scaled);
+            if (mantissa / POWERS_OF_TEN[decimals] == magnitude) {
+                int position = digits.length;
+                for (int i = 0; i < decimals; i++) {
+                    digits[--position] = (char) ('0' + mantissa % 10);
+                    mantissa /= 10;
+                }
+                digits[--position] = '.';
+                do {
+                    digits[--position] = (char) ('0' + mantissa % 10);
+                    mantissa /= 10;
+                } while (mantissa > 0);
+                if (value < 0) {
+                    digits[--position] = '-';
+                }
+                for (int i = position; i < digits.length; i++) {
+                    out.append(digits[i]);
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param points The closed ring
+     * @param hole   True if the ring is a hole
+     * @return True iff the ring has to be written in reverse order, to write shells in clockwise and holes in counter-clockwise order
+     */
+    static boolean isReversed(Point[] points, boolean hole) {
+        return CCWCalculator.getCalculator(points).isCCW(points) != hole;
+    }
+
+    private interface WriteAction {
+        void write(WKTWriter writer) throws IOException;
+    }
+}
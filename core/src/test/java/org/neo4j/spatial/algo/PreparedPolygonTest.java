@@ -0,0 +1,92 @@
+package org.neo4j.spatial.algo;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.neo4j.spatial.core.CRS;
+import org.neo4j.spatial.core.MultiPolygon;
+import org.neo4j.spatial.core.Point;
+import org.neo4j.spatial.core.Polygon;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class PreparedPolygonTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldAgreeWithWithinCalculator() {
+        Random random = new Random(1);
+        Polygon polygon = MultiPolygon.build(star(random, 0, 0, 100, 500), star(random, 0, 0, 10, 50), star(random, 300, 0, 50, 200));
+        PreparedPolygon prepared = PreparedPolygon.prepare(polygon);
+
+        for (int i = 0; i < 20000; i++) {
+            Point point = Point.point(CRS.Cartesian, random.nextDouble() * 500 - 150, random.nextDouble() * 300 - 150);
+            assertThat(point.toString(), prepared.contains(point), equalTo(WithinCalculator.within(polygon, point)));
+        }
+        for (Point vertex : polygon.rings().getRing(0).getPoints()) {
+            assertThat(vertex.toString(), prepared.contains(vertex), equalTo(WithinCalculator.within(polygon, vertex)));
+        }
+    }
+
+    @Test
+    public void shouldAnswerSameAfterWritingAndReading() throws IOException {
+        Random random = new Random(2);
+        Polygon.SimplePolygon polygon = star(random, 10, 10, 20, 1000);
+        PreparedPolygon prepared = PreparedPolygon.prepare(polygon);
+
+        Path file = folder.getRoot().toPath().resolve("prepared");
+        prepared.write(file);
+        PreparedPolygon mapped = PreparedPolygon.read(file);
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(2 * prepared.serializedSize());
+        prepared.write(buffer);
+        prepared.write(buffer);
+        buffer.flip();
+        PreparedPolygon first = PreparedPolygon.read(buffer);
+        PreparedPolygon second = PreparedPolygon.read(buffer);
+        assertThat(buffer.remaining(), equalTo(0));
+
+        assertThat(mapped.getEnvelope(), equalTo(prepared.getEnvelope()));
+        for (int i = 0; i < 5000; i++) {
+            double x = random.nextDouble() * 50 - 15;
+            double y = random.nextDouble() * 50 - 15;
+            boolean expected = prepared.contains(x, y);
+            assertThat(mapped.contains(x, y), equalTo(expected));
+            assertThat(first.contains(x, y), equalTo(expected));
+            assertThat(second.contains(x, y), equalTo(expected));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldDetectCorruption() {
+        PreparedPolygon prepared = PreparedPolygon.prepare(star(new Random(3), 0, 0, 1, 20));
+        ByteBuffer buffer = ByteBuffer.allocate(prepared.serializedSize());
+        prepared.write(buffer);
+        buffer.put(buffer.limit() - 10, (byte) (buffer.get(buffer.limit() - 10) + 1));
+        buffer.flip();
+
+        PreparedPolygon.read(buffer);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNotPrepareWGS84Polygon() {
+        PreparedPolygon.prepare(Polygon.simple(Point.point(CRS.WGS84, 0, 0), Point.point(CRS.WGS84, 1, 0), Point.point(CRS.WGS84, 1, 1)));
+    }
+
+    private static Polygon.SimplePolygon star(Random random, double x, double y, double radius, int n) {
+        Point[] points = new Point[n];
+        for (int i = 0; i < n; i++) {
+            double angle = 2 * Math.PI * i / n;
+            double r = radius * (0.5 + random.nextDouble() / 2);
+            points[i] = Point.point(CRS.Cartesian, x + r * Math.cos(angle), y + r * Math.sin(angle));
+        }
+        return Polygon.simple(points);
+    }
+}
@@ -0,0 +1,83 @@
+package org.neo4j.spatial.algo.wgs84;
+
+import org.junit.Test;
+import org.neo4j.spatial.algo.WithinCalculator;
+import org.neo4j.spatial.core.CRS;
+import org.neo4j.spatial.core.MultiPolygon;
+import org.neo4j.spatial.core.Point;
+import org.neo4j.spatial.core.Polygon;
+import org.neo4j.spatial.core.Polyline;
+
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class CellCoveringTest {
+
+    @Test
+    public void shouldNestCells() {
+        Random random = new Random(1);
+        for (int i = 0; i < 1000; i++) {
+            Point point = Point.point(CRS.WGS84, random.nextDouble() * 360 - 180, random.nextDouble() * 180 - 90);
+            long leaf = CellId.fromPoint(point);
+            assertThat(CellId.level(leaf), equalTo(CellId.MAX_LEVEL));
+            assertThat(CellId.isValid(leaf), equalTo(true));
+
+            int level = random.nextInt(CellId.MAX_LEVEL);
+            long cell = CellId.fromPoint(point, level);
+            assertThat(CellId.level(cell), equalTo(level));
+            assertThat(CellId.contains(cell, leaf), equalTo(true));
+            assertThat(CellId.contains(CellId.fromFace(CellId.face(leaf)), cell), equalTo(true));
+            assertThat(CellId.parent(CellId.child(cell, i % 4)), equalTo(cell));
+            assertThat(CellId.fromPoint(CellId.toPoint(cell), level), equalTo(cell));
+        }
+    }
+
+    @Test
+    public void shouldDecidePointsLikeWithin() {
+        Polygon polygon = MultiPolygon.build(
+                Polygon.simple(Point.point(CRS.WGS84, 170, 50), Point.point(CRS.WGS84, -170, 50), Point.point(CRS.WGS84, -170, 70), Point.point(CRS.WGS84, 175, 65)),
+                Polygon.simple(Point.point(CRS.WGS84, 178, 55), Point.point(CRS.WGS84, -178, 55), Point.point(CRS.WGS84, -178, 60), Point.point(CRS.WGS84, 178, 60)));
+        CellCovering covering = CellCovering.cover(polygon, 16, 500);
+
+        assertThat(covering.getExterior().length, lessThanOrEqualTo(500));
+        assertThat(covering.getInterior().length, greaterThan(0));
+
+        Random random = new Random(2);
+        int decided = 0;
+        for (int i = 0; i < 5000; i++) {
+            Point point = Point.point(CRS.WGS84, 165 + random.nextDouble() * 30 - (i % 2) * 360, 45 + random.nextDouble() * 30);
+            boolean within = WithinCalculator.within(polygon, point);
+            long leaf = CellId.fromPoint(point);
+            if (covering.isInside(leaf)) {
+                assertThat(point.toString(), within, equalTo(true));
+                decided++;
+            } else if (covering.isOutside(leaf)) {
+                assertThat(point.toString(), within, equalTo(false));
+                decided++;
+            }
+            assertThat(covering.contains(point), equalTo(within));
+        }
+        assertThat(decided, greaterThan(4500));
+    }
+
+    @Test
+    public void shouldCoverPolyline() {
+        Polyline polyline = Polyline.polyline(Point.point(CRS.WGS84, 10, 10), Point.point(CRS.WGS84, 12, 11), Point.point(CRS.WGS84, 12, 14));
+        CellCovering covering = CellCovering.cover(polyline, 20, 200);
+
+        assertThat(covering.getInterior().length, equalTo(0));
+        Point[] points = polyline.getPoints();
+        for (int i = 0; i < points.length; i++) {
+            assertThat(CellCovering.intersects(covering.getExterior(), CellId.fromPoint(points[i])), equalTo(true));
+            if (i > 0) {
+                Point middle = WGSUtil.mean(points[i - 1], points[i]);
+                assertThat(CellCovering.intersects(covering.getExterior(), CellId.fromPoint(middle)), equalTo(true));
+            }
+        }
+        assertThat(CellCovering.intersects(covering.getExterior(), CellId.fromPoint(Point.point(CRS.WGS84, 20, 20))), equalTo(false));
+    }
+}
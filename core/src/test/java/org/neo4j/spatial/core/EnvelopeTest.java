@@ -0,0 +1,39 @@
+package org.neo4j.spatial.core;
+
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class EnvelopeTest {
+    @Test
+    public void shouldHaveNoDistanceBetweenIntersectingEnvelopes() {
+        Envelope a = new Envelope(0, 0, 2, 2);
+        Envelope b = new Envelope(1, 1, 3, 3);
+        Envelope c = new Envelope(2, -1, 4, 0);
+
+        assertThat(a.distance(b), equalTo(0.0));
+        assertThat(a.distance(c), equalTo(0.0));
+        assertThat(a.distance(a), equalTo(0.0));
+    }
+
+    @Test
+    public void shouldFindDistanceBetweenDisjointEnvelopes() {
+        Envelope a = new Envelope(0, 0, 2, 2);
+
+        assertThat(a.distance(new Envelope(5, 0, 6, 1)), closeTo(3, 1e-10));
+        assertThat(a.distance(new Envelope(0, -3, 1, -1)), closeTo(1, 1e-10));
+        assertThat(a.distance(new Envelope(5, 6, 7, 8)), closeTo(5, 1e-10));
+        assertThat(new Envelope(5, 6, 7, 8).distance(a), closeTo(5, 1e-10));
+    }
+
+    @Test
+    public void shouldFindDistanceBetweenPackedEnvelopes() {
+        double[] a = new double[]{-1, -1, -1, 0, 0, 2, 2};
+        double[] b = new double[]{5, 6, 7, 8};
+
+        assertThat(Envelope.distance(a, 3, b, 0), closeTo(5, 1e-10));
+        assertThat(Envelope.distance(b, 0, a, 3), closeTo(5, 1e-10));
+    }
+}
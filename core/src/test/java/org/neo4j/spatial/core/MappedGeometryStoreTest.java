@@ -0,0 +1,79 @@
+package org.neo4j.spatial.core;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.neo4j.spatial.algo.WithinCalculator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.neo4j.spatial.core.TestGeometries.square;
+
+public class MappedGeometryStoreTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldReadStoredGeometries() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("geometries");
+        MultiPolygon multiPolygon = MultiPolygon.build(square(CRS.WGS84, 0, 0, 10), square(CRS.WGS84, 1, 1, 8), square(CRS.WGS84, 2, 2, 1), square(CRS.WGS84, 20, 0, 5));
+        Polygon.SimplePolygon simple = square(CRS.Cartesian, 5, 5, 2);
+        Polyline polyline = Polyline.polyline(Point.point(CRS.Cartesian, 0, 0), Point.point(CRS.Cartesian, 1, 1), Point.point(CRS.Cartesian, 2, 0));
+
+        try (MappedGeometryStore.Writer writer = MappedGeometryStore.append(file)) {
+            assertThat(writer.add(multiPolygon), equalTo(0L));
+            assertThat(writer.add(simple), equalTo(1L));
+            assertThat(writer.add(polyline), equalTo(2L));
+        }
+
+        try (MappedGeometryStore store = MappedGeometryStore.open(file)) {
+            assertThat(store.size(), equalTo(3L));
+
+            Polygon readMultiPolygon = store.getPolygon(0);
+            assertThat(readMultiPolygon, instanceOf(MultiPolygon.class));
+            assertThat(readMultiPolygon.getCRS(), equalTo(CRS.WGS84));
+            assertThat(readMultiPolygon.toWKT(), equalTo(multiPolygon.toWKT()));
+            assertThat(readMultiPolygon.rings().getDepth(2), equalTo(2));
+            assertThat(WithinCalculator.within(readMultiPolygon, Point.point(CRS.WGS84, 2.5, 2.5)), equalTo(true));
+            assertThat(WithinCalculator.within(readMultiPolygon, Point.point(CRS.WGS84, 4, 4)), equalTo(false));
+
+            Polygon readSimple = store.getPolygon(1);
+            assertThat(readSimple, instanceOf(PackedSimplePolygon.class));
+            assertThat(readSimple, equalTo(simple));
+
+            assertThat(store.getPolyline(2), equalTo(polyline));
+        }
+    }
+
+    @Test
+    public void shouldAppendToExistingStore() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("geometries");
+        try (MappedGeometryStore.Writer writer = MappedGeometryStore.append(file)) {
+            writer.add(square(CRS.Cartesian, 0, 0, 1));
+        }
+        try (MappedGeometryStore.Writer writer = MappedGeometryStore.append(file)) {
+            for (int i = 1; i < 1000; i++) {
+                assertThat(writer.add(new WKTReader().readPolygon("POLYGON((" + i + " 0," + (i + 1) + " 0," + i + " 1," + i + " 0))")), equalTo((long) i));
+            }
+        }
+
+        try (MappedGeometryStore store = MappedGeometryStore.open(file)) {
+            assertThat(store.size(), equalTo(1000L));
+            assertThat(store.getPolygon(0), equalTo(square(CRS.Cartesian, 0, 0, 1)));
+            assertThat(store.getPolygon(999).toWKT(), equalTo("POLYGON((999.0 0.0,999.0 1.0,1000.0 0.0,999.0 0.0))"));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNotOpenOtherFiles() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("other");
+        Files.write(file, new byte[64]);
+        Files.write(MappedGeometryStore.indexFile(file), new byte[0]);
+        MappedGeometryStore.open(file);
+    }
+}
@@ -0,0 +1,103 @@
+package org.neo4j.spatial.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.neo4j.spatial.core.TestGeometries.square;
+
+public class MultiPolygonBuildTest {
+
+    @Test
+    public void shouldNestRingsLikeInsertingThemOneByOne() {
+        Polygon.SimplePolygon[] rings = new Polygon.SimplePolygon[]{
+                square(CRS.Cartesian, 2, 2, 1),
+                square(CRS.Cartesian, 0, 0, 10),
+                square(CRS.Cartesian, 20, 0, 5),
+                square(CRS.Cartesian, 1, 1, 8),
+                square(CRS.Cartesian, 6, 6, 1),
+        };
+
+        MultiPolygon inserted = new MultiPolygon();
+        for (Polygon.SimplePolygon ring : rings) {
+            inserted.insertPolygon(ring);
+        }
+        MultiPolygon built = MultiPolygon.build(rings);
+
+        assertThat(built.getChildren().size(), equalTo(2));
+        assertThat(built.getShells().length, equalTo(inserted.getShells().length));
+        assertThat(built.getHoles().length, equalTo(inserted.getHoles().length));
+
+        MultiPolygon.MultiPolygonNode outer = built.getChildren().get(0);
+        assertThat(outer.getPolygon(), sameInstance(rings[1]));
+        assertThat(outer.getType(), equalTo(MultiPolygon.PolygonType.SHELL));
+        assertThat(outer.getChildren().size(), equalTo(1));
+
+        MultiPolygon.MultiPolygonNode hole = outer.getChildren().get(0);
+        assertThat(hole.getPolygon(), sameInstance(rings[3]));
+        assertThat(hole.getType(), equalTo(MultiPolygon.PolygonType.HOLE));
+        assertThat(hole.getChildren().size(), equalTo(2));
+        for (MultiPolygon.MultiPolygonNode island : hole.getChildren()) {
+            assertThat(island.getType(), equalTo(MultiPolygon.PolygonType.SHELL));
+            assertThat(island.getParent(), sameInstance(hole));
+        }
+    }
+
+    @Test
+    public void shouldNestRingsTouchingAtAVertex() {
+        Polygon.SimplePolygon outer = square(CRS.Cartesian, 0, 0, 10);
+        Polygon.SimplePolygon corner = square(CRS.Cartesian, 0, 0, 2);
+        Polygon.SimplePolygon beside = square(CRS.Cartesian, 10, 10, 2);
+
+        MultiPolygon built = MultiPolygon.build(corner, beside, outer);
+
+        assertThat(built.getChildren().size(), equalTo(2));
+        assertThat(built.getChildren().get(0).getPolygon(), sameInstance(beside));
+        assertThat(built.getChildren().get(1).getPolygon(), sameInstance(outer));
+        assertThat(built.getChildren().get(1).getChildren().get(0).getPolygon(), sameInstance(corner));
+    }
+
+    @Test
+    public void shouldNestWGS84Rings() {
+        MultiPolygon built = MultiPolygon.build(square(CRS.WGS84, 10.5, 50.5, 0.2), square(CRS.WGS84, 10, 50, 1), square(CRS.WGS84, 12, 50, 1));
+
+        assertThat(built.getChildren().size(), equalTo(2));
+        assertThat(built.getShells().length, equalTo(2));
+        assertThat(built.getHoles().length, equalTo(1));
+    }
+
+    @Test
+    public void shouldNestArchipelagoQuickly() {
+        int n = 150;
+        List<Polygon.SimplePolygon> rings = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                rings.add(square(CRS.Cartesian, i * 10 + 1, j * 10 + 1, 8));
+                rings.add(square(CRS.Cartesian, i * 10 + 3, j * 10 + 3, 4));
+            }
+        }
+        rings.add(square(CRS.Cartesian, 0, 0, n * 10));
+
+        MultiPolygon built = MultiPolygon.build(rings.toArray(new Polygon.SimplePolygon[0]));
+
+        assertThat(built.getChildren().size(), equalTo(1));
+        assertThat(built.getChildren().get(0).getChildren().size(), equalTo(n * n));
+        assertThat(built.getShells().length, equalTo(n * n + 1));
+        assertThat(built.getHoles().length, equalTo(n * n));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNotBuildFromRingsWithDifferentCRS() {
+        MultiPolygon.build(square(CRS.Cartesian, 0, 0, 1), square(CRS.WGS84, 0, 0, 1));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void shouldNotChangeChildrenThroughTheirView() {
+        MultiPolygon built = MultiPolygon.build(square(0, 0, 10));
+        built.getChildren().clear();
+    }
+}
@@ -0,0 +1,76 @@
+package org.neo4j.spatial.core;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.neo4j.spatial.core.TestGeometries.square;
+
+public class PolygonRingsTest {
+
+    @Test
+    public void shouldFlattenNestedRingsInPreOrder() {
+        Polygon.SimplePolygon outer = square(0, 0, 10);
+        Polygon.SimplePolygon lake = square(1, 1, 8);
+        Polygon.SimplePolygon island = square(2, 2, 1);
+        Polygon.SimplePolygon other = square(20, 0, 5);
+        MultiPolygon multiPolygon = MultiPolygon.build(outer, lake, island, other);
+
+        PolygonRings rings = multiPolygon.rings();
+
+        assertThat(rings.size(), equalTo(4));
+        assertThat(rings.getShellCount(), equalTo(3));
+        assertThat(rings.getHoleCount(), equalTo(1));
+
+        assertThat(rings.getRing(0), sameInstance(outer));
+        assertThat(rings.getDepth(0), equalTo(0));
+        assertThat(rings.getParent(0), equalTo(-1));
+        assertThat(rings.getSubtreeEnd(0), equalTo(3));
+
+        assertThat(rings.getRing(1), sameInstance(lake));
+        assertThat(rings.isShell(1), equalTo(false));
+        assertThat(rings.getDepth(1), equalTo(1));
+        assertThat(rings.getParent(1), equalTo(0));
+
+        assertThat(rings.getRing(2), sameInstance(island));
+        assertThat(rings.isShell(2), equalTo(true));
+        assertThat(rings.getDepth(2), equalTo(2));
+        assertThat(rings.getParent(2), equalTo(1));
+
+        assertThat(rings.getRing(3), sameInstance(other));
+        assertThat(rings.getSubtreeEnd(3), equalTo(4));
+
+        assertThat(multiPolygon.getShells(), equalTo(new Polygon.SimplePolygon[]{outer, island, other}));
+        assertThat(multiPolygon.getHoles(), equalTo(new Polygon.SimplePolygon[]{lake}));
+    }
+
+    @Test
+    public void shouldCacheViewUntilTreeChanges() {
+        MultiPolygon multiPolygon = MultiPolygon.build(square(0, 0, 10), square(1, 1, 8));
+        PolygonRings rings = multiPolygon.rings();
+        assertThat(multiPolygon.rings(), sameInstance(rings));
+
+        MultiPolygon.MultiPolygonNode lake = multiPolygon.getChildren().get(0).getChildren().get(0);
+        PolygonRings lakeRings = lake.rings();
+        lake.addChild(new MultiPolygon.MultiPolygonNode(square(2, 2, 1)));
+
+        assertThat(multiPolygon.rings(), not(sameInstance(rings)));
+        assertThat(lake.rings(), not(sameInstance(lakeRings)));
+        assertThat(multiPolygon.rings().size(), equalTo(3));
+        assertThat(multiPolygon.rings().getShellCount(), equalTo(2));
+        assertThat(lake.rings().size(), equalTo(2));
+    }
+
+    @Test
+    public void shouldViewSimplePolygonAsSingleShell() {
+        Polygon.SimplePolygon polygon = square(0, 0, 1);
+
+        PolygonRings rings = polygon.rings();
+
+        assertThat(rings.size(), equalTo(1));
+        assertThat(rings.isShell(0), equalTo(true));
+        assertThat(rings.getRing(0), sameInstance(polygon));
+    }
+}
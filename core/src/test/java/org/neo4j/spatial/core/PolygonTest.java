@@ -6,6 +6,9 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.MatcherAssert.assertThat;
 
@@ -25,6 +28,33 @@ public class PolygonTest {
         }
     }
 
+    @Test
+    public void shouldDetectConvexRings() {
+        assertThat(makeSquareWithStart(0).isConvex(), equalTo(true));
+        assertThat(ring(0, 0, 10, 0, 10, 10, 0, 10).isConvex(), equalTo(true));
+        assertThat(ring(0, 0, 0, 10, 10, 10, 10, 0).isConvex(), equalTo(true));
+        //Repeated points and straight angles do not matter
+        assertThat(ring(0, 0, 5, 0, 5, 0, 10, 0, 10, 10, 0, 10).isConvex(), equalTo(true));
+        assertThat(ring(0, 0, 10, 0, 1, 1, 0, 10).isConvex(), equalTo(false));
+        //A pentagram turns the same way at every vertex, but twice around
+        double[] star = new double[10];
+        for (int i = 0; i < 5; i++) {
+            star[2 * i] = Math.cos(4 * Math.PI * i / 5);
+            star[2 * i + 1] = Math.sin(4 * Math.PI * i / 5);
+        }
+        assertThat(ring(star).isConvex(), equalTo(false));
+        assertThat(PackedSimplePolygon.of(CRS.Cartesian, star).isConvex(), equalTo(false));
+        assertThat(PackedSimplePolygon.of(CRS.Cartesian, 0, 0, 10, 0, 10, 10, 0, 10).isConvex(), equalTo(true));
+    }
+
+    private static Polygon.SimplePolygon ring(double... xy) {
+        Point[] points = new Point[xy.length / 2];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = Point.point(CRS.Cartesian, xy[2 * i], xy[2 * i + 1]);
+        }
+        return Polygon.simple(points);
+    }
+
     @Test
     public void shouldTraversePolygon() {
         int n = 10;
@@ -77,6 +107,51 @@ public class PolygonTest {
         Assert.assertThat(idx, equalTo(4)); //n+1 iterations
     }
 
+    @Test
+    public void shouldVisitSameSegmentsAsLineSegments() {
+        Polygon.SimplePolygon polygon = makeSquareWithStart(1);
+        LineSegment[] lineSegments = polygon.toLineSegments();
+
+        List<double[]> visited = new ArrayList<>();
+        boolean completed = polygon.visitSegments((x1, y1, x2, y2, ringIndex, segmentIndex) -> {
+            assertThat(ringIndex, equalTo(0));
+            assertThat(segmentIndex, equalTo(visited.size()));
+            visited.add(new double[]{x1, y1, x2, y2});
+            return true;
+        });
+
+        assertThat(completed, equalTo(true));
+        assertThat(visited.size(), equalTo(lineSegments.length));
+        for (int i = 0; i < lineSegments.length; i++) {
+            Point[] points = lineSegments[i].getPoints();
+            assertThat(visited.get(i), equalTo(new double[]{points[0].getCoordinate()[0], points[0].getCoordinate()[1], points[1].getCoordinate()[0], points[1].getCoordinate()[1]}));
+        }
+
+        int[] count = new int[1];
+        assertThat("Should stop when the visitor returns false", polygon.visitSegments((x1, y1, x2, y2, ringIndex, segmentIndex) -> ++count[0] < 2), equalTo(false));
+        assertThat(count[0], equalTo(2));
+    }
+
+    @Test
+    public void shouldTraverseWithIndependentCursors() {
+        Polygon.SimplePolygon polygon = makeSquareWithStart(0);
+        Point[] points = polygon.getPoints();
+
+        TraversalCursor forward = polygon.openCursor();
+        TraversalCursor backward = polygon.openCursor(points[0], points[3]);
+        polygon.startTraversal();
+
+        for (int i = 0; i < points.length; i++) {
+            assertThat(forward.hasNext(), equalTo(true));
+            assertThat(forward.next(), equalTo(points[i]));
+            assertThat(backward.next(), equalTo(points[points.length - 1 - i]));
+            assertThat(polygon.getNextPoint(), equalTo(points[i]));
+        }
+        assertThat(forward.hasNext(), equalTo(false));
+        assertThat(backward.hasNext(), equalTo(false));
+        assertThat(polygon.fullyTraversed(), equalTo(true));
+    }
+
     private static Polygon.SimplePolygon makeSquareWithStart(int offset) {
         Point[] points = new Point[4];
         Point[] base = new Point[]{
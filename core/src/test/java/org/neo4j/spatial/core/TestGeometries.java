@@ -0,0 +1,23 @@
+package org.neo4j.spatial.core;
+
+/**
+ * Geometries shared by the tests of this module
+ */
+public final class TestGeometries {
+    private TestGeometries() {
+    }
+
+    /**
+     * @return The counterclockwise square with its lower left corner at (x, y)
+     */
+    public static Polygon.SimplePolygon square(CRS crs, double x, double y, double size) {
+        return Polygon.simple(Point.point(crs, x, y), Point.point(crs, x + size, y), Point.point(crs, x + size, y + size), Point.point(crs, x, y + size));
+    }
+
+    /**
+     * @return The counterclockwise Cartesian square with its lower left corner at (x, y)
+     */
+    public static Polygon.SimplePolygon square(double x, double y, double size) {
+        return square(CRS.Cartesian, x, y, size);
+    }
+}
@@ -0,0 +1,108 @@
+package org.neo4j.spatial.core;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.neo4j.spatial.core.TestGeometries.square;
+
+public class WKTReaderTest {
+
+    @Test
+    public void shouldReadWrittenMultiPolygon() {
+        MultiPolygon written = MultiPolygon.build(square(0, 0, 10), square(1, 1, 8), square(2, 2, 1), square(20, 0, 0.5));
+
+        Polygon read = new WKTReader().readPolygon(written.toWKT());
+
+        assertThat(read, instanceOf(MultiPolygon.class));
+        assertThat(read.getShells().length, equalTo(3));
+        assertThat(read.getHoles().length, equalTo(1));
+        assertThat(read.toWKT(), equalTo(written.toWKT()));
+        for (Polygon.SimplePolygon ring : read.rings().getShellsAndHoles()) {
+            assertThat(ring, instanceOf(PackedSimplePolygon.class));
+            assertThat(ring.getCRS(), equalTo(CRS.Cartesian));
+        }
+    }
+
+    @Test
+    public void shouldReadWKTVariants() {
+        WKTReader reader = new WKTReader();
+
+        Polygon.SimplePolygon polygon = (Polygon.SimplePolygon) reader.read("  polygon z ((0 0 1, 1 0 1, 1 1 1, 0 0 1)) ");
+        assertThat(polygon.getPoints().length, equalTo(4));
+        assertThat(polygon, equalTo(Polygon.simple(Point.point(CRS.Cartesian, 0, 0), Point.point(CRS.Cartesian, 1, 0), Point.point(CRS.Cartesian, 1, 1))));
+
+        Polyline polyline = (Polyline) reader.read("SRID=4326;LINESTRING(12.5 55.75,-1E2 +3.5e-1)");
+        assertThat(polyline.getCRS(), equalTo(CRS.WGS84));
+        assertThat(polyline.getPoints()[1], equalTo(Point.point(CRS.WGS84, -100, 0.35)));
+
+        Point point = (Point) new WKTReader(CRS.WGS84).read("SRID=7203;POINT(1 2)");
+        assertThat(point.getCRS(), equalTo(CRS.WGS84));
+
+        MultiPolyline multiPolyline = reader.readMultiPolyline("MULTILINESTRING((0 0,1 1),(2 2,3 3,4 4))");
+        assertThat(multiPolyline.getChildren().length, equalTo(2));
+        assertThat(multiPolyline.getChildren()[1].getPoints().length, equalTo(3));
+
+        String dump = "POINT(1 1)\nPOINT(2 2)";
+        assertThat(reader.read(dump, 11, dump.length()), equalTo(Point.point(CRS.Cartesian, 2, 2)));
+    }
+
+    @Test
+    public void shouldParseNumbersLikeDoubleParseDouble() {
+        WKTReader reader = new WKTReader();
+        Random random = new Random(7);
+        for (int i = 0; i < 10000; i++) {
+            double x = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(30) - 10);
+            double y = random.nextInt(2000000) / 10000.0 - 100;
+            Point point = (Point) reader.read("POINT(" + x + " " + y + ")");
+            assertThat(point.getCoordinate()[0], equalTo(x));
+            assertThat(point.getCoordinate()[1], equalTo(y));
+        }
+        for (String number : new String[]{"0.1", "-0", "123456789012345678901234", "4.9e-324", "1.7976931348623157e308", "0.30000000000000004", "9007199254740993"}) {
+            Point point = (Point) reader.read("POINT(" + number + " 0)");
+            assertThat(number, point.getCoordinate()[0], equalTo(Double.parseDouble(number)));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNotReadUnbalancedWKT() {
+        new WKTReader().read("POLYGON((0 0,1 0,1 1,0 0)");
+    }
+
+    @Test
+    public void shouldReadWrittenWKB() {
+        MultiPolygon written = MultiPolygon.build(square(0, 0, 10), square(1, 1, 8), square(2, 2, 1));
+
+        Polygon read = new WKBReader().readPolygon(ByteBuffer.wrap(WKBWriter.toWKB(written)));
+
+        assertThat(read.toWKT(), equalTo(written.toWKT()));
+    }
+
+    @Test
+    public void shouldReadEWKBWithSRIDAndZ() {
+        ByteBuffer ewkb = ByteBuffer.allocate(9 + 4 + 4 * 24).order(ByteOrder.BIG_ENDIAN);
+        ewkb.put((byte) 0);
+        ewkb.putInt(0x80000000 | 0x20000000 | 2);
+        ewkb.putInt(4326);
+        ewkb.putInt(4);
+        for (int i = 0; i < 4; i++) {
+            ewkb.putDouble(i);
+            ewkb.putDouble(50 + i);
+            ewkb.putDouble(100);
+        }
+        ewkb.flip();
+
+        Polyline polyline = (Polyline) new WKBReader().read(ewkb);
+
+        assertThat(polyline.getCRS(), equalTo(CRS.WGS84));
+        assertThat(polyline.getPoints().length, equalTo(4));
+        assertThat(polyline.getPoints()[3], equalTo(Point.point(CRS.WGS84, 3, 53)));
+        assertThat(ewkb.remaining(), equalTo(0));
+        assertThat(ewkb.order(), equalTo(ByteOrder.BIG_ENDIAN));
+    }
+}
@@ -0,0 +1,120 @@
+package org.neo4j.spatial.core;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.neo4j.spatial.core.TestGeometries.square;
+
+public class WKTWriterTest {
+
+    @Test
+    public void shouldWritePolygonWithHoleAndIsland() {
+        MultiPolygon multiPolygon = MultiPolygon.build(square(0, 0, 10), square(1, 1, 8), square(2, 2, 1));
+
+        assertThat(multiPolygon.toWKT(), equalTo("MULTIPOLYGON(" +
+                "((0.0 0.0,0.0 10.0,10.0 10.0,10.0 0.0,0.0 0.0), (1.0 1.0,9.0 1.0,9.0 9.0,1.0 9.0,1.0 1.0))," +
+                "((2.0 2.0,2.0 3.0,3.0 3.0,3.0 2.0,2.0 2.0)))"));
+        assertThat(square(0, 0, 1).toWKT(), equalTo("POLYGON((0.0 0.0,0.0 1.0,1.0 1.0,1.0 0.0,0.0 0.0))"));
+        assertThat(new MultiPolygon().toWKT(), equalTo("MULTIPOLYGON EMPTY"));
+    }
+
+    @Test
+    public void shouldSeparateShellFromFirstHoleOnly() {
+        MultiPolygon multiPolygon = MultiPolygon.build(square(0, 0, 10), square(1, 1, 2), square(5, 5, 2));
+
+        assertThat(multiPolygon.toWKT(), equalTo("MULTIPOLYGON(" +
+                "((0.0 0.0,0.0 10.0,10.0 10.0,10.0 0.0,0.0 0.0), (1.0 1.0,3.0 1.0,3.0 3.0,1.0 3.0,1.0 1.0)," +
+                "(5.0 5.0,7.0 5.0,7.0 7.0,5.0 7.0,5.0 5.0)))"));
+    }
+
+    @Test
+    public void shouldWritePolylines() {
+        Polyline polyline = Polyline.polyline(Point.point(CRS.Cartesian, 0, 0), Point.point(CRS.Cartesian, 1, 2));
+        MultiPolyline multiPolyline = new MultiPolyline();
+        multiPolyline.insertPolyline(polyline);
+        multiPolyline.insertPolyline(Polyline.polyline(Point.point(CRS.Cartesian, 3, 3), Point.point(CRS.Cartesian, 4, 4)));
+
+        assertThat(polyline.toWKT(), equalTo("LINESTRING(0.0 0.0,1.0 2.0)"));
+        assertThat(multiPolyline.toWKT(), equalTo("MULTILINESTRING((0.0 0.0,1.0 2.0),(3.0 3.0,4.0 4.0))"));
+    }
+
+    @Test
+    public void shouldFormatCoordinatesLikeDoubleToString() throws IOException {
+        double[] values = new double[]{0.0, -0.0, 1, -7, 9999999, 1e7, -1e7, 0.1, 12.345678901234, -1.0E-5, 1e300, Double.NaN, Double.POSITIVE_INFINITY, Long.MAX_VALUE};
+        for (double value : values) {
+            StringBuilder builder = new StringBuilder();
+            new WKTWriter(builder).writeDouble(value);
+            StringWriter writer = new StringWriter();
+            new WKTWriter(writer).writeDouble(value);
+
+            assertThat(builder.toString(), equalTo(Double.toString(value)));
+            assertThat(writer.toString(), equalTo(Double.toString(value)));
+        }
+    }
+
+    @Test
+    public void shouldFormatDecimalCoordinatesLikeDoubleToString() throws IOException {
+        Random random = new Random(1);
+        for (int i = 0; i < 100000; i++) {
+            double scale = Math.pow(10, random.nextInt(16));
+            double value = Math.round((random.nextDouble() - 0.5) * 360 * scale) / scale;
+            if (i % 2 == 0) {
+                value = random.nextDouble() * Math.pow(10, random.nextInt(12) - 4);
+            }
+            StringWriter writer = new StringWriter();
+            new WKTWriter(writer).writeDouble(value);
+
+            assertThat(writer.toString(), equalTo(Double.toString(value)));
+        }
+    }
+
+    @Test
+    public void shouldWriteSameWKBToBufferAndStream() throws IOException {
+        MultiPolygon multiPolygon = MultiPolygon.build(square(0, 0, 10), square(1, 1, 8), square(2, 2, 1));
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        new WKBWriter(stream).write(multiPolygon);
+        ByteBuffer buffer = ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN);
+        new WKBWriter(buffer).write(multiPolygon);
+
+        byte[] bytes = stream.toByteArray();
+        //multipolygon header, two polygon headers, three rings of five points
+        assertThat(bytes.length, equalTo(9 + 2 * 9 + 3 * (4 + 5 * 16)));
+        assertThat(buffer.position(), equalTo(bytes.length));
+        assertThat(WKBWriter.toWKB(multiPolygon), equalTo(bytes));
+
+        ByteBuffer read = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        assertThat(read.get(), equalTo((byte) 1));
+        assertThat(read.getInt(), equalTo(WKBWriter.MULTIPOLYGON));
+        assertThat(read.getInt(), equalTo(2));
+        assertThat(read.get(), equalTo((byte) 1));
+        assertThat(read.getInt(), equalTo(WKBWriter.POLYGON));
+        assertThat(read.getInt(), equalTo(2));
+        assertThat(read.getInt(), equalTo(5));
+        assertThat(read.getDouble(), equalTo(0.0));
+        assertThat(read.getDouble(), equalTo(0.0));
+        assertThat(read.getDouble(), equalTo(0.0));
+        assertThat(read.getDouble(), equalTo(10.0));
+    }
+
+    @Test
+    public void shouldWriteBigEndianWKB() throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        new WKBWriter(stream, ByteOrder.BIG_ENDIAN).write(Point.point(CRS.Cartesian, 1, 2));
+
+        ByteBuffer read = ByteBuffer.wrap(stream.toByteArray());
+        assertThat(read.remaining(), equalTo(21));
+        assertThat(read.get(), equalTo((byte) 0));
+        assertThat(read.getInt(), equalTo(WKBWriter.POINT));
+        assertThat(read.getDouble(), equalTo(1.0));
+        assertThat(read.getDouble(), equalTo(2.0));
+    }
+}
@@ -1,20 +1,108 @@
 package org.neo4j.spatial.neo4j;
 
+import org.neo4j.graphdb.Direction;
 import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.RelationshipType;
 import org.neo4j.graphdb.Transaction;
 
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 
 public abstract class GraphBuilder {
+    /**
+     * How the relationships connecting the way nodes are written
+     */
+    public enum WriteMode {
+        /**
+         * Inspect and write the relationships for each pair of consecutive way nodes in turn
+         */
+        PER_EDGE,
+        /**
+         * Gather all required relationships first, then lock the nodes in id order and write them node by node
+         */
+        BATCHED
+    }
+
     protected Node main;
     protected List<List<Node>> polylines;
     protected Transaction tx;
+    protected WriteMode mode;
 
     public GraphBuilder(Transaction tx, Node main, List<List<Node>> polylines) {
+        this(tx, main, polylines, WriteMode.BATCHED);
+    }
+
+    public GraphBuilder(Transaction tx, Node main, List<List<Node>> polylines, WriteMode mode) {
         this.tx = tx;
         this.main = main;
         this.polylines = polylines;
+        this.mode = mode;
     }
 
     abstract void build();
+
+    /**
+     * Make sure each pair of way nodes is connected, either by a NEXT relationship or by a relationship of the given type
+     * whose relation ids include the given relation id.
+     *
+     * @param pairs the pairs of way nodes to connect
+     * @param type the type of relationship to create
+     * @param relationOsmId the OSM id of the relation to add to the relation ids
+     */
+    protected void connectBatched(List<Node[]> pairs, RelationshipType type, long relationOsmId) {
+        TreeMap<Long, Node> locks = new TreeMap<>();
+        TreeMap<Long, Node> starts = new TreeMap<>();
+        Map<Long, Map<Long, Node>> ends = new HashMap<>();
+        for (Node[] pair : pairs) {
+            starts.putIfAbsent(pair[0].getId(), pair[0]);
+            locks.putIfAbsent(pair[0].getId(), pair[0]);
+            locks.putIfAbsent(pair[1].getId(), pair[1]);
+            ends.computeIfAbsent(pair[0].getId(), k -> new LinkedHashMap<>()).putIfAbsent(pair[1].getId(), pair[1]);
+        }
+
+        //Taking all locks up front in id order keeps concurrent builders of relations sharing ways from deadlocking
+        for (Node node : locks.values()) {
+            tx.acquireWriteLock(node);
+        }
+
+        for (Node a : starts.values()) {
+            Map<Long, Relationship> existing = new HashMap<>();
+            for (Relationship relationship : a.getRelationships(Direction.OUTGOING, type)) {
+                existing.putIfAbsent(relationship.getEndNodeId(), relationship);
+            }
+            Set<Long> next = new HashSet<>();
+            for (Relationship relationship : a.getRelationships(Relation.NEXT)) {
+                next.add(relationship.getOtherNodeId(a.getId()));
+            }
+
+            for (Node b : ends.get(a.getId()).values()) {
+                Relationship relationship = existing.get(b.getId());
+                if (relationship != null) {
+                    addRelationId(relationship, relationOsmId);
+                } else if (!next.contains(b.getId())) {
+                    relationship = a.createRelationshipTo(b, type);
+                    relationship.setProperty("relation_osm_ids", new long[]{relationOsmId});
+                }
+            }
+        }
+    }
+
+    private static void addRelationId(Relationship relationship, long relationOsmId) {
+        long[] ids = (long[]) relationship.getProperty("relation_osm_ids");
+        for (long id : ids) {
+            if (id == relationOsmId) {
+                return;
+            }
+        }
+        long[] idsModified = Arrays.copyOf(ids, ids.length + 1);
+        idsModified[ids.length] = relationOsmId;
+        relationship.setProperty("relation_osm_ids", idsModified);
+    }
 }
@@ -4,19 +4,29 @@ import org.neo4j.graphdb.*;
 import org.neo4j.spatial.core.MultiPolygon;
 import org.neo4j.spatial.core.Polygon;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class GraphPolygonBuilder extends GraphBuilder {
-    private static Label POLYGON_LABEL = Label.label("Polygon");
-    private static Label SHELL_LABEL = Label.label("Shell");
-    private static Label HOLE_LABEL = Label.label("Hole");
+    static final Label POLYGON_LABEL = Label.label("Polygon");
+    static final Label SHELL_LABEL = Label.label("Shell");
+    static final Label HOLE_LABEL = Label.label("Hole");
 
     public GraphPolygonBuilder(Transaction tx, Node main, List<List<Node>> polylines) {
         super(tx, main, polylines);
     }
 
+    public GraphPolygonBuilder(Transaction tx, Node main, List<List<Node>> polylines, WriteMode mode) {
+        super(tx, main, polylines, mode);
+    }
+
     public void build() {
         connectPolystrings();
         MultiPolygon root = buildMultiPolygon();
@@ -29,9 +39,25 @@ public class GraphPolygonBuilder extends GraphBuilder {
     /**
      * Connect unconnected way nodes of a polygon via a special relation relating to the OSMRelation
      */
-    private void connectPolystrings() {
+    void connectPolystrings() {
         long relationOsmId = (long) main.getProperty("relation_osm_id");
 
+        if (mode == WriteMode.BATCHED) {
+            List<Node[]> pairs = new ArrayList<>();
+            for (List<Node> polystring : polylines) {
+                for (int i = 0; i < polystring.size(); i++) {
+                    Node a = polystring.get(i);
+                    Node b = polystring.get((i + 1) % polystring.size());
+
+                    if (a.getId() != b.getId()) {
+                        pairs.add(new Node[]{a, b});
+                    }
+                }
+            }
+            connectBatched(pairs, Relation.NEXT_IN_POLYGON, relationOsmId);
+            return;
+        }
+
         for (List<Node> polystring : polylines) {
 
             pairwise:
@@ -43,6 +69,8 @@ public class GraphPolygonBuilder extends GraphBuilder {
                     continue;
                 }
 
+                //Relations sharing ways may be built concurrently, so lock before reading the relation ids
+                tx.acquireWriteLock(a);
                 for (Relationship relationship : a.getRelationships(Direction.OUTGOING, Relation.NEXT_IN_POLYGON)) {
                     if (b.getId() != relationship.getOtherNodeId(a.getId())) {
                         continue;
@@ -86,7 +114,6 @@ public class GraphPolygonBuilder extends GraphBuilder {
     private MultiPolygon buildMultiPolygon() {
 
         long relationOsmId = (long) main.getProperty("relation_osm_id");
-        MultiPolygon root = new MultiPolygon();
 
         Polygon.SimplePolygon[] polygons = new Polygon.SimplePolygon[polylines.size()];
 
@@ -95,11 +122,14 @@ public class GraphPolygonBuilder extends GraphBuilder {
             polygons[i] = polygon;
         }
 
+        Node[] ways = mode == WriteMode.BATCHED ? getWays() : null;
+        List<Neo4jMultiPolygonNode> nodes = new ArrayList<>(polygons.length);
         for (int i = 0; i < polygons.length; i++) {
-            root.insertMultiPolygonNode(new Neo4jMultiPolygonNode(polygons[i], getWay(polylines.get(i))));
+            Node way = ways != null ? ways[i] : getWay(polylines.get(i));
+            nodes.add(new Neo4jMultiPolygonNode(polygons[i], way, ringKey(polylines.get(i))));
         }
 
-        return root;
+        return MultiPolygon.build(nodes);
     }
 
     /**
@@ -111,6 +141,7 @@ public class GraphPolygonBuilder extends GraphBuilder {
     private void buildGraphPolygon(Node parent, Neo4jMultiPolygonNode node) {
         Label label = node.getType() == MultiPolygon.PolygonType.SHELL ? SHELL_LABEL : HOLE_LABEL;
         Node polygonNode = tx.createNode(POLYGON_LABEL, label);
+        polygonNode.setProperty("ring_key", node.getRingKey());
 
         parent.createRelationshipTo(polygonNode, Relation.POLYGON_STRUCTURE);
         polygonNode.createRelationshipTo(node.getStartWay(), Relation.POLYGON_START);
@@ -120,6 +151,52 @@ public class GraphPolygonBuilder extends GraphBuilder {
         }
     }
 
+    /**
+     * Find the OSMWay nodes of all polystrings, walking back from the first way node of each polystring
+     * to the first node of its way instead of running a query per polystring.
+     *
+     * @return The OSMWay node belonging to each polystring, in the order of the polystrings
+     */
+    private Node[] getWays() {
+        Set<Long> members = getMemberIds(main);
+
+        Node[] ways = new Node[polylines.size()];
+        for (int i = 0; i < ways.length; i++) {
+            ways[i] = getMemberWay(polylines.get(i).get(0), members);
+        }
+        return ways;
+    }
+
+    static Set<Long> getMemberIds(Node main) {
+        Set<Long> members = new HashSet<>();
+        for (Relationship member : main.getRelationships(Direction.OUTGOING, Relation.MEMBER)) {
+            members.add(member.getEndNodeId());
+        }
+        return members;
+    }
+
+    static Node getMemberWay(Node wayNode, Set<Long> members) {
+        Deque<Node> stack = new ArrayDeque<>();
+        Set<Long> visited = new HashSet<>();
+        stack.push(wayNode);
+        visited.add(wayNode.getId());
+
+        while (!stack.isEmpty()) {
+            Node current = stack.pop();
+            for (Relationship firstNode : current.getRelationships(Direction.INCOMING, Relation.FIRST_NODE)) {
+                if (members.contains(firstNode.getStartNodeId())) {
+                    return firstNode.getStartNode();
+                }
+            }
+            for (Relationship next : current.getRelationships(Direction.INCOMING, Relation.NEXT)) {
+                if (visited.add(next.getStartNodeId())) {
+                    stack.push(next.getStartNode());
+                }
+            }
+        }
+        return null;
+    }
+
     /**
      * @param polystring
      * @return The OSMWay node belonging to the polystring
@@ -137,4 +214,28 @@ public class GraphPolygonBuilder extends GraphBuilder {
 
         return null;
     }
+
+    /**
+     * Compute a key identifying a ring by its way nodes, independent of where the ring starts and its direction.
+     *
+     * @param polystring the way nodes of the ring
+     * @return The key of the ring
+     */
+    static long ringKey(List<Node> polystring) {
+        long[] ids = new long[polystring.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = polystring.get(i).getId();
+        }
+        Arrays.sort(ids);
+
+        long key = 1;
+        for (int i = 0; i < ids.length; i++) {
+            if (i > 0 && ids[i] == ids[i - 1]) {
+                continue;
+            }
+            key = (key ^ ids[i]) * 0x9E3779B97F4A7C15L;
+            key ^= key >>> 29;
+        }
+        return key;
+    }
 }
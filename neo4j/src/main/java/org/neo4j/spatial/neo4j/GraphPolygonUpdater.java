@@ -0,0 +1,266 @@
+package org.neo4j.spatial.neo4j;
+
+import org.neo4j.graphdb.*;
+import org.neo4j.internal.helpers.collection.Pair;
+import org.neo4j.spatial.core.MultiPolygon;
+import org.neo4j.spatial.core.Point;
+import org.neo4j.spatial.core.Polygon;
+
+import java.util.*;
+
+/**
+ * Updates the graph polygons of an OSMRelation after some of its ways changed.
+ * Rings which contain none of the changed way nodes and are found again when traversing the relation keep their
+ * Polygon node and cached 'polygon' property. Only the other rings are connected, created and cached again.
+ * The nesting of all rings is recomputed, so kept rings are moved when their parent changed.
+ */
+public class GraphPolygonUpdater {
+    private static final Label OSM_WAY_LABEL = Label.label("OSMWay");
+    private static final Label OSM_WAY_NODE_LABEL = Label.label("OSMWayNode");
+    private static final Label OSM_NODE_LABEL = Label.label("OSMNode");
+    private static final Label OSM_RELATION_LABEL = Label.label("OSMRelation");
+
+    private final Transaction tx;
+    private final Node main;
+    private final Set<Long> changedWayNodes;
+
+    /**
+     * @param tx the transaction in which to update the geometries
+     * @param main The node representing the OSMRelation
+     * @param changedWayNodes the ids of the OSMWayNodes whose position or connections changed
+     */
+    public GraphPolygonUpdater(Transaction tx, Node main, Set<Long> changedWayNodes) {
+        this.tx = tx;
+        this.main = main;
+        this.changedWayNodes = changedWayNodes;
+    }
+
+    public UpdateResult update() {
+        long relationOsmId = (long) main.getProperty("relation_osm_id");
+
+        Pair<List<List<Node>>, List<List<Node>>> geometries = OSMTraverser.traverseOSMGraph(tx, main);
+        List<List<Node>> rings = geometries.first();
+
+        //Polylines are not nested, so there is little to gain from updating them ring by ring
+        if (!geometries.other().isEmpty() || main.hasRelationship(Direction.OUTGOING, Relation.POLYLINE_STRUCTURE)) {
+            UserDefinedFunctions.createOSMGraphGeometries(tx, main);
+            return new UpdateResult(relationOsmId, 0, rings.size() + geometries.other().size(), 0, true);
+        }
+
+        Map<Long, Node> existing = new HashMap<>();
+        List<Node> obsolete = new ArrayList<>();
+        collectPolygonNodes(main, existing, obsolete);
+        boolean cached = existing.values().stream().anyMatch(node -> node.hasProperty("polygon"))
+                || obsolete.stream().anyMatch(node -> node.hasProperty("polygon"));
+
+        Node[] ringNodes = new Node[rings.size()];
+        long[] ringKeys = new long[rings.size()];
+        List<Integer> changedRings = new ArrayList<>();
+        for (int i = 0; i < rings.size(); i++) {
+            ringKeys[i] = GraphPolygonBuilder.ringKey(rings.get(i));
+            Node node = isAffected(rings.get(i)) ? null : existing.remove(ringKeys[i]);
+            if (node != null) {
+                ringNodes[i] = node;
+            } else {
+                changedRings.add(i);
+            }
+        }
+        obsolete.addAll(existing.values());
+
+        if (changedRings.isEmpty() && obsolete.isEmpty()) {
+            return new UpdateResult(relationOsmId, rings.size(), 0, 0, false);
+        }
+
+        for (Node node : obsolete) {
+            for (Relationship relationship : node.getRelationships()) {
+                relationship.delete();
+            }
+            node.delete();
+        }
+
+        List<List<Node>> newRings = new ArrayList<>();
+        for (int i : changedRings) {
+            newRings.add(rings.get(i));
+        }
+        new GraphPolygonBuilder(tx, main, newRings).connectPolystrings();
+
+        Set<Long> members = GraphPolygonBuilder.getMemberIds(main);
+        for (int i : changedRings) {
+            Node node = tx.createNode(GraphPolygonBuilder.POLYGON_LABEL);
+            node.setProperty("ring_key", ringKeys[i]);
+            node.createRelationshipTo(GraphPolygonBuilder.getMemberWay(rings.get(i).get(0), members), Relation.POLYGON_START);
+            ringNodes[i] = node;
+        }
+
+        List<MultiPolygon.MultiPolygonNode> children = new ArrayList<>(rings.size());
+        Map<MultiPolygon.MultiPolygonNode, Node> polygonNodes = new IdentityHashMap<>();
+        for (int i = 0; i < rings.size(); i++) {
+            MultiPolygon.MultiPolygonNode child = new MultiPolygon.MultiPolygonNode(toPolygon(rings.get(i)));
+            polygonNodes.put(child, ringNodes[i]);
+            children.add(child);
+        }
+        MultiPolygon root = MultiPolygon.build(children);
+        for (MultiPolygon.MultiPolygonNode child : root.getChildren()) {
+            placePolygonNode(main, child, polygonNodes);
+        }
+
+        if (cached) {
+            for (int i : changedRings) {
+                UserDefinedFunctions.cachePolygonProperty(ringNodes[i], relationOsmId);
+            }
+        }
+        if (PolygonCellIndex.isIndexed(main)) {
+            PolygonCellIndex.reindex(tx, main);
+        }
+
+        return new UpdateResult(relationOsmId, rings.size() - changedRings.size(), changedRings.size(), obsolete.size(), false);
+    }
+
+    private boolean isAffected(List<Node> ring) {
+        for (Node wayNode : ring) {
+            if (changedWayNodes.contains(wayNode.getId())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void collectPolygonNodes(Node parent, Map<Long, Node> byRingKey, List<Node> obsolete) {
+        for (Relationship structure : parent.getRelationships(Direction.OUTGOING, Relation.POLYGON_STRUCTURE)) {
+            Node child = structure.getEndNode();
+            Object key = child.getProperty("ring_key", null);
+            if (!(key instanceof Long) || byRingKey.putIfAbsent((Long) key, child) != null) {
+                obsolete.add(child);
+            }
+            collectPolygonNodes(child, byRingKey, obsolete);
+        }
+    }
+
+    /**
+     * Make sure the Polygon node hangs below the given parent with the label matching its type, and continue with its children.
+     */
+    private static void placePolygonNode(Node parent, MultiPolygon.MultiPolygonNode node, Map<MultiPolygon.MultiPolygonNode, Node> polygonNodes) {
+        Node polygonNode = polygonNodes.get(node);
+
+        boolean shell = node.getType() == MultiPolygon.PolygonType.SHELL;
+        polygonNode.removeLabel(shell ? GraphPolygonBuilder.HOLE_LABEL : GraphPolygonBuilder.SHELL_LABEL);
+        polygonNode.addLabel(shell ? GraphPolygonBuilder.SHELL_LABEL : GraphPolygonBuilder.HOLE_LABEL);
+
+        boolean connected = false;
+        for (Relationship structure : polygonNode.getRelationships(Direction.INCOMING, Relation.POLYGON_STRUCTURE)) {
+            if (structure.getStartNodeId() == parent.getId() && !connected) {
+                connected = true;
+            } else {
+                structure.delete();
+            }
+        }
+        if (!connected) {
+            parent.createRelationshipTo(polygonNode, Relation.POLYGON_STRUCTURE);
+        }
+
+        for (MultiPolygon.MultiPolygonNode child : node.getChildren()) {
+            placePolygonNode(polygonNode, child, polygonNodes);
+        }
+    }
+
+    private static Polygon.SimplePolygon toPolygon(List<Node> ring) {
+        List<Point> points = new ArrayList<>(ring.size());
+        for (Node wayNode : ring) {
+            org.neo4j.graphdb.spatial.Point location = (org.neo4j.graphdb.spatial.Point) wayNode.getSingleRelationship(Relation.NODE, Direction.OUTGOING).getEndNode().getProperty("location");
+            double[] coordinate = location.getCoordinate().getCoordinate().stream().mapToDouble(d -> d).toArray();
+            Point point = Point.point(CRSConverter.toInMemoryCRS(location.getCRS()), coordinate);
+            if (points.isEmpty() || !points.get(points.size() - 1).equals(point)) {
+                points.add(point);
+            }
+        }
+        return Polygon.simple(points.toArray(new Point[0]));
+    }
+
+    /**
+     * Find the way nodes affected by changes to the given nodes. A changed OSMWay, OSMWayNode or OSMNode affects all
+     * the way nodes of the ways it belongs to.
+     *
+     * @param changed the changed OSMWay, OSMWayNode or OSMNode nodes
+     * @return The affected OSMWay nodes and the ids of all their way nodes
+     */
+    public static Pair<Set<Node>, Set<Long>> findChangedWays(Collection<Node> changed) {
+        Set<Node> ways = new HashSet<>();
+        for (Node node : changed) {
+            if (node.hasLabel(OSM_WAY_LABEL)) {
+                ways.add(node);
+            } else if (node.hasLabel(OSM_WAY_NODE_LABEL)) {
+                addWayOf(node, ways);
+            } else if (node.hasLabel(OSM_NODE_LABEL)) {
+                for (Relationship wayNode : node.getRelationships(Direction.INCOMING, Relation.NODE)) {
+                    addWayOf(wayNode.getStartNode(), ways);
+                }
+            } else {
+                throw new IllegalArgumentException("Cannot update geometries for node that is neither an OSMWay, OSMWayNode nor OSMNode: " + node);
+            }
+        }
+
+        Set<Long> wayNodes = new HashSet<>();
+        for (Node way : ways) {
+            for (Relationship first : way.getRelationships(Direction.OUTGOING, Relation.FIRST_NODE)) {
+                Node current = first.getEndNode();
+                while (current != null && wayNodes.add(current.getId())) {
+                    Relationship next = current.getSingleRelationship(Relation.NEXT, Direction.OUTGOING);
+                    current = next == null ? null : next.getEndNode();
+                }
+            }
+        }
+        return Pair.of(ways, wayNodes);
+    }
+
+    private static void addWayOf(Node wayNode, Set<Node> ways) {
+        Set<Long> visited = new HashSet<>();
+        Node current = wayNode;
+        while (current != null && visited.add(current.getId())) {
+            for (Relationship first : current.getRelationships(Direction.INCOMING, Relation.FIRST_NODE)) {
+                ways.add(first.getStartNode());
+            }
+            Relationship previous = current.getSingleRelationship(Relation.NEXT, Direction.INCOMING);
+            current = previous == null ? null : previous.getStartNode();
+        }
+    }
+
+    /**
+     * @param ways the changed OSMWay nodes
+     * @return The OSMRelations containing any of the ways, directly or through other relations, which have geometries built
+     */
+    public static Set<Node> findAffectedRelations(Collection<Node> ways) {
+        Set<Node> relations = new LinkedHashSet<>();
+        Set<Long> visited = new HashSet<>();
+        Deque<Node> stack = new ArrayDeque<>(ways);
+        while (!stack.isEmpty()) {
+            Node current = stack.pop();
+            for (Relationship member : current.getRelationships(Direction.INCOMING, Relation.MEMBER)) {
+                Node relation = member.getStartNode();
+                if (visited.add(relation.getId())) {
+                    stack.push(relation);
+                    if (relation.hasLabel(OSM_RELATION_LABEL) && relation.hasProperty("relation_osm_id") &&
+                            (relation.hasRelationship(Direction.OUTGOING, Relation.POLYGON_STRUCTURE) || relation.hasRelationship(Direction.OUTGOING, Relation.POLYLINE_STRUCTURE))) {
+                        relations.add(relation);
+                    }
+                }
+            }
+        }
+        return relations;
+    }
+
+    public static class UpdateResult {
+        public long relation;
+        public long kept;
+        public long created;
+        public long deleted;
+        public boolean rebuilt;
+
+        private UpdateResult(long relation, long kept, long created, long deleted, boolean rebuilt) {
+            this.relation = relation;
+            this.kept = kept;
+            this.created = created;
+            this.deleted = deleted;
+            this.rebuilt = rebuilt;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package org.neo4j.spatial.neo4j;
 
 import org.neo4j.graphdb.*;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public class GraphPolylineBuilder extends GraphBuilder {
@@ -11,6 +12,10 @@ public class GraphPolylineBuilder extends GraphBuilder {
         super(tx, main, polylines);
     }
 
+    public GraphPolylineBuilder(Transaction tx, Node main, List<List<Node>> polylines, WriteMode mode) {
+        super(tx, main, polylines, mode);
+    }
+
     public void build() {
         connectPolylines();
         connectToMain();
@@ -22,6 +27,17 @@ public class GraphPolylineBuilder extends GraphBuilder {
     private void connectPolylines() {
         long relationOsmId = (long) main.getProperty("relation_osm_id");
 
+        if (mode == WriteMode.BATCHED) {
+            List<Node[]> pairs = new ArrayList<>();
+            for (List<Node> polyline : polylines) {
+                for (int i = 1; i < polyline.size() - 2; i++) {
+                    pairs.add(new Node[]{polyline.get(i), polyline.get(i + 1)});
+                }
+            }
+            connectBatched(pairs, Relation.NEXT_IN_POLYLINE, relationOsmId);
+            return;
+        }
+
         for (List<Node> polyline : polylines) {
 
             pairwise:
@@ -29,6 +45,8 @@ public class GraphPolylineBuilder extends GraphBuilder {
                 Node a = polyline.get(i);
                 Node b = polyline.get(i + 1);
 
+                //Relations sharing ways may be built concurrently, so lock before reading the relation ids
+                tx.acquireWriteLock(a);
                 for (Relationship relationship : a.getRelationships(Direction.OUTGOING, Relation.NEXT_IN_POLYLINE)) {
                     if (b.getId() != relationship.getEndNodeId()) {
                         continue;
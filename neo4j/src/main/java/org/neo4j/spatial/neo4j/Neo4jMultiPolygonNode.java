@@ -6,16 +6,26 @@ import org.neo4j.spatial.core.Polygon;
 
 public class Neo4jMultiPolygonNode extends MultiPolygon.MultiPolygonNode {
     private Node startWay;
+    private long ringKey;
 
     public Neo4jMultiPolygonNode(Polygon.SimplePolygon polygon, Node startWay) {
+        this(polygon, startWay, 0);
+    }
+
+    public Neo4jMultiPolygonNode(Polygon.SimplePolygon polygon, Node startWay, long ringKey) {
         super(polygon);
         this.startWay = startWay;
+        this.ringKey = ringKey;
     }
 
     public Node getStartWay() {
         return startWay;
     }
 
+    public long getRingKey() {
+        return ringKey;
+    }
+
     @Override
     public String toString() {
         return "Neo4jMultiPolygonNode{" + super.getPolygon() + '}';
@@ -0,0 +1,31 @@
+package org.neo4j.spatial.neo4j;
+
+import org.neo4j.graphdb.Node;
+import org.neo4j.spatial.core.Point;
+import org.neo4j.spatial.core.TraversalCursor;
+
+import java.util.Iterator;
+import java.util.function.Function;
+
+/**
+ * Cursor over the way nodes returned by a graph traversal, extracting the point of each way node as it is reached
+ */
+class Neo4jNodeCursor implements TraversalCursor {
+    private final Iterator<Node> nodes;
+    private final Function<Node, Point> extractor;
+
+    Neo4jNodeCursor(Iterator<Node> nodes, Function<Node, Point> extractor) {
+        this.nodes = nodes;
+        this.extractor = extractor;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return nodes.hasNext();
+    }
+
+    @Override
+    public Point next() {
+        return extractor.apply(nodes.next());
+    }
+}
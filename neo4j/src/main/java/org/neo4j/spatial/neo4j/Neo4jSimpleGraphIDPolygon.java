@@ -47,10 +47,4 @@ public class Neo4jSimpleGraphIDPolygon extends Neo4jSimpleGraphPolygon {
         Node node = wayNode.getSingleRelationship(Relation.NODE, Direction.OUTGOING).getEndNode();
         return new Neo4jIDPoint(node.getId(), ktx);
     }
-
-    @Override
-    public Point getNextPoint() {
-        super.traversing = true;
-        return extractPoint(getNextNode());
-    }
 }
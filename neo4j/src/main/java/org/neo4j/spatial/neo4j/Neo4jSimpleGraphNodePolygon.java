@@ -44,10 +44,4 @@ public class Neo4jSimpleGraphNodePolygon extends Neo4jSimpleGraphPolygon {
         Node node = wayNode.getSingleRelationship(Relation.NODE, Direction.OUTGOING).getEndNode();
         return new Neo4jPoint(node);
     }
-
-    @Override
-    public Point getNextPoint() {
-        super.traversing = true;
-        return extractPoint(getNextNode());
-    }
 }
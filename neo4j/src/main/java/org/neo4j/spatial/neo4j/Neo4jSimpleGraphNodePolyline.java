@@ -51,12 +51,4 @@ public class Neo4jSimpleGraphNodePolyline extends Neo4jSimpleGraphPolyline {
         Node node = wayNode.getSingleRelationship(Relation.NODE, Direction.OUTGOING).getEndNode();
         return new Neo4jPoint(node);
     }
-
-    @Override
-    public Point getNextPoint() {
-        super.traversing = true;
-        pointer = getNextNode(pointer);
-        Point point = extractPoint(pointer);
-        return point;
-    }
 }
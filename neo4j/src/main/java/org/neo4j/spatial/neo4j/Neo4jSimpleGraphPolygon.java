@@ -18,6 +18,7 @@ import org.neo4j.spatial.algo.DistanceCalculator;
 import org.neo4j.spatial.core.CRS;
 import org.neo4j.spatial.core.Point;
 import org.neo4j.spatial.core.Polygon;
+import org.neo4j.spatial.core.TraversalCursor;
 
 import java.util.Arrays;
 import java.util.Iterator;
@@ -27,17 +28,12 @@ import static java.lang.String.format;
 public abstract class Neo4jSimpleGraphPolygon implements Polygon.SimplePolygon {
     private long osmRelationId;
     private CRS crs;
-    private Iterator<Node> nodeIterator;
-    boolean traversing;
-    Node start;
+    private TraversalCursor cursor;
     Node main;
-    Point startPoint;
 
     public Neo4jSimpleGraphPolygon(Node main, long osmRelationId) {
         this.osmRelationId = osmRelationId;
-        this.traversing = false;
         this.main = main;
-        this.start = main;
         crs = extractPoint(main).getCRS();
     }
 
@@ -80,21 +76,18 @@ public abstract class Neo4jSimpleGraphPolygon implements Polygon.SimplePolygon {
     }
 
     @Override
-    public boolean fullyTraversed() {
-        if (this.nodeIterator != null) {
-            return !this.nodeIterator.hasNext() && this.traversing;
-        }
-        return false;
+    public TraversalCursor openCursor() {
+        return new Neo4jNodeCursor(getNewTraverser(this.main).nodes().iterator(), this::extractPoint);
     }
 
     @Override
-    public void startTraversal(Point startPoint, Point directionPoint) {
+    public TraversalCursor openCursor(Point startPoint, Point directionPoint) {
         Iterator<Node> iterator = getNewTraverser(this.main).nodes().iterator();
-        this.traversing = false;
 
         Distance calculator = DistanceCalculator.getCalculator(startPoint);
 
         Point firstPoint = null;
+        Node start = this.main;
 
         double minDistance = Double.MAX_VALUE;
         while (iterator.hasNext()) {
@@ -109,40 +102,49 @@ public abstract class Neo4jSimpleGraphPolygon implements Polygon.SimplePolygon {
             double currentDistance = calculator.distance(extracted, startPoint);
             if (currentDistance <= minDistance) {
                 minDistance = currentDistance;
-                this.start = next;
-                this.startPoint = extracted;
+                start = next;
             }
         }
-        Pair<Direction, Direction> directions = getClosestNeighborToDirection(directionPoint);
-        this.nodeIterator = getNewTraverser(this.start, directions.first(), directions.other()).nodes().iterator();
+        Pair<Direction, Direction> directions = getClosestNeighborToDirection(start, directionPoint);
+        return new Neo4jNodeCursor(getNewTraverser(start, directions.first(), directions.other()).nodes().iterator(), this::extractPoint);
+    }
+
+    @Override
+    public boolean fullyTraversed() {
+        return this.cursor != null && !this.cursor.hasNext();
+    }
+
+    @Override
+    public void startTraversal(Point startPoint, Point directionPoint) {
+        this.cursor = openCursor(startPoint, directionPoint);
     }
 
-    private Pair<Direction, Direction> getClosestNeighborToDirection(Point directionPoint) {
+    private Pair<Direction, Direction> getClosestNeighborToDirection(Node start, Point directionPoint) {
         double minDistance = Double.MAX_VALUE;
         Direction minDirection = null;
         boolean nextInPolygon = true;
 
         Distance calculator = DistanceCalculator.getCalculator(directionPoint);
 
-        for (Relationship relationship : this.start.getRelationships(Relation.NEXT_IN_POLYGON)) {
+        for (Relationship relationship : start.getRelationships(Relation.NEXT_IN_POLYGON)) {
             if (WayEvaluator.nextInPolygon(relationship, osmRelationId)) {
-                Node other = relationship.getOtherNode(this.start);
+                Node other = relationship.getOtherNode(start);
 
                 double currentDistance = calculator.distance(directionPoint, extractPoint(other));
                 if (currentDistance < minDistance) {
                     minDistance = currentDistance;
-                    minDirection = relationship.getStartNode().equals(this.start) ? Direction.OUTGOING : Direction.INCOMING;
+                    minDirection = relationship.getStartNode().equals(start) ? Direction.OUTGOING : Direction.INCOMING;
                 }
             }
         }
 
-        for (Relationship relationship : this.start.getRelationships(Relation.NEXT)) {
-            Node other = relationship.getOtherNode(this.start);
+        for (Relationship relationship : start.getRelationships(Relation.NEXT)) {
+            Node other = relationship.getOtherNode(start);
 
             double currentDistance = calculator.distance(directionPoint, extractPoint(other));
             if (currentDistance < minDistance) {
                 minDistance = currentDistance;
-                minDirection = relationship.getStartNode().equals(this.start) ? Direction.OUTGOING : Direction.INCOMING;
+                minDirection = relationship.getStartNode().equals(start) ? Direction.OUTGOING : Direction.INCOMING;
                 nextInPolygon = false;
             }
         }
@@ -156,21 +158,20 @@ public abstract class Neo4jSimpleGraphPolygon implements Polygon.SimplePolygon {
 
     @Override
     public void startTraversal() {
-        this.start = main;
-        this.traversing = false;
-        this.nodeIterator = getNewTraverser(this.start).nodes().iterator();
+        this.cursor = openCursor();
     }
 
-    abstract Point extractPoint(Node node);
-
-    Node getNextNode() {
-        if (this.nodeIterator == null) {
+    @Override
+    public Point getNextPoint() {
+        if (this.cursor == null) {
             throw new TraversalException("No traversal is currently ongoing");
         }
 
-        return this.nodeIterator.next();
+        return this.cursor.next();
     }
 
+    abstract Point extractPoint(Node node);
+
     protected Node[] traverseWholePolygon(Node main) {
         return Iterables.stream(getNewTraverser(main).nodes()).toArray(Node[]::new);
     }
@@ -15,6 +15,7 @@ import org.neo4j.spatial.algo.Distance;
 import org.neo4j.spatial.algo.DistanceCalculator;
 import org.neo4j.spatial.core.Point;
 import org.neo4j.spatial.core.Polyline;
+import org.neo4j.spatial.core.TraversalCursor;
 
 import java.util.Arrays;
 import java.util.Iterator;
@@ -23,19 +24,12 @@ import static java.lang.String.format;
 
 public abstract class Neo4jSimpleGraphPolyline implements Polyline {
     private long osmRelationId;
-    private Iterator<Node> nodeIterator;
-    boolean traversing;
-    Node pointer;
-    Node start;
+    private TraversalCursor cursor;
     Node main;
-    Point startPoint;
 
     public Neo4jSimpleGraphPolyline(Node main, long osmRelationId) {
         this.osmRelationId = osmRelationId;
-        this.traversing = false;
-        this.pointer = null;
         this.main = main;
-        this.start = main;
     }
 
     @Override
@@ -67,20 +61,17 @@ public abstract class Neo4jSimpleGraphPolyline implements Polyline {
     }
 
     @Override
-    public boolean fullyTraversed() {
-        if (this.nodeIterator != null) {
-            return !this.nodeIterator.hasNext() && this.traversing;
-        }
-        return false;
+    public TraversalCursor openCursor() {
+        return new Neo4jNodeCursor(getNewTraverser(this.main).nodes().iterator(), this::extractPoint);
     }
 
     @Override
-    public void startTraversal(Point startPoint, Point directionPoint) {
+    public TraversalCursor openCursor(Point startPoint, Point directionPoint) {
         Iterator<Node> iterator = getNewTraverser(this.main).nodes().iterator();
-        this.traversing = false;
 
         Distance calculator = DistanceCalculator.getCalculator(startPoint);
 
+        Node start = this.main;
         double minDistance = Double.MAX_VALUE;
         while (iterator.hasNext()) {
             Node next = iterator.next();
@@ -89,43 +80,51 @@ public abstract class Neo4jSimpleGraphPolyline implements Polyline {
             double currentDistance = calculator.distance(extracted, startPoint);
             if (currentDistance <= minDistance) {
                 minDistance = currentDistance;
-                this.start = next;
-                this.pointer = next;
-                this.startPoint = extracted;
+                start = next;
             }
         }
 
-        Pair<Relation, Direction> relationDirection = getClosestNeighborToDirection(directionPoint);
-        this.nodeIterator = getNewTraverser(this.start, relationDirection.first(), relationDirection.other()).nodes().iterator();
+        Pair<Relation, Direction> relationDirection = getClosestNeighborToDirection(start, directionPoint);
+        return new Neo4jNodeCursor(getNewTraverser(start, relationDirection.first(), relationDirection.other()).nodes().iterator(), this::extractPoint);
+    }
+
+    @Override
+    public boolean fullyTraversed() {
+        return this.cursor != null && !this.cursor.hasNext();
+    }
+
+    @Override
+    public void startTraversal(Point startPoint, Point directionPoint) {
+        this.cursor = openCursor(startPoint, directionPoint);
     }
 
-    private Pair<Relation, Direction> getClosestNeighborToDirection(Point directionPoint) {
+    private Pair<Relation, Direction> getClosestNeighborToDirection(Node start, Point directionPoint) {
         double minDistance = Double.MAX_VALUE;
         Direction minDirection = null;
         Relation minRelation = null;
 
         Distance calculator = DistanceCalculator.getCalculator(directionPoint);
 
-        for (Relationship relationship : this.start.getRelationships(Relation.NEXT_IN_POLYLINE)) {
+        for (Relationship relationship : start.getRelationships(Relation.NEXT_IN_POLYLINE)) {
             if (WayEvaluator.partOfPolyline(relationship, osmRelationId)) {
-                Node other = relationship.getOtherNode(this.start);
+                Node other = relationship.getOtherNode(start);
 
                 double currentDistance = calculator.distance(directionPoint, extractPoint(other));
                 if (currentDistance < minDistance) {
                     minDistance = currentDistance;
                     minRelation = Relation.NEXT_IN_POLYGON;
-                    minDirection = relationship.getStartNode().equals(this.start) ? Direction.OUTGOING : Direction.INCOMING;
+                    minDirection = relationship.getStartNode().equals(start) ? Direction.OUTGOING : Direction.INCOMING;
                 }
             }
         }
 
-        for (Relationship relationship : this.start.getRelationships(Relation.NEXT)) {
-            Node other = relationship.getOtherNode(this.start);
+        for (Relationship relationship : start.getRelationships(Relation.NEXT)) {
+            Node other = relationship.getOtherNode(start);
 
             double currentDistance = calculator.distance(directionPoint, extractPoint(other));
             if (currentDistance < minDistance) {
                 minDistance = currentDistance;
-                minDirection = relationship.getStartNode().equals(this.start) ? Direction.OUTGOING : Direction.INCOMING;
+                minDirection = relationship.getStartNode().equals(start) ? Direction.OUTGOING : Direction.INCOMING;
                 minRelation = Relation.NEXT;
             }
         }
@@ -135,22 +134,20 @@ public abstract class Neo4jSimpleGraphPolyline implements Polyline {
 
     @Override
     public void startTraversal() {
-        this.start = main;
-        this.pointer = main;
-        this.traversing = false;
-        this.nodeIterator = getNewTraverser(this.start).nodes().iterator();
+        this.cursor = openCursor();
     }
 
-    abstract Point extractPoint(Node node);
-
-    Node getNextNode(Node node) {
-        if (this.nodeIterator == null) {
+    @Override
+    public Point getNextPoint() {
+        if (this.cursor == null) {
             throw new TraversalException("No traversal is currently ongoing");
         }
 
-        return this.nodeIterator.next();
+        return this.cursor.next();
     }
 
+    abstract Point extractPoint(Node node);
+
     protected Node[] traverseWholePolygon(Node main) {
         return Iterables.stream(getNewTraverser(main).nodes()).toArray(Node[]::new);
     }
@@ -0,0 +1,169 @@
+package org.neo4j.spatial.neo4j;
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.TransientFailureException;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.logging.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Builds the graph geometries of many OSMRelations in parallel. The relations are split into batches which are
+ * handed to a pool of workers, each batch being built and committed in its own transaction. Batches that fail on
+ * transient errors, like deadlocks on way nodes shared between relations, are retried.
+ */
+public class OSMBatchGeometryBuilder {
+    public static final int DEFAULT_BATCH_SIZE = 100;
+    public static final int DEFAULT_RETRIES = 5;
+
+    private final GraphDatabaseService db;
+    private final Log log;
+    private final int batchSize;
+    private final int concurrency;
+    private final int retries;
+
+    public OSMBatchGeometryBuilder(GraphDatabaseService db, Log log, int batchSize, int concurrency, int retries) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Invalid 'batchSize', should be at least 1, but was: " + batchSize);
+        } else if (concurrency < 1) {
+            throw new IllegalArgumentException("Invalid 'concurrency', should be at least 1, but was: " + concurrency);
+        } else if (retries < 0) {
+            throw new IllegalArgumentException("Invalid 'retries', should not be negative, but was: " + retries);
+        }
+        this.db = db;
+        this.log = log;
+        this.batchSize = batchSize;
+        this.concurrency = concurrency;
+        this.retries = retries;
+    }
+
+    /**
+     * Create a builder configured by the map passed to the procedure. Supported keys are 'batchSize', 'concurrency' and 'retries'.
+     *
+     * @param db the database in which the worker transactions are started
+     * @param log the log to which progress is reported
+     * @param config the configuration map, may be null
+     * @return The configured builder
+     */
+    public static OSMBatchGeometryBuilder fromConfig(GraphDatabaseService db, Log log, Map<String, Object> config) {
+        int batchSize = getInt(config, "batchSize", DEFAULT_BATCH_SIZE);
+        int concurrency = getInt(config, "concurrency", Runtime.getRuntime().availableProcessors());
+        int retries = getInt(config, "retries", DEFAULT_RETRIES);
+        return new OSMBatchGeometryBuilder(db, log, batchSize, concurrency, retries);
+    }
+
+    static int getInt(Map<String, Object> config, String key, int defaultValue) {
+        if (config == null || !config.containsKey(key)) {
+            return defaultValue;
+        }
+        Object value = config.get(key);
+        if (!(value instanceof Number)) {
+            throw new IllegalArgumentException("Invalid '" + key + "', should be a number, but was: " + value);
+        }
+        return ((Number) value).intValue();
+    }
+
+    /**
+     * Build the geometries for all the given OSMRelation nodes.
+     *
+     * @param relationNodeIds the node ids of the OSMRelations
+     * @return The result of each batch, in batch order
+     */
+    public List<BatchResult> build(List<Long> relationNodeIds) {
+        List<List<Long>> batches = new ArrayList<>();
+        for (int i = 0; i < relationNodeIds.size(); i += batchSize) {
+            batches.add(relationNodeIds.subList(i, Math.min(i + batchSize, relationNodeIds.size())));
+        }
+
+        AtomicLong processed = new AtomicLong();
+        long total = relationNodeIds.size();
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(concurrency, Math.max(1, batches.size())));
+        try {
+            List<Future<BatchResult>> futures = new ArrayList<>(batches.size());
+            for (int i = 0; i < batches.size(); i++) {
+                final long batch = i;
+                final List<Long> ids = batches.get(i);
+                futures.add(executor.submit(() -> {
+                    BatchResult result = buildBatch(batch, ids);
+                    long done = processed.addAndGet(ids.size());
+                    log.info("Built OSM geometries for %d of %d relations (batch %d: %d built, %d failed, %d retries)",
+                            done, total, batch, result.built, result.failed, result.retries);
+                    return result;
+                }));
+            }
+
+            List<BatchResult> results = new ArrayList<>(futures.size());
+            for (Future<BatchResult> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while building OSM geometries", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to build OSM geometries", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private BatchResult buildBatch(long batch, List<Long> ids) {
+        long start = System.currentTimeMillis();
+        int attempt = 0;
+
+        while (true) {
+            try (Transaction tx = db.beginTx()) {
+                for (long id : ids) {
+                    UserDefinedFunctions.createOSMGraphGeometries(tx, tx.getNodeById(id));
+                }
+                tx.commit();
+                return new BatchResult(batch, ids.size(), 0, attempt, System.currentTimeMillis() - start, null);
+            } catch (TransientFailureException e) {
+                if (attempt >= retries) {
+                    log.warn("Giving up on batch %d after %d retries: %s", batch, attempt, e.getMessage());
+                    return new BatchResult(batch, 0, ids.size(), attempt, System.currentTimeMillis() - start, e.getMessage());
+                }
+                attempt++;
+                backoff(attempt);
+            } catch (RuntimeException e) {
+                log.error("Failed to build batch " + batch, e);
+                return new BatchResult(batch, 0, ids.size(), attempt, System.currentTimeMillis() - start, e.getMessage());
+            }
+        }
+    }
+
+    private static void backoff(int attempt) {
+        try {
+            Thread.sleep((long) (Math.random() * 10 * (1L << Math.min(attempt, 8))));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to retry batch", e);
+        }
+    }
+
+    public static class BatchResult {
+        public long batch;
+        public long built;
+        public long failed;
+        public long retries;
+        public long time;
+        public String error;
+
+        private BatchResult(long batch, long built, long failed, long retries, long time, String error) {
+            this.batch = batch;
+            this.built = built;
+            this.failed = failed;
+            this.retries = retries;
+            this.time = time;
+            this.error = error;
+        }
+    }
+}
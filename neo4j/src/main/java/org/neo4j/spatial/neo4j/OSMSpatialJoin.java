@@ -0,0 +1,577 @@
+package org.neo4j.spatial.neo4j;
+
+import org.neo4j.graphdb.*;
+import org.neo4j.logging.Log;
+import org.neo4j.spatial.algo.PreparedPolygon;
+import org.neo4j.spatial.algo.index.RTree;
+import org.neo4j.spatial.algo.index.SelfJoin;
+import org.neo4j.spatial.algo.wgs84.CellCovering;
+import org.neo4j.spatial.algo.wgs84.CellId;
+import org.neo4j.spatial.core.CRS;
+import org.neo4j.spatial.core.MultiPolygon;
+import org.neo4j.spatial.core.Point;
+import org.neo4j.spatial.core.Polygon;
+import org.neo4j.spatial.core.Vector;
+
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Joins the point property of all nodes with a label against the graph polygons of the OSMRelations, in parallel.
+ * <p>
+ * Every polygon is copied out of the graph and prepared once: Cartesian polygons as a {@link PreparedPolygon} grid and
+ * WGS84 polygons as a {@link CellCovering}, indexed by their bounds in one {@link RTree} per coordinate reference
+ * system. The point nodes are scanned by label on the calling thread and handed out by node id in batches to a pool of
+ * workers, never more than a few batches ahead of the caller taking their results in batch order. A worker reads the
+ * points of its batch in its own transaction, tests them in the order of their cells so neighbouring points hit the same
+ * polygons, optionally creates a relationship per pair, and commits before handing back the pairs. Batches that fail on
+ * transient errors, like deadlocks on relation nodes shared between batches, are retried.
+ */
+public class OSMSpatialJoin {
+    public static final int DEFAULT_BATCH_SIZE = 10000;
+    public static final int DEFAULT_RETRIES = 5;
+    public static final String DEFAULT_RELATION_LABEL = "OSMRelation";
+    public static final String DEFAULT_RELATIONSHIP_TYPE = "CONTAINED_IN";
+
+    private final GraphDatabaseService db;
+    private final Log log;
+    private final int batchSize;
+    private final int concurrency;
+    private final int retries;
+
+    public OSMSpatialJoin(GraphDatabaseService db, Log log, int batchSize, int concurrency, int retries) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Invalid 'batchSize', should be at least 1, but was: " + batchSize);
+        } else if (concurrency < 1) {
+            throw new IllegalArgumentException("Invalid 'concurrency', should be at least 1, but was: " + concurrency);
+        } else if (retries < 0) {
+            throw new IllegalArgumentException("Invalid 'retries', should not be negative, but was: " + retries);
+        }
+        this.db = db;
+        this.log = log;
+        this.batchSize = batchSize;
+        this.concurrency = concurrency;
+        this.retries = retries;
+    }
+
+    /**
+     * Create a join configured by the map passed to the procedure. Supported keys are 'batchSize', 'concurrency' and 'retries'.
+     *
+     * @param db the database in which the worker transactions are started
+     * @param log the log to which progress is reported
+     * @param config the configuration map, may be null
+     * @return The configured join
+     */
+    public static OSMSpatialJoin fromConfig(GraphDatabaseService db, Log log, Map<String, Object> config) {
+        int batchSize = OSMBatchGeometryBuilder.getInt(config, "batchSize", DEFAULT_BATCH_SIZE);
+        int concurrency = OSMBatchGeometryBuilder.getInt(config, "concurrency", Runtime.getRuntime().availableProcessors());
+        int retries = OSMBatchGeometryBuilder.getInt(config, "retries", DEFAULT_RETRIES);
+        return new OSMSpatialJoin(db, log, batchSize, concurrency, retries);
+    }
+
+    static String getString(Map<String, Object> config, String key, String defaultValue) {
+        if (config == null || !config.containsKey(key)) {
+            return defaultValue;
+        }
+        Object value = config.get(key);
+        if (!(value instanceof String)) {
+            throw new IllegalArgumentException("Invalid '" + key + "', should be a string, but was: " + value);
+        }
+        return (String) value;
+    }
+
+    /**
+     * Find the pairs of point nodes and the relations containing their point.
+     *
+     * @param tx the transaction in which the relations are prepared and the point nodes are scanned
+     * @param pointLabel the label of the point nodes
+     * @param property the point property of the point nodes
+     * @param relationLabel the label of the OSMRelations
+     * @return The node ids of the point node and the relation of every pair, streamed batch by batch as the workers
+     * commit them, which should be closed when not consumed to the end
+     * @throws IllegalStateException from the stream when it reaches a failed batch, instead of returning an incomplete join
+     */
+    public Stream<long[]> pairs(Transaction tx, Label pointLabel, String property, Label relationLabel) {
+        PreparedRelations prepared = PreparedRelations.prepare(tx, relationLabel, log);
+        if (prepared.size() == 0) {
+            return Stream.empty();
+        }
+
+        //The pairs are taken from the committed batches, so nothing is written in their transactions
+        Scan scan = new Scan(tx, pointLabel, property, prepared, (batchTx, points, relations, count) -> { });
+        Iterator<long[]> iterator = new Iterator<long[]>() {
+            private Pairs pairs;
+            private int position;
+
+            @Override
+            public boolean hasNext() {
+                while (pairs == null || position == pairs.count) {
+                    Outcome outcome = scan.next();
+                    if (outcome == null) {
+                        return false;
+                    } else if (outcome.result.error != null) {
+                        scan.close();
+                        throw new IllegalStateException("Failed to join batch " + outcome.result.batch + ": " + outcome.result.error);
+                    }
+                    pairs = outcome.pairs;
+                    position = 0;
+                }
+                return true;
+            }
+
+            @Override
+            public long[] next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                int pair = position++;
+                return new long[]{pairs.points[pair], pairs.relations[pair]};
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(scan::close);
+    }
+
+    /**
+     * Create a relationship of the given type from every point node to each relation containing its point, committing
+     * every batch of point nodes in its own transaction.
+     *
+     * @param tx the transaction in which the relations are prepared and the point nodes are scanned
+     * @param pointLabel the label of the point nodes
+     * @param property the point property of the point nodes
+     * @param relationLabel the label of the OSMRelations
+     * @param type the type of the created relationships
+     * @return The result of each batch, in batch order
+     */
+    public List<BatchResult> write(Transaction tx, Label pointLabel, String property, Label relationLabel, RelationshipType type) {
+        PreparedRelations prepared = PreparedRelations.prepare(tx, relationLabel, log);
+        List<BatchResult> results = new ArrayList<>();
+        if (prepared.size() == 0) {
+            return results;
+        }
+
+        try (Scan scan = new Scan(tx, pointLabel, property, prepared, (batchTx, points, relations, count) -> {
+            //Lock the relation nodes in the same order in every batch, which avoids most deadlocks between batches
+            Integer[] order = sortedPositions(count, (a, b) -> Long.compare(relations[a], relations[b]));
+            Node relation = null;
+            for (int position : order) {
+                if (relation == null || relation.getId() != relations[position]) {
+                    relation = batchTx.getNodeById(relations[position]);
+                }
+                batchTx.getNodeById(points[position]).createRelationshipTo(relation, type);
+            }
+        })) {
+            for (Outcome outcome = scan.next(); outcome != null; outcome = scan.next()) {
+                results.add(outcome.result);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Find the pairs of relations whose graph polygons overlap, with the {@link SelfJoin} of the polygons copied into
+     * memory. Relations in different coordinate reference systems never overlap.
+     *
+     * @param tx the transaction in which the relations are read
+     * @param relationLabel the label of the OSMRelations
+     * @return The node ids of the two relations of every pair, the smaller id first
+     */
+    public static List<long[]> overlapping(Transaction tx, Label relationLabel) {
+        Map<CRS, List<Long>> relations = new EnumMap<>(CRS.class);
+        Map<CRS, List<MultiPolygon>> polygons = new EnumMap<>(CRS.class);
+        try (ResourceIterator<Node> nodes = tx.findNodes(relationLabel)) {
+            while (nodes.hasNext()) {
+                Node main = nodes.next();
+                if (!main.hasRelationship(Direction.OUTGOING, Relation.POLYGON_STRUCTURE)) {
+                    continue;
+                }
+                MultiPolygon polygon = PreparedRelations.copy(UserDefinedFunctions.getGraphNodePolygon(main), new MultiPolygon());
+                if (polygon.getChildren().isEmpty()) {
+                    continue;
+                }
+                relations.computeIfAbsent(polygon.getCRS(), crs -> new ArrayList<>()).add(main.getId());
+                polygons.computeIfAbsent(polygon.getCRS(), crs -> new ArrayList<>()).add(polygon);
+            }
+        }
+
+        List<long[]> result = new ArrayList<>();
+        for (CRS crs : polygons.keySet()) {
+            List<Long> ids = relations.get(crs);
+            SelfJoin.intersecting(polygons.get(crs)).forEachOrdered(pair -> {
+                long first = ids.get(pair[0]);
+                long second = ids.get(pair[1]);
+                result.add(new long[]{Math.min(first, second), Math.max(first, second)});
+            });
+        }
+        return result;
+    }
+
+    /**
+     * The batches of point nodes scanned by label, joined by the workers while the caller takes their outcomes in batch order
+     */
+    private class Scan implements AutoCloseable {
+        private final ResourceIterator<Node> nodes;
+        private final String property;
+        private final PreparedRelations prepared;
+        private final PairSink sink;
+        private final ExecutorService executor;
+        private final Deque<Future<Outcome>> pending = new ArrayDeque<>();
+        private final AtomicLong processed = new AtomicLong();
+        private long batches;
+
+        private Scan(Transaction tx, Label pointLabel, String property, PreparedRelations prepared, PairSink sink) {
+            this.nodes = tx.findNodes(pointLabel);
+            this.property = property;
+            this.prepared = prepared;
+            this.sink = sink;
+            this.executor = Executors.newFixedThreadPool(concurrency);
+        }
+
+        /**
+         * @return The outcome of the next batch, or null once all batches have been taken
+         */
+        private Outcome next() {
+            //Only scan ahead of the caller by a few batches, so neither the ids nor the pairs of all points are held at once
+            while (pending.size() < 2 * concurrency) {
+                if (!submit()) {
+                    break;
+                }
+            }
+            Future<Outcome> future = pending.poll();
+            if (future == null) {
+                close();
+                return null;
+            }
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                close();
+                throw new IllegalStateException("Interrupted while joining points and polygons", e);
+            } catch (ExecutionException e) {
+                close();
+                throw new IllegalStateException("Failed to join points and polygons", e.getCause());
+            }
+        }
+
+        private boolean submit() {
+            long[] ids = new long[batchSize];
+            int size = 0;
+            while (size < batchSize && nodes.hasNext()) {
+                ids[size++] = nodes.next().getId();
+            }
+            if (size == 0) {
+                return false;
+            }
+            final long batch = batches++;
+            final long[] batchIds = size == batchSize ? ids : Arrays.copyOf(ids, size);
+            pending.add(executor.submit(() -> {
+                Outcome outcome = joinBatch(batch, batchIds, property, prepared, sink);
+                BatchResult result = outcome.result;
+                log.info("Joined %d points (batch %d: %d points, %d pairs, %d failed, %d retries)",
+                        processed.addAndGet(batchIds.length), batch, result.points, result.pairs, result.failed, result.retries);
+                return outcome;
+            }));
+            return true;
+        }
+
+        @Override
+        public void close() {
+            executor.shutdownNow();
+            nodes.close();
+        }
+    }
+
+    /**
+     * The pairs are only handed back once the transaction of the batch committed, so a retried batch never repeats them
+     */
+    private Outcome joinBatch(long batch, long[] ids, String property, PreparedRelations prepared, PairSink sink) {
+        long start = System.currentTimeMillis();
+        int attempt = 0;
+
+        while (true) {
+            try (Transaction tx = db.beginTx()) {
+                Batch points = Batch.read(tx, ids, property, prepared.crs());
+                Pairs pairs = new Pairs(points.size);
+                for (int position : points.order()) {
+                    long pointId = points.ids[position];
+                    prepared.containing(points.points[position], relation -> pairs.add(pointId, relation));
+                }
+                sink.accept(tx, pairs.points, pairs.relations, pairs.count);
+                tx.commit();
+                return new Outcome(new BatchResult(batch, points.size, pairs.count, 0, attempt, System.currentTimeMillis() - start, null), pairs);
+            } catch (TransientFailureException e) {
+                if (attempt >= retries) {
+                    log.warn("Giving up on batch %d after %d retries: %s", batch, attempt, e.getMessage());
+                    return new Outcome(new BatchResult(batch, 0, 0, ids.length, attempt, System.currentTimeMillis() - start, e.getMessage()), null);
+                }
+                attempt++;
+                backoff(attempt);
+            } catch (RuntimeException e) {
+                log.error("Failed to join batch " + batch, e);
+                return new Outcome(new BatchResult(batch, 0, 0, ids.length, attempt, System.currentTimeMillis() - start, e.getMessage()), null);
+            }
+        }
+    }
+
+    private static void backoff(int attempt) {
+        try {
+            Thread.sleep((long) (Math.random() * 10 * (1L << Math.min(attempt, 8))));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to retry batch", e);
+        }
+    }
+
+    private static Integer[] sortedPositions(int count, Comparator<Integer> comparator) {
+        Integer[] positions = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            positions[i] = i;
+        }
+        Arrays.sort(positions, comparator);
+        return positions;
+    }
+
+    private interface PairSink {
+        /**
+         * Called in the transaction of the batch, before it commits
+         */
+        void accept(Transaction tx, long[] points, long[] relations, int count);
+    }
+
+    /**
+     * The result of a batch with its committed pairs, or without pairs if it failed
+     */
+    private static class Outcome {
+        private final BatchResult result;
+        private final Pairs pairs;
+
+        private Outcome(BatchResult result, Pairs pairs) {
+            this.result = result;
+            this.pairs = pairs;
+        }
+    }
+
+    /**
+     * The polygons of the relations, copied into memory and prepared for point-in-polygon tests, with one tree per
+     * coordinate reference system as a tree only indexes geometries in one of them
+     */
+    private static class PreparedRelations {
+        private final Map<CRS, Group> groups;
+        private final int size;
+
+        private PreparedRelations(Map<CRS, Group> groups, int size) {
+            this.groups = groups;
+            this.size = size;
+        }
+
+        private static PreparedRelations prepare(Transaction tx, Label relationLabel, Log log) {
+            Map<CRS, List<Long>> relations = new EnumMap<>(CRS.class);
+            Map<CRS, List<Polygon>> polygons = new EnumMap<>(CRS.class);
+            Map<CRS, List<Predicate<Point>>> tests = new EnumMap<>(CRS.class);
+            int size = 0;
+            try (ResourceIterator<Node> nodes = tx.findNodes(relationLabel)) {
+                while (nodes.hasNext()) {
+                    Node main = nodes.next();
+                    if (!main.hasProperty("relation_osm_id") || !main.hasRelationship(Direction.OUTGOING, Relation.POLYGON_STRUCTURE)) {
+                        continue;
+                    }
+                    MultiPolygon polygon = copy(UserDefinedFunctions.getGraphNodePolygon(main), new MultiPolygon());
+                    Predicate<Point> test;
+                    try {
+                        test = prepare(polygon);
+                    } catch (IllegalArgumentException e) {
+                        log.warn("Skipping relation %s in the join: %s", main.getProperty("relation_osm_id"), e.getMessage());
+                        continue;
+                    }
+                    tests.computeIfAbsent(polygon.getCRS(), crs -> new ArrayList<>()).add(test);
+                    relations.computeIfAbsent(polygon.getCRS(), crs -> new ArrayList<>()).add(main.getId());
+                    polygons.computeIfAbsent(polygon.getCRS(), crs -> new ArrayList<>()).add(polygon);
+                    size++;
+                }
+            }
+
+            Map<CRS, Group> groups = new EnumMap<>(CRS.class);
+            for (CRS crs : polygons.keySet()) {
+                List<Long> ids = relations.get(crs);
+                long[] relationIds = new long[ids.size()];
+                for (int i = 0; i < relationIds.length; i++) {
+                    relationIds[i] = ids.get(i);
+                }
+                groups.put(crs, new Group(relationIds, tests.get(crs), RTree.build(polygons.get(crs))));
+            }
+            log.info("Prepared %d relation polygons for the join", size);
+            return new PreparedRelations(groups, size);
+        }
+
+        private static Predicate<Point> prepare(MultiPolygon polygon) {
+            if (polygon.getCRS() == CRS.Cartesian) {
+                return PreparedPolygon.prepare(polygon)::contains;
+            }
+            return CellCovering.cover(polygon, PolygonCellIndex.DEFAULT_MAX_LEVEL, PolygonCellIndex.DEFAULT_MAX_CELLS)::contains;
+        }
+
+        /**
+         * Copy the rings of a graph polygon into memory, so the workers test the points without reading the graph
+         */
+        private static MultiPolygon copy(MultiPolygon source, MultiPolygon target) {
+            for (MultiPolygon.MultiPolygonNode child : source.getChildren()) {
+                MultiPolygon.MultiPolygonNode node = new MultiPolygon.MultiPolygonNode(Polygon.simple(child.getPolygon().getPoints()));
+                target.addChild(node);
+                copy(child, node);
+            }
+            return target;
+        }
+
+        private int size() {
+            return size;
+        }
+
+        /**
+         * @return The coordinate reference systems of the relations
+         */
+        private Set<CRS> crs() {
+            return groups.keySet();
+        }
+
+        /**
+         * Pass the node ids of the relations containing the point to the consumer
+         */
+        private void containing(Point point, LongConsumer consumer) {
+            Group group = groups.get(point.getCRS());
+            if (group == null) {
+                return;
+            }
+            group.tree.candidates(point, index -> {
+                if (group.tests.get(index).test(point)) {
+                    consumer.accept(group.relations[index]);
+                }
+            });
+        }
+    }
+
+    /**
+     * The relations in one coordinate reference system, indexed in the same order by their tree
+     */
+    private static class Group {
+        private final long[] relations;
+        private final List<Predicate<Point>> tests;
+        private final RTree<Polygon> tree;
+
+        private Group(long[] relations, List<Predicate<Point>> tests, RTree<Polygon> tree) {
+            this.relations = relations;
+            this.tests = tests;
+            this.tree = tree;
+        }
+    }
+
+    private static class Pairs {
+        private long[] points;
+        private long[] relations;
+        private int count;
+
+        private Pairs(int capacity) {
+            this.points = new long[Math.max(16, capacity)];
+            this.relations = new long[points.length];
+        }
+
+        private void add(long point, long relation) {
+            if (count == points.length) {
+                points = Arrays.copyOf(points, 2 * count);
+                relations = Arrays.copyOf(relations, 2 * count);
+            }
+            points[count] = point;
+            relations[count++] = relation;
+        }
+    }
+
+    /**
+     * The points of a batch of nodes, skipping nodes without a point property in a coordinate reference system of the polygons
+     */
+    private static class Batch {
+        private final long[] ids;
+        private final Point[] points;
+        private final int size;
+
+        private Batch(long[] ids, Point[] points, int size) {
+            this.ids = ids;
+            this.points = points;
+            this.size = size;
+        }
+
+        private static Batch read(Transaction tx, long[] nodeIds, String property, Set<CRS> crs) {
+            long[] ids = new long[nodeIds.length];
+            Point[] points = new Point[nodeIds.length];
+            int size = 0;
+            for (long nodeId : nodeIds) {
+                Object value = tx.getNodeById(nodeId).getProperty(property, null);
+                if (value instanceof org.neo4j.graphdb.spatial.Point) {
+                    org.neo4j.graphdb.spatial.Point point = (org.neo4j.graphdb.spatial.Point) value;
+                    List<Double> coordinate = point.getCoordinate().getCoordinate();
+                    for (CRS candidate : crs) {
+                        if (point.getCRS() == CRSConverter.toNeo4jCRS(candidate) && coordinate.size() == 2) {
+                            ids[size] = nodeId;
+                            points[size++] = Point.point(candidate, coordinate.get(0), coordinate.get(1));
+                        }
+                    }
+                }
+            }
+            return new Batch(ids, points, size);
+        }
+
+        /**
+         * @return The positions of the points, grouped by coordinate reference system, ordered by their leaf cell for WGS84
+         * and by x for Cartesian points
+         */
+        private Integer[] order() {
+            //Cell ids need all 64 bits, so they are kept apart from the x-values instead of sharing one double key
+            long[] cells = new long[size];
+            double[] xs = new double[size];
+            for (int i = 0; i < size; i++) {
+                double[] coordinate = points[i].getCoordinate();
+                if (points[i].getCRS() == CRS.WGS84) {
+                    //Flipping the sign bit turns the unsigned order of cell ids into the signed order
+                    cells[i] = CellId.fromVector(Vector.pointCoordinatesToVectorCoordinates(coordinate)) ^ Long.MIN_VALUE;
+                } else {
+                    xs[i] = coordinate[0];
+                }
+            }
+            return sortedPositions(size, (a, b) -> {
+                if (points[a].getCRS() != points[b].getCRS()) {
+                    return points[a].getCRS().compareTo(points[b].getCRS());
+                } else if (points[a].getCRS() == CRS.WGS84) {
+                    return Long.compare(cells[a], cells[b]);
+                }
+                return Double.compare(xs[a], xs[b]);
+            });
+        }
+    }
+
+    public static class BatchResult {
+        public long batch;
+        public long points;
+        public long pairs;
+        public long failed;
+        public long retries;
+        public long time;
+        public String error;
+
+        private BatchResult(long batch, long points, long pairs, long failed, long retries, long time, String error) {
+            this.batch = batch;
+            this.points = points;
+            this.pairs = pairs;
+            this.failed = failed;
+            this.retries = retries;
+            this.time = time;
+            this.error = error;
+        }
+    }
+}
@@ -75,6 +75,7 @@ public class OSMTraverser {
 
     /**
      * Connect neighboring ways to create polygons by common nodes.
+     * Candidate ways are looked up by their end nodes, so each join is found without scanning the remaining ways.
      *
      * @param candidates List of candidate ways
      * @return First list contains enriched ways which describe full polygons
@@ -84,22 +85,32 @@ public class OSMTraverser {
         List<EnrichedWay> polygons = new ArrayList<>();
         List<EnrichedWay> notPolygons = new ArrayList<>();
 
-        while (!candidates.isEmpty()) {
-            boolean joinedSome;
-            EnrichedWay way = candidates.get(0);
-            candidates.remove(0);
-
-            do {
-                joinedSome = false;
-                ListIterator<EnrichedWay> wayIter = candidates.listIterator();
-                while (wayIter.hasNext()) {
-                    EnrichedWay candidate = wayIter.next();
-                    if (way.joinByCommonNode(candidate)) {
-                        wayIter.remove();
-                        joinedSome = true;
-                    }
+        Map<Long, List<EnrichedWay>> byEndNode = new HashMap<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            EnrichedWay candidate = candidates.get(i);
+            candidate.order = i;
+            byEndNode.computeIfAbsent(candidate.first.getNodeId(), k -> new ArrayList<>()).add(candidate);
+            if (candidate.last.getNodeId() != candidate.first.getNodeId()) {
+                byEndNode.computeIfAbsent(candidate.last.getNodeId(), k -> new ArrayList<>()).add(candidate);
+            }
+        }
+
+        for (EnrichedWay way : candidates) {
+            if (way.joined) {
+                continue;
+            }
+            remove(byEndNode, way);
+
+            while (true) {
+                Pair<EnrichedWay, EnrichedWay.JoinDirection> join = findCommonNodeJoin(byEndNode, way);
+                if (join == null) {
+                    break;
                 }
-            } while (joinedSome);
+                EnrichedWay other = join.first();
+                remove(byEndNode, other);
+                other.joined = true;
+                way.join(other, join.other());
+            }
 
             if (way.isClosed()) {
                 polygons.add(way);
@@ -111,79 +122,174 @@ public class OSMTraverser {
         return Pair.of(polygons, notPolygons);
     }
 
+    /**
+     * Find the way to join to the given way. The earliest candidate sharing an end node is picked,
+     * joining its last node to our first node before any of the other directions.
+     */
+    private static Pair<EnrichedWay, EnrichedWay.JoinDirection> findCommonNodeJoin(Map<Long, List<EnrichedWay>> byEndNode, EnrichedWay way) {
+        EnrichedWay best = null;
+        for (long node : new long[]{way.first.getNodeId(), way.last.getNodeId()}) {
+            for (EnrichedWay candidate : byEndNode.getOrDefault(node, Collections.emptyList())) {
+                if (best == null || candidate.order < best.order) {
+                    best = candidate;
+                }
+            }
+        }
+        if (best == null) {
+            return null;
+        }
+
+        if (way.first.getNodeId() == best.last.getNodeId()) {
+            return Pair.of(best, EnrichedWay.JoinDirection.FL);
+        } else if (way.last.getNodeId() == best.first.getNodeId()) {
+            return Pair.of(best, EnrichedWay.JoinDirection.LF);
+        } else if (way.first.getNodeId() == best.first.getNodeId()) {
+            return Pair.of(best, EnrichedWay.JoinDirection.FF);
+        } else {
+            return Pair.of(best, EnrichedWay.JoinDirection.LL);
+        }
+    }
+
+    private static void remove(Map<Long, List<EnrichedWay>> byEndNode, EnrichedWay way) {
+        for (long node : new long[]{way.first.getNodeId(), way.last.getNodeId()}) {
+            List<EnrichedWay> ways = byEndNode.get(node);
+            if (ways != null) {
+                ways.removeIf(w -> w == way);
+                if (ways.isEmpty()) {
+                    byEndNode.remove(node);
+                }
+            }
+        }
+    }
+
     /**
      * Connect neighboring ways to create polygons by proximity of the end nodes.
+     * The end points of the polylines built so far are kept in a grid, so only the polylines near the way to add are compared.
      *
      * @param candidates List of candidate ways
      * @return List of enriched ways where each enriched way describes a polygon
      */
     private static Pair<List<EnrichedWay>, List<EnrichedWay>> connectWaysByProximity(List<EnrichedWay> candidates) {
         List<EnrichedWay> polygons = new ArrayList<>();
-        List<EnrichedWay> polylines = new ArrayList<>();
+        Set<EnrichedWay> polylines = new LinkedHashSet<>();
+        EndpointGrid grid = new EndpointGrid(EnrichedWay.PROXIMITY_THRESHOLD);
+
+        for (int i = 0; i < candidates.size(); i++) {
+            candidates.get(i).order = i;
+        }
 
         polylines.add(candidates.get(0));
-        candidates.remove(0);
+        grid.insert(candidates.get(0));
 
-        while (candidates.size() > 0) {
-            EnrichedWay wayToAdd = candidates.get(0);
-            candidates.remove(0);
+        for (int i = 1; i < candidates.size(); i++) {
+            EnrichedWay wayToAdd = candidates.get(i);
 
             double minDistance = Double.MAX_VALUE;
-            int bestIndex = -1;
+            EnrichedWay wayToAddTo = null;
             EnrichedWay.JoinDirection joinDirection = null;
 
-            for (int i = 0; i < polylines.size(); i++) {
-                EnrichedWay candidateWayToAddTo = polylines.get(i);
-
+            for (EnrichedWay candidateWayToAddTo : grid.near(wayToAdd)) {
                 Pair<Double, EnrichedWay.JoinDirection> distanceDirection = candidateWayToAddTo.distanceTo(wayToAdd);
 
-                if (distanceDirection.first() < minDistance) {
+                if (distanceDirection.first() < minDistance || (distanceDirection.first() == minDistance && candidateWayToAddTo.order < wayToAddTo.order)) {
                     minDistance = distanceDirection.first();
                     joinDirection = distanceDirection.other();
-                    bestIndex = i;
+                    wayToAddTo = candidateWayToAddTo;
                 }
             }
 
             //No other polyline is close
             if (minDistance > EnrichedWay.PROXIMITY_THRESHOLD) {
-                Vector first = new Vector(true, wayToAdd.first.other());
-                Vector last = new Vector(true, wayToAdd.last.other());
-                double distance = WGSUtil.distance(first, last);
-
                 //The polyline closes itself
-                if (AlgoUtil.lessOrEqual(distance, EnrichedWay.PROXIMITY_THRESHOLD)) {
+                if (AlgoUtil.lessOrEqual(wayToAdd.gap(), EnrichedWay.PROXIMITY_THRESHOLD)) {
                     polygons.add(wayToAdd);
-                    polylines.remove(wayToAdd);
                 } else {
                     polylines.add(wayToAdd);
+                    grid.insert(wayToAdd);
                 }
 
                 continue;
             }
 
-            EnrichedWay wayToAddTo = polylines.get(bestIndex);
+            grid.remove(wayToAddTo);
             wayToAddTo.join(wayToAdd, joinDirection);
 
-            Vector first = new Vector(true, wayToAddTo.first.other());
-            Vector last = new Vector(true, wayToAddTo.last.other());
-            double distance = WGSUtil.distance(first, last);
-
             //The polyline closes itself
-            if (AlgoUtil.lessOrEqual(distance, EnrichedWay.PROXIMITY_THRESHOLD)) {
+            if (AlgoUtil.lessOrEqual(wayToAddTo.gap(), EnrichedWay.PROXIMITY_THRESHOLD)) {
                 polygons.add(wayToAddTo);
                 polylines.remove(wayToAddTo);
+            } else {
+                grid.insert(wayToAddTo);
             }
         }
 
-        return Pair.of(polygons, polylines);
+        return Pair.of(polygons, new ArrayList<>(polylines));
+    }
+
+    /**
+     * Hash grid over the n-vectors of the end points of ways. The cells are as wide as the search distance,
+     * so all end points within that distance of a point are found in the surrounding 27 cells.
+     */
+    private static class EndpointGrid {
+        private final double cellSize;
+        private final Map<Long, List<EnrichedWay>> cells = new HashMap<>();
+
+        EndpointGrid(double distance) {
+            //The chord between two points is never longer than the great-circle distance
+            this.cellSize = distance / WGSUtil.RADIUS;
+        }
+
+        void insert(EnrichedWay way) {
+            cells.computeIfAbsent(key(way.first.vector, 0, 0, 0), k -> new ArrayList<>()).add(way);
+            cells.computeIfAbsent(key(way.last.vector, 0, 0, 0), k -> new ArrayList<>()).add(way);
+        }
+
+        void remove(EnrichedWay way) {
+            for (Vector end : new Vector[]{way.first.vector, way.last.vector}) {
+                long key = key(end, 0, 0, 0);
+                List<EnrichedWay> ways = cells.get(key);
+                if (ways != null) {
+                    ways.removeIf(w -> w == way);
+                    if (ways.isEmpty()) {
+                        cells.remove(key);
+                    }
+                }
+            }
+        }
+
+        Set<EnrichedWay> near(EnrichedWay way) {
+            Set<EnrichedWay> result = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (Vector end : new Vector[]{way.first.vector, way.last.vector}) {
+                for (int dx = -1; dx <= 1; dx++) {
+                    for (int dy = -1; dy <= 1; dy++) {
+                        for (int dz = -1; dz <= 1; dz++) {
+                            List<EnrichedWay> ways = cells.get(key(end, dx, dy, dz));
+                            if (ways != null) {
+                                result.addAll(ways);
+                            }
+                        }
+                    }
+                }
+            }
+            return result;
+        }
+
+        private long key(Vector v, int dx, int dy, int dz) {
+            long x = (long) Math.floor(v.getCoordinate(0) / cellSize) + dx;
+            long y = (long) Math.floor(v.getCoordinate(1) / cellSize) + dy;
+            long z = (long) Math.floor(v.getCoordinate(2) / cellSize) + dz;
+            return ((x & 0x1FFFFF) << 42) | ((y & 0x1FFFFF) << 21) | (z & 0x1FFFFF);
+        }
     }
 
     private static class EnrichedWay {
         static final double PROXIMITY_THRESHOLD = 250; //in meters
 
-        Pair<Node, double[]> first;
-        Pair<Node, double[]> last;
+        Endpoint first;
+        Endpoint last;
         private List<Node> wayNodes;
+        private int order;
+        private boolean joined;
 
         enum JoinDirection {
             FF, FL, LF, LL
@@ -195,23 +301,6 @@ public class OSMTraverser {
             this.last = getOSMNode(wayNodes.get(wayNodes.size() - 1));
         }
 
-        boolean joinByCommonNode(EnrichedWay other) {
-            if (first.first().equals(other.last.first())) {
-                join(other, JoinDirection.FL);
-                return true;
-            } else if (last.first().equals(other.first.first())) {
-                join(other, JoinDirection.LF);
-                return true;
-            } else if (first.first().equals(other.first.first())) {
-                join(other, JoinDirection.FF);
-                return true;
-            } else if (last.first().equals(other.last.first())) {
-                join(other, JoinDirection.LL);
-                return true;
-            }
-            return false;
-        }
-
         void join(EnrichedWay other, JoinDirection direction) {
             switch (direction) {
                 case FF:
@@ -238,45 +327,67 @@ public class OSMTraverser {
         }
 
         Pair<Double, JoinDirection> distanceTo(EnrichedWay other) {
-            double[] tf = this.first.other();
-            double[] tl = this.last.other();
-            double[] of = other.first.other();
-            double[] ol = other.last.other();
-
-            List<Pair<Double, JoinDirection>> options = new ArrayList<>();
-            options.add(Pair.of(distance(tf, of), JoinDirection.FF));
-            options.add(Pair.of(distance(tf, ol), JoinDirection.FL));
-            options.add(Pair.of(distance(tl, of), JoinDirection.LF));
-            options.add(Pair.of(distance(tl, ol), JoinDirection.LL));
-
-            return options.stream().min(Comparator.comparingDouble(Pair::first)).get();
+            double[] distances = new double[]{
+                    WGSUtil.distance(this.first.vector, other.first.vector),
+                    WGSUtil.distance(this.first.vector, other.last.vector),
+                    WGSUtil.distance(this.last.vector, other.first.vector),
+                    WGSUtil.distance(this.last.vector, other.last.vector)
+            };
+
+            int best = 0;
+            for (int i = 1; i < distances.length; i++) {
+                if (distances[i] < distances[best]) {
+                    best = i;
+                }
+            }
+            return Pair.of(distances[best], JoinDirection.values()[best]);
         }
 
-        private double distance(double[] a, double[] b) {
-            Vector u = new Vector(true, a);
-            Vector v = new Vector(true, b);
-            return WGSUtil.distance(u, v);
+        /**
+         * @return The distance between the first and the last point of the way
+         */
+        double gap() {
+            return WGSUtil.distance(first.vector, last.vector);
         }
 
         boolean isClosed() {
-            return first.first().equals(last.first());
+            return first.node.equals(last.node);
         }
 
         @Override
         public String toString() {
-            return "EW[" + Arrays.toString(first.other()) + ", " + Arrays.toString(last.other()) + "]";
+            return "EW[" + Arrays.toString(first.coordinate) + ", " + Arrays.toString(last.coordinate) + "]";
         }
 
         /**
          * @param wayNode
-         * @return The coordinate belonging to the OSMWayNode
+         * @return The end point belonging to the OSMWayNode
          */
-        static Pair<Node, double[]> getOSMNode(Node wayNode) {
+        static Endpoint getOSMNode(Node wayNode) {
             Node node = wayNode.getSingleRelationship(Relation.NODE, Direction.OUTGOING).getEndNode();
 
             Point point = (Point) node.getProperty("location");
 
-            return Pair.of(node, point.getCoordinate().getCoordinate().stream().mapToDouble(i -> i).toArray());
+            return new Endpoint(node, point.getCoordinate().getCoordinate().stream().mapToDouble(i -> i).toArray());
+        }
+    }
+
+    /**
+     * The OSMNode at the end of a way, with its coordinate and n-vector
+     */
+    private static class Endpoint {
+        final Node node;
+        final double[] coordinate;
+        final Vector vector;
+
+        Endpoint(Node node, double[] coordinate) {
+            this.node = node;
+            this.coordinate = coordinate;
+            this.vector = new Vector(true, coordinate);
+        }
+
+        long getNodeId() {
+            return node.getId();
         }
     }
 }
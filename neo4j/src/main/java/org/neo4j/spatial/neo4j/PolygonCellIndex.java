@@ -0,0 +1,148 @@
+package org.neo4j.spatial.neo4j;
+
+import org.neo4j.graphdb.*;
+import org.neo4j.graphdb.schema.IndexDefinition;
+import org.neo4j.spatial.algo.WithinCalculator;
+import org.neo4j.spatial.algo.wgs84.CellCovering;
+import org.neo4j.spatial.algo.wgs84.CellId;
+import org.neo4j.spatial.core.CRS;
+import org.neo4j.spatial.core.MultiPolygon;
+import org.neo4j.spatial.core.Point;
+
+import java.util.*;
+
+/**
+ * Stores the cell covering of the graph polygon of an OSMRelation as PolygonCell nodes, with the id of the cell in the
+ * indexed 'cell_id' property and whether the cell lies entirely inside the polygon in the 'interior' property.
+ * <p>
+ * The relations containing a point are found by looking up the ids of the cells containing the point at every level.
+ * A point in an interior cell is inside the polygon of the relation, only a point in a boundary cell is tested against
+ * the polygon itself.
+ */
+public class PolygonCellIndex {
+    static final Label CELL_LABEL = Label.label("PolygonCell");
+    static final String CELL_ID = "cell_id";
+    static final String INTERIOR = "interior";
+    static final String MAX_LEVEL = "cell_max_level";
+    static final String MAX_CELLS = "cell_max_cells";
+
+    static final int DEFAULT_MAX_LEVEL = 16;
+    static final int DEFAULT_MAX_CELLS = 256;
+
+    private PolygonCellIndex() {
+    }
+
+    /**
+     * Create the schema index on the cell ids, unless it already exists
+     *
+     * @return True iff the index was created
+     */
+    public static boolean createSchemaIndex(Transaction tx) {
+        for (IndexDefinition index : tx.schema().getIndexes(CELL_LABEL)) {
+            for (String key : index.getPropertyKeys()) {
+                if (key.equals(CELL_ID)) {
+                    return false;
+                }
+            }
+        }
+        tx.schema().indexFor(CELL_LABEL).on(CELL_ID).create();
+        return true;
+    }
+
+    public static boolean isIndexed(Node main) {
+        return main.hasProperty(MAX_LEVEL);
+    }
+
+    /**
+     * Replace the cells of the relation by the covering of its graph polygon, with the parameters of the last indexing
+     */
+    public static CellResult reindex(Transaction tx, Node main) {
+        return index(tx, main, ((Number) main.getProperty(MAX_LEVEL)).intValue(), ((Number) main.getProperty(MAX_CELLS)).intValue());
+    }
+
+    /**
+     * Replace the cells of the relation by the covering of its graph polygon
+     *
+     * @param tx the transaction in which to create the cells
+     * @param main The node representing the OSMRelation
+     * @param maxLevel the finest level of the cells
+     * @param maxCells the number of cells after which cells are no longer subdivided
+     */
+    public static CellResult index(Transaction tx, Node main, int maxLevel, int maxCells) {
+        long relationOsmId = (long) main.getProperty("relation_osm_id");
+        delete(main);
+
+        MultiPolygon polygon = UserDefinedFunctions.getGraphNodePolygon(main);
+        if (polygon.getChildren().isEmpty()) {
+            return new CellResult(relationOsmId, 0, 0);
+        }
+        if (polygon.getCRS() != CRS.WGS84) {
+            throw new IllegalArgumentException("Cells can only be computed for WGS84 polygons, got " + polygon.getCRS());
+        }
+
+        CellCovering covering = CellCovering.cover(polygon, maxLevel, maxCells);
+        long interior = 0;
+        long boundary = 0;
+        for (long cell : covering.getExterior()) {
+            boolean inside = covering.isInside(cell);
+            Node cellNode = tx.createNode(CELL_LABEL);
+            cellNode.setProperty(CELL_ID, cell);
+            cellNode.setProperty(INTERIOR, inside);
+            main.createRelationshipTo(cellNode, Relation.POLYGON_CELL);
+            if (inside) {
+                interior++;
+            } else {
+                boundary++;
+            }
+        }
+        main.setProperty(MAX_LEVEL, maxLevel);
+        main.setProperty(MAX_CELLS, maxCells);
+        return new CellResult(relationOsmId, interior, boundary);
+    }
+
+    /**
+     * Delete the cells of the relation
+     */
+    public static void delete(Node main) {
+        for (Relationship relationship : main.getRelationships(Direction.OUTGOING, Relation.POLYGON_CELL)) {
+            Node cell = relationship.getEndNode();
+            relationship.delete();
+            cell.delete();
+        }
+        main.removeProperty(MAX_LEVEL);
+        main.removeProperty(MAX_CELLS);
+    }
+
+    /**
+     * @param point a WGS84 point
+     * @return The relations whose graph polygon contains the point
+     */
+    public static List<Node> containing(Transaction tx, Point point) {
+        long leaf = CellId.fromPoint(point);
+        List<Node> result = new ArrayList<>();
+        for (int level = 0; level <= CellId.MAX_LEVEL; level++) {
+            try (ResourceIterator<Node> cells = tx.findNodes(CELL_LABEL, CELL_ID, CellId.parent(leaf, level))) {
+                while (cells.hasNext()) {
+                    Node cell = cells.next();
+                    Node main = cell.getSingleRelationship(Relation.POLYGON_CELL, Direction.INCOMING).getStartNode();
+                    if ((boolean) cell.getProperty(INTERIOR) || WithinCalculator.within(UserDefinedFunctions.getGraphNodePolygon(main), point)) {
+                        result.add(main);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    public static class CellResult {
+        public long relation;
+        public long interior;
+        public long boundary;
+
+        private CellResult(long relation, long interior, long boundary) {
+            this.relation = relation;
+            this.interior = interior;
+            this.boundary = boundary;
+        }
+    }
+}
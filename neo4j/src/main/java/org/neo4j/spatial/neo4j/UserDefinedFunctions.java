@@ -17,10 +17,12 @@ import org.neo4j.spatial.core.MultiPolygon;
 import org.neo4j.spatial.core.MultiPolyline;
 import org.neo4j.spatial.core.Polygon;
 import org.neo4j.spatial.core.Polyline;
+import org.neo4j.spatial.core.WKBWriter;
 import org.neo4j.values.storable.CoordinateReferenceSystem;
 import org.neo4j.values.storable.Values;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Stream;
 
 public class UserDefinedFunctions {
@@ -31,6 +33,9 @@ public class UserDefinedFunctions {
     @Context
     public Transaction tx;
 
+    @Context
+    public GraphDatabaseService db;
+
     @UserFunction("spatial.polygon")
     public List<Point> makePolygon(@Name("points") List<Point> points) {
         if (points == null || points.size() < 3) {
@@ -58,20 +63,32 @@ public class UserDefinedFunctions {
         while (mainResult.hasNext()) {
             Node polygonNode = (Node) mainResult.next().get("polygonNode");
 
-            parameters = new HashMap<>();
-            parameters.put("polygonNode", polygonNode.getId());
-            Result startNodeResult = tx.execute("MATCH (p:Polygon)-[:POLYGON_START]->(:OSMWay)-[:FIRST_NODE]->(n:OSMWayNode) WHERE id(p)=$polygonNode RETURN n AS startNode", parameters);
-
-            if (!startNodeResult.hasNext()) {
+            if (!cachePolygonProperty(polygonNode, relation_osm_id)) {
                 return;
             }
+        }
+    }
 
-            Node startNode = (Node) startNodeResult.next().get("startNode");
-
-            Neo4jSimpleGraphNodePolygon polygon = new Neo4jSimpleGraphNodePolygon(startNode, relation_osm_id);
+    /**
+     * Store the points of the graph polygon starting at the given Polygon node as a Point[] property named 'polygon' on that node
+     *
+     * @param polygonNode the Polygon node
+     * @param relationOsmId the OSM id of the relation the polygon belongs to
+     * @return False if the Polygon node has no start node
+     */
+    static boolean cachePolygonProperty(Node polygonNode, long relationOsmId) {
+        Relationship polygonStart = polygonNode.getSingleRelationship(Relation.POLYGON_START, Direction.OUTGOING);
+        Relationship firstNode = polygonStart == null ? null : polygonStart.getEndNode().getSingleRelationship(Relation.FIRST_NODE, Direction.OUTGOING);
 
-            polygonNode.setProperty("polygon", Arrays.stream(polygon.getPoints()).map(p -> Values.pointValue(CoordinateReferenceSystem.WGS84, p.getCoordinate())).toArray(Point[]::new));
+        if (firstNode == null) {
+            return false;
         }
+
+        Neo4jSimpleGraphNodePolygon polygon = new Neo4jSimpleGraphNodePolygon(firstNode.getEndNode(), relationOsmId);
+        CoordinateReferenceSystem crs = (CoordinateReferenceSystem) CRSConverter.toNeo4jCRS(polygon.getCRS());
+
+        polygonNode.setProperty("polygon", Arrays.stream(polygon.getPoints()).map(p -> Values.pointValue(crs, p.getCoordinate())).toArray(Point[]::new));
+        return true;
     }
 
     @Procedure(name = "spatial.osm.array.createPolyline", mode = Mode.WRITE)
@@ -108,7 +125,109 @@ public class UserDefinedFunctions {
 
     @Procedure(name = "spatial.osm.graph.createPolygon", mode = Mode.WRITE)
     public void createOSMGraphGeometries(@Name("main") Node main) {
+        createOSMGraphGeometries(tx, main);
+    }
+
+    @Description("Creates the graph polygons of all OSMRelations with the given label, in parallel batches each committed in its own transaction. " +
+            "Config: batchSize (default 100), concurrency (default number of processors), retries (default 5)")
+    @Procedure(name = "spatial.osm.graph.createPolygons", mode = Mode.WRITE)
+    public Stream<OSMBatchGeometryBuilder.BatchResult> createOSMGraphGeometriesForLabel(@Name("label") String label, @Name(value = "config", defaultValue = "{}") Map<String, Object> config) {
+        List<Long> relationNodeIds = new ArrayList<>();
+        try (ResourceIterator<Node> nodes = tx.findNodes(Label.label(label))) {
+            while (nodes.hasNext()) {
+                Node node = nodes.next();
+                if (node.hasProperty("relation_osm_id")) {
+                    relationNodeIds.add(node.getId());
+                }
+            }
+        }
+        return OSMBatchGeometryBuilder.fromConfig(db, log, config).build(relationNodeIds).stream();
+    }
+
+    @Description("Creates the graph polygons of the OSMRelations with the given relation_osm_ids, in parallel batches each committed in its own transaction. " +
+            "Config: batchSize (default 100), concurrency (default number of processors), retries (default 5)")
+    @Procedure(name = "spatial.osm.graph.createPolygons.ids", mode = Mode.WRITE)
+    public Stream<OSMBatchGeometryBuilder.BatchResult> createOSMGraphGeometriesForIds(@Name("relationIds") List<Long> relationIds, @Name(value = "config", defaultValue = "{}") Map<String, Object> config) {
+        List<Long> relationNodeIds = new ArrayList<>();
+        Result result = tx.execute("MATCH (m:OSMRelation) WHERE m.relation_osm_id IN $ids RETURN id(m) AS id ORDER BY id", Map.of("ids", relationIds));
+        while (result.hasNext()) {
+            relationNodeIds.add((Long) result.next().get("id"));
+        }
+        return OSMBatchGeometryBuilder.fromConfig(db, log, config).build(relationNodeIds).stream();
+    }
+
+    @Description("Updates the graph polygons of the OSMRelations containing the given changed OSMWay, OSMWayNode or OSMNode nodes, " +
+            "rebuilding only the rings containing the changed ways")
+    @Procedure(name = "spatial.osm.graph.updatePolygons", mode = Mode.WRITE)
+    public Stream<GraphPolygonUpdater.UpdateResult> updateOSMGraphGeometries(@Name("changed") List<Node> changed) {
+        Pair<Set<Node>, Set<Long>> changedWays = GraphPolygonUpdater.findChangedWays(changed);
+        List<GraphPolygonUpdater.UpdateResult> results = new ArrayList<>();
+        for (Node main : GraphPolygonUpdater.findAffectedRelations(changedWays.first())) {
+            results.add(new GraphPolygonUpdater(tx, main, changedWays.other()).update());
+        }
+        return results.stream();
+    }
+
+    @Description("Creates the schema index on the cell_id of PolygonCell nodes, unless it already exists")
+    @Procedure(name = "spatial.osm.graph.createPolygonCellIndex", mode = Mode.SCHEMA)
+    public void createPolygonCellIndex() {
+        PolygonCellIndex.createSchemaIndex(tx);
+    }
+
+    @Description("Stores the cell covering of the WGS84 graph polygon of the OSMRelation as PolygonCell nodes, replacing earlier cells. " +
+            "Config: maxLevel (default 16), maxCells (default 256)")
+    @Procedure(name = "spatial.osm.graph.createPolygonCells", mode = Mode.WRITE)
+    public Stream<PolygonCellIndex.CellResult> createPolygonCells(@Name("main") Node main, @Name(value = "config", defaultValue = "{}") Map<String, Object> config) {
+        int maxLevel = OSMBatchGeometryBuilder.getInt(config, "maxLevel", PolygonCellIndex.DEFAULT_MAX_LEVEL);
+        int maxCells = OSMBatchGeometryBuilder.getInt(config, "maxCells", PolygonCellIndex.DEFAULT_MAX_CELLS);
+        return Stream.of(PolygonCellIndex.index(tx, main, maxLevel, maxCells));
+    }
+
+    @Description("Finds the OSMRelations whose graph polygon contains the WGS84 point, using the PolygonCell nodes of the relations")
+    @Procedure(name = "spatial.osm.containing", mode = Mode.READ)
+    public Stream<RelationResult> containing(@Name("point") Point point) {
+        return PolygonCellIndex.containing(tx, asInMemoryPoint(point)).stream().map(RelationResult::new);
+    }
+
+    @Description("Finds the OSMRelations whose graph polygon contains the point property of each node with the given label, " +
+            "preparing every polygon once and testing the points in parallel batches. " +
+            "Config: relationLabel (default OSMRelation), batchSize (default 10000), concurrency (default number of processors)")
+    @Procedure(name = "spatial.osm.join", mode = Mode.READ)
+    public Stream<JoinResult> join(@Name("label") String label, @Name("property") String property, @Name(value = "config", defaultValue = "{}") Map<String, Object> config) {
+        Label relationLabel = Label.label(OSMSpatialJoin.getString(config, "relationLabel", OSMSpatialJoin.DEFAULT_RELATION_LABEL));
+        return OSMSpatialJoin.fromConfig(db, log, config).pairs(tx, Label.label(label), property, relationLabel)
+                .map(pair -> new JoinResult(tx.getNodeById(pair[0]), tx.getNodeById(pair[1])));
+    }
+
+    @Description("Creates a relationship from each node with the given label to every OSMRelation whose graph polygon contains its point property, " +
+            "in parallel batches each committed in its own transaction. " +
+            "Config: relationLabel (default OSMRelation), relationshipType (default CONTAINED_IN), batchSize (default 10000), " +
+            "concurrency (default number of processors), retries (default 5)")
+    @Procedure(name = "spatial.osm.join.write", mode = Mode.WRITE)
+    public Stream<OSMSpatialJoin.BatchResult> joinWrite(@Name("label") String label, @Name("property") String property, @Name(value = "config", defaultValue = "{}") Map<String, Object> config) {
+        Label relationLabel = Label.label(OSMSpatialJoin.getString(config, "relationLabel", OSMSpatialJoin.DEFAULT_RELATION_LABEL));
+        RelationshipType type = RelationshipType.withName(OSMSpatialJoin.getString(config, "relationshipType", OSMSpatialJoin.DEFAULT_RELATIONSHIP_TYPE));
+        return OSMSpatialJoin.fromConfig(db, log, config).write(tx, Label.label(label), property, relationLabel, type).stream();
+    }
+
+    @Description("Finds the pairs of OSMRelations whose graph polygons intersect or contain one another, " +
+            "generating candidates by their bounding boxes and testing them in parallel. Config: relationLabel (default OSMRelation)")
+    @Procedure(name = "spatial.osm.graph.overlapping", mode = Mode.READ)
+    public Stream<OverlapResult> overlapping(@Name(value = "config", defaultValue = "{}") Map<String, Object> config) {
+        Label relationLabel = Label.label(OSMSpatialJoin.getString(config, "relationLabel", OSMSpatialJoin.DEFAULT_RELATION_LABEL));
+        return OSMSpatialJoin.overlapping(tx, relationLabel).stream()
+                .map(pair -> new OverlapResult(tx.getNodeById(pair[0]), tx.getNodeById(pair[1])));
+    }
+
+    /**
+     * Replace the graph geometries of the OSMRelation by freshly traversed polygons or polylines.
+     *
+     * @param tx the transaction in which to build the geometries
+     * @param main The node representing the OSMRelation
+     */
+    public static void createOSMGraphGeometries(Transaction tx, Node main) {
         long id = (long) main.getProperty("relation_osm_id");
+        boolean indexed = PolygonCellIndex.isIndexed(main);
 
         HashMap<String, Object> parameters = new HashMap<>();
         parameters.put("id", id);
@@ -131,6 +250,10 @@ public class UserDefinedFunctions {
             builder = new GraphPolylineBuilder(tx, main, polylines);
         }
         builder.build();
+
+        if (indexed) {
+            PolygonCellIndex.reindex(tx, main);
+        }
     }
 
     public static MultiPolygon getGraphNodePolygon(Node main) {
@@ -147,6 +270,11 @@ public class UserDefinedFunctions {
         return getGraphNodePolygon(main).toWKT();
     }
 
+    @UserFunction(name = "spatial.osm.graph.polygonAsWKB")
+    public byte[] getGraphPolygonWKB(@Name("main") Node main) {
+        return WKBWriter.toWKB(getGraphNodePolygon(main));
+    }
+
     public static MultiPolygon getArrayPolygon(Node main) {
         MultiPolygon multiPolygon = new MultiPolygon();
         insertChildrenArray(main, multiPolygon);
@@ -191,6 +319,11 @@ public class UserDefinedFunctions {
         return getGraphNodePolyline(main).toWKT();
     }
 
+    @UserFunction(name = "spatial.osm.graph.polylineAsWKB")
+    public byte[] getGraphPolylineWKB(@Name("main") Node main) {
+        return WKBWriter.toWKB(getGraphNodePolyline(main));
+    }
+
     public static void insertChildrenGraphNode(Node node, MultiPolygon multiPolygon, long relationId) {
         for (Relationship polygonStructure : node.getRelationships(Direction.OUTGOING, Relation.POLYGON_STRUCTURE)) {
             Node child = polygonStructure.getEndNode();
@@ -299,7 +432,7 @@ public class UserDefinedFunctions {
 
     @UserFunction("spatial.algo.convexHull")
     public List<Point> convexHullPoints(@Name("points") List<Point> points) {
-        Polygon.SimplePolygon convexHull = CartesianConvexHull.convexHull(asInMemoryPoints(points));
+        Polygon.SimplePolygon convexHull = CartesianConvexHull.convexHull(asInMemoryPoints(points), ForkJoinPool.commonPool());
 
         return asNeo4jPoints(CoordinateReferenceSystem.WGS84, convexHull.getPoints());
     }
@@ -338,6 +471,14 @@ public class UserDefinedFunctions {
         return distance.distance(convertedPolygon1, convertedPolygon2);
     }
 
+    @UserFunction("spatial.algo.withinDistance")
+    public boolean withinDistance(@Name("polygon1") List<Point> polygon1, @Name("polygon2") List<Point> polygon2, @Name("distance") double distance) {
+        Polygon.SimplePolygon convertedPolygon1 = getSimplePolygon(polygon1);
+        Polygon.SimplePolygon convertedPolygon2 = getSimplePolygon(polygon2);
+
+        return DistanceCalculator.getCalculator(convertedPolygon1).isWithinDistance(convertedPolygon1, convertedPolygon2, distance);
+    }
+
     @UserFunction("spatial.algo.distance.ends")
     public Map<String, Object> distanceAndEndPoints(@Name("polygon1") List<Point> polygon1, @Name("polygon2") List<Point> polygon2) {
         try {
@@ -467,4 +608,32 @@ public class UserDefinedFunctions {
             this.point = point;
         }
     }
+
+    public class JoinResult {
+        public Node point;
+        public Node relation;
+
+        private JoinResult(Node point, Node relation) {
+            this.point = point;
+            this.relation = relation;
+        }
+    }
+
+    public class OverlapResult {
+        public Node first;
+        public Node second;
+
+        private OverlapResult(Node first, Node second) {
+            this.first = first;
+            this.second = second;
+        }
+    }
+
+    public class RelationResult {
+        public Node relation;
+
+        private RelationResult(Node relation) {
+            this.relation = relation;
+        }
+    }
 }
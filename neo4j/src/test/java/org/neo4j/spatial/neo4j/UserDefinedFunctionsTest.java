@@ -11,6 +11,7 @@ import org.neo4j.graphdb.*;
 import org.neo4j.graphdb.spatial.Point;
 import org.neo4j.graphdb.traversal.Evaluators;
 import org.neo4j.internal.helpers.collection.Iterables;
+import org.neo4j.internal.helpers.collection.Iterators;
 import org.neo4j.kernel.api.procedure.GlobalProcedures;
 import org.neo4j.kernel.impl.traversal.MonoDirectionalTraversalDescription;
 import org.neo4j.kernel.internal.GraphDatabaseAPI;
@@ -25,6 +26,8 @@ import java.util.stream.Collectors;
 import static org.hamcrest.CoreMatchers.*;
 import static org.hamcrest.Matchers.closeTo;
 import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.junit.Assert.*;
 import static org.neo4j.configuration.GraphDatabaseSettings.DEFAULT_DATABASE_NAME;
 
@@ -363,6 +366,10 @@ public class UserDefinedFunctionsTest {
                 assertThat(WKT, equalTo("MULTILINESTRING((3.0 2.0,3.0 1.0,3.0 0.0,2.0 2.0,2.0 1.0,2.0 0.0,1.0 2.0,1.0 1.0,1.0 0.0,0.0 2.0,0.0 1.0,0.0 0.0))"));
             }
 
+            result = tx.execute("MATCH (m) WHERE id(m) = $mainId RETURN spatial.osm.graph.polylineAsWKB(m) AS WKB", map("mainId", mainId));
+            byte[] wkb = (byte[]) result.next().get("WKB");
+            assertThat("one multilinestring header and one linestring of 12 points", wkb.length, equalTo(9 + 9 + 12 * 16));
+
             tx.commit();
         }
     }
@@ -410,7 +417,365 @@ public class UserDefinedFunctionsTest {
         }
     }
 
+    @Test
+    public void shouldCreateOSMGraphPolygonsInBatches() {
+        try (Transaction tx = db.beginTx()) {
+            Node main = tx.createNode(Label.label("OSMRelation"));
+            main.setProperty("relation_osm_id", 1L);
+            createNestedSquareOSM(tx, main);
+
+            //The remaining relations share all their ways with the first relation
+            for (long id = 2; id <= 4; id++) {
+                Node other = tx.createNode(Label.label("OSMRelation"));
+                other.setProperty("relation_osm_id", id);
+                for (Relationship member : main.getRelationships(Direction.OUTGOING, Relation.MEMBER)) {
+                    other.createRelationshipTo(member.getEndNode(), Relation.MEMBER);
+                }
+            }
+            tx.commit();
+        }
+
+        testResult(db, "CALL spatial.osm.graph.createPolygons('OSMRelation', {batchSize: 1, concurrency: 4, retries: 20})", result -> {
+            List<Map<String, Object>> batches = Iterators.asList(result);
+            assertThat("Should have one row per batch", batches.size(), equalTo(4));
+            for (Map<String, Object> batch : batches) {
+                assertThat("Batch should succeed: " + batch, batch.get("built"), equalTo(1L));
+                assertThat("Batch should succeed: " + batch, batch.get("failed"), equalTo(0L));
+            }
+        });
+
+        testResult(db, "MATCH (m:OSMRelation)-[:POLYGON_STRUCTURE]->(s:Shell)-[:POLYGON_STRUCTURE]->(h:Hole) RETURN m.relation_osm_id AS id ORDER BY id", result -> {
+            List<Object> ids = Iterators.asList(result.columnAs("id"));
+            assertThat(ids, equalTo(Arrays.asList(1L, 2L, 3L, 4L)));
+        });
+
+        testResult(db, "MATCH (m:OSMRelation) RETURN spatial.osm.graph.polygonAsWKT(m) AS wkt", result -> {
+            List<Object> wkts = Iterators.asList(result.columnAs("wkt"));
+            assertThat(wkts.size(), equalTo(4));
+            Set<String> expected = wktCoordinates((String) wkts.get(0));
+            assertThat("Should traverse both squares", expected.size(), equalTo(16));
+            for (Object wkt : wkts) {
+                assertThat(wktCoordinates((String) wkt), equalTo(expected));
+            }
+        });
+    }
+
+    private static Set<String> wktCoordinates(String wkt) {
+        return Arrays.stream(wkt.replaceAll("[A-Z()]", "").split(",")).map(String::trim).collect(Collectors.toSet());
+    }
+
+    @Test
+    public void shouldCreateOSMGraphPolygonsForRelationIds() {
+        try (Transaction tx = db.beginTx()) {
+            Node main = tx.createNode(Label.label("OSMRelation"));
+            main.setProperty("relation_osm_id", 1L);
+            createNestedSquareOSM(tx, main);
+            tx.commit();
+        }
+
+        testCall(db, "CALL spatial.osm.graph.createPolygons.ids([1, 2])", map(), result -> {
+            assertThat(result.get("built"), equalTo(1L));
+            assertThat(result.get("failed"), equalTo(0L));
+        });
+        testCallCount(db, "MATCH (:OSMRelation)-[:POLYGON_STRUCTURE*]->(p:Polygon) RETURN p", map(), 2);
+    }
+
+    @Test
+    public void shouldUpdateOnlyChangedRingsOfOSMGraphPolygon() {
+        long mainId;
+        try (Transaction tx = db.beginTx()) {
+            Node main = tx.createNode(Label.label("OSMRelation"));
+            main.setProperty("relation_osm_id", 1L);
+            mainId = main.getId();
+            createNestedSquareOSM(tx, main);
+            tx.commit();
+        }
+
+        testCall(db, "CALL spatial.osm.graph.createPolygon.nodeId($mainId)", map("mainId", mainId));
+        testCall(db, "MATCH (m) WHERE id(m) = $mainId CALL spatial.osm.property.createPolygon(m) RETURN count(*)", map("mainId", mainId));
+
+        Map<String, Long> before = new HashMap<>();
+        testResult(db, "MATCH (:OSMRelation)-[:POLYGON_STRUCTURE*]->(p:Polygon) RETURN labels(p) AS labels, id(p) AS id", result ->
+                result.forEachRemaining(row -> before.put(row.get("labels").toString(), (Long) row.get("id"))));
+        assertThat(before.size(), equalTo(2));
+
+        //Move a corner of the inner square
+        testCall(db, "MATCH (n:OSMNode) WHERE n.location = point({x: 10, y: 10}) SET n.location = point({x: 10, y: 11}) " +
+                "WITH collect(n) AS changed CALL spatial.osm.graph.updatePolygons(changed) YIELD relation, kept, created, deleted, rebuilt " +
+                "RETURN relation, kept, created, deleted, rebuilt", map(), result -> {
+            assertThat(result.get("relation"), equalTo(1L));
+            assertThat(result.get("kept"), equalTo(1L));
+            assertThat(result.get("created"), equalTo(1L));
+            assertThat(result.get("deleted"), equalTo(1L));
+            assertThat(result.get("rebuilt"), equalTo(false));
+        });
+
+        testCall(db, "MATCH (m:OSMRelation)-[:POLYGON_STRUCTURE]->(s:Shell)-[:POLYGON_STRUCTURE]->(h:Hole) RETURN id(s) AS shell, id(h) AS hole, h.polygon AS polygon", map(), result -> {
+            assertThat("Should keep the outer ring", result.get("shell"), equalTo(before.get("[Polygon, Shell]")));
+            assertThat("Should replace the inner ring", result.get("hole"), not(equalTo(before.get("[Polygon, Hole]"))));
+            assertThat("Should cache the moved corner", (List<Point>) result.get("polygon"), hasItem(Values.pointValue(CoordinateReferenceSystem.Cartesian, 10, 11)));
+        });
+
+        testCall(db, "MATCH (n:OSMNode) WHERE n.location = point({x: 100, y: 100}) WITH collect(n) AS changed CALL spatial.osm.graph.updatePolygons(changed) YIELD kept, created RETURN kept, created", map(), result -> {
+            assertThat(result.get("kept"), equalTo(1L));
+            assertThat(result.get("created"), equalTo(1L));
+        });
+    }
+
+    @Test
+    public void shouldBuildSameGraphPolygonInBothWriteModes() {
+        long mainId;
+        try (Transaction tx = db.beginTx()) {
+            Node main = tx.createNode(Label.label("OSMRelation"));
+            main.setProperty("relation_osm_id", 1L);
+            mainId = main.getId();
+            createNestedSquareOSM(tx, main);
+            tx.commit();
+        }
+
+        Map<GraphBuilder.WriteMode, Set<String>> structures = new HashMap<>();
+        for (GraphBuilder.WriteMode mode : GraphBuilder.WriteMode.values()) {
+            try (Transaction tx = db.beginTx()) {
+                Node main = tx.getNodeById(mainId);
+                List<List<Node>> polygons = OSMTraverser.traverseOSMGraph(tx, main).first();
+                new GraphPolygonBuilder(tx, main, polygons, mode).build();
+
+                Result result = tx.execute("MATCH (a)-[r:NEXT_IN_POLYGON]->(b) RETURN id(a) AS a, id(b) AS b, r.relation_osm_ids AS ids " +
+                        "UNION MATCH (m)-[:POLYGON_STRUCTURE*]->(p:Polygon)-[:POLYGON_START]->(w) WHERE id(m) = $main RETURN labels(p) AS a, id(w) AS b, null AS ids", map("main", mainId));
+                structures.put(mode, result.stream().map(row -> row.get("a") + "-" + row.get("b") + "-" + Arrays.toString((long[]) row.get("ids"))).collect(Collectors.toSet()));
+                tx.rollback();
+            }
+        }
+
+        assertThat(structures.get(GraphBuilder.WriteMode.BATCHED).size(), equalTo(6));
+        assertThat(structures.get(GraphBuilder.WriteMode.BATCHED), equalTo(structures.get(GraphBuilder.WriteMode.PER_EDGE)));
+    }
+
+    @Test
+    public void shouldCreateOSMGraphPolygonFromManyShuffledWays() {
+        long mainId;
+        try (Transaction tx = db.beginTx()) {
+            Node main = tx.createNode(Label.label("OSMRelation"));
+            main.setProperty("relation_osm_id", 1L);
+            mainId = main.getId();
+            createShuffledRingOSM(tx, main, 50, new Random(42));
+            tx.commit();
+        }
+
+        testCall(db, "CALL spatial.osm.graph.createPolygon.nodeId($mainId)", map("mainId", mainId));
+        testCallCount(db, "MATCH (m)-[:POLYGON_STRUCTURE]->(p:Shell) WHERE id(m) = $mainId RETURN p", map("mainId", mainId), 1);
+        testCall(db, "MATCH (m) WHERE id(m) = $mainId RETURN spatial.osm.graph.polygonAsWKT(m) AS wkt", map("mainId", mainId), result -> {
+            assertThat(wktCoordinates((String) result.get("wkt")).size(), equalTo(100));
+        });
+    }
+
+    @Test
+    public void shouldFindContainingRelationsByPolygonCells() {
+        try (Transaction tx = db.beginTx()) {
+            Node main = tx.createNode(Label.label("OSMRelation"));
+            main.setProperty("relation_osm_id", 1L);
+            createNestedSquareOSM(tx, main, CoordinateReferenceSystem.WGS84, 0.5);
+            tx.commit();
+        }
+        testCall(db, "CALL spatial.osm.graph.createPolygonCellIndex()", map());
+        testCall(db, "MATCH (m:OSMRelation) CALL spatial.osm.graph.createPolygon(m) RETURN count(*)", map());
+
+        long[] cells = new long[1];
+        testCall(db, "MATCH (m:OSMRelation) CALL spatial.osm.graph.createPolygonCells(m, {maxLevel: 10, maxCells: 100}) YIELD relation, interior, boundary RETURN relation, interior, boundary", map(), result -> {
+            assertThat(result.get("relation"), equalTo(1L));
+            assertThat((Long) result.get("interior"), greaterThan(0L));
+            assertThat((Long) result.get("boundary"), greaterThan(0L));
+            cells[0] = (Long) result.get("interior") + (Long) result.get("boundary");
+        });
+        testCall(db, "MATCH (:OSMRelation)-[:POLYGON_CELL]->(c:PolygonCell) RETURN count(c) AS cells", map(), result ->
+                assertThat(result.get("cells"), equalTo(cells[0])));
+        assertThat(cells[0], lessThanOrEqualTo(100L));
+
+        for (double[] inside : new double[][]{{30, 30}, {-40, -20}, {49.9, 0}, {5.1, 0}}) {
+            testCall(db, "CALL spatial.osm.containing(point({longitude: $x, latitude: $y})) YIELD relation RETURN relation.relation_osm_id AS id", map("x", inside[0], "y", inside[1]), result ->
+                    assertThat(result.get("id"), equalTo(1L)));
+        }
+        for (double[] outside : new double[][]{{2, 2}, {60, 0}, {4.9, 0}, {-120, 10}}) {
+            testCallCount(db, "CALL spatial.osm.containing(point({longitude: $x, latitude: $y})) YIELD relation RETURN relation", map("x", outside[0], "y", outside[1]), 0);
+        }
+    }
+
+    @Test
+    public void shouldJoinPointsWithContainingRelations() {
+        try (Transaction tx = db.beginTx()) {
+            for (long id = 1; id <= 2; id++) {
+                Node main = tx.createNode(Label.label("OSMRelation"));
+                main.setProperty("relation_osm_id", id);
+                createNestedSquareOSM(tx, main, CoordinateReferenceSystem.Cartesian, 1.0 / id);
+            }
+            double[][] locations = new double[][]{{30, 30}, {-40, -20}, {7, 0}, {70, 0}, {3, 0}, {300, 0}};
+            for (int i = 0; i < locations.length; i++) {
+                Node event = tx.createNode(Label.label("Event"));
+                event.setProperty("name", "event" + i);
+                event.setProperty("location", Values.pointValue(CoordinateReferenceSystem.Cartesian, locations[i]));
+            }
+            tx.createNode(Label.label("Event")).setProperty("location", Values.pointValue(CoordinateReferenceSystem.WGS84, 50, 50));
+            tx.createNode(Label.label("Event"));
+            tx.commit();
+        }
+        testCall(db, "MATCH (m:OSMRelation) CALL spatial.osm.graph.createPolygon(m) RETURN count(*)", map());
+
+        Map<String, Object> expected = map("event0", Arrays.asList(1L, 2L), "event1", Arrays.asList(1L, 2L), "event2", Arrays.asList(2L), "event3", Arrays.asList(1L));
+        String collect = " RETURN point.name AS name, collect(relation.relation_osm_id) AS ids ORDER BY name";
+        testResult(db, "CALL spatial.osm.join('Event', 'location', {batchSize: 3, concurrency: 2}) YIELD point, relation" +
+                " WITH point, relation ORDER BY relation.relation_osm_id" + collect, map(), result -> {
+            int rows = 0;
+            while (result.hasNext()) {
+                Map<String, Object> row = result.next();
+                assertThat(row.get("ids"), equalTo(expected.get(row.get("name"))));
+                rows++;
+            }
+            assertThat(rows, equalTo(expected.size()));
+        });
+
+        testResult(db, "CALL spatial.osm.join.write('Event', 'location', {batchSize: 3, concurrency: 2, relationshipType: 'IN'}) YIELD points, pairs, failed" +
+                " RETURN sum(points) AS points, sum(pairs) AS pairs, sum(failed) AS failed", map(), result -> {
+            Map<String, Object> row = result.next();
+            assertThat(row.get("points"), equalTo(6L));
+            assertThat(row.get("pairs"), equalTo(6L));
+            assertThat(row.get("failed"), equalTo(0L));
+        });
+        testResult(db, "MATCH (point:Event)-[:IN]->(relation:OSMRelation) WITH point, relation ORDER BY relation.relation_osm_id" + collect, map(), result -> {
+            int rows = 0;
+            while (result.hasNext()) {
+                Map<String, Object> row = result.next();
+                assertThat(row.get("ids"), equalTo(expected.get(row.get("name"))));
+                rows++;
+            }
+            assertThat(rows, equalTo(expected.size()));
+        });
+    }
+
+    @Test
+    public void shouldJoinPointsWithRelationsInBothCRS() {
+        try (Transaction tx = db.beginTx()) {
+            Node cartesian = tx.createNode(Label.label("OSMRelation"));
+            cartesian.setProperty("relation_osm_id", 1L);
+            createNestedSquareOSM(tx, cartesian, CoordinateReferenceSystem.Cartesian, 1.0);
+            Node wgs84 = tx.createNode(Label.label("OSMRelation"));
+            wgs84.setProperty("relation_osm_id", 2L);
+            createNestedSquareOSM(tx, wgs84, CoordinateReferenceSystem.WGS84, 0.5);
+
+            double[][] cartesianLocations = new double[][]{{30, 30}, {300, 0}};
+            double[][] wgs84Locations = new double[][]{{30, 30}, {-40, -20}, {5.1, 0}, {2, 2}, {4.9, 0}, {60, 0}};
+            for (int i = 0; i < cartesianLocations.length; i++) {
+                Node event = tx.createNode(Label.label("Event"));
+                event.setProperty("name", "cartesian" + i);
+                event.setProperty("location", Values.pointValue(CoordinateReferenceSystem.Cartesian, cartesianLocations[i]));
+            }
+            for (int i = 0; i < wgs84Locations.length; i++) {
+                Node event = tx.createNode(Label.label("Event"));
+                event.setProperty("name", "wgs84" + i);
+                event.setProperty("location", Values.pointValue(CoordinateReferenceSystem.WGS84, wgs84Locations[i]));
+            }
+            tx.commit();
+        }
+        testCall(db, "MATCH (m:OSMRelation) CALL spatial.osm.graph.createPolygon(m) RETURN count(*)", map());
+
+        Map<String, Object> expected = map("cartesian0", 1L, "wgs840", 2L, "wgs841", 2L, "wgs842", 2L);
+        testResult(db, "CALL spatial.osm.join('Event', 'location', {batchSize: 2, concurrency: 2}) YIELD point, relation" +
+                " RETURN point.name AS name, relation.relation_osm_id AS id", map(), result -> {
+            int rows = 0;
+            while (result.hasNext()) {
+                Map<String, Object> row = result.next();
+                assertThat(row.get("id"), equalTo(expected.get(row.get("name"))));
+                rows++;
+            }
+            assertThat(rows, equalTo(expected.size()));
+        });
+
+        testResult(db, "CALL spatial.osm.join.write('Event', 'location', {batchSize: 2, concurrency: 2, relationshipType: 'IN'}) YIELD points, pairs, failed" +
+                " RETURN sum(points) AS points, sum(pairs) AS pairs, sum(failed) AS failed", map(), result -> {
+            Map<String, Object> row = result.next();
+            assertThat(row.get("points"), equalTo(8L));
+            assertThat(row.get("pairs"), equalTo(4L));
+            assertThat(row.get("failed"), equalTo(0L));
+        });
+        testResult(db, "MATCH (point:Event)-[:IN]->(relation:OSMRelation) RETURN point.name AS name, relation.relation_osm_id AS id", map(), result -> {
+            int rows = 0;
+            while (result.hasNext()) {
+                Map<String, Object> row = result.next();
+                assertThat(row.get("id"), equalTo(expected.get(row.get("name"))));
+                rows++;
+            }
+            assertThat(rows, equalTo(expected.size()));
+        });
+    }
+
+    @Test
+    public void shouldFindOverlappingRelations() {
+        try (Transaction tx = db.beginTx()) {
+            for (long id = 1; id <= 2; id++) {
+                Node main = tx.createNode(Label.label("OSMRelation"));
+                main.setProperty("relation_osm_id", id);
+                createNestedSquareOSM(tx, main, CoordinateReferenceSystem.Cartesian, 1.0 / id);
+            }
+            Node main = tx.createNode(Label.label("OSMRelation"));
+            main.setProperty("relation_osm_id", 3L);
+            createNestedSquareOSM(tx, main, CoordinateReferenceSystem.WGS84, 0.5);
+            tx.createNode(Label.label("OSMRelation")).setProperty("relation_osm_id", 4L);
+            tx.commit();
+        }
+        testCall(db, "MATCH (m:OSMRelation) WHERE m.relation_osm_id < 4 CALL spatial.osm.graph.createPolygon(m) RETURN count(*)", map());
+
+        testResult(db, "CALL spatial.osm.graph.overlapping() YIELD first, second" +
+                " RETURN first.relation_osm_id AS first, second.relation_osm_id AS second", map(), result -> {
+            Map<String, Object> row = result.next();
+            assertThat(Arrays.asList(row.get("first"), row.get("second")), containsInAnyOrder(1L, 2L));
+            assertThat(result.hasNext(), equalTo(false));
+        });
+    }
+
+    /**
+     * Creates a ring of ways around a circle, with the ways in random order and direction.
+     * Neighbouring ways share their end node.
+     */
+    private void createShuffledRingOSM(Transaction tx, Node main, int wayCount, Random random) {
+        Node[] points = new Node[2 * wayCount];
+        for (int i = 0; i < points.length; i++) {
+            double angle = 2 * Math.PI * i / points.length;
+            points[i] = tx.createNode(Label.label("OSMNode"));
+            points[i].setProperty("location", Values.pointValue(CoordinateReferenceSystem.WGS84, 10 + Math.cos(angle), 50 + Math.sin(angle)));
+        }
+
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < wayCount; i++) {
+            order.add(i);
+        }
+        Collections.shuffle(order, random);
+
+        for (int i : order) {
+            List<Node> nodes = new ArrayList<>(Arrays.asList(points[2 * i], points[2 * i + 1], points[(2 * i + 2) % points.length]));
+            if (random.nextBoolean()) {
+                Collections.reverse(nodes);
+            }
+
+            Node way = tx.createNode(Label.label("OSMWay"));
+            main.createRelationshipTo(way, Relation.MEMBER);
+            Node previous = null;
+            for (Node node : nodes) {
+                Node wayNode = tx.createNode(Label.label("OSMWayNode"));
+                wayNode.createRelationshipTo(node, Relation.NODE);
+                if (previous == null) {
+                    way.createRelationshipTo(wayNode, Relation.FIRST_NODE);
+                } else {
+                    previous.createRelationshipTo(wayNode, Relation.NEXT);
+                }
+                previous = wayNode;
+            }
+        }
+    }
+
     private long createNestedSquareOSM(Transaction tx, Node main) {
+        return createNestedSquareOSM(tx, main, CoordinateReferenceSystem.Cartesian, 1);
+    }
+
+    private long createNestedSquareOSM(Transaction tx, Node main, CoordinateReferenceSystem crs, double scale) {
         Node[] ways = new Node[4];
         Node[][] wayNodes = new Node[ways.length][4];
         Node[][] nodes = new Node[ways.length][4];
@@ -420,22 +785,22 @@ public class UserDefinedFunctionsTest {
         Label nodeLabel = Label.label("OSMNode");
 
         Point[] points = new Point[]{
-                Values.pointValue(CoordinateReferenceSystem.Cartesian, 0.001, -10),
-                Values.pointValue(CoordinateReferenceSystem.Cartesian, 10, -10),
-                Values.pointValue(CoordinateReferenceSystem.Cartesian, 10, 10),
-                Values.pointValue(CoordinateReferenceSystem.Cartesian, 0.001, 10),
-                Values.pointValue(CoordinateReferenceSystem.Cartesian, -0.001, -10),
-                Values.pointValue(CoordinateReferenceSystem.Cartesian, -10, -10),
-                Values.pointValue(CoordinateReferenceSystem.Cartesian, -10, 10),
-                Values.pointValue(CoordinateReferenceSystem.Cartesian, -0.001, 10),
-                Values.pointValue(CoordinateReferenceSystem.Cartesian, 0.001, -100),
-                Values.pointValue(CoordinateReferenceSystem.Cartesian, 100, -100),
-                Values.pointValue(CoordinateReferenceSystem.Cartesian, 100, 100),
-                Values.pointValue(CoordinateReferenceSystem.Cartesian, 0.001, 100),
-                Values.pointValue(CoordinateReferenceSystem.Cartesian, -0.001, -100),
-                Values.pointValue(CoordinateReferenceSystem.Cartesian, -100, -100),
-                Values.pointValue(CoordinateReferenceSystem.Cartesian, -100, 100),
-                Values.pointValue(CoordinateReferenceSystem.Cartesian, -0.001, 100)
+                point(crs, scale, 0.001, -10),
+                point(crs, scale, 10, -10),
+                point(crs, scale, 10, 10),
+                point(crs, scale, 0.001, 10),
+                point(crs, scale, -0.001, -10),
+                point(crs, scale, -10, -10),
+                point(crs, scale, -10, 10),
+                point(crs, scale, -0.001, 10),
+                point(crs, scale, 0.001, -100),
+                point(crs, scale, 100, -100),
+                point(crs, scale, 100, 100),
+                point(crs, scale, 0.001, 100),
+                point(crs, scale, -0.001, -100),
+                point(crs, scale, -100, -100),
+                point(crs, scale, -100, 100),
+                point(crs, scale, -0.001, 100)
         };
 
 
@@ -468,6 +833,10 @@ public class UserDefinedFunctionsTest {
         return ways[0].getId();
     }
 
+    private static Point point(CoordinateReferenceSystem crs, double scale, double x, double y) {
+        return Values.pointValue(crs, scale * x, scale * y);
+    }
+
     @Test
     public void shouldFailToMakePolygonFromNullField() {
         testCallFails(db, "RETURN spatial.polygon($points)", map("points", null), "Invalid 'points', should be a list of at least 3, but was: null");
@@ -600,6 +969,25 @@ public class UserDefinedFunctionsTest {
         });
     }
 
+    @Test
+    public void shouldFindWhetherTwoPolygonsAreWithinDistance() {
+        ArrayList<Point> a = new ArrayList<>();
+        a.add(Values.pointValue(CoordinateReferenceSystem.WGS84, 1, 1));
+        a.add(Values.pointValue(CoordinateReferenceSystem.WGS84, 2, 1));
+        a.add(Values.pointValue(CoordinateReferenceSystem.WGS84, 2, 2));
+        a.add(Values.pointValue(CoordinateReferenceSystem.WGS84, 1, 2));
+
+        ArrayList<Point> b = new ArrayList<>();
+        b.add(Values.pointValue(CoordinateReferenceSystem.WGS84, -1, -1));
+        b.add(Values.pointValue(CoordinateReferenceSystem.WGS84, -2, -1));
+        b.add(Values.pointValue(CoordinateReferenceSystem.WGS84, -2, -2));
+        b.add(Values.pointValue(CoordinateReferenceSystem.WGS84, -1, -2));
+
+        String query = "WITH spatial.polygon($a) AS a, spatial.polygon($b) AS b RETURN spatial.algo.withinDistance(a, b, $distance) AS within";
+        testCall(db, query, map("a", a, "b", b, "distance", 2 * oneByOneDiagonal + 1000), result -> assertThat(result.get("within"), equalTo(true)));
+        testCall(db, query, map("a", a, "b", b, "distance", 2 * oneByOneDiagonal - 1000), result -> assertThat(result.get("within"), equalTo(false)));
+    }
+
     @Test
     public void shouldFindDistanceAndEndPointsBetweenTwoPolygons() {
         // square above-right of equator-utm
@@ -649,6 +1037,27 @@ public class UserDefinedFunctionsTest {
         });
     }
 
+    @Test
+    public void shouldFindDistanceAndEndPointsBetweenTwoCartesianPolygons() {
+        ArrayList<Point> a = new ArrayList<>();
+        a.add(Values.pointValue(CoordinateReferenceSystem.Cartesian, 0, 0));
+        a.add(Values.pointValue(CoordinateReferenceSystem.Cartesian, 10, 0));
+        a.add(Values.pointValue(CoordinateReferenceSystem.Cartesian, 10, 10));
+        a.add(Values.pointValue(CoordinateReferenceSystem.Cartesian, 0, 10));
+
+        ArrayList<Point> b = new ArrayList<>();
+        b.add(Values.pointValue(CoordinateReferenceSystem.Cartesian, 20, 5));
+        b.add(Values.pointValue(CoordinateReferenceSystem.Cartesian, 13, 3));
+        b.add(Values.pointValue(CoordinateReferenceSystem.Cartesian, 20, 0));
+
+        testCall(db, "WITH spatial.polygon($a) AS a, spatial.polygon($b) AS b RETURN spatial.algo.distance.ends(a,b) AS dist", map("a", a, "b", b), result -> {
+            Map dist = (Map) result.get("dist");
+            assertThat(dist.get("distance"), equalTo(3.0));
+            assertThat(dist.get("start"), equalTo(Values.pointValue(CoordinateReferenceSystem.Cartesian, 10, 3)));
+            assertThat(dist.get("end"), equalTo(Values.pointValue(CoordinateReferenceSystem.Cartesian, 13, 3)));
+        });
+    }
+
     @Test
     public void shouldFindDistanceAndEndPointsBetweenTwoPolygonsWithInterpolation() {
         // square above equator-utm